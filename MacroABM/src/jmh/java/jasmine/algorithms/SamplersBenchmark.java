@@ -0,0 +1,90 @@
+package jasmine.algorithms;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.distribution.BetaDistribution;
+import org.apache.commons.math3.distribution.BinomialDistribution;
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* Cost of a draw of the samplers, against the commons-math distributions created for every draw that they replace (see KFirm.innovation()
+ and KFirm.imitation()). The beta distribution of the innovations uses the algorithm BB with the calibration of the model (alpha1 = beta1 =
+ 3), the algorithm BC is measured with alpha1 = 0.5.
+
+ 	mvn -Pjmh package
+ 	java -jar target/benchmarks.jar SamplersBenchmark -prof gc
+
+ The gc profiler reports the bytes allocated per draw (gc.alloc.rate.norm), none for the samplers. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SamplersBenchmark {
+
+	private final static double LOWER 			= -0.15;
+
+	private final static double UPPER 			= 0.15;
+
+	// Probability of a success of the Bernoulli draws
+	private final static double P 				= 0.3;
+
+	private RandomGenerator rnd;
+
+	@Setup
+	public void setUp(){
+		this.rnd 								= new MersenneTwister(20130101);
+	}
+
+	// Parameters of the beta distribution, only for the benchmarks of the beta distribution
+	@State(Scope.Thread)
+	public static class Beta {
+
+		@Param({"3", "0.5"})
+		double alpha;
+
+		final double beta 						= 3;
+
+		Samplers.ScaledBeta scaledBeta;
+
+		@Setup
+		public void setUp(){
+			this.scaledBeta 					= new Samplers.ScaledBeta(alpha, beta, LOWER, UPPER);
+		}
+	}
+
+	@Benchmark
+	public double betaDistribution(Beta parameters){
+		double innovation 						= new BetaDistribution(rnd, parameters.alpha, parameters.beta,
+													BetaDistribution.DEFAULT_INVERSE_ABSOLUTE_ACCURACY).sample();
+		return LOWER + innovation * (UPPER - LOWER);
+	}
+
+	@Benchmark
+	public double scaledBeta(Beta parameters){
+		return parameters.scaledBeta.sample(rnd);
+	}
+
+	@Benchmark
+	public boolean binomialDistribution(){
+		return new BinomialDistribution(rnd, 1, P).sample() == 1;
+	}
+
+	@Benchmark
+	public boolean bernoulli(){
+		return Samplers.bernoulli(rnd, P);
+	}
+
+}
@@ -0,0 +1,248 @@
+package jasmine.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import microsim.event.EventGroup;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jasmine.data.Parameters;
+import jasmine.experiment.MacroCollector;
+
+/* Cost of the market kernels on the columns of the c-firms (see FirmColumns), the load of the columns from the firms and the store of
+ the market shares back in the firms included, against the same kernels straight over the firms:
+ - the normalization of the market shares and the price indices of the collector, two or three passes over the firms
+ 	(MacroCollector.marketShareNormalization() and priceIndices(), on the firms, against the columns as the collector used them);
+ - the competitiveness and the market shares of the c-firms, about ten passes over the firms (MacroModel.marketCompetitiveness(), on the
+ 	columns, against the loops over the firms it used before the columns).
+ Both variants of a kernel return the same values, and start from the firms of a run warmed up for WARM_UP_PERIODS periods. The
+ competitiveness changes the market shares, so that both of its variants first restore the market shares of the warmed-up run.
+
+ 	mvn -Pjmh package
+ 	java -jar target/benchmarks.jar FirmColumnsBenchmark -prof gc */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FirmColumnsBenchmark {
+
+	private final static int WARM_UP_PERIODS 	= 50;
+
+	// Number of c-firms of the run, with a k-firm for four c-firms as in the default parameters
+	@Param({"200", "2000", "20000"})
+	int numberOfCFirms;
+
+	private MacroModel model;
+
+	private MacroCollector collector;
+
+	private List<CFirm> cFirms;
+
+	private List<KFirm> kFirms;
+
+	private FirmColumns cColumns;
+
+	private FirmColumns kColumns;
+
+	// Market shares of the c-firms in the warmed-up run
+	private double[][] marketShares;
+
+	@Setup
+	public void setUp(){
+
+		this.model 								= new MacroModel();
+		this.collector 							= new MacroCollector(model);
+		model.setCollector(collector);
+		collector.setExportToCSV(false);
+		collector.setExportToDatabase(false);
+		collector.setExportFirmsData(false);
+		collector.setExportBankData(false);
+		model.setNumberOfCFirms(numberOfCFirms);
+		model.setNumberOfKFirms(numberOfCFirms / 4);
+		model.setEndTime((double) (WARM_UP_PERIODS + 1));
+
+		model.buildObjects();
+		collector.buildObjects();
+		EventGroup period 						= model.buildPeriodEventGroup();
+		for(int t = 0; t < WARM_UP_PERIODS; t++)
+			period.fireEvent();
+		this.cFirms 							= model.getCFirms();
+		this.kFirms 							= model.getKFirms();
+		this.cColumns 							= new FirmColumns(cFirms.size());
+		this.kColumns 							= new FirmColumns(kFirms.size());
+
+		this.marketShares 						= new double[cFirms.size()][];
+		for(int i = 0; i < cFirms.size(); i++)
+			marketShares[i] 					= cFirms.get(i).marketShare.clone();
+
+		double[][] kMarketShares 				= new double[kFirms.size()][];
+		for(int i = 0; i < kFirms.size(); i++)
+			kMarketShares[i] 					= kFirms.get(i).marketShare.clone();
+		double onColumns 						= normalizationAndPriceIndicesOnColumns();
+		double[][] marketSharesOnColumns 		= marketShares(cFirms, kFirms);
+		restoreMarketShares();
+		for(int i = 0; i < kFirms.size(); i++)
+			System.arraycopy(kMarketShares[i], 0, kFirms.get(i).marketShare, 0, kMarketShares[i].length);
+		double onFirms 							= normalizationAndPriceIndicesOnFirms();
+		if(Double.compare(onColumns, onFirms) != 0 || !Arrays.deepEquals(marketSharesOnColumns, marketShares(cFirms, kFirms)))
+			throw new IllegalStateException("The normalization and the price indices differ on the columns and on the firms");
+
+		// The market shares of the warmed-up run are normalized from now on
+		for(int i = 0; i < cFirms.size(); i++)
+			marketShares[i] 					= cFirms.get(i).marketShare.clone();
+
+		onColumns 								= competitivenessOnColumns();
+		marketSharesOnColumns 					= marketShares(cFirms, kFirms);
+		onFirms 								= competitivenessOnFirms();
+		if(Double.compare(onColumns, onFirms) != 0 || !Arrays.deepEquals(marketSharesOnColumns, marketShares(cFirms, kFirms)))
+			throw new IllegalStateException("The competitiveness differs on the columns and on the firms");
+	}
+
+	@Benchmark
+	public double normalizationAndPriceIndicesOnFirms(){
+
+		collector.marketShareNormalization();
+		collector.priceIndices();
+		return collector.cpi[1] + collector.ppi[1];
+	}
+
+	@Benchmark
+	public double normalizationAndPriceIndicesOnColumns(){
+
+		cColumns.load(cFirms);
+		collector.marketShareNormalization(cColumns);
+		cColumns.storeMarketShares(cFirms);
+
+		cColumns.load(cFirms);
+		kColumns.load(kFirms);
+		int nC 									= cColumns.size();
+		int nK 									= kColumns.size();
+		double production_kFirms 				= FirmColumns.sum(kColumns.productionQuantity, nK);
+		if(production_kFirms > 0){
+			for(int i = 0; i < nK; i++)
+				kColumns.marketShareNext[i] 	= kColumns.productionQuantity[i] / production_kFirms;
+		} else
+			System.arraycopy(kColumns.marketShareNow, 0, kColumns.marketShareNext, 0, nK);
+		kColumns.storeMarketShares(kFirms);
+
+		double cpi 								= FirmColumns.dot(cColumns.priceNow, cColumns.marketShareNext, nC);
+		double ppi;
+		if(production_kFirms > 0)
+			ppi 								= FirmColumns.dot(kColumns.priceNow, kColumns.marketShareNext, nK);
+		else
+			ppi 								= FirmColumns.sum(kColumns.priceNow, nK) / (double) model.getNumberOfKFirms();
+		return cpi + ppi;
+	}
+
+	@Benchmark
+	public double competitivenessOnColumns(){
+
+		restoreMarketShares();
+		model.marketCompetitiveness();
+		return collector.meanCompetitiveness_cFirms[1];
+	}
+
+	@Benchmark
+	public double competitivenessOnFirms(){
+
+		restoreMarketShares();
+		Parameters parameters 					= model.getParameters();
+		Bank bank 								= model.getBank();
+
+		double meanUnfilledDemand 				= 0;
+		double meanPastPrice 					= 0;
+		double meanPresentPrice 				= 0;
+		for(CFirm cFirm : cFirms)
+			meanUnfilledDemand 					+= cFirm.unfilledDemand;
+		for(CFirm cFirm : cFirms)
+			meanPastPrice 						+= cFirm.priceOfGoodProduced[0];
+		for(CFirm cFirm : cFirms)
+			meanPresentPrice 					+= cFirm.priceOfGoodProduced[1];
+		meanUnfilledDemand 						/= cFirms.size();
+		double meanPrice 						= ( meanPastPrice / cFirms.size() + meanPresentPrice / cFirms.size() ) / 2.;
+
+		collector.marketShareNormalization();
+
+		double coeffPrice 						= parameters.getCoeffPriceCompetitiveness_cFirms();
+		double coeffUnfilledDemand 				= parameters.getCoeffUnfilledDemandCompetitiveness_cFirms();
+		double meanCompetitiveness 				= 0;
+		for(CFirm cFirm : cFirms){
+			if(Double.compare(meanUnfilledDemand, 0.) != 0)
+				cFirm.competitiveness 			= - coeffPrice * cFirm.priceOfGoodProduced[1] / meanPrice -
+													coeffUnfilledDemand * cFirm.unfilledDemand / meanUnfilledDemand;
+			else
+				cFirm.competitiveness 			= - coeffPrice * cFirm.priceOfGoodProduced[1] / meanPrice;
+		}
+		for(CFirm cFirm : cFirms)
+			meanCompetitiveness 				+= cFirm.competitiveness * cFirm.marketShare[1];
+		collector.meanCompetitiveness_cFirms[1] = meanCompetitiveness;
+
+		double chi 								= parameters.getChi_cFirms();
+		double threshold 						= parameters.getMarketShareThresholdForExit_cFirms();
+		for(CFirm cFirm : cFirms)
+			cFirm.marketShare[2] 				= cFirm.marketShare[1] * (1 + chi * ( cFirm.competitiveness - meanCompetitiveness ) / meanCompetitiveness );
+		for(CFirm cFirm : cFirms){
+			if(cFirm.marketShare[2] < threshold){
+
+				cFirm.exit 						= true;
+				cFirm.marketShare[0] 			= 0;
+				cFirm.marketShare[1] 			= 0;
+				cFirm.marketShare[2] 			= 0;
+
+				if(cFirm.debt[1] > cFirm.liquidAsset[1]){
+					if(cFirm.liquidAsset[1] > 0){
+						cFirm.debt[1] 			-= cFirm.liquidAsset[1];
+						bank.debt 				-= cFirm.liquidAsset[1];
+						cFirm.liquidAsset[1] 	= 0;
+					}
+					cFirm.badDebt 				= cFirm.debt[1];
+					bank.badDebt 				+= cFirm.debt[1];
+				} else {
+					bank.debt 					-= cFirm.debt[1];
+					cFirm.liquidAsset[1] 		-= cFirm.debt[1];
+					cFirm.debt[1] 				= 0;
+					cFirm.badDebt 				= 0;
+				}
+			}
+		}
+
+		collector.marketShareNormalization();
+		return meanCompetitiveness;
+	}
+
+	// Market shares of the warmed-up run, copied in the arrays of the c-firms
+	private void restoreMarketShares(){
+
+		for(int i = 0; i < cFirms.size(); i++)
+			System.arraycopy(marketShares[i], 0, cFirms.get(i).marketShare, 0, marketShares[i].length);
+	}
+
+	// Copy of the market shares of the firms, with the competitiveness of the c-firms
+	private static double[][] marketShares(List<CFirm> cFirms, List<KFirm> kFirms){
+
+		double[][] marketShares 				= new double[cFirms.size() + kFirms.size()][];
+		for(int i = 0; i < cFirms.size(); i++){
+			CFirm cFirm 						= cFirms.get(i);
+			marketShares[i] 					= new double[]{ cFirm.marketShare[0], cFirm.marketShare[1], cFirm.marketShare[2],
+													cFirm.marketShareTemp, cFirm.competitiveness };
+		}
+		for(int i = 0; i < kFirms.size(); i++)
+			marketShares[cFirms.size() + i] 	= kFirms.get(i).marketShare.clone();
+		return marketShares;
+	}
+
+}
@@ -0,0 +1,114 @@
+package jasmine.object;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* Cost of the selection of the most productive machines of a c-firm (CFirm.machineSelection()): the walk along the productivity ranking
+ of the vintage table, against the ranking the firm used to build in every period, i.e. a LinkedHashMap of the productivities sorted
+ through a LinkedList and copied into a second LinkedHashMap (MapSorting.sortByValueDescending(), since removed). Both select the
+ machines that produce half of the capital stock, and return the productivity of the selection.
+
+ 	mvn -Pjmh package
+ 	java -jar target/benchmarks.jar VintageTableBenchmark -prof gc */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VintageTableBenchmark {
+
+	// Number of vintages of the firm
+	@Param({"5", "20", "100"})
+	int numberOfVintages;
+
+	private VintageTable vintages;
+
+	// Number of machines needed to meet the production target
+	private int numberMachinesNeeded;
+
+	@Setup
+	public void setUp(){
+
+		// Vintages delivered over the periods, each one more productive than the previous ones on average
+		Random random 							= new Random(20130101);
+		this.vintages 							= new VintageTable(numberOfVintages);
+		double productivity 					= 1;
+		long capitalStock 						= 0;
+		for(int v = 0; v < numberOfVintages; v++){
+			productivity 						*= Math.exp(0.02 + 0.05 * random.nextGaussian());
+			int quantity 						= 1 + random.nextInt(20);
+			vintages.add(productivity, v, quantity);
+			capitalStock 						+= quantity;
+		}
+		this.numberMachinesNeeded 				= (int) (capitalStock / 2);
+
+		if(Double.compare(productivityRanking(), mapSorting()) != 0)
+			throw new IllegalStateException("The two rankings do not select the same machines");
+	}
+
+	@Benchmark
+	public double productivityRanking(){
+
+		int i 									= numberMachinesNeeded;
+		double productivity 					= 0;
+		for(int rank = 0; rank < vintages.size() && i > 0; rank++){
+			int m 								= vintages.getRowByProductivityRank(rank);
+			int quantity 						= Math.min(vintages.getQuantity(m), i);
+			productivity 						+= vintages.getProductivity(m) * quantity / numberMachinesNeeded;
+			i 									-= quantity;
+		}
+		return productivity;
+	}
+
+	@Benchmark
+	public double mapSorting(){
+
+		Map<Integer, Double> productivitySet 	= new LinkedHashMap<>();
+		for(int v = 0; v < vintages.size(); v++)
+			productivitySet.put(v, vintages.getProductivity(v));
+		Map<Integer, Double> productivityRanked = sortByValueDescending(productivitySet);
+
+		int i 									= numberMachinesNeeded;
+		double productivity 					= 0;
+		for(Map.Entry<Integer, Double> entry : productivityRanked.entrySet()){
+			if(i <= 0)
+				break;
+			int m 								= entry.getKey();
+			int quantity 						= Math.min(vintages.getQuantity(m), i);
+			productivity 						+= vintages.getProductivity(m) * quantity / numberMachinesNeeded;
+			i 									-= quantity;
+		}
+		return productivity;
+	}
+
+	// MapSorting.sortByValueDescending(), as the firms called it
+	private static <K, V extends Comparable<? super V>> Map<K, V> sortByValueDescending(Map<K, V> map){
+
+		List<Map.Entry<K, V>> list 				= new LinkedList<>(map.entrySet());
+		Collections.sort(list, (o1, o2) -> o2.getValue().compareTo(o1.getValue()));
+
+		Map<K, V> result 						= new LinkedHashMap<>();
+		for(Map.Entry<K, V> entry : list)
+			result.put(entry.getKey(), entry.getValue());
+		return result;
+	}
+
+}
@@ -2,9 +2,11 @@ package jasmine.algorithms;
 
 import org.apache.log4j.Logger;
 
+import jasmine.algorithms.AdjustmentInputs.Adjustment;
 import jasmine.data.Parameters;
 import jasmine.model.CFirm;
-import jasmine.model.MacroModel;
+import jasmine.model.RunContext;
+import jasmine.object.PaymentFunction;
 
 public class APosterioriAdjustments {
 	
@@ -17,30 +19,103 @@ public class APosterioriAdjustments {
 	
 	private final static Logger log = Logger.getLogger(APosterioriAdjustments.class);
 	
-	static double qStar;
-	static double invExpStar;
-	static double invSubStar;
-	static double loanProd;
-	static double loanDebt;
-	static double liquidAssetPrime;
+	private double qStar;
+	private double invExpStar;
+	private double invSubStar;
+	private double loanProd;
+	private double loanDebt;
+	private double liquidAssetPrime;
 	
-	public static void adjustmentWithNilLoan(CFirm cFirm){
+	// variables of the firm being adjusted, read from its row of the packed inputs (see AdjustmentInputs and APrioriAdjustments)
+	private AdjustmentInputs in;
+	private int row;
+	private PaymentFunction payment;
+	private double price;
+	private double cost;
+	private double inventories;
+	private double expectedDemand;
+	private double liquidAsset;
+	private double debt;
+	private double supplierPrice;
+	private double loan;
+	private double desiredProduction;
+	private double desiredInvestmentSubstitutionary;
+	
+	private final AdjustmentInputs single;
+	
+	private final RunContext context;
+	private final Parameters parameters;
+	
+	public APosterioriAdjustments(RunContext context){
+		this.context = context;
+		this.parameters = context.getParameters();
+		this.single = new AdjustmentInputs(1);
+	}
+	
+	public void adjustmentWithNilLoan(CFirm cFirm){
+		adjust(cFirm, Adjustment.APosterioriNilLoan);
+	}
+	
+	public void adjustmentWithPositiveLoan(CFirm cFirm){
+		adjust(cFirm, Adjustment.APosterioriPositiveLoan);
+	}
+	
+	private void adjust(CFirm cFirm, Adjustment adjustment){
+		single.load(0, cFirm, adjustment);
+		solve(single, 0, 1);
+		single.store(0, cFirm);
+	}
+	
+	// Batch of firms, as APrioriAdjustments.solve(), for the rows with an a posteriori adjustment
+	public void solve(AdjustmentInputs inputs, int from, int to){
+		
+		for(int i = from; i < to; i++){
+			Adjustment adjustment = inputs.getAdjustment(i);
+			if(adjustment == Adjustment.APosterioriNilLoan){
+				loadRow(inputs, i);
+				nilLoan();
+			} else if(adjustment == Adjustment.APosterioriPositiveLoan){
+				loadRow(inputs, i);
+				positiveLoan();
+			}
+		}
+		this.in = null;
+		this.payment = null;
+	}
+	
+	private void loadRow(AdjustmentInputs inputs, int i){
+		this.in = inputs;
+		this.row = i;
+		this.payment = inputs.payments[i];
+		this.price = inputs.price[i];
+		this.cost = inputs.cost[i];
+		this.inventories = inputs.inventories[i];
+		this.expectedDemand = inputs.expectedDemand[i];
+		this.liquidAsset = inputs.liquidAsset[i];
+		this.debt = inputs.debt[i];
+		this.supplierPrice = inputs.supplierPrice[i];
+		this.loan = inputs.loan[i];
+		this.desiredProduction = inputs.desiredProduction[i];
+		this.desiredInvestmentSubstitutionary = inputs.desiredInvestmentSubstitutionary[i];
+	}
+	
+	private void nilLoan(){
 		
 		log.debug("Enter the adjustment with nil loan process");
 		
-		qStar = cFirm.getOptimalProduction();
-		invExpStar = cFirm.getInvestmentExpansionaryStar();
-		invSubStar = cFirm.getInvestmentSubstitionaryStar();
+		qStar = in.production[row];
+		invExpStar = in.investmentExpansionary[row];
+		invSubStar = in.investmentSubstitutionary[row];
 		
-		liquidAssetPrime = cFirm.getLiquidAssetRemainingAfterProductionAndInvestment();
+		liquidAssetPrime = in.liquidAssetRemaining[row];
 		// Because the firm does not have access to external funding:
 		loanProd = 0;
 		loanDebt = 0;
 		
 		// Collection of parameters
-		double param2 = Parameters.getDebtRepaymentSharePerPeriod_cFirms() + (1 - MacroModel.getTax()) * MacroModel.getrDebt();
-		double param1 = (1 - MacroModel.getTax()) * MacroModel.getrDepo();
-		double machinePrice = cFirm.getSupplier().getPriceOfGoodProducedNow();
+		double param2 = parameters.getDebtRepaymentSharePerPeriod_cFirms() + (1 - context.getTax()) * context.getrDebt();
+		double param1 = (1 - context.getTax()) * context.getrDepo();
+		double machinePrice = supplierPrice;
 		
 		boolean exitAdjustment = false;
 		
@@ -48,15 +123,15 @@ public class APosterioriAdjustments {
 		if(invSubStar > 0){
 			
 			invSubStar = 0;
-			if(cFirm.getBalanceSheet().payment(qStar, (long) invExpStar, 0, 0) > 0) {
+			if(payment.value(qStar, (long) invExpStar, 0, 0) > 0) {
 				
-				double salesTemp = cFirm.getPriceOfGoodProducedNow() * Math.min(qStar + cFirm.getInventories()[0], cFirm.getExpectedDemand());
+				double salesTemp = price * Math.min(qStar + inventories, expectedDemand);
 				
-				invSubStar = Parameters.getMachineSizeInCapital_cFirms() / (machinePrice * (1. + param1) ) * ( (cFirm.getLiquidAsset()[0] - qStar * cFirm.getCostToProduceGood() - invExpStar * machinePrice / Parameters.getMachineSizeInCapital_cFirms() ) * (1. + param1) +  
-						 (1. - MacroModel.getTax()) * salesTemp - param2 * cFirm.getDebt()[0]);
+				invSubStar = parameters.getMachineSizeInCapital_cFirms() / (machinePrice * (1. + param1) ) * ( (liquidAsset - qStar * cost - invExpStar * machinePrice / parameters.getMachineSizeInCapital_cFirms() ) * (1. + param1) +  
+						 (1. - context.getTax()) * salesTemp - param2 * debt);
 				
-				log.debug("Adjustment throuhg inv. sub. is possible; new inv. sub. = " + invSubStar + " and payment = " + cFirm.getBalanceSheet().payment(qStar, (long) (invExpStar + invSubStar), 0, 0));
-				invSubStar = Math.floor(invSubStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms();
+				if(log.isDebugEnabled()) log.debug("Adjustment throuhg inv. sub. is possible; new inv. sub. = " + invSubStar + " and payment = " + payment.value(qStar, (long) (invExpStar + invSubStar), 0, 0));
+				invSubStar = Math.floor(invSubStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms();
 				exitAdjustment = true;
 				
 			}
@@ -66,15 +141,15 @@ public class APosterioriAdjustments {
 		if(invExpStar > 0 && !exitAdjustment){
 			
 			invExpStar = 0;
-			if(cFirm.getBalanceSheet().payment(qStar, 0, 0, 0) > 0) {
+			if(payment.value(qStar, 0, 0, 0) > 0) {
 				
-				double salesTemp = cFirm.getPriceOfGoodProducedNow() * Math.min(qStar + cFirm.getInventories()[0], cFirm.getExpectedDemand());
+				double salesTemp = price * Math.min(qStar + inventories, expectedDemand);
 				
-				invExpStar = Parameters.getMachineSizeInCapital_cFirms() / (machinePrice * (1. + param1) )  * ( (cFirm.getLiquidAsset()[0] - qStar * cFirm.getCostToProduceGood() ) * (1. + param1) + 
-						(1. - MacroModel.getTax()) * salesTemp - param2 * cFirm.getDebt()[0]); 
+				invExpStar = parameters.getMachineSizeInCapital_cFirms() / (machinePrice * (1. + param1) )  * ( (liquidAsset - qStar * cost ) * (1. + param1) + 
+						(1. - context.getTax()) * salesTemp - param2 * debt); 
 						
-				log.debug("Adjustment throuhg inv. exp. is possible; new inv. exp. = " + invExpStar + " and payment = " + cFirm.getBalanceSheet().payment(qStar, (long) invExpStar, 0., 0.));
-				invExpStar = Math.floor(invExpStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms();
+				if(log.isDebugEnabled()) log.debug("Adjustment throuhg inv. exp. is possible; new inv. exp. = " + invExpStar + " and payment = " + payment.value(qStar, (long) invExpStar, 0., 0.));
+				invExpStar = Math.floor(invExpStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms();
 				exitAdjustment = true;	
 				
 			}
@@ -82,18 +157,18 @@ public class APosterioriAdjustments {
 		
 		// adjustments through inventories
 		if(!exitAdjustment){
-			if(cFirm.getExpectedDemand() > cFirm.getInventories()[0]){
-				if(qStar + cFirm.getInventories()[0] > cFirm.getExpectedDemand()){
+			if(expectedDemand > inventories){
+				if(qStar + inventories > expectedDemand){
 					
-					qStar = cFirm.getExpectedDemand() - cFirm.getInventories()[0];
+					qStar = expectedDemand - inventories;
 					
-					if(cFirm.getBalanceSheet().payment(qStar, 0l, 0., 0.) > 0){
+					if(payment.value(qStar, 0l, 0., 0.) > 0){
 						
-						qStar = 1. / (cFirm.getCostToProduceGood() * (1. + param1) ) * (cFirm.getLiquidAsset()[0] * (1. + param1) + (1. - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() * cFirm.getExpectedDemand() -
-								param2 * cFirm.getDebt()[0] ); 
+						qStar = 1. / (cost * (1. + param1) ) * (liquidAsset * (1. + param1) + (1. - context.getTax()) * price * expectedDemand -
+								param2 * debt ); 
 						
 						exitAdjustment = true;
-						log.debug("Adjustment throuhg inventories. is possible; new q = " + qStar + " and payment = " + cFirm.getBalanceSheet().payment(qStar, 0l, 0., 0.));
+						if(log.isDebugEnabled()) log.debug("Adjustment throuhg inventories. is possible; new q = " + qStar + " and payment = " + payment.value(qStar, 0l, 0., 0.));
 						
 					}
 				}
@@ -102,11 +177,11 @@ public class APosterioriAdjustments {
 				if(qStar > 0){
 					
 					qStar = 0;
-					if(cFirm.getBalanceSheet().payment(0., 0l, 0., 0.) > 0){
+					if(payment.value(0., 0l, 0., 0.) > 0){
 						
-						qStar = 1. / (cFirm.getCostToProduceGood() * (1. + param1) ) * (cFirm.getLiquidAsset()[0] * (1. + param1) + (1. - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() * cFirm.getExpectedDemand() -
-								param2 * cFirm.getDebt()[0] ); 
-						log.debug("Adjustment throuhg inventories. is possible; new q = " + qStar + " and payment = " + cFirm.getBalanceSheet().payment(qStar, 0l, 0., 0.));
+						qStar = 1. / (cost * (1. + param1) ) * (liquidAsset * (1. + param1) + (1. - context.getTax()) * price * expectedDemand -
+								param2 * debt ); 
+						if(log.isDebugEnabled()) log.debug("Adjustment throuhg inventories. is possible; new q = " + qStar + " and payment = " + payment.value(qStar, 0l, 0., 0.));
 						
 					} else {
 						qStar = 0.;
@@ -121,123 +196,123 @@ public class APosterioriAdjustments {
 		
 		// adjustments through production
 		if(!exitAdjustment){
-			if( cFirm.getPriceOfGoodProducedNow() < cFirm.getCostToProduceGood() * (1. + param1) / (1. - MacroModel.getTax()) ){
+			if( price < cost * (1. + param1) / (1. - context.getTax()) ){
 				
-				qStar = 1. / ( (1. - MacroModel.getTax() ) * ( cFirm.getPriceOfGoodProducedNow() - MacroModel.getrDepo() * cFirm.getCostToProduceGood()) - cFirm.getCostToProduceGood() )  * (
-						param2 * cFirm.getDebt()[0] - (1. + param1) * cFirm.getLiquidAsset()[0] - 
-						(1. - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() * cFirm.getInventories()[0]
+				qStar = 1. / ( (1. - context.getTax() ) * ( price - context.getrDepo() * cost) - cost )  * (
+						param2 * debt - (1. + param1) * liquidAsset - 
+						(1. - context.getTax()) * price * inventories
 						);
 				exitAdjustment = true;
-				log.debug("Payment is decreasing in q; optimal production is " + qStar + " with payment = " + cFirm.getBalanceSheet().payment(qStar, 0l, 0., 0.)); 
+				if(log.isDebugEnabled()) log.debug("Payment is decreasing in q; optimal production is " + qStar + " with payment = " + payment.value(qStar, 0l, 0., 0.)); 
 				
 				if(qStar < 0.)
 					qStar = 0.;
 				
 			} else {
-				qStar = cFirm.getExpectedDemand() - cFirm.getInventories()[0];
-				if(cFirm.getCostToProduceGood() * qStar > cFirm.getLiquidAsset()[0])
-					qStar =  cFirm.getLiquidAsset()[0] / cFirm.getCostToProduceGood();
+				qStar = expectedDemand - inventories;
+				if(cost * qStar > liquidAsset)
+					qStar =  liquidAsset / cost;
 				
-				log.debug("Payment is increasing in production; pick the level that max. the payment function. Q = " + qStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, 0l, 0., 0.)); 
+				if(log.isDebugEnabled()) log.debug("Payment is increasing in production; pick the level that max. the payment function. Q = " + qStar + " and payment " + payment.value(qStar, 0l, 0., 0.)); 
 			}
 		}
 		
 		// update the c-firms variables
-		cFirm.setProductionQuantity(qStar);
-		cFirm.setInvestmentExpansionary(invExpStar);
-		cFirm.setdInvestmentSubstitutionary(invSubStar);
-		cFirm.setLoanForDebtRepayment(0);
-		cFirm.setLoanForProductionAndInvestment(0);
+		in.production[row] = qStar;
+		in.investmentExpansionary[row] = invExpStar;
+		in.investmentSubstitutionary[row] = invSubStar;
+		in.loanForDebtRepayment[row] = 0;
+		in.loanForProductionAndInvestment[row] = 0;
 		
 	}
 	
-	public static void adjustmentWithPositiveLoan(CFirm cFirm){
+	private void positiveLoan(){
 		
 		log.debug("Enter the adjustment with positive loan process");
 		
 		
-		qStar = cFirm.getOptimalProduction();
-		invExpStar = cFirm.getInvestmentExpansionaryStar();
-		invSubStar = cFirm.getInvestmentSubstitionaryStar();
+		qStar = in.production[row];
+		invExpStar = in.investmentExpansionary[row];
+		invSubStar = in.investmentSubstitutionary[row];
 		
-		liquidAssetPrime = cFirm.getLiquidAssetRemainingAfterProductionAndInvestment();
+		liquidAssetPrime = in.liquidAssetRemaining[row];
 		// Because the firm does not have access to external funding:
-		loanProd = cFirm.getLoanForProductionAndInvestment();
-		loanDebt = cFirm.getLoanForDebtRepayment();
+		loanProd = in.loanForProductionAndInvestment[row];
+		loanDebt = in.loanForDebtRepayment[row];
 		
 		// Collection of parameters
-		double param2 = Parameters.getDebtRepaymentSharePerPeriod_cFirms() + (1. - MacroModel.getTax()) * MacroModel.getrDebt();
-		double param1 = (1 - MacroModel.getTax()) * MacroModel.getrDepo();
-		double machinePrice = cFirm.getSupplier().getPriceOfGoodProducedNow();
+		double param2 = parameters.getDebtRepaymentSharePerPeriod_cFirms() + (1. - context.getTax()) * context.getrDebt();
+		double param1 = (1 - context.getTax()) * context.getrDepo();
+		double machinePrice = supplierPrice;
 		
 		boolean exitAdjustment = false;
 		
 		// adjustments through sub. inv.
 		if(invSubStar > 0){
 			
-			double savings = machinePrice * invSubStar / Parameters.getMachineSizeInCapital_cFirms();
-			saving(savings, cFirm);
+			double savings = machinePrice * invSubStar / parameters.getMachineSizeInCapital_cFirms();
+			saving(savings);
 			invSubStar = 0;
 			
-			if(cFirm.getBalanceSheet().payment(qStar, (long) invExpStar, loanDebt, loanProd) > 0){
+			if(payment.value(qStar, (long) invExpStar, loanDebt, loanProd) > 0){
 				
-				double salesTemp = cFirm.getPriceOfGoodProducedNow() * Math.min(qStar + cFirm.getInventories()[0], cFirm.getExpectedDemand());
+				double salesTemp = price * Math.min(qStar + inventories, expectedDemand);
 				
 				if(loanProd > 0){
 					
-					invSubStar = (Parameters.getMachineSizeInCapital_cFirms() / machinePrice) * ( 
-							cFirm.getLiquidAsset()[0] + (1. - param2) * cFirm.getLoan() + (1. - MacroModel.getTax()) * salesTemp - 
-							cFirm.getCostToProduceGood() * qStar - param2 * cFirm.getDebt()[0] - machinePrice * invExpStar / Parameters.getMachineSizeInCapital_cFirms()
+					invSubStar = (parameters.getMachineSizeInCapital_cFirms() / machinePrice) * ( 
+							liquidAsset + (1. - param2) * loan + (1. - context.getTax()) * salesTemp - 
+							cost * qStar - param2 * debt - machinePrice * invExpStar / parameters.getMachineSizeInCapital_cFirms()
 							);
 					
-					loanProd = Math.max(0., cFirm.getCostToProduceGood() * qStar + cFirm.getSupplier().getPriceOfGoodProducedNow() * (invExpStar + invSubStar) / Parameters.getMachineSizeInCapital_cFirms() - cFirm.getLiquidAsset()[0]);
-					loanDebt = cFirm.getLoan() - loanProd;
-					liquidAssetPrime = Math.max(0., cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * qStar - cFirm.getSupplier().getPriceOfGoodProducedNow() * (invExpStar + invSubStar) / Parameters.getMachineSizeInCapital_cFirms());
+					loanProd = Math.max(0., cost * qStar + supplierPrice * (invExpStar + invSubStar) / parameters.getMachineSizeInCapital_cFirms() - liquidAsset);
+					loanDebt = loan - loanProd;
+					liquidAssetPrime = Math.max(0., liquidAsset - cost * qStar - supplierPrice * (invExpStar + invSubStar) / parameters.getMachineSizeInCapital_cFirms());
 					
-					log.debug("Find an optimal adj. through inv. sub. with new inv = " + invSubStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, (long) (invExpStar + invSubStar), loanDebt, loanProd));
+					if(log.isDebugEnabled()) log.debug("Find an optimal adj. through inv. sub. with new inv = " + invSubStar + " and payment " + payment.value(qStar, (long) (invExpStar + invSubStar), loanDebt, loanProd));
 					
-					savings = (invSubStar - Math.floor(invSubStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms()) / Parameters.getMachineSizeInCapital_cFirms() * machinePrice;
-					saving(savings, cFirm);
+					savings = (invSubStar - Math.floor(invSubStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms()) / parameters.getMachineSizeInCapital_cFirms() * machinePrice;
+					saving(savings);
 					
 				} else {
 					
-					double liquidAssetUsable = cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * qStar - machinePrice * invExpStar / Parameters.getMachineSizeInCapital_cFirms();
-					invSubStar = Math.min(cFirm.getdInvestmentSubstitutionary(), liquidAssetUsable * Parameters.getMachineSizeInCapital_cFirms() / machinePrice );
+					double liquidAssetUsable = liquidAsset - cost * qStar - machinePrice * invExpStar / parameters.getMachineSizeInCapital_cFirms();
+					invSubStar = Math.min(desiredInvestmentSubstitutionary, liquidAssetUsable * parameters.getMachineSizeInCapital_cFirms() / machinePrice );
 					loanProd = 0.;
-					loanDebt = cFirm.getLoan();
+					loanDebt = loan;
 					
-					if(cFirm.getBalanceSheet().payment(qStar, (long) (invExpStar + invSubStar), loanDebt, loanProd) > 0.){
+					if(payment.value(qStar, (long) (invExpStar + invSubStar), loanDebt, loanProd) > 0.){
 						
-						invSubStar = (Parameters.getMachineSizeInCapital_cFirms() / machinePrice) * ( 
-								cFirm.getLiquidAsset()[0] + (1. - param2) * cFirm.getLoan() + (1. - MacroModel.getTax()) * salesTemp - 
-								cFirm.getCostToProduceGood() * qStar - param2 * cFirm.getDebt()[0] - machinePrice * invExpStar / Parameters.getMachineSizeInCapital_cFirms()
+						invSubStar = (parameters.getMachineSizeInCapital_cFirms() / machinePrice) * ( 
+								liquidAsset + (1. - param2) * loan + (1. - context.getTax()) * salesTemp - 
+								cost * qStar - param2 * debt - machinePrice * invExpStar / parameters.getMachineSizeInCapital_cFirms()
 								);
 						
-						loanProd = Math.max(0., cFirm.getCostToProduceGood() * qStar + cFirm.getSupplier().getPriceOfGoodProducedNow() * (invExpStar + invSubStar) / Parameters.getMachineSizeInCapital_cFirms() - cFirm.getLiquidAsset()[0]);
-						loanDebt = cFirm.getLoan() - loanProd;
-						liquidAssetPrime = Math.max(0., cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * qStar - cFirm.getSupplier().getPriceOfGoodProducedNow() * (invExpStar + invSubStar) / Parameters.getMachineSizeInCapital_cFirms());
+						loanProd = Math.max(0., cost * qStar + supplierPrice * (invExpStar + invSubStar) / parameters.getMachineSizeInCapital_cFirms() - liquidAsset);
+						loanDebt = loan - loanProd;
+						liquidAssetPrime = Math.max(0., liquidAsset - cost * qStar - supplierPrice * (invExpStar + invSubStar) / parameters.getMachineSizeInCapital_cFirms());
 						
-						log.debug("Find an optimal adj. through inv. sub. with new inv = " + invSubStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, (long) (invExpStar + invSubStar), loanDebt, loanProd));
+						if(log.isDebugEnabled()) log.debug("Find an optimal adj. through inv. sub. with new inv = " + invSubStar + " and payment " + payment.value(qStar, (long) (invExpStar + invSubStar), loanDebt, loanProd));
 						
-						savings = (invSubStar - Math.floor(invSubStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms()) / Parameters.getMachineSizeInCapital_cFirms() * machinePrice;
-						saving(savings, cFirm);
+						savings = (invSubStar - Math.floor(invSubStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms()) / parameters.getMachineSizeInCapital_cFirms() * machinePrice;
+						saving(savings);
 						
 					} else {
 						
-						invSubStar = Parameters.getMachineSizeInCapital_cFirms() / (machinePrice * ( 1. + param1) ) * ( (1. - MacroModel.getTax()) * salesTemp + 
-								(cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * qStar - machinePrice * invExpStar / Parameters.getMachineSizeInCapital_cFirms() )  * ( 1. + param1) + (1. - param2) * loanDebt - 
-								param2 * cFirm.getDebt()[0]);
-						log.debug("Find an optimal adj. through inv. sub. with new inv = " + invSubStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, (long) (invExpStar + invSubStar), loanDebt, loanProd));
+						invSubStar = parameters.getMachineSizeInCapital_cFirms() / (machinePrice * ( 1. + param1) ) * ( (1. - context.getTax()) * salesTemp + 
+								(liquidAsset - cost * qStar - machinePrice * invExpStar / parameters.getMachineSizeInCapital_cFirms() )  * ( 1. + param1) + (1. - param2) * loanDebt - 
+								param2 * debt);
+						if(log.isDebugEnabled()) log.debug("Find an optimal adj. through inv. sub. with new inv = " + invSubStar + " and payment " + payment.value(qStar, (long) (invExpStar + invSubStar), loanDebt, loanProd));
 						
-						liquidAssetPrime = Math.max(0., cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * qStar - machinePrice * (invExpStar + invSubStar) / Parameters.getMachineSizeInCapital_cFirms());
-						savings = (invSubStar - Math.floor(invSubStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms()) / Parameters.getMachineSizeInCapital_cFirms() * machinePrice;
-						saving(savings, cFirm);
+						liquidAssetPrime = Math.max(0., liquidAsset - cost * qStar - machinePrice * (invExpStar + invSubStar) / parameters.getMachineSizeInCapital_cFirms());
+						savings = (invSubStar - Math.floor(invSubStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms()) / parameters.getMachineSizeInCapital_cFirms() * machinePrice;
+						saving(savings);
 						
 					}
 				}
 				
 				exitAdjustment = true;
-				invSubStar = Math.floor(invSubStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms();
+				invSubStar = Math.floor(invSubStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms();
 				
 			}
 			
@@ -246,116 +321,116 @@ public class APosterioriAdjustments {
 		// adjustments through sub. exp.
 		if(invExpStar > 0. && !exitAdjustment){
 			
-			double savings = machinePrice * invExpStar / Parameters.getMachineSizeInCapital_cFirms();
-			saving(savings, cFirm);
+			double savings = machinePrice * invExpStar / parameters.getMachineSizeInCapital_cFirms();
+			saving(savings);
 			invExpStar = 0.;
 			
-			if(cFirm.getBalanceSheet().payment(qStar, 0l, loanDebt, loanProd) > 0.){
+			if(payment.value(qStar, 0l, loanDebt, loanProd) > 0.){
 				
-				double salesTemp = cFirm.getPriceOfGoodProducedNow() * Math.min(qStar + cFirm.getInventories()[0], cFirm.getExpectedDemand());
+				double salesTemp = price * Math.min(qStar + inventories, expectedDemand);
 				
 				if(loanProd > 0.){
 					
-					invExpStar = (Parameters.getMachineSizeInCapital_cFirms() / machinePrice) * ( 
-							cFirm.getLiquidAsset()[0] + (1. - param2) * cFirm.getLoan() + (1. - MacroModel.getTax()) * salesTemp - 
-							cFirm.getCostToProduceGood() * qStar - param2 * cFirm.getDebt()[0] 
+					invExpStar = (parameters.getMachineSizeInCapital_cFirms() / machinePrice) * ( 
+							liquidAsset + (1. - param2) * loan + (1. - context.getTax()) * salesTemp - 
+							cost * qStar - param2 * debt 
 							);
 					
-					loanProd = Math.max(0., cFirm.getCostToProduceGood() * qStar + cFirm.getSupplier().getPriceOfGoodProducedNow() * (invExpStar) / Parameters.getMachineSizeInCapital_cFirms() - cFirm.getLiquidAsset()[0]);
-					loanDebt = cFirm.getLoan() - loanProd;
-					liquidAssetPrime = Math.max(0., cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * qStar - cFirm.getSupplier().getPriceOfGoodProducedNow() * (invExpStar) / Parameters.getMachineSizeInCapital_cFirms());
+					loanProd = Math.max(0., cost * qStar + supplierPrice * (invExpStar) / parameters.getMachineSizeInCapital_cFirms() - liquidAsset);
+					loanDebt = loan - loanProd;
+					liquidAssetPrime = Math.max(0., liquidAsset - cost * qStar - supplierPrice * (invExpStar) / parameters.getMachineSizeInCapital_cFirms());
 					
-					log.debug("Find an optimal adj. through inv. exp. with new inv = " + invExpStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, (long) (invExpStar), loanDebt, loanProd));
+					if(log.isDebugEnabled()) log.debug("Find an optimal adj. through inv. exp. with new inv = " + invExpStar + " and payment " + payment.value(qStar, (long) (invExpStar), loanDebt, loanProd));
 					
-					savings = (invExpStar - Math.floor(invExpStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms()) / Parameters.getMachineSizeInCapital_cFirms() * machinePrice;
-					saving(savings, cFirm);
+					savings = (invExpStar - Math.floor(invExpStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms()) / parameters.getMachineSizeInCapital_cFirms() * machinePrice;
+					saving(savings);
 					
 				} else {
 					
-					double liquidAssetUsable = cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * qStar;
-					invExpStar = Math.min(cFirm.getdInvestmentSubstitutionary(), liquidAssetUsable * Parameters.getMachineSizeInCapital_cFirms() / machinePrice );
+					double liquidAssetUsable = liquidAsset - cost * qStar;
+					invExpStar = Math.min(desiredInvestmentSubstitutionary, liquidAssetUsable * parameters.getMachineSizeInCapital_cFirms() / machinePrice );
 					loanProd = 0.;
-					loanDebt = cFirm.getLoan();
+					loanDebt = loan;
 					
-					if(cFirm.getBalanceSheet().payment(qStar, (long) (invExpStar), loanDebt, loanProd) > 0.){
+					if(payment.value(qStar, (long) (invExpStar), loanDebt, loanProd) > 0.){
 						
-						invExpStar = (Parameters.getMachineSizeInCapital_cFirms() / machinePrice) * ( 
-								cFirm.getLiquidAsset()[0] + (1. - param2) * cFirm.getLoan() + (1. - MacroModel.getTax()) * salesTemp - 
-								cFirm.getCostToProduceGood() * qStar - param2 * cFirm.getDebt()[0] 
+						invExpStar = (parameters.getMachineSizeInCapital_cFirms() / machinePrice) * ( 
+								liquidAsset + (1. - param2) * loan + (1. - context.getTax()) * salesTemp - 
+								cost * qStar - param2 * debt 
 								);
 						
-						loanProd = Math.max(0., cFirm.getCostToProduceGood() * qStar + cFirm.getSupplier().getPriceOfGoodProducedNow() * (invExpStar) / Parameters.getMachineSizeInCapital_cFirms() - cFirm.getLiquidAsset()[0]);
-						loanDebt = cFirm.getLoan() - loanProd;
-						liquidAssetPrime = Math.max(0., cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * qStar - cFirm.getSupplier().getPriceOfGoodProducedNow() * (invExpStar) / Parameters.getMachineSizeInCapital_cFirms());
+						loanProd = Math.max(0., cost * qStar + supplierPrice * (invExpStar) / parameters.getMachineSizeInCapital_cFirms() - liquidAsset);
+						loanDebt = loan - loanProd;
+						liquidAssetPrime = Math.max(0., liquidAsset - cost * qStar - supplierPrice * (invExpStar) / parameters.getMachineSizeInCapital_cFirms());
 						
-						log.debug("Find an optimal adj. through inv. exp. with new inv = " + invExpStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, (long) (invExpStar), loanDebt, loanProd));
+						if(log.isDebugEnabled()) log.debug("Find an optimal adj. through inv. exp. with new inv = " + invExpStar + " and payment " + payment.value(qStar, (long) (invExpStar), loanDebt, loanProd));
 						
-						savings = (invExpStar - Math.floor(invExpStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms()) / Parameters.getMachineSizeInCapital_cFirms() * machinePrice;
-						saving(savings, cFirm);
+						savings = (invExpStar - Math.floor(invExpStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms()) / parameters.getMachineSizeInCapital_cFirms() * machinePrice;
+						saving(savings);
 						
 					} else {
 						
-						invExpStar = Parameters.getMachineSizeInCapital_cFirms() / (machinePrice * ( 1. + param1) ) * ( (1. - MacroModel.getTax()) * salesTemp + 
-								(cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * qStar )  * ( 1. + param1) + (1. - param2) * loanDebt - 
-								param2 * cFirm.getDebt()[0]);
-						log.debug("Find an optimal adj. through inv. exp. with new inv = " + invExpStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, (long) (invExpStar), loanDebt, loanProd));
+						invExpStar = parameters.getMachineSizeInCapital_cFirms() / (machinePrice * ( 1. + param1) ) * ( (1. - context.getTax()) * salesTemp + 
+								(liquidAsset - cost * qStar )  * ( 1. + param1) + (1. - param2) * loanDebt - 
+								param2 * debt);
+						if(log.isDebugEnabled()) log.debug("Find an optimal adj. through inv. exp. with new inv = " + invExpStar + " and payment " + payment.value(qStar, (long) (invExpStar), loanDebt, loanProd));
 						
-						liquidAssetPrime = Math.max(0., cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * qStar - machinePrice * (invExpStar) / Parameters.getMachineSizeInCapital_cFirms());
-						savings = (invExpStar - Math.floor(invExpStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms()) / Parameters.getMachineSizeInCapital_cFirms() * machinePrice;
-						saving(savings, cFirm);
+						liquidAssetPrime = Math.max(0., liquidAsset - cost * qStar - machinePrice * (invExpStar) / parameters.getMachineSizeInCapital_cFirms());
+						savings = (invExpStar - Math.floor(invExpStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms()) / parameters.getMachineSizeInCapital_cFirms() * machinePrice;
+						saving(savings);
 						
 					}
 				}
 				
 				exitAdjustment = true;
-				invExpStar = Math.floor(invExpStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms();
+				invExpStar = Math.floor(invExpStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms();
 				
 			}
 		}
 		
 		// adjustments through inventories
 		if(!exitAdjustment){
-			if(cFirm.getExpectedDemand() > cFirm.getInventories()[0]){
-				if(qStar + cFirm.getInventories()[0] > cFirm.getExpectedDemand()){
+			if(expectedDemand > inventories){
+				if(qStar + inventories > expectedDemand){
 					
-					double savings = (qStar + cFirm.getInventories()[0] - cFirm.getExpectedDemand()) * cFirm.getCostToProduceGood();
-					saving(savings, cFirm);
-					qStar = cFirm.getExpectedDemand() - cFirm.getInventories()[0];
-					double salesTemp = cFirm.getPriceOfGoodProducedNow() * cFirm.getExpectedDemand();
+					double savings = (qStar + inventories - expectedDemand) * cost;
+					saving(savings);
+					qStar = expectedDemand - inventories;
+					double salesTemp = price * expectedDemand;
 					
-					if(cFirm.getBalanceSheet().payment(qStar, 0l, loanDebt, loanProd) > 0.){
+					if(payment.value(qStar, 0l, loanDebt, loanProd) > 0.){
 						
-						double qLiquidAsset = Math.min(cFirm.getdQ(), cFirm.getLiquidAsset()[0] / cFirm.getCostToProduceGood()); // = q** in APrioriAdjustment
+						double qLiquidAsset = Math.min(desiredProduction, liquidAsset / cost); // = q** in APrioriAdjustment
 						if(qLiquidAsset <= qStar){
 							
-							qStar = 1. / cFirm.getCostToProduceGood() * ( cFirm.getLiquidAsset()[0] + (1. - MacroModel.getTax()) * salesTemp + 
-			        				(1. - param2) * cFirm.getLoan() - param2 * cFirm.getDebt()[0]);
+							qStar = 1. / cost * ( liquidAsset + (1. - context.getTax()) * salesTemp + 
+			        				(1. - param2) * loan - param2 * debt);
 							exitAdjustment = true;
-							loanProd = cFirm.getCostToProduceGood() * qStar - cFirm.getLiquidAsset()[0]; // should be positive
-							loanDebt = cFirm.getLoan() - loanProd;
+							loanProd = cost * qStar - liquidAsset; // should be positive
+							loanDebt = loan - loanProd;
 							
-							log.debug("Adjustment through inventories; new production = " + qStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, 0l, loanDebt, loanProd) );
+							if(log.isDebugEnabled()) log.debug("Adjustment through inventories; new production = " + qStar + " and payment " + payment.value(qStar, 0l, loanDebt, loanProd) );
 							
 						} else {
-							if(cFirm.getBalanceSheet().payment(qLiquidAsset, 0l, cFirm.getLoan(), 0.) > 0.){
+							if(payment.value(qLiquidAsset, 0l, loan, 0.) > 0.){
 								
-								qStar = 1. / cFirm.getCostToProduceGood() * ( cFirm.getLiquidAsset()[0] + (1. - MacroModel.getTax()) * salesTemp + 
-				        				(1. - param2) * cFirm.getLoan() - param2 * cFirm.getDebt()[0]);
+								qStar = 1. / cost * ( liquidAsset + (1. - context.getTax()) * salesTemp + 
+				        				(1. - param2) * loan - param2 * debt);
 								exitAdjustment = true;
-								loanProd = cFirm.getCostToProduceGood() * qStar - cFirm.getLiquidAsset()[0]; // should be positive
-								loanDebt = cFirm.getLoan() - loanProd;
+								loanProd = cost * qStar - liquidAsset; // should be positive
+								loanDebt = loan - loanProd;
 								
-								log.debug("Adjustment through inventories; new production = " + qStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, 0l, loanDebt, loanProd) );
+								if(log.isDebugEnabled()) log.debug("Adjustment through inventories; new production = " + qStar + " and payment " + payment.value(qStar, 0l, loanDebt, loanProd) );
 								
 							} else {
 								
 								loanProd = 0.;
-								loanDebt = cFirm.getLoan();
-								qStar = 1. / (cFirm.getCostToProduceGood() * (1. + param1)) * ( cFirm.getLiquidAsset()[0] * ( 1. + param1) + (1. - MacroModel.getTax()) * salesTemp + 
-				        				(1. - param2) * cFirm.getLoan() - param2 * cFirm.getDebt()[0]);
+								loanDebt = loan;
+								qStar = 1. / (cost * (1. + param1)) * ( liquidAsset * ( 1. + param1) + (1. - context.getTax()) * salesTemp + 
+				        				(1. - param2) * loan - param2 * debt);
 								
 								exitAdjustment = true;
-								log.debug("Adjustment through inventories; new production = " + qStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, 0l, loanDebt, loanProd) );
+								if(log.isDebugEnabled()) log.debug("Adjustment through inventories; new production = " + qStar + " and payment " + payment.value(qStar, 0l, loanDebt, loanProd) );
 								
 							}
 						}	
@@ -365,33 +440,33 @@ public class APosterioriAdjustments {
 				exitAdjustment = true;
 				if(qStar > 0.){
 					
-					double savings = qStar * cFirm.getCostToProduceGood();
-					saving(savings, cFirm);
+					double savings = qStar * cost;
+					saving(savings);
 					qStar = 0.;
-					double salesTemp = cFirm.getPriceOfGoodProducedNow() * cFirm.getExpectedDemand();
+					double salesTemp = price * expectedDemand;
 					
-					if(cFirm.getBalanceSheet().payment(qStar, 0l, loanDebt, loanProd) > 0.){
+					if(payment.value(qStar, 0l, loanDebt, loanProd) > 0.){
 						
-						double qLiquidAsset = Math.min(cFirm.getdQ(), cFirm.getLiquidAsset()[0] / cFirm.getCostToProduceGood()); // = q** in APrioriAdjustment
+						double qLiquidAsset = Math.min(desiredProduction, liquidAsset / cost); // = q** in APrioriAdjustment
 						
-						if(cFirm.getBalanceSheet().payment(qLiquidAsset, 0l, cFirm.getLoan(), 0.) > 0.){
+						if(payment.value(qLiquidAsset, 0l, loan, 0.) > 0.){
 							
-							qStar = 1. / cFirm.getCostToProduceGood() * ( cFirm.getLiquidAsset()[0] + (1. - MacroModel.getTax()) * salesTemp + 
-			        				(1. - param2) * cFirm.getLoan() - param2 * cFirm.getDebt()[0]);
+							qStar = 1. / cost * ( liquidAsset + (1. - context.getTax()) * salesTemp + 
+			        				(1. - param2) * loan - param2 * debt);
 							exitAdjustment = true;
-							loanProd = cFirm.getCostToProduceGood() * qStar - cFirm.getLiquidAsset()[0]; // should be positive
-							loanDebt = cFirm.getLoan() - loanProd;
+							loanProd = cost * qStar - liquidAsset; // should be positive
+							loanDebt = loan - loanProd;
 							
-							log.debug("Adjustment through inventories; new production = " + qStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, 0l, loanDebt, loanProd) );
+							if(log.isDebugEnabled()) log.debug("Adjustment through inventories; new production = " + qStar + " and payment " + payment.value(qStar, 0l, loanDebt, loanProd) );
 							
 						} else {
 							
 							loanProd = 0.;
-							loanDebt = cFirm.getLoan();
-							qStar = 1. / (cFirm.getCostToProduceGood() * (1. + param1)) * ( cFirm.getLiquidAsset()[0] * ( 1. + param1) + (1. - MacroModel.getTax()) * salesTemp + 
-			        				(1. - param2) * cFirm.getLoan() - param2 * cFirm.getDebt()[0]);
+							loanDebt = loan;
+							qStar = 1. / (cost * (1. + param1)) * ( liquidAsset * ( 1. + param1) + (1. - context.getTax()) * salesTemp + 
+			        				(1. - param2) * loan - param2 * debt);
 							
-							log.debug("Adjustment through inventories; new production = " + qStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, 0l, loanDebt, loanProd) );
+							if(log.isDebugEnabled()) log.debug("Adjustment through inventories; new production = " + qStar + " and payment " + payment.value(qStar, 0l, loanDebt, loanProd) );
 							
 						}
 						
@@ -399,7 +474,7 @@ public class APosterioriAdjustments {
 						
 						qStar = 0.;
 						loanProd = 0.;
-						loanDebt = cFirm.getLoan();
+						loanDebt = loan;
 						
 						log.debug("Adjustment through inventories failed and cannot adjust further");
 						
@@ -408,7 +483,7 @@ public class APosterioriAdjustments {
 
 					qStar = 0.;
 					loanProd = 0.;
-					loanDebt = cFirm.getLoan();
+					loanDebt = loan;
 					
 					log.debug("Adjustment through inventories failed and cannot adjust further");
 					
@@ -421,79 +496,79 @@ public class APosterioriAdjustments {
 			
 			if(loanProd > 0.){
 				
-				if( (1. - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() < cFirm.getCostToProduceGood() ){
+				if( (1. - context.getTax()) * price < cost ){
 					
-					loanDebt = cFirm.getLoan();
+					loanDebt = loan;
 					loanProd = 0.;
-					qStar = Math.min(qStar, cFirm.getLiquidAsset()[0] / cFirm.getCostToProduceGood());
+					qStar = Math.min(qStar, liquidAsset / cost);
 					
-					if(cFirm.getBalanceSheet().payment(qStar, 0l, loanDebt, loanProd) > 0.){
+					if(payment.value(qStar, 0l, loanDebt, loanProd) > 0.){
 						
-						qStar = 1. / ( (1. - MacroModel.getTax() ) * cFirm.getPriceOfGoodProducedNow() - cFirm.getCostToProduceGood() ) * (param2 * cFirm.getDebt()[0] - 
-								(1. - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() * cFirm.getInventories()[0] - 
-								(1. - param2) * cFirm.getLoan() - cFirm.getLiquidAsset()[0]);
+						qStar = 1. / ( (1. - context.getTax() ) * price - cost ) * (param2 * debt - 
+								(1. - context.getTax()) * price * inventories - 
+								(1. - param2) * loan - liquidAsset);
 						
-						loanProd = Math.max(0., cFirm.getCostToProduceGood() * qStar - cFirm.getLiquidAsset()[0]); 
-						loanDebt = cFirm.getLoan() - loanProd;
+						loanProd = Math.max(0., cost * qStar - liquidAsset); 
+						loanDebt = loan - loanProd;
 						
-						log.debug("loanProd > 0 & payment is decreasing in q. Optimal qty is " + qStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, 0l, loanDebt, loanProd) );
+						if(log.isDebugEnabled()) log.debug("loanProd > 0 & payment is decreasing in q. Optimal qty is " + qStar + " and payment " + payment.value(qStar, 0l, loanDebt, loanProd) );
 						
 					} else {
 						
-						qStar = 1. / ((1. - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() - (1. + param1) * cFirm.getCostToProduceGood()) * (
-								param2 * cFirm.getDebt()[0] - (1. - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() * cFirm.getInventories()[0] - (1. - param2) * cFirm.getLoan() - 
-								cFirm.getLiquidAsset()[0] * (1. + param1)
+						qStar = 1. / ((1. - context.getTax()) * price - (1. + param1) * cost) * (
+								param2 * debt - (1. - context.getTax()) * price * inventories - (1. - param2) * loan - 
+								liquidAsset * (1. + param1)
 								);
 						
-						log.debug("loanProd > 0 & payment is decreasing in q but not sure if positive. Optimal qty is " + qStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, 0l, loanDebt, loanProd) );
+						if(log.isDebugEnabled()) log.debug("loanProd > 0 & payment is decreasing in q but not sure if positive. Optimal qty is " + qStar + " and payment " + payment.value(qStar, 0l, loanDebt, loanProd) );
 						
 						if(qStar < 0.)
 							qStar = 0.;
 						
 					}	
 				} else {
-					if( cFirm.getPriceOfGoodProducedNow() * (1. - MacroModel.getTax()) < cFirm.getCostToProduceGood() * ( 1. + param1) ){
+					if( price * (1. - context.getTax()) < cost * ( 1. + param1) ){
 						
-						qStar = 1. / ((1. - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() - (1. + param1) * cFirm.getCostToProduceGood()) * (
-								param2 * cFirm.getDebt()[0] - (1. - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() * cFirm.getInventories()[0] - (1. - param2) * cFirm.getLoan() - 
-								cFirm.getLiquidAsset()[0] * (1. + param1)
+						qStar = 1. / ((1. - context.getTax()) * price - (1. + param1) * cost) * (
+								param2 * debt - (1. - context.getTax()) * price * inventories - (1. - param2) * loan - 
+								liquidAsset * (1. + param1)
 								);
 						
 						if(qStar > 0.){
 							
-							loanDebt = cFirm.getLoan();
+							loanDebt = loan;
 							loanProd = 0.;
-							log.debug("Adjustment through production; optimal quantity is " + qStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, 0l, loanDebt, loanProd) );
+							if(log.isDebugEnabled()) log.debug("Adjustment through production; optimal quantity is " + qStar + " and payment " + payment.value(qStar, 0l, loanDebt, loanProd) );
 							
 						} else {
 							
-							qStar = cFirm.getExpectedDemand() - cFirm.getInventories()[0];
-							if(cFirm.getCostToProduceGood() * qStar <= cFirm.getLiquidAsset()[0]){
+							qStar = expectedDemand - inventories;
+							if(cost * qStar <= liquidAsset){
 								
-								liquidAssetPrime = cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * qStar;
+								liquidAssetPrime = liquidAsset - cost * qStar;
 								loanProd = 0.;
-								loanDebt = cFirm.getLoan();
+								loanDebt = loan;
 								
-							} else if(cFirm.getCostToProduceGood() * qStar <= cFirm.getLiquidAsset()[0] + cFirm.getLoan()){
+							} else if(cost * qStar <= liquidAsset + loan){
 								
 								liquidAssetPrime = 0.;
-								loanProd = cFirm.getLoan() + cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * qStar;
-								loanDebt = cFirm.getLoan() - loanProd;
+								loanProd = loan + liquidAsset - cost * qStar;
+								loanDebt = loan - loanProd;
 								
 							} else {
 								
-								qStar = (cFirm.getLoan() + cFirm.getLiquidAsset()[0]) / cFirm.getCostToProduceGood();
-								loanProd = cFirm.getLoan();
+								qStar = (loan + liquidAsset) / cost;
+								loanProd = loan;
 								loanDebt = 0.;
 								liquidAssetPrime = 0.;
 								
 							}
 							
-							if(cFirm.getBalanceSheet().payment(0., 0l, cFirm.getLoan(), 0.) > cFirm.getBalanceSheet().payment(qStar, 0l, loanDebt, loanProd)){
+							if(payment.value(0., 0l, loan, 0.) > payment.value(qStar, 0l, loanDebt, loanProd)){
 								
 								qStar = 0.;
 								loanProd = 0.;
-								loanDebt = cFirm.getLoan();
+								loanDebt = loan;
 								
 								log.debug("We are looking at the global max. Global max is with 0 prod & full loan allocated to debt");
 								
@@ -505,9 +580,9 @@ public class APosterioriAdjustments {
 						}
 					} else {
 						
-						qStar = Math.min(cFirm.getExpectedDemand() - cFirm.getInventories()[0], (cFirm.getLiquidAsset()[0] + cFirm.getLoan()) / cFirm.getCostToProduceGood());
-						loanProd = Math.max(0., qStar * cFirm.getCostToProduceGood()- cFirm.getLiquidAsset()[0]);
-						loanDebt = cFirm.getLoan() - loanProd;
+						qStar = Math.min(expectedDemand - inventories, (liquidAsset + loan) / cost);
+						loanProd = Math.max(0., qStar * cost- liquidAsset);
+						loanDebt = loan - loanProd;
 						
 						log.debug("Cf + l globally increasing in Q. Set it at level the most rational && achievable");
 					}
@@ -515,61 +590,61 @@ public class APosterioriAdjustments {
 				}
 			} else {
 				
-				loanDebt = cFirm.getLoan();
+				loanDebt = loan;
 				loanProd = 0.;
 				
-				if(cFirm.getPriceOfGoodProducedNow() < (1. + param1) / (1. - MacroModel.getTax()) * cFirm.getCostToProduceGood()){
+				if(price < (1. + param1) / (1. - context.getTax()) * cost){
 					
-					qStar = 1. / ( (1. - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() - (1. + param1) * cFirm.getCostToProduceGood() )  * (
-							param2 * cFirm.getDebt()[0] - (1. + param1) * cFirm.getLiquidAsset()[0] - 
-							(1. - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() * cFirm.getInventories()[0] - (1. - param2) * cFirm.getLoan()
+					qStar = 1. / ( (1. - context.getTax()) * price - (1. + param1) * cost )  * (
+							param2 * debt - (1. + param1) * liquidAsset - 
+							(1. - context.getTax()) * price * inventories - (1. - param2) * loan
 							);
 					
-					log.debug("loan prod = 0 & payment is decreasing in production; optimal production " + qStar + " and payment " + cFirm.getBalanceSheet().payment(qStar, 0l, loanDebt, loanProd) );
+					if(log.isDebugEnabled()) log.debug("loan prod = 0 & payment is decreasing in production; optimal production " + qStar + " and payment " + payment.value(qStar, 0l, loanDebt, loanProd) );
 					
 					if(qStar < 0.)
 						qStar = 0.;
 					
 				} else {
 					
-					qStar = cFirm.getExpectedDemand() - cFirm.getInventories()[0];
-					if(cFirm.getCostToProduceGood() * qStar <= cFirm.getLiquidAsset()[0]){
+					qStar = expectedDemand - inventories;
+					if(cost * qStar <= liquidAsset){
 						
-						liquidAssetPrime = cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * qStar;
+						liquidAssetPrime = liquidAsset - cost * qStar;
 						loanProd = 0.;
-						loanDebt = cFirm.getLoan();
+						loanDebt = loan;
 						
-					} else if(cFirm.getCostToProduceGood() * qStar <= cFirm.getLiquidAsset()[0] + cFirm.getLoan()){
+					} else if(cost * qStar <= liquidAsset + loan){
 						
 						liquidAssetPrime = 0.;
-						loanProd = cFirm.getLoan() + cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * qStar;
-						loanDebt = cFirm.getLoan() - loanProd;
+						loanProd = loan + liquidAsset - cost * qStar;
+						loanDebt = loan - loanProd;
 						
 					} else {
 						
-						qStar = (cFirm.getLoan() + cFirm.getLiquidAsset()[0]) / cFirm.getCostToProduceGood();
-						loanProd = cFirm.getLoan();
+						qStar = (loan + liquidAsset) / cost;
+						loanProd = loan;
 						loanDebt = 0.;
 						liquidAssetPrime = 0.;
 						
 					}
 					
-					log.debug("Payment is increasing in production. Set production at " + qStar);
+					if(log.isDebugEnabled()) log.debug("Payment is increasing in production. Set production at " + qStar);
 					
 				}
 			}
 		}
 		
 		// update the c-firms variables
-		cFirm.setProductionQuantity(qStar);
-		cFirm.setInvestmentExpansionary(invExpStar);
-		cFirm.setdInvestmentSubstitutionary(invSubStar);
-		cFirm.setLoanForDebtRepayment(loanDebt);
-		cFirm.setLoanForProductionAndInvestment(loanProd);
+		in.production[row] = qStar;
+		in.investmentExpansionary[row] = invExpStar;
+		in.investmentSubstitutionary[row] = invSubStar;
+		in.loanForDebtRepayment[row] = loanDebt;
+		in.loanForProductionAndInvestment[row] = loanProd;
 		
 	}
 	
-	static void saving (double cash, CFirm firm) {
+	void saving (double cash) {
 		
 		if(loanProd > cash){
 			
@@ -586,7 +661,7 @@ public class APosterioriAdjustments {
 			
 			liquidAssetPrime += cash;
 			loanProd = 0.;
-			loanDebt = firm.getLoan();
+			loanDebt = loan;
 			
 		}
 	}
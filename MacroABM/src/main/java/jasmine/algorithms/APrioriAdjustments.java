@@ -1,8 +1,10 @@
 package jasmine.algorithms;
 
+import jasmine.algorithms.AdjustmentInputs.Adjustment;
 import jasmine.data.Parameters;
 import jasmine.model.CFirm;
-import jasmine.model.MacroModel;
+import jasmine.model.RunContext;
+import jasmine.object.PaymentFunction;
 
 import org.apache.log4j.Logger;
 
@@ -20,29 +22,112 @@ public class APrioriAdjustments {
 	
 	private final static Logger log = Logger.getLogger(APrioriAdjustments.class);
 	
-	// list of static variables (use same notation as in CFirm class)
-	static double dQStar;
-	static double dInvExpStar;
-	static double dInvSubStar;
-	static double liquidAssetPrime;
-	static double loanProd;
-	static double loanDebt;
+	// list of scratch variables (use same notation as in CFirm class). One instance per run and per thread, held by the RunContext
+	private double dQStar;
+	private double dInvExpStar;
+	private double dInvSubStar;
+	private double liquidAssetPrime;
+	private double loanProd;
+	private double loanDebt;
+	
+	/* variables of the firm being adjusted, read from its row of the packed inputs (see AdjustmentInputs) before the adjustment. Same 
+	 notation as in the CFirm class, taken at the time of the adjustment (e.g. inventories = inventories[0], desired...Star = the plan 
+	 before the adjustment) */
+	private AdjustmentInputs in;
+	private int row;
+	private PaymentFunction payment;
+	private long id;
+	private double price;
+	private double cost;
+	private double inventories;
+	private double expectedDemand;
+	private double liquidAsset;
+	private double debt;
+	private double supplierPrice;
+	private double maxPossibleLoan;
+	private double desiredProduction;
+	private double desiredInvestmentExpansionaryStar;
+	private double desiredInvestmentSubstitionaryStar;
+	
+	// one-row inputs used to adjust a single firm
+	private final AdjustmentInputs single;
+	
+	private final RunContext context;
+	private final Parameters parameters;
+	
+	public APrioriAdjustments(RunContext context){
+		this.context = context;
+		this.parameters = context.getParameters();
+		this.single = new AdjustmentInputs(1);
+	}
+	
+	public void adjustmentsWithPositiveLiquidAsset(CFirm cFirm){
+		adjust(cFirm, Adjustment.APrioriPositiveLiquidAsset);
+	}
+	
+	public void adjustmentsWithNilLiquidAsset(CFirm cFirm){
+		adjust(cFirm, Adjustment.APrioriNilLiquidAsset);
+	}
+	
+	// adjusts a single firm, as a batch of one row: the results are the ones of solve() on a batch holding the firm
+	private void adjust(CFirm cFirm, Adjustment adjustment){
+		single.load(0, cFirm, adjustment);
+		solve(single, 0, 1);
+		single.store(0, cFirm);
+	}
+	
+	/* Batch of firms: undertakes the a priori adjustment of each row of the inputs between from (inclusive) and to (exclusive), and writes 
+	 the adjusted plan in the row. Rows without an a priori adjustment are left as they are. Different ranges of rows can be solved on 
+	 different threads, each with its own instance (see AdjustmentScratch) */
+	public void solve(AdjustmentInputs inputs, int from, int to){
+		
+		for(int i = from; i < to; i++){
+			Adjustment adjustment = inputs.getAdjustment(i);
+			if(adjustment == Adjustment.APrioriPositiveLiquidAsset){
+				loadRow(inputs, i);
+				positiveLiquidAsset();
+			} else if(adjustment == Adjustment.APrioriNilLiquidAsset){
+				loadRow(inputs, i);
+				nilLiquidAsset();
+			}
+		}
+		this.in = null;
+		this.payment = null;
+	}
+	
+	private void loadRow(AdjustmentInputs inputs, int i){
+		this.in = inputs;
+		this.row = i;
+		this.payment = inputs.payments[i];
+		this.id = inputs.id[i];
+		this.price = inputs.price[i];
+		this.cost = inputs.cost[i];
+		this.inventories = inputs.inventories[i];
+		this.expectedDemand = inputs.expectedDemand[i];
+		this.liquidAsset = inputs.liquidAsset[i];
+		this.debt = inputs.debt[i];
+		this.supplierPrice = inputs.supplierPrice[i];
+		this.maxPossibleLoan = inputs.maxPossibleLoan[i];
+		this.desiredProduction = inputs.desiredProduction[i];
+		this.desiredInvestmentExpansionaryStar = inputs.investmentExpansionary[i];
+		this.desiredInvestmentSubstitionaryStar = inputs.investmentSubstitutionary[i];
+	}
 
-	public static void adjustmentsWithPositiveLiquidAsset(CFirm cFirm){
+	private void positiveLiquidAsset(){
 		
-		log.debug("Adjustments With Positive Liquid Asset for CFirm " + cFirm.getKey().getId());
+		if(log.isDebugEnabled()) log.debug("Adjustments With Positive Liquid Asset for CFirm " + id);
 		
-		// initialize the static variables with the initial values of production, investment and loan (i.e. before any adjustment)
-		dQStar = cFirm.getProductionStar();
-		dInvExpStar = cFirm.getdInvestmentExpansionaryStar();
-		dInvSubStar = cFirm.getDesiredInvestmentSubstitionaryStar();
-		liquidAssetPrime = cFirm.getLiquidAssetRemainingAfterProductionAndInvestment();
-		loanProd = cFirm.getLoanForProductionAndInvestment();
-		loanDebt = cFirm.getLoanForDebtRepayment();
+		// initialize the scratch variables with the initial values of production, investment and loan (i.e. before any adjustment)
+		dQStar = in.production[row];
+		dInvExpStar = in.investmentExpansionary[row];
+		dInvSubStar = in.investmentSubstitutionary[row];
+		liquidAssetPrime = in.liquidAssetRemaining[row];
+		loanProd = in.loanForProductionAndInvestment[row];
+		loanDebt = in.loanForDebtRepayment[row];
 		
 		// collection of parameters to ease the computation of closed-form expression
-		double param1 = (1. - MacroModel.getTax()) * MacroModel.getrDepo(); // net interest rate, i.e. deducting from the government's tax on profit
-		double param2 = Parameters.getDebtRepaymentSharePerPeriod_cFirms() + (1. - MacroModel.getTax()) * MacroModel.getrDebt(); /* net debt service, i.e. debt repayments + 
+		double param1 = (1. - context.getTax()) * context.getrDepo(); // net interest rate, i.e. deducting from the government's tax on profit
+		double param2 = parameters.getDebtRepaymentSharePerPeriod_cFirms() + (1. - context.getTax()) * context.getrDebt(); /* net debt service, i.e. debt repayments + 
 		interest rate on the debt, taking into account the government's tax on profit */
 		
 		/* because compute closed-form solutions, the payment after adjustments tend to 0 but might be slightly different from 0. 
@@ -62,20 +147,20 @@ public class APrioriAdjustments {
 			adjusting on sub. inv. is not sufficient and c-firms move to the next adjustment round.
 			*/
 			dInvSubStar = 0.;
-			if(cFirm.getBalanceSheet().payment(dQStar, (long) dInvExpStar, loanDebt, 0.) >= 0.){
+			if(payment.value(dQStar, (long) dInvExpStar, loanDebt, 0.) >= 0.){
 				// then can use the mean value theorem
 				
 				// redefine some variables to make the closed-form solution look less long
-				double priceMachine = cFirm.getSupplier().getPriceOfGoodProducedNow();
-				double sales = cFirm.getPriceOfGoodProducedNow() * Math.min(dQStar + cFirm.getInventories()[0], cFirm.getExpectedDemand());
+				double priceMachine = supplierPrice;
+				double sales = price * Math.min(dQStar + inventories, expectedDemand);
 				
 				// closed-form expression for the 'optimal' level of sub. inv.
-				dInvSubStar = Parameters.getMachineSizeInCapital_cFirms() / (priceMachine * (1. + param1) ) * ( (cFirm.getLiquidAsset()[0] - dQStar * cFirm.getCostToProduceGood() - dInvExpStar * priceMachine / Parameters.getMachineSizeInCapital_cFirms()) * (1. + param1) + 
-						loanDebt * (1. - param2) + (1. - MacroModel.getTax()) * sales - param2 * cFirm.getDebt()[0] );
-				dInvSubStar = Math.floor(dInvSubStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms(); // do not forget that investment always need to be expressed in terms of machines
+				dInvSubStar = parameters.getMachineSizeInCapital_cFirms() / (priceMachine * (1. + param1) ) * ( (liquidAsset - dQStar * cost - dInvExpStar * priceMachine / parameters.getMachineSizeInCapital_cFirms()) * (1. + param1) + 
+						loanDebt * (1. - param2) + (1. - context.getTax()) * sales - param2 * debt );
+				dInvSubStar = Math.floor(dInvSubStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms(); // do not forget that investment always need to be expressed in terms of machines
 				
 				exitAdjustment = true;
-				log.debug("Adjustments through inv. sub. possible. New level of inv. sub = " + dInvSubStar + " and payment " + cFirm.getBalanceSheet().payment(dQStar, (long) (dInvExpStar + dInvSubStar), loanDebt, 0));
+				if(log.isDebugEnabled()) log.debug("Adjustments through inv. sub. possible. New level of inv. sub = " + dInvSubStar + " and payment " + payment.value(dQStar, (long) (dInvExpStar + dInvSubStar), loanDebt, 0));
 					
 			} // else: because payment is monotically decreasing in investment, leave dInvSubStar = 0
 		}
@@ -86,18 +171,18 @@ public class APrioriAdjustments {
 			
 			//NOTE: if c-firms reach this round, then de facto dInvSubStar = 0
 			dInvExpStar = 0.;
-			if(cFirm.getBalanceSheet().payment(dQStar, 0l, loanDebt, 0.) >= 0.){
+			if(payment.value(dQStar, 0l, loanDebt, 0.) >= 0.){
 				
-				double priceMachine = cFirm.getSupplier().getPriceOfGoodProducedNow();
-				double sales = cFirm.getPriceOfGoodProducedNow() * Math.min(dQStar + cFirm.getInventories()[0], cFirm.getExpectedDemand());
+				double priceMachine = supplierPrice;
+				double sales = price * Math.min(dQStar + inventories, expectedDemand);
 				
 				// closed-form expression for the 'optimal' level of sub. exp.
-				dInvExpStar = Parameters.getMachineSizeInCapital_cFirms() / (priceMachine * (1. + param1) ) * ( (cFirm.getLiquidAsset()[0] - dQStar * cFirm.getCostToProduceGood() ) * (1. + param1) + 
-						loanDebt * (1. - param2) + (1. - MacroModel.getTax()) * sales - param2 * cFirm.getDebt()[0] );
-				dInvExpStar = Math.floor(dInvExpStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms();
+				dInvExpStar = parameters.getMachineSizeInCapital_cFirms() / (priceMachine * (1. + param1) ) * ( (liquidAsset - dQStar * cost ) * (1. + param1) + 
+						loanDebt * (1. - param2) + (1. - context.getTax()) * sales - param2 * debt );
+				dInvExpStar = Math.floor(dInvExpStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms();
 				
 				exitAdjustment = true;
-				log.debug("Adjustments through inv. exp. possible. New level of inv. exp = " + dInvExpStar + " and payment " + cFirm.getBalanceSheet().payment(dQStar, (long) dInvExpStar, loanDebt, 0.));
+				if(log.isDebugEnabled()) log.debug("Adjustments through inv. exp. possible. New level of inv. exp = " + dInvExpStar + " and payment " + payment.value(dQStar, (long) dInvExpStar, loanDebt, 0.));
 				
 			} // else: because payment is monotically decreasing in investment, leave dInvSubStar = 0
 			
@@ -117,25 +202,25 @@ public class APrioriAdjustments {
 		
 		if(!exitAdjustment){
 			// It is not certain that the expected demand is greater than the current stock of inventories (in which case optimal production is equal to 0 and adjustments are not feasible)
-			if(cFirm.getExpectedDemand() > cFirm.getInventories()[0]){
+			if(expectedDemand > inventories){
 				// It is not certain that the achievable level of production yields a stock of final good greater than the expected demand. Thus have to check first whether this condition is met 
-				if(dQStar + cFirm.getInventories()[0] > cFirm.getExpectedDemand()){
+				if(dQStar + inventories > expectedDemand){
 					
 					/* As before, in order to invoke the mean value theorem, need to check whether the payment condition is satisfied at the point where the stock of final good is equal to
 					the expected demand */
-					dQStar = cFirm.getExpectedDemand() - cFirm.getInventories()[0];
-					if(cFirm.getBalanceSheet().payment(dQStar, 0l, loanDebt, 0.) >= 0.){
+					dQStar = expectedDemand - inventories;
+					if(payment.value(dQStar, 0l, loanDebt, 0.) >= 0.){
 						/* Then can invoke the mean value theorem to find an interior solution. This interior solution is such that the stock of goods will be greater than the expected demand,
 						 yet smaller than the initial stock of final good, and makes the payment = 0
 						 NOTE: the interior solution is to the right (in a production - payment plane) of the point where the stock of final good = expected demand. Hence 
 						 sales = p(t) * expected demand (t)
 						 */
 						
-						dQStar = 1 / (cFirm.getCostToProduceGood() * (1 + param1)) * ( cFirm.getLiquidAsset()[0] * (1 + param1) + (1 - param2) * loanDebt +
-								(1 - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() * cFirm.getExpectedDemand() - param2 * cFirm.getDebt()[0] );
+						dQStar = 1 / (cost * (1 + param1)) * ( liquidAsset * (1 + param1) + (1 - param2) * loanDebt +
+								(1 - context.getTax()) * price * expectedDemand - param2 * debt );
 						exitAdjustment = true;
 						
-						log.debug("Could adjustment on inventories. New production = " + dQStar + " and payment -->0 : " + cFirm.getBalanceSheet().payment(dQStar, 0, loanDebt, 0)) ;
+						if(log.isDebugEnabled()) log.debug("Could adjustment on inventories. New production = " + dQStar + " and payment -->0 : " + payment.value(dQStar, 0, loanDebt, 0)) ;
 						
 						
 					} // else: reducing production up to the point where the stock of final good is equal to the expected demand is not sufficient. Hence require the final round of adjustment	
@@ -150,14 +235,14 @@ public class APrioriAdjustments {
 					/* As before, we are trying to invoke the mean value theorem. The only difference now is that the level of production such that the stock of final good = expected demand
 					 is nil */
 					dQStar = 0;
-					if(cFirm.getBalanceSheet().payment(dQStar, 0, loanDebt, 0) >= 0){
+					if(payment.value(dQStar, 0, loanDebt, 0) >= 0){
 						// Then can invoke the mean value theorem. Once more, sales in this case are a function of the expected demand, not the production. 
 						
-						dQStar = 1 / (cFirm.getCostToProduceGood() * (1 + param1)) * ( cFirm.getLiquidAsset()[0] * (1 + param1) + (1 - param2) * loanDebt +
-								(1 - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() * cFirm.getExpectedDemand() - param2 * cFirm.getDebt()[0] );
+						dQStar = 1 / (cost * (1 + param1)) * ( liquidAsset * (1 + param1) + (1 - param2) * loanDebt +
+								(1 - context.getTax()) * price * expectedDemand - param2 * debt );
 						exitAdjustment = true;
 						
-						log.debug("Inventories are > expected demand, yet dQStar > 0. Hence could reduce production to " + dQStar + " and payment --> 0: " + cFirm.getBalanceSheet().payment(dQStar, 0, loanDebt, 0));
+						if(log.isDebugEnabled()) log.debug("Inventories are > expected demand, yet dQStar > 0. Hence could reduce production to " + dQStar + " and payment --> 0: " + payment.value(dQStar, 0, loanDebt, 0));
 						
 					} else {
 						/* This else statement is different from the above case (when expected demand > inventories), because at this point, production is nil, investment is nil, and the firm cannot
@@ -199,17 +284,17 @@ public class APrioriAdjustments {
 			 */
 			
 			// (a)
-			if(cFirm.getPriceOfGoodProducedNow() < cFirm.getCostToProduceGood() * (1 + param1) / (1 - MacroModel.getTax())){
+			if(price < cost * (1 + param1) / (1 - context.getTax())){
 				/* Payment is monotically decreasing in production. Hence there exists a level of production such that payment = 0. However, it is not certain than 
 				this level of production is positive */
 				
-				dQStar = 1 / ( (1 - MacroModel.getTax()) * ( cFirm.getPriceOfGoodProducedNow() - MacroModel.getrDepo() * cFirm.getCostToProduceGood() ) - cFirm.getCostToProduceGood() ) * (
-						param2 * cFirm.getDebt()[0] - (1 + param1) * cFirm.getLiquidAsset()[0] - (1 - param2) * loanDebt - 
-						(1 - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() * cFirm.getInventories()[0] );
+				dQStar = 1 / ( (1 - context.getTax()) * ( price - context.getrDepo() * cost ) - cost ) * (
+						param2 * debt - (1 + param1) * liquidAsset - (1 - param2) * loanDebt - 
+						(1 - context.getTax()) * price * inventories );
 				
-				log.debug("Payment is decreasing in production and optimal production is = " + dQStar);
+				if(log.isDebugEnabled()) log.debug("Payment is decreasing in production and optimal production is = " + dQStar);
 				if(dQStar > 0){
-					log.debug("Through reduction in production, payment should --> 0: " + cFirm.getBalanceSheet().payment(dQStar, 0, loanDebt, 0));
+					if(log.isDebugEnabled()) log.debug("Through reduction in production, payment should --> 0: " + payment.value(dQStar, 0, loanDebt, 0));
 				} else {
 					/* The optimal level of production is negative and therefore not reachable. As before, (a) the firm tries to minimize its losses, (b) the firm does not
 					leverage further. Because payment is monotically decreasing in production, the level of production that minimizes the loss is 0
@@ -225,29 +310,28 @@ public class APrioriAdjustments {
 				 min. the firm's loss is the level of production such that the stock of final good is equal to the expected demand, if reachable with internal funds. 
 				 */
 				
-				dQStar = Math.max(0, cFirm.getExpectedDemand() - cFirm.getInventories()[0]);
+				dQStar = Math.max(0, expectedDemand - inventories);
 				// This as a cost of production of c * dQStar, and c * dQStar <= liquidAsset[0]: 
-				if(cFirm.getCostToProduceGood() * dQStar > cFirm.getLiquidAsset()[0]){
-					dQStar = cFirm.getLiquidAsset()[0] / cFirm.getCostToProduceGood();
+				if(cost * dQStar > liquidAsset){
+					dQStar = liquidAsset / cost;
 				}
 				
 				loanProd = loanDebt = 0;
-				log.debug("Firm's payment is increasing in production. Therefore pointless to adjust downard production, and dQStar = " + dQStar);
+				if(log.isDebugEnabled()) log.debug("Firm's payment is increasing in production. Therefore pointless to adjust downard production, and dQStar = " + dQStar);
 				
 			}
 		}
 		
 		// Update the c-firms variables with the outcomes of the adjustment
-		cFirm.setDesiredProductionStar(dQStar);
-		cFirm.setDesiredInvestmentExpansionaryStar(dInvExpStar);
-		cFirm.setDesiredInvestmentSubstitionaryStar(dInvSubStar);
-		cFirm.setLoanForDebtRepayment(loanDebt);
-		cFirm.setLoanForProductionAndInvestment(loanProd);
-		cFirm.setCreditDemand(loanProd + loanDebt);
+		in.production[row] = dQStar;
+		in.investmentExpansionary[row] = dInvExpStar;
+		in.investmentSubstitutionary[row] = dInvSubStar;
+		in.loanForDebtRepayment[row] = loanDebt;
+		in.loanForProductionAndInvestment[row] = loanProd;
 		
 	}
 	
-	public static void adjustmentsWithNilLiquidAsset(CFirm cFirm){
+	private void nilLiquidAsset(){
 		
 		/* SUB-INTRODUCTORY NOTE: the general structure of this adjustment process follows closely the adjustment when liquid asset are positive. The only differences is that 
 		 loan was involved in the funding of production and / or investment. Hence, when decreasing one or the other, the firm has to ask itself whether the decrease in production /
@@ -257,21 +341,21 @@ public class APrioriAdjustments {
 		 NOTE: just the novelty of this adjustment process are commented. For the general structure, see the adjustmentsWithPositiveLiquidAsset method
 		 */
 		
-		log.debug("Adjustments With Nil Liquid Asset for CFirm " + cFirm.getKey().getId());
+		if(log.isDebugEnabled()) log.debug("Adjustments With Nil Liquid Asset for CFirm " + id);
 		
-		// initialize the static variables with the initial values of production, investment and loan (i.e. before any adjustment)
-		dQStar = cFirm.getProductionStar();
-		dInvExpStar = cFirm.getdInvestmentExpansionaryStar();
-		dInvSubStar = cFirm.getDesiredInvestmentSubstitionaryStar();
-		liquidAssetPrime = cFirm.getLiquidAssetRemainingAfterProductionAndInvestment();
-		loanProd = cFirm.getLoanForProductionAndInvestment();
-		loanDebt = cFirm.getLoanForDebtRepayment();
+		// initialize the scratch variables with the initial values of production, investment and loan (i.e. before any adjustment)
+		dQStar = in.production[row];
+		dInvExpStar = in.investmentExpansionary[row];
+		dInvSubStar = in.investmentSubstitutionary[row];
+		liquidAssetPrime = in.liquidAssetRemaining[row];
+		loanProd = in.loanForProductionAndInvestment[row];
+		loanDebt = in.loanForDebtRepayment[row];
 		
 		// collection of parameters to ease the computation of closed-form expression
-		double param1 = (1 - MacroModel.getTax()) * MacroModel.getrDepo(); // net interest rate, i.e. deducting from the government's tax on profit
-		double param2 = Parameters.getDebtRepaymentSharePerPeriod_cFirms() + (1 - MacroModel.getTax()) * MacroModel.getrDebt(); /* net debt service, i.e. debt repayments + 
+		double param1 = (1 - context.getTax()) * context.getrDepo(); // net interest rate, i.e. deducting from the government's tax on profit
+		double param2 = parameters.getDebtRepaymentSharePerPeriod_cFirms() + (1 - context.getTax()) * context.getrDebt(); /* net debt service, i.e. debt repayments + 
 		interest rate on the debt, taking into account the government's tax on profit */
-		double machinePrice = cFirm.getSupplier().getPriceOfGoodProducedNow();
+		double machinePrice = supplierPrice;
 		
 		/* because compute closed-form solutions, the payment after adjustments tend to 0 but might be slightly different from 0. 
 		To make sure that no-more-than-needed adjustments will be done, create this boolean */
@@ -289,92 +373,92 @@ public class APrioriAdjustments {
 		 	*/
 			
 			// If set dInvSubStar = 0, then the associated savings are equal to the number of machines that were in the sub. inv, times the price of these machiens
-			double savings = machinePrice * dInvSubStar / Parameters.getMachineSizeInCapital_cFirms();
-			saving(savings, cFirm); // see the saving() method for explenation on what it does
+			double savings = machinePrice * dInvSubStar / parameters.getMachineSizeInCapital_cFirms();
+			saving(savings); // see the saving() method for explenation on what it does
 			dInvSubStar = 0;
 			
-			if(cFirm.getBalanceSheet().payment(dQStar, (long) dInvExpStar, loanDebt, loanProd) > 0){
+			if(payment.value(dQStar, (long) dInvExpStar, loanDebt, loanProd) > 0){
 				/* Then can invoke the mean value theorem; and can enter the second phase of the adjustment through inv. sub. when we have to find whether the optimal level if funded
 				through internal or external fund */
 				
-				double salesTemp = cFirm.getPriceOfGoodProducedNow() * Math.min(dQStar + cFirm.getInventories()[0], cFirm.getExpectedDemand());
+				double salesTemp = price * Math.min(dQStar + inventories, expectedDemand);
 				
 				if(loanProd > 0){
 					/* if loan prod is positive when dInvSubStar, it implies than any positive amount of sub. inv. will also be funded through loan. Hence we know that liquidAssetPrime = 0
 					 and that the entire amount of sub. inv. will be funded through external fund
 					 */
 					
-					dInvSubStar = Parameters.getMachineSizeInCapital_cFirms() / machinePrice * ( cFirm.getLiquidAsset()[0] + (1 - param2) * cFirm.getMaxPossibleLoan() + 
-							(1 - MacroModel.getTax()) * salesTemp - cFirm.getCostToProduceGood() * dQStar - param2 * cFirm.getDebt()[0] - 
-							machinePrice * dInvExpStar / Parameters.getMachineSizeInCapital_cFirms() );
+					dInvSubStar = parameters.getMachineSizeInCapital_cFirms() / machinePrice * ( liquidAsset + (1 - param2) * maxPossibleLoan + 
+							(1 - context.getTax()) * salesTemp - cost * dQStar - param2 * debt - 
+							machinePrice * dInvExpStar / parameters.getMachineSizeInCapital_cFirms() );
 					
 					// update financial variables with the new level of inv.
-					loanProd = Math.max(0, cFirm.getCostToProduceGood() * dQStar + (dInvExpStar + dInvSubStar) * machinePrice / Parameters.getMachineSizeInCapital_cFirms() - cFirm.getLiquidAsset()[0]);
-					loanDebt = cFirm.getMaxPossibleLoan() - loanProd;
+					loanProd = Math.max(0, cost * dQStar + (dInvExpStar + dInvSubStar) * machinePrice / parameters.getMachineSizeInCapital_cFirms() - liquidAsset);
+					loanDebt = maxPossibleLoan - loanProd;
 					liquidAssetPrime = 0;
 					
-					log.debug("Can adjust through inv. sub.; new level of inv. = " + dInvSubStar + " and payment should --> 0 " + 
-							cFirm.getBalanceSheet().payment(dQStar, (long) (dInvExpStar + dInvSubStar), loanDebt, loanProd));
+					if(log.isDebugEnabled()) log.debug("Can adjust through inv. sub.; new level of inv. = " + dInvSubStar + " and payment should --> 0 " + 
+							payment.value(dQStar, (long) (dInvExpStar + dInvSubStar), loanDebt, loanProd));
 					
 					// because inv. need to be expressed in terms of machines, additional savings have to be considered
-					savings = (dInvSubStar - Math.floor(dInvSubStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms()) / Parameters.getMachineSizeInCapital_cFirms() * machinePrice;
-					saving(savings, cFirm);
+					savings = (dInvSubStar - Math.floor(dInvSubStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms()) / parameters.getMachineSizeInCapital_cFirms() * machinePrice;
+					saving(savings);
 							
 				} /* else, have to use the strategy presented above. Indeed, loanProd = 0 implies that the firm can use some of its internal fund to finance sub. inv.;
 				yet it is not certain that the optimal level can be obtained solely through the firm's liquid asset */
 				else {
 					// compute how much assets remain after paying for production and inv. exp.
-					double liquidAssetUsable = cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * dQStar - machinePrice * dInvExpStar / Parameters.getMachineSizeInCapital_cFirms();
+					double liquidAssetUsable = liquidAsset - cost * dQStar - machinePrice * dInvExpStar / parameters.getMachineSizeInCapital_cFirms();
 					// and then compute the level of sub. inv. that can be achieved only by using internal funds. Obviously in this case, all the loan is used for debt repayments
-					dInvSubStar = Math.min(cFirm.getDesiredInvestmentSubstitionaryStar(), liquidAssetUsable * Parameters.getMachineSizeInCapital_cFirms() / machinePrice);
-					loanDebt = cFirm.getMaxPossibleLoan();
+					dInvSubStar = Math.min(desiredInvestmentSubstitionaryStar, liquidAssetUsable * parameters.getMachineSizeInCapital_cFirms() / machinePrice);
+					loanDebt = maxPossibleLoan;
 					loanProd = 0;
 					
 					// (1)
-					if(cFirm.getBalanceSheet().payment(dQStar, (long) (dInvExpStar + dInvSubStar), loanDebt, loanProd) > 0){
+					if(payment.value(dQStar, (long) (dInvExpStar + dInvSubStar), loanDebt, loanProd) > 0){
 						/* the optimal level of sub. inv. is marginally funded through loan, s.t. loanProd > 0 and loanDebt < maxLoan. The closed-form solution, and the corresponding
 						 level of loan and liquid asset remaining are identical to the ones above */
 						
-						dInvSubStar = ( Parameters.getMachineSizeInCapital_cFirms() / machinePrice ) * ( 
-								cFirm.getLiquidAsset()[0] + (1 - param2) * cFirm.getMaxPossibleLoan() + (1 - MacroModel.getTax()) * salesTemp - 
-								cFirm.getCostToProduceGood() * dQStar - param2 * cFirm.getDebt()[0] - machinePrice * dInvExpStar / Parameters.getMachineSizeInCapital_cFirms() );
+						dInvSubStar = ( parameters.getMachineSizeInCapital_cFirms() / machinePrice ) * ( 
+								liquidAsset + (1 - param2) * maxPossibleLoan + (1 - context.getTax()) * salesTemp - 
+								cost * dQStar - param2 * debt - machinePrice * dInvExpStar / parameters.getMachineSizeInCapital_cFirms() );
 						
 						// update financial variables with the new level of inv.
-						loanProd = Math.max(0, cFirm.getCostToProduceGood() * dQStar + (dInvExpStar + dInvSubStar) * machinePrice / Parameters.getMachineSizeInCapital_cFirms() - cFirm.getLiquidAsset()[0]);
-						loanDebt = cFirm.getMaxPossibleLoan() - loanProd;
+						loanProd = Math.max(0, cost * dQStar + (dInvExpStar + dInvSubStar) * machinePrice / parameters.getMachineSizeInCapital_cFirms() - liquidAsset);
+						loanDebt = maxPossibleLoan - loanProd;
 						liquidAssetPrime = 0;
 						
-						log.debug("Can adjust through inv. sub.; new level of inv. = " + dInvSubStar + " and payment should --> 0 " + 
-								cFirm.getBalanceSheet().payment(dQStar, (long) (dInvExpStar + dInvSubStar), loanDebt, loanProd));
+						if(log.isDebugEnabled()) log.debug("Can adjust through inv. sub.; new level of inv. = " + dInvSubStar + " and payment should --> 0 " + 
+								payment.value(dQStar, (long) (dInvExpStar + dInvSubStar), loanDebt, loanProd));
 						
 						// because inv. need to be expressed in terms of machines, additional savings have to be considered
-						savings = (dInvSubStar - Math.floor(dInvSubStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms()) / Parameters.getMachineSizeInCapital_cFirms() * machinePrice;
-						saving(savings, cFirm);
+						savings = (dInvSubStar - Math.floor(dInvSubStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms()) / parameters.getMachineSizeInCapital_cFirms() * machinePrice;
+						saving(savings);
 						
 					} else {
 						/* the optimal level of inv. sub. is achieved only using internal funds, s.t. loanProd = 0, loanDebt = maxLoan and the remaining liquid assets 
 						 are positive.  */
 						
-						dInvSubStar = Parameters.getMachineSizeInCapital_cFirms() / (machinePrice * ( 1 + param1) ) * ( (1 - MacroModel.getTax()) * salesTemp + 
-								(cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * dQStar - machinePrice * dInvExpStar / Parameters.getMachineSizeInCapital_cFirms() )  * ( 1 + param1) + (1 - param2) * loanDebt - 
-								param2 * cFirm.getDebt()[0]);
+						dInvSubStar = parameters.getMachineSizeInCapital_cFirms() / (machinePrice * ( 1 + param1) ) * ( (1 - context.getTax()) * salesTemp + 
+								(liquidAsset - cost * dQStar - machinePrice * dInvExpStar / parameters.getMachineSizeInCapital_cFirms() )  * ( 1 + param1) + (1 - param2) * loanDebt - 
+								param2 * debt);
 						
 						// update financial variables with the new level of inv.
 						loanProd = 0;
-						loanDebt = cFirm.getMaxPossibleLoan();
-						liquidAssetPrime = Math.max(0, - cFirm.getCostToProduceGood() * dQStar - (dInvExpStar + dInvSubStar) * machinePrice / Parameters.getMachineSizeInCapital_cFirms() + cFirm.getLiquidAsset()[0]);
+						loanDebt = maxPossibleLoan;
+						liquidAssetPrime = Math.max(0, - cost * dQStar - (dInvExpStar + dInvSubStar) * machinePrice / parameters.getMachineSizeInCapital_cFirms() + liquidAsset);
 						
-						log.debug("Can adjust through inv. sub.; new level of inv. = " + dInvSubStar + " and payment should --> 0 " + 
-								cFirm.getBalanceSheet().payment(dQStar, (long) (dInvExpStar + dInvSubStar), loanDebt, loanProd));
+						if(log.isDebugEnabled()) log.debug("Can adjust through inv. sub.; new level of inv. = " + dInvSubStar + " and payment should --> 0 " + 
+								payment.value(dQStar, (long) (dInvExpStar + dInvSubStar), loanDebt, loanProd));
 						
 						// because inv. need to be expressed in terms of machines, additional savings have to be considered
-						savings = (dInvSubStar - Math.floor(dInvSubStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms()) / Parameters.getMachineSizeInCapital_cFirms() * machinePrice;
-						saving(savings, cFirm);
+						savings = (dInvSubStar - Math.floor(dInvSubStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms()) / parameters.getMachineSizeInCapital_cFirms() * machinePrice;
+						saving(savings);
 					}
 				}
 				
 				exitAdjustment = true;
-				dInvSubStar = Math.floor(dInvSubStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms();
+				dInvSubStar = Math.floor(dInvSubStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms();
 				
 			}
 		}
@@ -382,91 +466,91 @@ public class APrioriAdjustments {
 		// adjustment through inv. exp., if possible. The structure is identical to the one for adjustment through inv. sub., only the closed-form expressions vary
 		if(dInvExpStar > 0 && !exitAdjustment){
 			
-			double savings = machinePrice * dInvExpStar / Parameters.getMachineSizeInCapital_cFirms();
-			saving(savings, cFirm); 
+			double savings = machinePrice * dInvExpStar / parameters.getMachineSizeInCapital_cFirms();
+			saving(savings); 
 			dInvExpStar = 0;
 			
-			if(cFirm.getBalanceSheet().payment(dQStar, 0, loanDebt, loanProd) > 0){
+			if(payment.value(dQStar, 0, loanDebt, loanProd) > 0){
 				
-				double salesTemp = cFirm.getPriceOfGoodProducedNow() * Math.min(dQStar + cFirm.getInventories()[0], cFirm.getExpectedDemand());
+				double salesTemp = price * Math.min(dQStar + inventories, expectedDemand);
 				
 				if(loanProd > 0){
 					
-					dInvExpStar = Parameters.getMachineSizeInCapital_cFirms() / machinePrice * ( cFirm.getLiquidAsset()[0] + (1 - param2) * cFirm.getMaxPossibleLoan() + 
-							(1 - MacroModel.getTax()) * salesTemp - cFirm.getCostToProduceGood() * dQStar - param2 * cFirm.getDebt()[0] );
+					dInvExpStar = parameters.getMachineSizeInCapital_cFirms() / machinePrice * ( liquidAsset + (1 - param2) * maxPossibleLoan + 
+							(1 - context.getTax()) * salesTemp - cost * dQStar - param2 * debt );
 					
-					loanProd = Math.max(0, cFirm.getCostToProduceGood() * dQStar + dInvExpStar * machinePrice / Parameters.getMachineSizeInCapital_cFirms() - cFirm.getLiquidAsset()[0]);
-					loanDebt = cFirm.getMaxPossibleLoan() - loanProd;
+					loanProd = Math.max(0, cost * dQStar + dInvExpStar * machinePrice / parameters.getMachineSizeInCapital_cFirms() - liquidAsset);
+					loanDebt = maxPossibleLoan - loanProd;
 					liquidAssetPrime = 0;
 					
-					log.debug("Can adjust through inv. exp.; new level of inv. = " + dInvExpStar + " and payment should --> 0 " + 
-							cFirm.getBalanceSheet().payment(dQStar, (long) dInvExpStar, loanDebt, loanProd));
+					if(log.isDebugEnabled()) log.debug("Can adjust through inv. exp.; new level of inv. = " + dInvExpStar + " and payment should --> 0 " + 
+							payment.value(dQStar, (long) dInvExpStar, loanDebt, loanProd));
 					
-					savings = (dInvExpStar - Math.floor(dInvExpStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms()) / Parameters.getMachineSizeInCapital_cFirms() * machinePrice;
-					saving(savings, cFirm);
+					savings = (dInvExpStar - Math.floor(dInvExpStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms()) / parameters.getMachineSizeInCapital_cFirms() * machinePrice;
+					saving(savings);
 							
 				} 
 				else {
-					double liquidAssetUsable = cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * dQStar;
+					double liquidAssetUsable = liquidAsset - cost * dQStar;
 
-					dInvExpStar = Math.min(cFirm.getdInvestmentExpansionaryStar(), liquidAssetUsable * Parameters.getMachineSizeInCapital_cFirms() / machinePrice);
-					loanDebt = cFirm.getMaxPossibleLoan();
+					dInvExpStar = Math.min(desiredInvestmentExpansionaryStar, liquidAssetUsable * parameters.getMachineSizeInCapital_cFirms() / machinePrice);
+					loanDebt = maxPossibleLoan;
 					loanProd = 0;
 					
-					if(cFirm.getBalanceSheet().payment(dQStar, (long) dInvExpStar, loanDebt, loanProd) > 0){
+					if(payment.value(dQStar, (long) dInvExpStar, loanDebt, loanProd) > 0){
 						
-						dInvExpStar = ( Parameters.getMachineSizeInCapital_cFirms() / machinePrice ) * ( 
-								cFirm.getLiquidAsset()[0] + (1 - param2) * cFirm.getMaxPossibleLoan() + (1 - MacroModel.getTax()) * salesTemp - 
-								cFirm.getCostToProduceGood() * dQStar - param2 * cFirm.getDebt()[0] );
+						dInvExpStar = ( parameters.getMachineSizeInCapital_cFirms() / machinePrice ) * ( 
+								liquidAsset + (1 - param2) * maxPossibleLoan + (1 - context.getTax()) * salesTemp - 
+								cost * dQStar - param2 * debt );
 						
-						loanProd = Math.max(0, cFirm.getCostToProduceGood() * dQStar + dInvExpStar * machinePrice / Parameters.getMachineSizeInCapital_cFirms() - cFirm.getLiquidAsset()[0]);
-						loanDebt = cFirm.getMaxPossibleLoan() - loanProd;
+						loanProd = Math.max(0, cost * dQStar + dInvExpStar * machinePrice / parameters.getMachineSizeInCapital_cFirms() - liquidAsset);
+						loanDebt = maxPossibleLoan - loanProd;
 						liquidAssetPrime = 0;
 						
-						log.debug("Can adjust through inv. exp.; new level of inv. = " + dInvExpStar + " and payment should --> 0 " + 
-								cFirm.getBalanceSheet().payment(dQStar, (long) dInvExpStar, loanDebt, loanProd));
+						if(log.isDebugEnabled()) log.debug("Can adjust through inv. exp.; new level of inv. = " + dInvExpStar + " and payment should --> 0 " + 
+								payment.value(dQStar, (long) dInvExpStar, loanDebt, loanProd));
 						
-						savings = (dInvExpStar - Math.floor(dInvExpStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms()) / Parameters.getMachineSizeInCapital_cFirms() * machinePrice;
-						saving(savings, cFirm);
+						savings = (dInvExpStar - Math.floor(dInvExpStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms()) / parameters.getMachineSizeInCapital_cFirms() * machinePrice;
+						saving(savings);
 						
 					} else {
 						
-						dInvSubStar = Parameters.getMachineSizeInCapital_cFirms() / (machinePrice * ( 1 + param1) ) * ( (1 - MacroModel.getTax()) * salesTemp + 
-								(cFirm.getLiquidAsset()[0] - cFirm.getCostToProduceGood() * dQStar )  * ( 1 + param1) + (1 - param2) * loanDebt - 
-								param2 * cFirm.getDebt()[0]);
+						dInvSubStar = parameters.getMachineSizeInCapital_cFirms() / (machinePrice * ( 1 + param1) ) * ( (1 - context.getTax()) * salesTemp + 
+								(liquidAsset - cost * dQStar )  * ( 1 + param1) + (1 - param2) * loanDebt - 
+								param2 * debt);
 						
 						loanProd = 0;
-						loanDebt = cFirm.getMaxPossibleLoan();
-						liquidAssetPrime = Math.max(0, - cFirm.getCostToProduceGood() * dQStar - dInvExpStar * machinePrice / Parameters.getMachineSizeInCapital_cFirms() + cFirm.getLiquidAsset()[0]);
+						loanDebt = maxPossibleLoan;
+						liquidAssetPrime = Math.max(0, - cost * dQStar - dInvExpStar * machinePrice / parameters.getMachineSizeInCapital_cFirms() + liquidAsset);
 						
-						log.debug("Can adjust through inv. exp.; new level of inv. = " + dInvExpStar + " and payment should --> 0 " + 
-								cFirm.getBalanceSheet().payment(dQStar, (long) dInvExpStar, loanDebt, loanProd));
+						if(log.isDebugEnabled()) log.debug("Can adjust through inv. exp.; new level of inv. = " + dInvExpStar + " and payment should --> 0 " + 
+								payment.value(dQStar, (long) dInvExpStar, loanDebt, loanProd));
 						
-						savings = (dInvExpStar - Math.floor(dInvExpStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms()) / Parameters.getMachineSizeInCapital_cFirms() * machinePrice;
-						saving(savings, cFirm);
+						savings = (dInvExpStar - Math.floor(dInvExpStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms()) / parameters.getMachineSizeInCapital_cFirms() * machinePrice;
+						saving(savings);
 					}
 				}
 				
 				exitAdjustment = true;
-				dInvExpStar = Math.floor(dInvExpStar / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms();
+				dInvExpStar = Math.floor(dInvExpStar / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms();
 				
 			}
 		}
 		
 		// adjustment through reduction in inventories
 		if(!exitAdjustment){
-			if(cFirm.getExpectedDemand() > cFirm.getInventories()[0]){
-				if(dQStar + cFirm.getInventories()[0] > cFirm.getExpectedDemand()){
+			if(expectedDemand > inventories){
+				if(dQStar + inventories > expectedDemand){
 					/* adjustment by reduction of (expected) inventories is feasible. The difference with the adjustmentWithPositiveLiquidAsset method is that here, once more, 
 					we are not sure if the optimal level of production is achieved using internal or external funds. */
 					
 					// 1. Compute first the financial variables when production is such that the stock of final good = expected demand
-			        double savings = (dQStar + cFirm.getInventories()[0] - cFirm.getExpectedDemand()) * cFirm.getPriceOfGoodProducedNow();
-			        dQStar = cFirm.getExpectedDemand() - cFirm.getInventories()[0]; 
-			        saving(savings, cFirm);
+			        double savings = (dQStar + inventories - expectedDemand) * price;
+			        dQStar = expectedDemand - inventories; 
+			        saving(savings);
 			        
 			        // 2. Check whether this reduction in production is sufficient to meet the payment condition, to then being able to invoke the mean value theorem
-			        if(cFirm.getBalanceSheet().payment(dQStar, 0, loanDebt, loanProd) > 0){
+			        if(payment.value(dQStar, 0, loanDebt, loanProd) > 0){
 			        	/* Global strategy: let q** denote the level of production achieved solely with internal funds. 
 			        	 	1. if q** < dQStar, then implies that the optimal production is achieved by using external funds
 			        	 	2. if q** > dQStar,
@@ -475,33 +559,33 @@ public class APrioriAdjustments {
 			        	 NOTE: once more, for a graphical representation of this, see the code documentation pdf.
 			        	 */
 			        	
-			        	double qLiquidAsset = Math.min(cFirm.getdQ(), cFirm.getLiquidAsset()[0] / cFirm.getCostToProduceGood()); // = q**
-			        	double salesTemp = cFirm.getPriceOfGoodProducedNow() * cFirm.getExpectedDemand();
-			        	loanDebt = cFirm.getMaxPossibleLoan();
+			        	double qLiquidAsset = Math.min(desiredProduction, liquidAsset / cost); // = q**
+			        	double salesTemp = price * expectedDemand;
+			        	loanDebt = maxPossibleLoan;
 			        	loanProd = 0;
 			        	
 			        	// 1: 
 			        	if(qLiquidAsset < dQStar){
 			        		// optimal production is achieved with the help of external fund, s.t. loanProd > 0, loanDebt < maxLoan
 			        		
-			        		dQStar = 1 / cFirm.getCostToProduceGood() * ( cFirm.getLiquidAsset()[0] + (1 - MacroModel.getTax()) * salesTemp + 
-			        				(1 - param2) * cFirm.getMaxPossibleLoan() - param2 * cFirm.getDebt()[0]);
+			        		dQStar = 1 / cost * ( liquidAsset + (1 - context.getTax()) * salesTemp + 
+			        				(1 - param2) * maxPossibleLoan - param2 * debt);
 			        		
 			        	} // 2: 
 			        	else {
 			        		// 2. (a)
-			        		if(cFirm.getBalanceSheet().payment(qLiquidAsset, 0, loanDebt, loanProd) > 0){
+			        		if(payment.value(qLiquidAsset, 0, loanDebt, loanProd) > 0){
 			        			// optimal production is achieved with the help of external fund, s.t. loanProd > 0, loanDebt < maxLoan
 				        		
-				        		dQStar = 1 / cFirm.getCostToProduceGood() * ( cFirm.getLiquidAsset()[0] + (1 - MacroModel.getTax()) * salesTemp + 
-				        				(1 - param2) * cFirm.getMaxPossibleLoan() - param2 * cFirm.getDebt()[0]);
+				        		dQStar = 1 / cost * ( liquidAsset + (1 - context.getTax()) * salesTemp + 
+				        				(1 - param2) * maxPossibleLoan - param2 * debt);
 			        			
 			        		} // 2. (b)
 			        		else {
 			        			// optimal production is achieved entirely with internal funds, s.t. the entire loan is used for debt repayments 
 			        			
-			        			dQStar  = 1 / ( cFirm.getCostToProduceGood() * (1 + param1) ) * ( cFirm.getLiquidAsset()[0] * ( 1 + param1) + (1 - MacroModel.getTax()) * salesTemp + 
-				        				(1 - param2) * cFirm.getMaxPossibleLoan() - param2 * cFirm.getDebt()[0]);
+			        			dQStar  = 1 / ( cost * (1 + param1) ) * ( liquidAsset * ( 1 + param1) + (1 - context.getTax()) * salesTemp + 
+				        				(1 - param2) * maxPossibleLoan - param2 * debt);
 			        			
 			        		}
 			        	}
@@ -509,11 +593,11 @@ public class APrioriAdjustments {
 			        	// Regardless of the scenario, the interior solution exists. 
 			        	exitAdjustment = true;
 			        	// And can update the financial variables
-			        	loanProd = Math.max(0, cFirm.getCostToProduceGood() * dQStar - cFirm.getLiquidAsset()[0]);
-			        	loanDebt = cFirm.getMaxPossibleLoan() - loanProd;
+			        	loanProd = Math.max(0, cost * dQStar - liquidAsset);
+			        	loanDebt = maxPossibleLoan - loanProd;
 			        	
-			        	log.debug("Can reduce production through inventories; new production = " + dQStar + 
-		        				" and payment should --> 0: " + cFirm.getBalanceSheet().payment(dQStar, 0, loanDebt, loanProd) );
+			        	if(log.isDebugEnabled()) log.debug("Can reduce production through inventories; new production = " + dQStar + 
+		        				" and payment should --> 0: " + payment.value(dQStar, 0, loanDebt, loanProd) );
 			        	
 			        } /* else: reduction production up to the level s.t. the stock of final good is equal to the expected demand is not sufficient to meet the payment condition. 
 			        Need to go in the last round of adjustment */
@@ -525,13 +609,13 @@ public class APrioriAdjustments {
 					/* the desired production is aimed at filling inventories. Savings correspond to the amount of cash saved when set this production = 0
 					 NOTE: the reasoning follows adjustmentWithPositiveLiquidAsset regarding how the firm can adjust their production in this scenario
 					 */
-					double savings = dQStar + cFirm.getCostToProduceGood();
+					double savings = dQStar + cost;
 					dQStar = 0;
-					double salesTemp = cFirm.getPriceOfGoodProducedNow() * cFirm.getExpectedDemand();
-					saving(savings, cFirm);
+					double salesTemp = price * expectedDemand;
+					saving(savings);
 					
 					// We check whether the payment condition is satisfied at this point, in order to evoke the mean value theorem
-					if(cFirm.getBalanceSheet().payment(dQStar, 0, loanDebt, loanProd) > 0){
+					if(payment.value(dQStar, 0, loanDebt, loanProd) > 0){
 						/* Thus there exists an interior solution. The question is to know whether this optimal level is reached using only internal funds or 
 						 also by borrowing external funds.
 						 To know this, as above, we compute the level of production that can be achieved using only internal funds. If at this point, the
@@ -539,31 +623,31 @@ public class APrioriAdjustments {
 						 NOTE: we do not have to check that the optimal production is positive; the above if condition is sufficient to guarantee it. 
 						 See code documentation pdf for more details */
 						
-						double qLiquidAsset = Math.min(cFirm.getdQ(), cFirm.getLiquidAsset()[0] / cFirm.getCostToProduceGood());
+						double qLiquidAsset = Math.min(desiredProduction, liquidAsset / cost);
 						loanProd = 0;
-						loanDebt = cFirm.getMaxPossibleLoan();
+						loanDebt = maxPossibleLoan;
 						
 						// (a)
-						if(cFirm.getBalanceSheet().payment(qLiquidAsset, 0, loanDebt, loanProd) > 0){
+						if(payment.value(qLiquidAsset, 0, loanDebt, loanProd) > 0){
 							
-							dQStar = 1 / cFirm.getCostToProduceGood() * ( cFirm.getLiquidAsset()[0] + (1 - MacroModel.getTax()) * salesTemp + 
-			        				(1 - param2) * cFirm.getMaxPossibleLoan() - param2 * cFirm.getDebt()[0]);
+							dQStar = 1 / cost * ( liquidAsset + (1 - context.getTax()) * salesTemp + 
+			        				(1 - param2) * maxPossibleLoan - param2 * debt);
 							
 						} // (b)
 						else {
 							
-							dQStar = 1 / (cFirm.getCostToProduceGood() * (1 + param1)) * ( cFirm.getLiquidAsset()[0] * ( 1 + param1) + (1 - MacroModel.getTax()) * salesTemp + 
-			        				(1 - param2) * cFirm.getMaxPossibleLoan() - param2 * cFirm.getDebt()[0]);
+							dQStar = 1 / (cost * (1 + param1)) * ( liquidAsset * ( 1 + param1) + (1 - context.getTax()) * salesTemp + 
+			        				(1 - param2) * maxPossibleLoan - param2 * debt);
 			        				
 						}
 						
 						// update the financial variables
-						loanProd = Math.max(0, cFirm.getCostToProduceGood() * dQStar - cFirm.getLiquidAsset()[0]);
-						loanDebt = cFirm.getMaxPossibleLoan() - loanProd;
+						loanProd = Math.max(0, cost * dQStar - liquidAsset);
+						loanDebt = maxPossibleLoan - loanProd;
 						exitAdjustment = true;
 						
-						log.debug("Can reduce production through inventories; new production = " + dQStar + 
-		        				" and payment should --> 0: " + cFirm.getBalanceSheet().payment(dQStar, 0, loanDebt, loanProd) );
+						if(log.isDebugEnabled()) log.debug("Can reduce production through inventories; new production = " + dQStar + 
+		        				" and payment should --> 0: " + payment.value(dQStar, 0, loanDebt, loanProd) );
 	
 					} else {
 						/* Even with dQStar = 0, the firm cannot reach its payment condition. As in adjustmentWithPositiveLiquidAsset(), c-firms try to minimize their losses
@@ -598,7 +682,7 @@ public class APrioriAdjustments {
 				is however here a difference with the adjustment in adjustmentWithPositiveLiquidAsset(): the payment function is non continuous as its slope
 				changes when loanProd becomes equal to 0. See pdf documentation for more explenation and graphical representation  */
 				
-				if((1 - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() < cFirm.getCostToProduceGood()){
+				if((1 - context.getTax()) * price < cost){
 					/* The payment function is gloablly monotically decreasing in the firm's production (this condition implies a negative slope as well when loanProd = 0). 
 					Hence there might an interior solution for payment = 0. The global strategy is the following:
 						1. Check whether payment > 0 when produce at the level that can funded entirely thought internal funds. If it the case, then, because payment 
@@ -609,30 +693,30 @@ public class APrioriAdjustments {
 					*/
 					
 					// Locate ourselves at the point where the production is entirely funded through internal funds.
-					loanDebt = cFirm.getMaxPossibleLoan();
+					loanDebt = maxPossibleLoan;
 					loanProd = 0;
-					dQStar = Math.min(cFirm.getdQ(), cFirm.getLiquidAsset()[0] / cFirm.getCostToProduceGood());
+					dQStar = Math.min(desiredProduction, liquidAsset / cost);
 					
 					// 1.:
-					if(cFirm.getBalanceSheet().payment(dQStar, 0, loanDebt, loanProd) > 0){
+					if(payment.value(dQStar, 0, loanDebt, loanProd) > 0){
 						
-						dQStar = 1 / ( (1 - MacroModel.getTax() ) * cFirm.getPriceOfGoodProducedNow() - cFirm.getCostToProduceGood() ) * (param2 * cFirm.getDebt()[0] - 
-								(1 - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() * cFirm.getInventories()[0] - 
-								(1 - param2) * cFirm.getMaxPossibleLoan() - cFirm.getLiquidAsset()[0]);
+						dQStar = 1 / ( (1 - context.getTax() ) * price - cost ) * (param2 * debt - 
+								(1 - context.getTax()) * price * inventories - 
+								(1 - param2) * maxPossibleLoan - liquidAsset);
 						
 						// update financial variables:
-						loanProd = Math.max(0, cFirm.getCostToProduceGood() * dQStar - cFirm.getLiquidAsset()[0]); // should be positive
-						loanDebt = cFirm.getMaxPossibleLoan() - loanProd;
+						loanProd = Math.max(0, cost * dQStar - liquidAsset); // should be positive
+						loanDebt = maxPossibleLoan - loanProd;
 						
-						log.debug("Payment is decreasing in production & there is an interior solution; "
-								+ "the new level of production is : " + dQStar + " and the associated payment = " + cFirm.getBalanceSheet().payment(dQStar, 0, loanDebt, loanProd));
+						if(log.isDebugEnabled()) log.debug("Payment is decreasing in production & there is an interior solution; "
+								+ "the new level of production is : " + dQStar + " and the associated payment = " + payment.value(dQStar, 0, loanDebt, loanProd));
 						
 					} // 2.:
 					else {
 						
-						dQStar = 1 / ((1 - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() - (1 + param1) * cFirm.getCostToProduceGood() ) * (
-								param2 * cFirm.getDebt()[0] - (1 - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() * cFirm.getInventories()[0] - (1 - param2) * cFirm.getMaxPossibleLoan() - 
-								cFirm.getLiquidAsset()[0] * (1 + param1)
+						dQStar = 1 / ((1 - context.getTax()) * price - (1 + param1) * cost ) * (
+								param2 * debt - (1 - context.getTax()) * price * inventories - (1 - param2) * maxPossibleLoan - 
+								liquidAsset * (1 + param1)
 								);
 						// However, as explained above, it is not sure that this optimal solution is positive.
 						if(dQStar < 0){
@@ -643,10 +727,10 @@ public class APrioriAdjustments {
 						} else {
 							// all the loan is used to fund debt repayments
 							loanProd = 0; 
-							loanDebt = cFirm.getMaxPossibleLoan();
+							loanDebt = maxPossibleLoan;
 							
-							log.debug("Payment is decreasing in production & there is an interior solution; "
-									+ "the new level of production is : " + dQStar + " and the associated payment = " + cFirm.getBalanceSheet().payment(dQStar, 0, loanDebt, loanProd));
+							if(log.isDebugEnabled()) log.debug("Payment is decreasing in production & there is an interior solution; "
+									+ "the new level of production is : " + dQStar + " and the associated payment = " + payment.value(dQStar, 0, loanDebt, loanProd));
 						}	
 					}
 					
@@ -654,22 +738,22 @@ public class APrioriAdjustments {
 					Intuition: in the previous if statement, decrease of production --> savings, that are reallocated to either loanDebt or deposit. Because loanDebt yields a return < 1 (a fraction of the loan
 					will have to be repaid at the end of the period anyway), and deposit yield a return >= 1, the first condition implies the second. However, it could be that the return to production is bigger
 					than the return to loanDebt, yet smaller than the return to deposit.  */
-					if(cFirm.getPriceOfGoodProducedNow() * (1 - MacroModel.getTax()) < cFirm.getCostToProduceGood() * ( 1 + param1)){
+					if(price * (1 - context.getTax()) < cost * ( 1 + param1)){
 						// The payment function is monotically decreasing in production: there might exist an interior solution. (a) compute the closed-form solution, (b) check whether it is positive
 						
 						//(a)
-						dQStar = 1 / ((1 - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() - (1 + param1) * cFirm.getCostToProduceGood() ) * (
-								param2 * cFirm.getDebt()[0] - (1 - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() * cFirm.getInventories()[0] - (1 - param2) * cFirm.getMaxPossibleLoan() - 
-								cFirm.getLiquidAsset()[0] * (1 + param1)
+						dQStar = 1 / ((1 - context.getTax()) * price - (1 + param1) * cost ) * (
+								param2 * debt - (1 - context.getTax()) * price * inventories - (1 - param2) * maxPossibleLoan - 
+								liquidAsset * (1 + param1)
 								);
 						
 						//(b)
 						if(dQStar > 0){
 							
 							// interior solution. Because this level of production is achieved only through internal funds, all the loan is allocated to debt repayments
-							loanDebt = cFirm.getMaxPossibleLoan();
+							loanDebt = maxPossibleLoan;
 							loanProd = 0;
-							log.debug("There exits an interior solution: new production is " + dQStar + " and payment " + cFirm.getBalanceSheet().payment(dQStar, 0, loanDebt, loanProd));
+							if(log.isDebugEnabled()) log.debug("There exits an interior solution: new production is " + dQStar + " and payment " + payment.value(dQStar, 0, loanDebt, loanProd));
 							
 						} else {
 							/* there does not exist an interior solution. The firm minimizes its loss and does not leverage further. However, because of the break in the function, 
@@ -678,18 +762,18 @@ public class APrioriAdjustments {
 							loanProd = loanDebt = 0;
 							
 							// set dQStar at the point where the stock of final good = expected demand
-							if(cFirm.getExpectedDemand() - cFirm.getInventories()[0] > 0)  // i.e. with no inventories
-								dQStar = cFirm.getExpectedDemand() - cFirm.getInventories()[0];
+							if(expectedDemand - inventories > 0)  // i.e. with no inventories
+								dQStar = expectedDemand - inventories;
 							else 
 								dQStar = 0;
 							// and check whether this point can be reach only using internal funds (because the firm is trying to not increase its debt)
-							if(cFirm.getCostToProduceGood() * dQStar > cFirm.getLiquidAsset()[0] ){ 
+							if(cost * dQStar > liquidAsset ){ 
 								// if dQStar is not possible with internal resources, then scale down to what is achievable 
-								dQStar = cFirm.getLiquidAsset()[0]  / cFirm.getCostToProduceGood();
+								dQStar = liquidAsset  / cost;
 							}
 							
 							// finally compare the two local maxima: (a) when production is nil, (b) when production is at dQStar, and pick the ``highest''
-							if(cFirm.getBalanceSheet().payment(0, 0, 0, 0) > cFirm.getBalanceSheet().payment(dQStar, 0, 0, 0)){
+							if(payment.value(0, 0, 0, 0) > payment.value(dQStar, 0, 0, 0)){
 								// not producing anything minimizes the loss
 								dQStar = 0;
 							} // else: keep dQStar
@@ -701,9 +785,9 @@ public class APrioriAdjustments {
 						/* The payment function is globally increasing in production; there does not exist a way out for the firm. The firm minmizes its loss, i.e. set production at the level
 						where the stock of good = expected demand, if achievable, and is credit demand is nil */
 						
-						dQStar = cFirm.getExpectedDemand() - cFirm.getInventories()[0];
-						if(cFirm.getCostToProduceGood() * dQStar > cFirm.getLiquidAsset()[0])
-							dQStar = cFirm.getLiquidAsset()[0] / cFirm.getCostToProduceGood();
+						dQStar = expectedDemand - inventories;
+						if(cost * dQStar > liquidAsset)
+							dQStar = liquidAsset / cost;
 						
 						loanProd = loanDebt = 0;
 						log.debug("There does not exist an interior solution, payment is globally increasing in q");
@@ -719,19 +803,19 @@ public class APrioriAdjustments {
 				see  adjustmentWithPositiveLiquidAsset() */
 				
 				
-				if(cFirm.getPriceOfGoodProducedNow() < (1 + param1) / (1 - MacroModel.getTax()) * cFirm.getCostToProduceGood() ){
+				if(price < (1 + param1) / (1 - context.getTax()) * cost ){
 					
-					dQStar = 1 / ( (1 - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() - (1 + param1) * cFirm.getCostToProduceGood() )  * (
-							param2 * cFirm.getDebt()[0] - (1 + param1) * cFirm.getLiquidAsset()[0] - 
-							(1 - MacroModel.getTax()) * cFirm.getPriceOfGoodProducedNow() * cFirm.getInventories()[0] - (1 - param2) * cFirm.getMaxPossibleLoan()
+					dQStar = 1 / ( (1 - context.getTax()) * price - (1 + param1) * cost )  * (
+							param2 * debt - (1 + param1) * liquidAsset - 
+							(1 - context.getTax()) * price * inventories - (1 - param2) * maxPossibleLoan
 							);
 					
 					if(dQStar > 0){
 						
 						loanProd = 0;
-						loanDebt = cFirm.getMaxPossibleLoan();
+						loanDebt = maxPossibleLoan;
 						
-						log.debug("There exists an interior solution for optimal production (with lProd = 0); dQStar : " + dQStar + " and payment --> 0 :" + cFirm.getBalanceSheet().payment(dQStar, 0, loanDebt, 0));
+						if(log.isDebugEnabled()) log.debug("There exists an interior solution for optimal production (with lProd = 0); dQStar : " + dQStar + " and payment --> 0 :" + payment.value(dQStar, 0, loanDebt, 0));
 						
 					} else {
 						
@@ -741,9 +825,9 @@ public class APrioriAdjustments {
 					}
 				} else {
 					
-					dQStar = Math.max(0, cFirm.getExpectedDemand() - cFirm.getInventories()[0]); 
-					if(cFirm.getCostToProduceGood() * dQStar > cFirm.getLiquidAsset()[0]){ 
-						dQStar = cFirm.getLiquidAsset()[0] / cFirm.getCostToProduceGood();
+					dQStar = Math.max(0, expectedDemand - inventories); 
+					if(cost * dQStar > liquidAsset){ 
+						dQStar = liquidAsset / cost;
 					}
 					loanProd = loanDebt = 0;
 					
@@ -754,18 +838,17 @@ public class APrioriAdjustments {
 		}
 		
 		// Update the c-firms variables with the outcomes of the adjustment
-		cFirm.setDesiredProductionStar(dQStar);
-		cFirm.setDesiredInvestmentExpansionaryStar(dInvExpStar);
-		cFirm.setDesiredInvestmentSubstitionaryStar(dInvSubStar);
-		cFirm.setLoanForDebtRepayment(loanDebt);
-		cFirm.setLoanForProductionAndInvestment(loanProd);
-		cFirm.setCreditDemand(loanProd + loanDebt);
+		in.production[row] = dQStar;
+		in.investmentExpansionary[row] = dInvExpStar;
+		in.investmentSubstitutionary[row] = dInvSubStar;
+		in.loanForDebtRepayment[row] = loanDebt;
+		in.loanForProductionAndInvestment[row] = loanProd;
 		
 	}
 	
 	/* the saving method re-allocate a given amount, cash, coming from a reduction in investment or production, to the original source of fund. That is if the expenditure
 	was originally funded through internal funds, it increases the firm's deposit. If it was funded through loan, it increases the amount of loan used for debt repayments */ 
-	static void saving (double cash, CFirm firm) {
+	void saving (double cash) {
 		
 		if(loanProd > cash){
 			
@@ -782,7 +865,7 @@ public class APrioriAdjustments {
 			
 			liquidAssetPrime += cash;
 			loanProd = 0;
-			loanDebt = firm.getMaxPossibleLoan();
+			loanDebt = maxPossibleLoan;
 			
 		}
 	}
@@ -0,0 +1,181 @@
+package jasmine.algorithms;
+
+import java.util.Arrays;
+
+import jasmine.model.CFirm;
+import jasmine.object.PaymentFunction;
+
+/* Packed inputs of the financial adjustments of consumption-good firms (see APrioriAdjustments and APosterioriAdjustments): one array
+ per variable, row i holding one firm, its plan before the adjustment and the adjustment it has to undertake.
+
+ The adjustments read the variables of the firm from the row only, and write the adjusted plan in the same row, so that they can solve
+ a batch of firms in one pass over the arrays (solve()). A single firm is adjusted through a one-row batch, so that the batch and
+ the firm-by-firm adjustments run the same code and give the same results.
+
+ A row is filled by load(), and its adjusted plan is given back to the firm by store(). Between the two, the firm must not change.
+ */
+public class AdjustmentInputs {
+
+	// Adjustment a firm has to undertake (see the call sites in CFirm.expectedPayment() and CFirm.pseudoRationalExpendituresUpdate())
+	public enum Adjustment {
+		APrioriPositiveLiquidAsset,
+		APrioriNilLiquidAsset,
+		APosterioriNilLoan,
+		APosterioriPositiveLoan;
+
+		boolean isAPriori(){
+			return this == APrioriPositiveLiquidAsset || this == APrioriNilLiquidAsset;
+		}
+	}
+
+	// Adjustment of the firm of the row, null if the row holds no firm to adjust
+	private Adjustment[] adjustments;
+
+	// --- Variables of the firm, unchanged by the adjustment ---
+	long[] id;
+	// priceOfGoodProduced[1]
+	double[] price;
+	double[] cost;
+	// inventories[0]
+	double[] inventories;
+	double[] expectedDemand;
+	// liquidAsset[0]
+	double[] liquidAsset;
+	// debt[0]
+	double[] debt;
+	// price of the machines of the supplier
+	double[] supplierPrice;
+	double[] maxPossibleLoan;
+	double[] loan;
+	// desired production and substitutionary investment, before any financial constraint
+	double[] desiredProduction;
+	double[] desiredInvestmentSubstitutionary;
+	// payment of the firm as a function of its plan (see PaymentFunction)
+	PaymentFunction[] payments;
+
+	/* --- Plan of the firm: loaded before the adjustment (desired plan in the a priori adjustments, optimal plan in the a posteriori ones),
+	 replaced by the adjusted plan --- */
+	double[] production;
+	double[] investmentExpansionary;
+	double[] investmentSubstitutionary;
+	double[] liquidAssetRemaining;
+	double[] loanForProductionAndInvestment;
+	double[] loanForDebtRepayment;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	public AdjustmentInputs(int capacity){
+
+		allocate(Math.max(capacity, 1));
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	/* Makes room for at least numberOfRows rows, and empties them. Not thread-safe: must be called before the rows are loaded, not while
+	 they are */
+	public void reset(int numberOfRows){
+
+		if(numberOfRows > adjustments.length)
+			allocate(Math.max(numberOfRows, 2 * adjustments.length));
+		else
+			Arrays.fill(adjustments, null);
+	}
+
+	// Loads the c-firm in the row, with the adjustment it has to undertake. Different rows can be loaded on different threads
+	public void load(int row, CFirm cFirm, Adjustment adjustment){
+
+		if(adjustment == null)
+			throw new IllegalArgumentException("The adjustment of the firm is missing");
+
+		this.adjustments[row] 					= adjustment;
+
+		this.id[row] 							= cFirm.getKey().getId();
+		this.price[row] 						= cFirm.getPriceOfGoodProducedNow();
+		this.cost[row] 							= cFirm.getCostToProduceGood();
+		this.inventories[row] 					= cFirm.getInventories()[0];
+		this.expectedDemand[row] 				= cFirm.getExpectedDemand();
+		this.liquidAsset[row] 					= cFirm.getLiquidAsset()[0];
+		this.debt[row] 							= cFirm.getDebt()[0];
+		this.supplierPrice[row] 				= cFirm.getSupplier().getPriceOfGoodProducedNow();
+		this.maxPossibleLoan[row] 				= cFirm.getMaxPossibleLoan();
+		this.loan[row] 							= cFirm.getLoan();
+		this.desiredProduction[row] 			= cFirm.getdQ();
+		this.desiredInvestmentSubstitutionary[row] = cFirm.getdInvestmentSubstitutionary();
+		this.payments[row] 						= cFirm.getBalanceSheet().getPaymentFunction();
+
+		if(adjustment.isAPriori()){
+			this.production[row] 				= cFirm.getProductionStar();
+			this.investmentExpansionary[row] 	= cFirm.getdInvestmentExpansionaryStar();
+			this.investmentSubstitutionary[row] = cFirm.getDesiredInvestmentSubstitionaryStar();
+		} else {
+			this.production[row] 				= cFirm.getOptimalProduction();
+			this.investmentExpansionary[row] 	= cFirm.getInvestmentExpansionaryStar();
+			this.investmentSubstitutionary[row] = cFirm.getInvestmentSubstitionaryStar();
+		}
+		this.liquidAssetRemaining[row] 			= cFirm.getLiquidAssetRemainingAfterProductionAndInvestment();
+		this.loanForProductionAndInvestment[row] = cFirm.getLoanForProductionAndInvestment();
+		this.loanForDebtRepayment[row] 			= cFirm.getLoanForDebtRepayment();
+	}
+
+	/* Gives the adjusted plan of the row back to the c-firm (the one loaded in the row), and empties the row. No effect if the row holds no
+	 firm to adjust */
+	public void store(int row, CFirm cFirm){
+
+		Adjustment adjustment 					= adjustments[row];
+		if(adjustment == null)
+			return;
+		if(id[row] != cFirm.getKey().getId())
+			throw new IllegalStateException("CFirm " + cFirm.getKey().getId() + " was not loaded in row " + row);
+
+		if(adjustment.isAPriori()){
+			cFirm.setDesiredProductionStar(production[row]);
+			cFirm.setDesiredInvestmentExpansionaryStar(investmentExpansionary[row]);
+			cFirm.setDesiredInvestmentSubstitionaryStar(investmentSubstitutionary[row]);
+			cFirm.setLoanForDebtRepayment(loanForDebtRepayment[row]);
+			cFirm.setLoanForProductionAndInvestment(loanForProductionAndInvestment[row]);
+			cFirm.setCreditDemand(loanForProductionAndInvestment[row] + loanForDebtRepayment[row]);
+		} else {
+			cFirm.setProductionQuantity(production[row]);
+			cFirm.setInvestmentExpansionary(investmentExpansionary[row]);
+			cFirm.setdInvestmentSubstitutionary(investmentSubstitutionary[row]);
+			cFirm.setLoanForDebtRepayment(loanForDebtRepayment[row]);
+			cFirm.setLoanForProductionAndInvestment(loanForProductionAndInvestment[row]);
+		}
+		this.adjustments[row] 					= null;
+		this.payments[row] 						= null;
+	}
+
+	public Adjustment getAdjustment(int row){
+		return adjustments[row];
+	}
+
+	private void allocate(int capacity){
+
+		this.adjustments 						= new Adjustment[capacity];
+		this.id 								= new long[capacity];
+		this.price 								= new double[capacity];
+		this.cost 								= new double[capacity];
+		this.inventories 						= new double[capacity];
+		this.expectedDemand 					= new double[capacity];
+		this.liquidAsset 						= new double[capacity];
+		this.debt 								= new double[capacity];
+		this.supplierPrice 						= new double[capacity];
+		this.maxPossibleLoan 					= new double[capacity];
+		this.loan 								= new double[capacity];
+		this.desiredProduction 					= new double[capacity];
+		this.desiredInvestmentSubstitutionary 	= new double[capacity];
+		this.payments 							= new PaymentFunction[capacity];
+		this.production 						= new double[capacity];
+		this.investmentExpansionary 			= new double[capacity];
+		this.investmentSubstitutionary 			= new double[capacity];
+		this.liquidAssetRemaining 				= new double[capacity];
+		this.loanForProductionAndInvestment 	= new double[capacity];
+		this.loanForDebtRepayment 				= new double[capacity];
+	}
+
+}
@@ -0,0 +1,124 @@
+package jasmine.algorithms;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/* Walker's alias method (in the version of Vose, 1991) to draw an outcome among n outcomes with given (non-negative) weights.
+ Building the table costs O(n), and each draw O(1), with two random numbers. It pays off when several outcomes are drawn from the same
+ weights, e.g. in a rejection sampling (see TechnologySnapshot).
+
+ The buffers of the sampler grow when needed and are re-used from one build to the next. A sampler must not be shared by threads.
+ */
+public class AliasSampler {
+
+	// Probability to keep the outcome of a column, instead of its alias
+	private double[] probability;
+
+	private int[] alias;
+
+	// Work lists of the columns with less (small) and more (large) than the average weight
+	private int[] small;
+
+	private int[] large;
+
+	private double[] scaledWeights;
+
+	private int size;
+
+	// ---------------------------------------------------------------------
+	// Constructors
+	// ---------------------------------------------------------------------
+
+	public AliasSampler(){
+		this(16);
+	}
+
+	public AliasSampler(int initialCapacity){
+
+		int capacity 							= Math.max(initialCapacity, 1);
+		this.probability 						= new double[capacity];
+		this.alias 								= new int[capacity];
+		this.small 								= new int[capacity];
+		this.large 								= new int[capacity];
+		this.scaledWeights 						= new double[capacity];
+		this.size 								= 0;
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	// Builds the table of the outcomes 0, ..., n - 1 with the weights weights[0], ..., weights[n - 1]. Their sum must be positive
+	public void build(double[] weights, int n){
+
+		if(n <= 0)
+			throw new IllegalArgumentException("The alias sampler needs at least one outcome");
+		if(probability.length < n){
+			this.probability 					= new double[n];
+			this.alias 							= new int[n];
+			this.small 							= new int[n];
+			this.large 							= new int[n];
+			this.scaledWeights 					= new double[n];
+		}
+
+		double sum 								= 0;
+		for(int i = 0; i < n; i++){
+			if(weights[i] < 0 || Double.isNaN(weights[i]))
+				throw new IllegalArgumentException("The weights of the alias sampler must be non-negative");
+			sum 								+= weights[i];
+		}
+		if(!(sum > 0) || Double.isInfinite(sum))
+			throw new IllegalArgumentException("The sum of the weights of the alias sampler must be positive and finite");
+
+		// Scale the weights such that their average is 1, and sort the columns into small and large ones
+		int numberSmall 						= 0;
+		int numberLarge 						= 0;
+		for(int i = 0; i < n; i++){
+			this.scaledWeights[i] 				= weights[i] * n / sum;
+			if(scaledWeights[i] < 1)
+				this.small[numberSmall++] 		= i;
+			else
+				this.large[numberLarge++] 		= i;
+		}
+
+		// Each small column is completed by (a part of) a large one, its alias
+		while(numberSmall > 0 && numberLarge > 0){
+			int less 							= small[--numberSmall];
+			int more 							= large[--numberLarge];
+			this.probability[less] 				= scaledWeights[less];
+			this.alias[less] 					= more;
+			this.scaledWeights[more] 			= (scaledWeights[more] + scaledWeights[less]) - 1;
+			if(scaledWeights[more] < 1)
+				this.small[numberSmall++] 		= more;
+			else
+				this.large[numberLarge++] 		= more;
+		}
+		// The remaining columns are full (up to rounding errors)
+		while(numberLarge > 0){
+			int more 							= large[--numberLarge];
+			this.probability[more] 				= 1;
+			this.alias[more] 					= more;
+		}
+		while(numberSmall > 0){
+			int less 							= small[--numberSmall];
+			this.probability[less] 				= 1;
+			this.alias[less] 					= less;
+		}
+		this.size 								= n;
+	}
+
+	// Draws an outcome
+	public int sample(RandomGenerator rnd){
+
+		if(size == 0)
+			throw new IllegalStateException("The alias sampler has not been built");
+
+		int column 								= rnd.nextInt(size);
+		return rnd.nextDouble() < probability[column] ? column : alias[column];
+	}
+
+	public int size() {
+		return size;
+	}
+
+}
@@ -0,0 +1,63 @@
+package jasmine.algorithms;
+
+import java.util.Arrays;
+
+/* Growable list of primitive ints, e.g. indices of agents in a registry of the model. It avoids boxing the indices into the collections of
+ the JDK, and keeps its buffer from one use to the next: clear() does not free it. A list must not be shared by threads. */
+public class IntList {
+
+	private int[] values;
+
+	private int size;
+
+	// ---------------------------------------------------------------------
+	// Constructors
+	// ---------------------------------------------------------------------
+
+	public IntList(){
+		this(8);
+	}
+
+	public IntList(int initialCapacity){
+
+		this.values 							= new int[Math.max(initialCapacity, 1)];
+		this.size 								= 0;
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	public void add(int value){
+
+		if(size == values.length)
+			this.values 						= Arrays.copyOf(values, 2 * values.length);
+		this.values[size++] 					= value;
+	}
+
+	public int get(int i){
+
+		if(i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("Index " + i + " out of a list of size " + size);
+		return values[i];
+	}
+
+	public void clear(){
+		this.size 								= 0;
+	}
+
+	public boolean isEmpty(){
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// Copy of the values of the list
+	public int[] toArray(){
+		return Arrays.copyOf(values, size);
+	}
+
+}
@@ -0,0 +1,120 @@
+package jasmine.algorithms;
+
+import org.apache.commons.math3.random.BitsStreamGenerator;
+import org.apache.commons.math3.random.RandomGenerator;
+
+/* Random streams of a run. Instead of drawing all the random numbers from a single generator, each agent draws, in each process and
+ in each period, from its own stream. The seed of a stream is derived from the seed of the run, the process, the id of the agent and the
+ period only. The draws of an agent therefore do not depend on the order in which the agents are scheduled, nor on the thread
+ they run on. This is one of the two conditions for the schedules of a run to yield the same trajectory; the other is that the totals
+ shared by the firms are summed in the same groups and in the same order, i.e. by the fixed chunks of firms of FirmChunkExecutor, whose
+ results depend on the chunk size (see Ledger and SectorAggregates). Runs with the same seed and the same chunk size yield identical
+ trajectories, whether sequential or parallel (see ScheduleModesTest).
+
+ Seeds are derived with the SplitMix64 mixing function (Steele et al., 2014), and the streams are SplitMix64 generators. Each agent keeps
+ its own generator (see newGenerator()), which is reseeded every time the agent starts a random process: a stream allocates nothing.
+ */
+public class RandomStreams {
+
+	// Processes that draw random numbers. Each of them has its own family of streams.
+	public enum Stream {
+		Innovation,
+		Imitation,
+		Brochure,
+		ChooseSupplier,
+		Entry;
+	}
+
+	// Odd constant used by SplitMix64 to move from one state to the next
+	private static final long GOLDEN_GAMMA 		= 0x9e3779b97f4a7c15L;
+
+	private final long runSeed;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	public RandomStreams(long runSeed){
+		this.runSeed 							= runSeed;
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	/* Stream of the agent with identifier id, in the given process and period: the generator of the agent (see newGenerator()), reseeded. 
+	 The stream is the same as a new generator with this seed */
+	public RandomGenerator stream(Stream stream, long id, long period, RandomGenerator generator){
+		if(!(generator instanceof SplitMix64))
+			throw new IllegalArgumentException("The random streams are drawn from the generators of RandomStreams.newGenerator()");
+		generator.setSeed(seed(stream, id, period));
+		return generator;
+	}
+
+	// Generator of an agent, to be reseeded by stream() before each of its random processes
+	public static RandomGenerator newGenerator(){
+		return new SplitMix64(0);
+	}
+
+	long seed(Stream stream, long id, long period){
+		long seed 								= mix64(runSeed + GOLDEN_GAMMA * (stream.ordinal() + 1));
+		seed 									= mix64(seed + GOLDEN_GAMMA * (id + 1));
+		return mix64(seed + GOLDEN_GAMMA * (period + 1));
+	}
+
+	static long mix64(long z){
+		z 										= (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z 										= (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	public long getRunSeed() {
+		return runSeed;
+	}
+
+	// ---------------------------------------------------------------------
+	// Generator
+	// ---------------------------------------------------------------------
+
+	/* SplitMix64 generator. Extending BitsStreamGenerator makes it usable by the commons-math distributions (BinomialDistribution,
+	 BetaDistribution, EnumeratedDistribution etc.) */
+	static class SplitMix64 extends BitsStreamGenerator {
+
+		private long state;
+
+		SplitMix64(long seed){
+			this.state 							= seed;
+		}
+
+		@Override
+		public void setSeed(int seed) {
+			setSeed((long) seed);
+		}
+
+		@Override
+		public void setSeed(int[] seed) {
+			long s 								= 0;
+			for(int i : seed)
+				s 								= mix64(s + GOLDEN_GAMMA + i);
+			setSeed(s);
+		}
+
+		@Override
+		public void setSeed(long seed) {
+			this.state 							= seed;
+			clear();
+		}
+
+		@Override
+		public long nextLong() {
+			this.state 							+= GOLDEN_GAMMA;
+			return mix64(state);
+		}
+
+		@Override
+		protected int next(int bits) {
+			return (int) (nextLong() >>> (64 - bits));
+		}
+	}
+
+}
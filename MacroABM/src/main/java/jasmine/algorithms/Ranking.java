@@ -0,0 +1,257 @@
+package jasmine.algorithms;
+
+import java.util.Arrays;
+
+/* Ranking of items by a primitive key, without boxing nor temporary collections. It replaces the former MapSorting utility, which
+ copied a map into a linked list and sorted it into a new map.
+
+ Items are added with add(key), and are identified by their position, i.e. the order in which they were added (0, 1, ...). The caller
+ keeps the items themselves, e.g. in a list indexed by position, or stores an int identifier with add(key, item). The sort methods
+ return the positions ranked by key. Ties are ranked in the order of the positions, exactly as the stable sort of MapSorting did: for
+ a given set of keys, the ranking is thus the same as the one MapSorting.sortByValueDescending() (resp. Ascending) gave for a
+ LinkedHashMap filled in the same order.
+
+ The positions can also be ranked incrementally (startDescending() and nextDescending()): a heap of the positions is built in
+ O(size), and each call returns the next position in O(log(size)). Only the positions that are actually needed are thus ordered, e.g.
+ when the bank distributes its credit until it runs out of funds (Bank.creditAllocation()).
+
+ The buffers of a ranking grow when needed and are re-used from one call to the next. The array returned by the sort methods belongs
+ to the ranking: it is valid until the next call to clear() or add(), and only its first size() (resp. k) entries are meaningful.
+ A ranking must not be shared by threads.
+ */
+public class Ranking {
+
+	private double[] keys;
+
+	private int[] items;
+
+	private int[] ranked;
+
+	// Buffer of the merge sort
+	private int[] buffer;
+
+	private int size;
+
+	// Number of positions left in the heap of the incremental ranking
+	private int heapSize;
+
+	// ---------------------------------------------------------------------
+	// Constructors
+	// ---------------------------------------------------------------------
+
+	public Ranking(){
+		this(16);
+	}
+
+	public Ranking(int initialCapacity){
+
+		int capacity 							= Math.max(initialCapacity, 1);
+		this.keys 								= new double[capacity];
+		this.items 								= new int[capacity];
+		this.ranked 							= new int[capacity];
+		this.buffer 							= new int[capacity];
+		this.size 								= 0;
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	public void clear(){
+		this.size 								= 0;
+		this.heapSize 							= 0;
+	}
+
+	// Adds an item with the given key, and returns its position
+	public int add(double key){
+		return add(key, -1);
+	}
+
+	// Adds an item, identified by an int (e.g. a row of a table), with the given key, and returns its position
+	public int add(double key, int item){
+
+		if(size == keys.length){
+			int capacity 						= 2 * keys.length;
+			this.keys 							= Arrays.copyOf(keys, capacity);
+			this.items 							= Arrays.copyOf(items, capacity);
+			this.ranked 						= new int[capacity];
+			this.buffer 						= new int[capacity];
+		}
+		this.keys[size] 						= key;
+		this.items[size] 						= item;
+		return size++;
+	}
+
+	// Positions ranked from the highest to the lowest key
+	public int[] sortDescending(){
+		return sort(true);
+	}
+
+	// Positions ranked from the lowest to the highest key
+	public int[] sortAscending(){
+		return sort(false);
+	}
+
+	/* The k positions with the highest keys, ranked from the highest to the lowest key (the first k entries of sortDescending()). The
+	 selection keeps a heap of the k best positions, in O(size x log(k)), and only sorts those. */
+	public int[] topDescending(int k){
+
+		if(k < 0)
+			throw new IllegalArgumentException("The number of items to select must be non-negative");
+		if(k >= size)
+			return sortDescending();
+
+		// Heap of the k best positions seen so far: the root is the worst of them
+		for(int i = 0; i < size; i++){
+			if(i < k){
+				this.ranked[i] 					= i;
+				siftUp(i, false);
+			} else if(before(i, ranked[0], true)){
+				this.ranked[0] 					= i;
+				siftDown(0, k, false);
+			}
+		}
+
+		// Sort the selected positions
+		mergeSort(0, k, true);
+		return ranked;
+	}
+
+	// Starts an incremental ranking of the positions, from the highest to the lowest key
+	public void startDescending(){
+
+		for(int i = 0; i < size; i++)
+			this.ranked[i] 						= i;
+		this.heapSize 							= size;
+		for(int i = (heapSize >>> 1) - 1; i >= 0; i--)
+			siftDown(i, heapSize, true);
+	}
+
+	// true if the incremental ranking has positions left
+	public boolean hasNext(){
+		return heapSize > 0;
+	}
+
+	// Next position of the incremental ranking
+	public int nextDescending(){
+
+		if(heapSize == 0)
+			throw new IllegalStateException("No position left in the ranking");
+
+		int next 								= ranked[0];
+		this.ranked[0] 							= ranked[--heapSize];
+		siftDown(0, heapSize, true);
+		return next;
+	}
+
+	/* Positions left in the incremental ranking, in no particular order: only the first remaining() entries of the returned array are 
+	 meaningful */
+	public int[] getRemaining(){
+		return ranked;
+	}
+
+	public int remaining(){
+		return heapSize;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public double getKey(int position) {
+		return keys[position];
+	}
+
+	public int getItem(int position) {
+		return items[position];
+	}
+
+	// ---------------------------------------------------------------------
+	// Sorting
+	// ---------------------------------------------------------------------
+
+	private int[] sort(boolean descending){
+
+		for(int i = 0; i < size; i++)
+			this.ranked[i] 						= i;
+		mergeSort(0, size, descending);
+		return ranked;
+	}
+
+	// true if position i is ranked before position j. Keys are compared as Double.compareTo() does; ties follow the positions
+	private boolean before(int i, int j, boolean descending){
+		int comparison 							= Double.compare(keys[i], keys[j]);
+		if(comparison == 0)
+			return i < j;
+		return descending ? comparison > 0 : comparison < 0;
+	}
+
+	// Bottom-up merge sort of ranked[from, to)
+	private void mergeSort(int from, int to, boolean descending){
+
+		int[] source 							= ranked;
+		int[] target 							= buffer;
+		for(int width = 1; width < to - from; width *= 2){
+			for(int low = from; low < to; low += 2 * width){
+				int middle 						= Math.min(low + width, to);
+				int high 						= Math.min(low + 2 * width, to);
+				int i 							= low;
+				int j 							= middle;
+				for(int k = low; k < high; k++){
+					if(i < middle && (j >= high || !before(source[j], source[i], descending)))
+						target[k] 				= source[i++];
+					else
+						target[k] 				= source[j++];
+				}
+			}
+			int[] swap 							= source;
+			source 								= target;
+			target 								= swap;
+		}
+		if(source != ranked)
+			System.arraycopy(source, from, ranked, from, to - from);
+	}
+
+	// ---------------------------------------------------------------------
+	// Heaps
+	// ---------------------------------------------------------------------
+	
+	// true if position i must be above position j in the heap: the root is the best position if bestFirst, the worst one otherwise
+	private boolean above(int i, int j, boolean bestFirst){
+		return bestFirst ? before(i, j, true) : before(j, i, true);
+	}
+
+	private void siftUp(int i, boolean bestFirst){
+		while(i > 0){
+			int parent 							= (i - 1) >>> 1;
+			if(!above(ranked[i], ranked[parent], bestFirst))
+				break;
+			swap(parent, i);
+			i 									= parent;
+		}
+	}
+
+	private void siftDown(int i, int heapSize, boolean bestFirst){
+		while(true){
+			int top 							= i;
+			int left 							= 2 * i + 1;
+			int right 							= left + 1;
+			if(left < heapSize && above(ranked[left], ranked[top], bestFirst))
+				top 							= left;
+			if(right < heapSize && above(ranked[right], ranked[top], bestFirst))
+				top 							= right;
+			if(top == i)
+				break;
+			swap(i, top);
+			i 									= top;
+		}
+	}
+
+	private void swap(int i, int j){
+		int tmp 								= ranked[i];
+		this.ranked[i] 							= ranked[j];
+		this.ranked[j] 							= tmp;
+	}
+
+}
@@ -0,0 +1,201 @@
+package jasmine.algorithms;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.util.FastMath;
+import org.apache.commons.math3.util.Precision;
+
+/* Samplers of the random variables drawn by the agents, that allocate nothing per draw. They replace the commons-math distributions
+ (BinomialDistribution, BetaDistribution) that were created every time an agent drew a number, although their parameters are either
+ constant over the run or a single probability.
+
+ The samplers draw from the random generator they are given, in the same way as the commons-math (3.6) distributions do, such that the
+ random streams of the agents are unchanged:
+ 	- bernoulli() draws one number, as BinomialDistribution(rnd, 1, p).sample() does by inversion of its cumulative distribution;
+ 	- ScaledBeta draws with the algorithms of Cheng (1978) used by BetaDistribution.sample(), whose constants are computed once.
+ The samplers hold no state besides their parameters: they can be shared by the agents and threads of a run. Categorical draws are made
+ with an AliasSampler.
+ */
+public final class Samplers {
+
+	private Samplers(){
+	}
+
+	/* Draws true with probability p. The success is drawn as BinomialDistribution with one trial does: 1 - p is the probability of the
+	 failure, i.e. of a number lower than or equal to it. */
+	public static boolean bernoulli(RandomGenerator rnd, double p){
+
+		if(!(p >= 0 && p <= 1))
+			throw new IllegalArgumentException("The probability of a Bernoulli draw must be in [0, 1]: " + p);
+
+		return rnd.nextDouble() > 1 - p;
+	}
+
+	// ---------------------------------------------------------------------
+	// Beta distribution
+	// ---------------------------------------------------------------------
+
+	// Beta distribution with parameters alpha and beta, rescaled to the support [lower, upper]
+	public static final class ScaledBeta {
+
+		private final double alpha;
+
+		private final double beta;
+
+		private final double lower;
+
+		private final double upper;
+
+		// Smallest and largest shape parameters
+		private final double min;
+
+		private final double max;
+
+		// true if alpha is the parameter a of the algorithm: the draw is then w / (b + w), and b / (b + w) otherwise
+		private final boolean alphaIsA;
+
+		// Algorithm BB if both parameters are greater than 1, algorithm BC otherwise
+		private final boolean algorithmBB;
+
+		// Constants of the algorithms
+		private final double sum;
+
+		private final double logSum;
+
+		private final double chengBeta;
+
+		private final double gamma;
+
+		private final double k1;
+
+		private final double k2;
+
+		// ---------------------------------------------------------------------
+		// Constructor
+		// ---------------------------------------------------------------------
+
+		public ScaledBeta(double alpha, double beta, double lower, double upper){
+
+			if(!(alpha > 0) || !(beta > 0))
+				throw new IllegalArgumentException("The parameters of the beta distribution must be positive: " + alpha + ", " + beta);
+			if(!(lower <= upper))
+				throw new IllegalArgumentException("The support of the beta distribution is empty: [" + lower + ", " + upper + "]");
+
+			this.alpha 							= alpha;
+			this.beta 							= beta;
+			this.lower 							= lower;
+			this.upper 							= upper;
+			this.min 							= FastMath.min(alpha, beta);
+			this.max 							= FastMath.max(alpha, beta);
+			this.algorithmBB 					= min > 1;
+			this.sum 							= min + max;
+			this.logSum 						= FastMath.log(sum);
+			if(algorithmBB){
+				// Algorithm BB: a is the smallest parameter, b the largest one
+				this.alphaIsA 					= Precision.equals(min, alpha);
+				this.chengBeta 					= FastMath.sqrt((sum - 2.) / (2. * min * max - sum));
+				this.gamma 						= min + 1. / chengBeta;
+				this.k1 						= 0;
+				this.k2 						= 0;
+			} else {
+				// Algorithm BC: a is the largest parameter, b the smallest one
+				this.alphaIsA 					= Precision.equals(max, alpha);
+				this.chengBeta 					= 1. / min;
+				double delta 					= 1. + max - min;
+				this.gamma 						= 0;
+				this.k1 						= delta * (0.0138889 + 0.0416667 * min) / (max * chengBeta - 0.777778);
+				this.k2 						= 0.25 + (0.5 + 0.25 / delta) * min;
+			}
+
+		}
+
+		// ---------------------------------------------------------------------
+		// Own methods
+		// ---------------------------------------------------------------------
+
+		// Draws a number of the beta distribution, rescaled to [lower, upper]
+		public double sample(RandomGenerator rnd){
+			double x 							= algorithmBB ? sampleBB(rnd) : sampleBC(rnd);
+			return lower + x * (upper - lower);
+		}
+
+		// Cheng's algorithm BB, for min(alpha, beta) > 1
+		private double sampleBB(RandomGenerator rnd){
+
+			double a 							= min;
+			double b 							= max;
+			double r;
+			double w;
+			double t;
+			do {
+				double u1 						= rnd.nextDouble();
+				double u2 						= rnd.nextDouble();
+				double v 						= chengBeta * (FastMath.log(u1) - FastMath.log1p(-u1));
+				w 								= a * FastMath.exp(v);
+				double z 						= u1 * u1 * u2;
+				r 								= gamma * v - 1.3862944;
+				double s 						= a + r - w;
+				if(s + 2.609438 >= 5 * z)
+					break;
+
+				t 								= FastMath.log(z);
+				if(s > t)
+					break;
+			} while(r + sum * (logSum - FastMath.log(b + w)) < t);
+
+			w 									= FastMath.min(w, Double.MAX_VALUE);
+			return alphaIsA ? w / (b + w) : b / (b + w);
+		}
+
+		// Cheng's algorithm BC, for min(alpha, beta) <= 1
+		private double sampleBC(RandomGenerator rnd){
+
+			double a 							= max;
+			double b 							= min;
+			double w;
+			while(true){
+				double u1 						= rnd.nextDouble();
+				double u2 						= rnd.nextDouble();
+				double y 						= u1 * u2;
+				double z 						= u1 * y;
+				if(u1 < 0.5){
+					if(0.25 * u2 + z - y >= k1)
+						continue;
+				} else {
+					if(z <= 0.25){
+						double v 				= chengBeta * (FastMath.log(u1) - FastMath.log1p(-u1));
+						w 						= a * FastMath.exp(v);
+						break;
+					}
+					if(z >= k2)
+						continue;
+				}
+
+				double v 						= chengBeta * (FastMath.log(u1) - FastMath.log1p(-u1));
+				w 								= a * FastMath.exp(v);
+				if(sum * (logSum - FastMath.log(b + w) + v) - 1.3862944 >= FastMath.log(z))
+					break;
+			}
+
+			w 									= FastMath.min(w, Double.MAX_VALUE);
+			return alphaIsA ? w / (b + w) : b / (b + w);
+		}
+
+		public double getAlpha() {
+			return alpha;
+		}
+
+		public double getBeta() {
+			return beta;
+		}
+
+		public double getLower() {
+			return lower;
+		}
+
+		public double getUpper() {
+			return upper;
+		}
+
+	}
+
+}
@@ -0,0 +1,127 @@
+package jasmine.algorithms;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/* Draws, without replacement, k distinct indices among the indices 0, ..., n - 1 that are not excluded, e.g. the new potential clients of a
+ capital-good firm among the consumption-good firms that are not already its clients (KFirm.brochure()).
+
+ Drawing random indices until k new ones are found checks every draw against the excluded and already drawn indices, and slows down
+ without bound when few indices are left. Instead, the sampler ranks the m = n - (number excluded) indices that can be drawn, and draws k
+ ranks with Floyd's algorithm (Bentley & Floyd, 1987): for j = m - k, ..., m - 1, draw t uniformly in [0, j] and take t, or j if t has already
+ been taken. This takes exactly k random numbers, whatever k and m. The ranks taken are marked in a bitset, and a rank is turned into its
+ index by a binary search among the excluded indices, sorted. A draw thus costs O(c log c + k log c), with c the number of excluded indices:
+ once the buffers are allocated, nothing depends on n.
+
+ Usage: reset(n), exclude(i) for each excluded index, then sample(k, rnd). The buffers grow when needed and are re-used from one draw to
+ the next. The array returned by sample() belongs to the sampler: only its first k entries are meaningful, until the next call. A sampler
+ must not be shared by threads.
+ */
+public class SubsetSampler {
+
+	// Bitset of the ranks already taken in the current draw
+	private long[] taken;
+
+	private int[] excluded;
+
+	private int numberExcluded;
+
+	// Indices drawn
+	private int[] sample;
+
+	private int n;
+
+	// ---------------------------------------------------------------------
+	// Constructors
+	// ---------------------------------------------------------------------
+
+	public SubsetSampler(){
+		this(64);
+	}
+
+	public SubsetSampler(int initialCapacity){
+
+		int capacity 							= Math.max(initialCapacity, 1);
+		this.taken 								= new long[(capacity + 63) >>> 6];
+		this.excluded 							= new int[capacity];
+		this.sample 							= new int[capacity];
+		this.numberExcluded 					= 0;
+		this.n 									= 0;
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	// Starts a new draw among the indices 0, ..., n - 1
+	public void reset(int n){
+
+		if(n < 0)
+			throw new IllegalArgumentException("The number of indices must be non-negative");
+		this.n 									= n;
+		this.numberExcluded 					= 0;
+	}
+
+	// Excludes index i from the draw. An index must not be excluded twice
+	public void exclude(int i){
+
+		if(i < 0 || i >= n)
+			throw new IllegalArgumentException("Index " + i + " out of [0, " + n + ")");
+		if(numberExcluded == excluded.length)
+			this.excluded 						= Arrays.copyOf(excluded, 2 * excluded.length);
+		this.excluded[numberExcluded++] 		= i;
+	}
+
+	// Draws k distinct indices, that are not excluded. They are the first k entries of the returned array, in the order of the draws
+	public int[] sample(int k, RandomGenerator rnd){
+
+		Arrays.sort(excluded, 0, numberExcluded);
+		for(int j = 1; j < numberExcluded; j++){
+			if(excluded[j] == excluded[j - 1])
+				throw new IllegalArgumentException("Index " + excluded[j] + " is excluded twice");
+		}
+		int m 									= n - numberExcluded;
+		if(k < 0 || k > m)
+			throw new IllegalArgumentException("Cannot draw " + k + " indices out of " + m);
+
+		if(sample.length < k)
+			this.sample 						= new int[Math.max(k, 2 * sample.length)];
+		if(taken.length < (m + 63) >>> 6)
+			this.taken 							= new long[(m + 63) >>> 6];
+
+		// Floyd's algorithm on the ranks
+		for(int j = m - k, s = 0; j < m; j++, s++){
+			int t 								= rnd.nextInt(j + 1);
+			if((taken[t >>> 6] & (1L << t)) != 0)
+				t 								= j;
+			this.taken[t >>> 6] 				|= 1L << t;
+			this.sample[s] 						= t;
+		}
+
+		// Clear the bitset for the next draw, and turn the ranks into indices
+		for(int s = 0; s < k; s++){
+			this.taken[sample[s] >>> 6] 		= 0;
+			this.sample[s] 						= index(sample[s]);
+		}
+		return sample;
+	}
+
+	// Index of the given rank among the indices that are not excluded
+	private int index(int rank){
+
+		// Number of excluded indices lower than the index: excluded[j] - j is the rank of the first index after excluded[j]
+		int low 								= 0;
+		int high 								= numberExcluded;
+		while(low < high){
+			int middle 							= (low + high) >>> 1;
+			if(excluded[middle] - middle <= rank)
+				low 							= middle + 1;
+			else
+				high 							= middle;
+		}
+		return rank + low;
+	}
+
+}
@@ -0,0 +1,9 @@
+package jasmine.enums;
+
+public enum ConsumptionAllocationMode {
+
+	Rounds,					// reference (default): rounds of allocation over all the firms, until the consumption or the stocks run out
+	Water_Filling,			// one pass over the firms ranked by stock-to-market-share ratio (see ConsumptionAllocator)
+	Validation;				// runs both, keeps the reference allocation and logs the differences
+
+}
@@ -0,0 +1,56 @@
+package jasmine.experiment;
+
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import microsim.statistics.IDoubleArraySource;
+
+/* Cross-section of a double variable over a list of agents, read through a typed getter (e.g. KFirm::getRdExpenditure). It replaces the
+ CrossSection.Double of JAS-mine, which finds the getter by its name and invokes it by reflection on every agent, each time the
+ cross-section is updated.
+
+ The getter is resolved once, when the cross-section is created. Each call to getDoubleArray() reads the variable of all the agents of
+ the list into a buffer, that is re-used as long as the number of agents does not change, and returns it. It can thus feed the array
+ functions of JAS-mine (SumArrayFunction, MeanArrayFunction, MaxArrayFunction etc.) as the CrossSection did. The returned array belongs to
+ the cross-section: it is valid until the next call.
+ */
+public class DoubleCrossSection<T> implements IDoubleArraySource {
+
+	private final List<? extends T> agents;
+
+	private final ToDoubleFunction<? super T> getter;
+
+	private double[] values;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	public DoubleCrossSection(List<? extends T> agents, ToDoubleFunction<? super T> getter){
+
+		if(agents == null || getter == null)
+			throw new IllegalArgumentException("A cross-section needs a list of agents and a getter");
+
+		this.agents 							= agents;
+		this.getter 							= getter;
+		this.values 							= new double[agents.size()];
+
+	}
+
+	// ---------------------------------------------------------------------
+	// IDoubleArraySource
+	// ---------------------------------------------------------------------
+
+	@Override
+	public double[] getDoubleArray() {
+
+		int size 								= agents.size();
+		// The array functions use the length of the array as the number of agents: the buffer must have the exact size
+		if(values.length != size)
+			this.values 						= new double[size];
+		for(int i = 0; i < size; i++)
+			this.values[i] 						= getter.applyAsDouble(agents.get(i));
+		return values;
+	}
+
+}
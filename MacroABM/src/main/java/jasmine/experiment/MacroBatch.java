@@ -0,0 +1,244 @@
+package jasmine.experiment;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.util.Map;
+import java.util.Properties;
+
+import microsim.event.EventGroup;
+
+import jasmine.enums.ConsumptionAllocationMode;
+import jasmine.enums.DebtManagement;
+import jasmine.enums.DebtRepayment;
+import jasmine.model.MacroModel;
+import jasmine.model.MacroStatistics;
+
+//*******************************************************************
+//
+//	Headless start class, for batches of runs on a cluster: one run
+//	of the model for a parameter set and a seed, without the GUI nor
+//	the JAS-mine engine. Reports the number of periods per second.
+//
+//*******************************************************************
+
+/* The run builds the model and the collector directly, and fires the events of each period in a loop (see
+ MacroModel.buildPeriodEventGroup()), as the concurrent runs of MacroMultiRun do: no event queue, no Swing class and no reflection on the
+ GUI parameters. The parameters are set through the setters of the model, from a parameter file and / or the command line:
+
+ 	java jasmine.experiment.MacroBatch [-p <parameter file>] [-s <seed>] [-e <end time>] [-o <csv file>] [<parameter>=<value> ...]
+
+ e.g. 	java jasmine.experiment.MacroBatch -s 42 -e 600 numberOfCFirms=2000 parallelScheduling=true
+
+ The parameter file is a properties file with the same <parameter>=<value> entries, the command line taking precedence. See
+ setParameter() for the names of the parameters. The time series of the run are written in the csv file, if any.
+
+ NOTE: the exports of the collector (csv files and database of JAS-mine) are disabled. As with the engine, the run stops early if the bank
+ cannot be saved (see MacroModel.stopRun()).
+ */
+public class MacroBatch {
+
+	public static void main(String[] args) throws IOException {
+
+		long start 							= System.nanoTime();
+
+		Properties parameters 				= new Properties();
+		String output 						= null;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-p")) {			//Read the parameters from a properties file, e.g. '-p run.properties'
+				try (Reader in = new FileReader(argument(args, ++i))) {
+					Properties file 		= new Properties();
+					file.load(in);
+					// The parameters of the command line take precedence, whatever their position
+					for (String name : file.stringPropertyNames())
+						if (!parameters.containsKey(name))
+							parameters.setProperty(name, file.getProperty(name));
+				}
+			}
+			else if (args[i].equals("-s"))		//Set the seed of the run, e.g. '-s 1166517026'
+				parameters.setProperty("seedIfFixed", argument(args, ++i));
+			else if (args[i].equals("-e"))		//Set the end time of the run, e.g. '-e 600'
+				parameters.setProperty("endTime", argument(args, ++i));
+			else if (args[i].equals("-o"))		//Write the time series of the run in a csv file, e.g. '-o run.csv'
+				output 						= argument(args, ++i);
+			else if (args[i].indexOf('=') > 0) {	//Set a parameter of the model, e.g. 'numberOfCFirms=2000'
+				int equal 					= args[i].indexOf('=');
+				parameters.setProperty(args[i].substring(0, equal), args[i].substring(equal + 1));
+			}
+			else {
+				System.err.println("Unknown argument " + args[i] + ". Usage: java " + MacroBatch.class.getName() +
+						" [-p <parameter file>] [-s <seed>] [-e <end time>] [-o <csv file>] [<parameter>=<value> ...]");
+				System.exit(1);
+			}
+		}
+
+		MacroModel model 					= newModel();
+		for (Map.Entry<Object, Object> parameter : parameters.entrySet()) {
+			try {
+				setParameter(model, (String) parameter.getKey(), ((String) parameter.getValue()).trim());
+			} catch (IllegalArgumentException e) {
+				System.err.println("Parameter " + parameter.getKey() + ": " + e.getMessage());
+				System.exit(1);
+			}
+		}
+
+		long periodsNanos;
+		if (output == null) {
+			periodsNanos 					= run(model, null);
+		} else {
+			try (PrintWriter out = new PrintWriter(new FileWriter(new File(output)))) {
+				periodsNanos 				= run(model, out);
+			}
+		}
+
+		long periods 						= numberOfPeriods(model);
+		double periodsSeconds 				= periodsNanos / 1e9;
+		double totalSeconds 				= (System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("seed %d: %d periods in %.3f s, %.1f periods/s (%.3f s in total, build included)%s",
+				model.getSeedIfFixed(), periods, periodsSeconds, periods / periodsSeconds, totalSeconds,
+				model.getContext().isStopped() ? ", stopped before the end time" : ""));
+	}
+
+	// Model and collector of a run without the engine. The exports of the collector are disabled
+	static MacroModel newModel() {
+
+		MacroModel model 					= new MacroModel();
+		MacroCollector collector 			= new MacroCollector(model);
+		model.setCollector(collector);
+
+		// The DataExport objects would write in the files and the database of the engine. Instead, the time series of the run are written by run()
+		collector.setExportToCSV(false);
+		collector.setExportToDatabase(false);
+		collector.setExportFirmsData(false);
+		collector.setExportBankData(false);
+		return model;
+	}
+
+	/* Builds the objects of the model and of its collector, and fires the events of each period from time 0 to time endTime, both included
+	 (as in MacroModel.buildSchedule()), unless the run is stopped before. The time series are written in out, if not null. Returns the time 
+	 spent in the periods, in nanoseconds */
+	static long run(MacroModel model, PrintWriter out) {
+
+		MacroCollector collector 			= model.getCollector();
+		model.buildObjects();
+		collector.buildObjects();
+		EventGroup period 					= model.buildPeriodEventGroup();
+
+		if (out != null)
+			out.println("time,seed,gdp,gdpGrowth,consumption,realConsumption,unemploymentRate,wage,cpi,ppi,production_cFirms,production_kFirms,exit_cFirms,exit_kFirms,totalDebt");
+
+		long start 							= System.nanoTime();
+		for (double time = 0.; time <= model.getEndTime() && !model.getContext().isStopped(); time++) {
+			period.fireEvent();
+
+			if (out != null) {
+				MacroStatistics statistics 	= collector.getStatistics();
+				out.println(time + "," + model.getSeedIfFixed() + "," + statistics.getGDP() + "," + statistics.getGdpGrowth() + "," +
+						statistics.getConsumption() + "," + statistics.getRealConsumption() + "," + statistics.getUnemploymentRate() + "," +
+						statistics.getWage() + "," + statistics.getCPI() + "," + statistics.getPPI() + "," + statistics.getProduction_cFirms() + "," +
+						statistics.getProduction_kFirms() + "," + statistics.getExit_cFirms() + "," + statistics.getExit_kFirms() + "," +
+						statistics.getTotalDebt());
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	// Number of periods fired (the clock of the run is advanced at the end of every period)
+	static long numberOfPeriods(MacroModel model) {
+		return (long) model.getContext().getTime();
+	}
+
+	// Sets the parameter of the model through its setter. Throws an IllegalArgumentException if the name or the value is not valid
+	static void setParameter(MacroModel model, String name, String value) {
+
+		try {
+			switch (name) {
+			case "numberOfCFirms":
+				model.setNumberOfCFirms(Integer.parseInt(value));
+				break;
+			case "numberOfKFirms":
+				model.setNumberOfKFirms(Integer.parseInt(value));
+				break;
+			case "endTime":
+				model.setEndTime(Double.parseDouble(value));
+				break;
+			case "reserveRequirementRate":
+				model.setReserveRequirementRate(Double.parseDouble(value));
+				break;
+			case "loanToValueRatio":
+				model.setLoanToValueRatio(Double.parseDouble(value));
+				break;
+			case "unemploymentBenefitShare":
+				model.setUnemploymentBenefitShare(Double.parseDouble(value));
+				break;
+			case "markUpRate":
+				model.setMarkUpRate(Double.parseDouble(value));
+				break;
+			case "taxRate":
+				model.setTaxRate(Double.parseDouble(value));
+				break;
+			case "interestRate":
+				model.setInterestRate(Double.parseDouble(value));
+				break;
+			case "debtRepayment":
+				model.setDebtRepayment(DebtRepayment.valueOf(value));
+				break;
+			case "debtManagement":
+				model.setDebtManagement(DebtManagement.valueOf(value));
+				break;
+			case "fixRandomSeed":
+				model.setFixRandomSeed(parseBoolean(value));
+				break;
+			case "seedIfFixed":
+				model.setSeedIfFixed(Long.parseLong(value));
+				break;
+			case "parallelScheduling":
+				model.setParallelScheduling(parseBoolean(value));
+				break;
+			case "parallelChunkSize":
+				model.setParallelChunkSize(Integer.parseInt(value));
+				break;
+			case "consumptionAllocationMode":
+				model.setConsumptionAllocationMode(ConsumptionAllocationMode.valueOf(value));
+				break;
+			case "batchAdjustments":
+				model.setBatchAdjustments(parseBoolean(value));
+				break;
+			case "fuseFirmProcesses":
+				model.setFuseFirmProcesses(parseBoolean(value));
+				break;
+			case "concurrentStages":
+				model.setConcurrentStages(parseBoolean(value));
+				break;
+			case "validateConcurrentStages":
+				model.setValidateConcurrentStages(parseBoolean(value));
+				break;
+			default:
+				throw new IllegalArgumentException("unknown parameter");
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("invalid value " + value);
+		}
+	}
+
+	// Unlike Boolean.parseBoolean(), a typo is not read as false
+	private static boolean parseBoolean(String value) {
+		if (value.equalsIgnoreCase("true"))
+			return true;
+		if (value.equalsIgnoreCase("false"))
+			return false;
+		throw new IllegalArgumentException("invalid value " + value + " (true or false)");
+	}
+
+	private static String argument(String[] args, int i) {
+		if (i >= args.length) {
+			System.err.println("Argument " + args[i - 1] + " must be followed by a value.");
+			System.exit(1);
+		}
+		return args[i];
+	}
+
+}
@@ -1,15 +1,13 @@
 package jasmine.experiment;
 
-import java.util.Map;
+import java.util.List;
 
 import microsim.annotation.GUIparameter;
 import microsim.data.DataExport;
 import microsim.engine.AbstractSimulationCollectorManager;
-import microsim.engine.SimulationEngine;
 import microsim.engine.SimulationManager;
 import microsim.event.EventGroup;
 import microsim.event.EventListener;
-import microsim.statistics.CrossSection;
 import microsim.statistics.IDoubleSource;
 import microsim.statistics.IIntSource;
 import microsim.statistics.functions.MaxArrayFunction;
@@ -21,7 +19,8 @@ import org.apache.log4j.Logger;
 
 import jasmine.data.Parameters;
 import jasmine.model.*;
-import jasmine.object.Machine;
+import jasmine.trace.Trace;
+import jasmine.trace.TracePoint;
 
 public class MacroCollector extends AbstractSimulationCollectorManager implements EventListener, IDoubleSource, IIntSource {
 
@@ -50,6 +49,9 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 	// MacroStatistics will store the macro statistics in it, to finally export them in .csv files
 	private MacroStatistics statistics;
 	
+	// Calibration of the run, taken from the model's RunContext
+	private Parameters parameters;
+	
 //	public int flag;		//XXX: This field doesn't seem to be updated with any value other than 0 at the beginning, so I will comment out.
 	public int bankDifficulty;
 	
@@ -64,13 +66,13 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 	public double laborDemandUsedForProduction; // labor demand used for production (i.e. all but R&D), was laborDemandProd.
 	public double laborDemand_cFirms; // labor demand c-sector, was laborDemandCons.
 	public double laborDemand_kFirms; // labor demand k-sector, was laborDemandCapital.
-	public CrossSection.Double csLaborDemand_cFirms;	//was csLaborDemandCons.
+	public DoubleCrossSection<CFirm> csLaborDemand_cFirms;	//was csLaborDemandCons.
 	public SumArrayFunction fSumLaborDemand_cFirms;		//was fSumLaborDemandCons.
-	public CrossSection.Double csLaborDemandForProduction_kFirms;	//was csLaborDemandCapital.
+	public DoubleCrossSection<KFirm> csLaborDemandForProduction_kFirms;	//was csLaborDemandCapital.
 	public SumArrayFunction fSumLaborDemandForProduction_kFirms;		//was fSumLaborDemandCapital.
 	
 	public double laborDemandForRandD; // labor demand only for R&D purpose, was laborDemandRd.
-	public CrossSection.Double csLaborDemandForRd;	//was csLaborDemandRd.
+	public DoubleCrossSection<KFirm> csLaborDemandForRd;	//was csLaborDemandRd.
 	public SumArrayFunction fSumLaborDemandForRd;	//was fSumLaborDemandRd.
 	
 	public double[] unemploymentRate; // unemployment rate, was uRate.
@@ -93,27 +95,27 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 	
 	public double production_cFirms; // real production in the consumption sector, was productionCons.
 	public double productionNominal_cFirms; // nominal production in the consumption sector, was productionNomCons.
-	public CrossSection.Double csTotalProduction_cFirms; // total production, consumption sector, was csTotalProdCons.
+	public DoubleCrossSection<CFirm> csTotalProduction_cFirms; // total production, consumption sector, was csTotalProdCons.
 	public SumArrayFunction fSumTotalProduction_cFirms; //was fSumTotalProdCons
 	
 	public double demand_cFirms;	//was demandCons
-	public CrossSection.Double csDemand_cFirms;	//was csDemandCons
+	public DoubleCrossSection<CFirm> csDemand_cFirms;	//was csDemandCons
 	public SumArrayFunction fSumDemand_cFirms;	//was fSumDemandCons
 	
 	public double meanPrice_cFirms;	//was meanPrice
-	public CrossSection.Double csPastPrice_cFirms;		//was csPastPriceCons
-	public CrossSection.Double csPresentPrice_cFirms;	//was csPresentPriceCons
+	public DoubleCrossSection<CFirm> csPastPrice_cFirms;		//was csPastPriceCons
+	public DoubleCrossSection<CFirm> csPresentPrice_cFirms;	//was csPresentPriceCons
 	public MeanArrayFunction fMeanPastPrice_cFirms;	//fMeanPastPriceCons
 	public MeanArrayFunction fMeanPresentPrice_cFirms;	//fMeanPresentPriceCons
 	
 	public double meanUnfilledDemand;
-	public CrossSection.Double csUnfilledDemand;
+	public DoubleCrossSection<CFirm> csUnfilledDemand;
 	public MeanArrayFunction fMeanUnfilledDemand; 
 	
 	// Capital market
 	public double production_kFirms;	//was productionCapital.
 	public double productionNominal_kFirms; // nominal production in the capital goods sector, was productionNomCapital.
-	public CrossSection.Double csTotalProduction_kFirms; // total production, capital goods sector, was csTotalProdCapital.
+	public DoubleCrossSection<KFirm> csTotalProduction_kFirms; // total production, capital goods sector, was csTotalProdCapital.
 	public SumArrayFunction fSumTotalProduction_kFirms; //was fSumTotalProdCapital.
 	public double[] ppi; // production price index (price of KFirms)
 	
@@ -138,7 +140,7 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 	public double herfindahlMeasure_cFirms; // Herfindahl measure for cons sector, was hCons.
 	public int cFirmsRemaining; 
 	public double totalLiquidAssets_cFirms;	//was totLiquidAssetCons.
-	public CrossSection.Double csLiquidAssets_cFirms;	//was csLiquidAssetCons.
+	public DoubleCrossSection<CFirm> csLiquidAssets_cFirms;	//was csLiquidAssetCons.
 	public SumArrayFunction fSumLiquidAssets_cFirms;	//wasfSumLiquidAssetCons.
 	public double meanLiquidityToSalesRatio_cFirms;
 	public double totalBadDebt;
@@ -151,15 +153,15 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 	public double investmentExpansionaryTotal_cFirms;		//was invExpTotal.
 	public double investmentSubstitutionaryTotal_cFirms;		//was invSubTotal.
 	public double[] investmentTotal_cFirms;		//was invTotal.
-	public CrossSection.Double csInvestmentExpansionary;	//was csInvExp.
-	public CrossSection.Double csInvestmentSubstitutionary;	//was csInvSub.
+	public DoubleCrossSection<CFirm> csInvestmentExpansionary;	//was csInvExp.
+	public DoubleCrossSection<CFirm> csInvestmentSubstitutionary;	//was csInvSub.
 	public SumArrayFunction fSumInvestmentExpansionary;		//wasvfSumInvExp.
 	public SumArrayFunction fSumInvestmentSubstitutionary;		//was fSumInvSub.
 	
-	public CrossSection.Double csBadDebt_cFirms;		//was csBadDebt
+	public DoubleCrossSection<CFirm> csBadDebt_cFirms;		//was csBadDebt
 	public SumArrayFunction fSumBadDebt_cFirms;			//was fSumBadDebt
 	public double bankruptcyRate_cFirms;				//was bankruptcyRate
-	public CrossSection.Double csLiquidityToSalesRatio_cFirms;	//was csLiquiditySale
+	public DoubleCrossSection<CFirm> csLiquidityToSalesRatio_cFirms;	//was csLiquiditySale
 	public MeanArrayFunction fMeanLiquidityToSalesRatio_cFirms;	//wasfMeanLiquiditySale
 
 	public MeanArrayFunction fMeanLiquidAssets_cFirms;
@@ -176,11 +178,11 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 	public double desiredExpansionaryInvestmentTotalStar_cFirms;	//was dInvExpTotalStar.
 	
 	public double profit_cFirms;	//was profitCons
-	public CrossSection.Double csProfit_cFirms;	//was csProfitCons
+	public DoubleCrossSection<CFirm> csProfit_cFirms;	//was csProfitCons
 	public SumArrayFunction fSumProfit_cFirms;		//was fSumProfitCons
 	
 	public double grossOperatingSurplus_cFirms;
-	public CrossSection.Double csGrossOperatingSurplus_cFirms;	//was csProfitCons
+	public DoubleCrossSection<CFirm> csGrossOperatingSurplus_cFirms;	//was csProfitCons
 	public SumArrayFunction fSumGrossOperatingSurplus_cFirms;		//was fSumProfitCons
 	
 	// K-firms
@@ -188,20 +190,20 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 	public double herfindahlMeasure_kFirms; // Herfindahl measure for capital sector, was hCapital
 	public int kFirmsRemaining;
 	public double rdExpenditures_kFirms;	//was rdExpenditures
-	public CrossSection.Double csRdExpenditures_kFirms;	//was csRdExpenditures
+	public DoubleCrossSection<KFirm> csRdExpenditures_kFirms;	//was csRdExpenditures
 	public SumArrayFunction fSumRdExpenditures_kFirms;		//was fSumRdExpenditures
 	
 	public double topProductivity_kFirms; // top prod. of the k-firms, was topProdK
 	public double meanProductivityWeightedByMarketShare_kFirms; // mean productivity of k-firms taking into account the k-firms' market share, was meanMarketShareProdK
 	public double meanLogProductivity_kFirms; // mean productivity of k-firms, logged, was meanProdLogK
-	public CrossSection.Double csProductivity_kFirms;	//was csProdK
+	public DoubleCrossSection<KFirm> csProductivity_kFirms;	//was csProdK
 	public MaxArrayFunction fMaxProductivity_kFirms;	//was fMaxProdK
 	
 	public double profit_kFirms;	//was profitCapital
-	public CrossSection.Double csProfit_kFirms;		//was csProfitCapital
+	public DoubleCrossSection<KFirm> csProfit_kFirms;		//was csProfitCapital
 	public SumArrayFunction fSumProfit_kFirms;		//was fSumProfitCapital
 	public double totalLiquidAssets_kFirms;			//was totLiquidAssetCapital
-	public CrossSection.Double csLiquidAsset_kFirms;	//was csLiquidAssetCapital
+	public DoubleCrossSection<KFirm> csLiquidAsset_kFirms;	//was csLiquidAssetCapital
 	public SumArrayFunction fSumLiquidAsset_kFirms;		//was fSumLiquidAssetCapital
 	
 	public int maxClientsPerFirm_kFirms; // TODO: can remove, was maxClient
@@ -209,7 +211,7 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 	// Technological progress
 	public double topMachineProductivity; // top prod. of machines used in the c-sector. was topProdMachine
 	public double meanMachineProductivityWeightedByMarketShare; // mean productivity of k-firms' machines taking into account the k-firms' market share, was meanMarketShareProdMachine
-	public CrossSection.Double csMachineProductivity;	//was csProdMachine
+	public DoubleCrossSection<KFirm> csMachineProductivity;	//was csProdMachine
 	public MaxArrayFunction fMaxMachineProductivity;	//was fMaxProdMachine
 	
 	// Financial variables
@@ -311,29 +313,29 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 		
 		// Create all the cross sectional objects
 		
-		csProductivity_kFirms 						= new CrossSection.Double(model.getKFirms(), KFirm.class, "getFirmProductivityNow", true);
-		csMachineProductivity 					= new CrossSection.Double(model.getKFirms(), KFirm.class, "getMachineProductivity", true);
-		csLaborDemand_cFirms				= new CrossSection.Double(model.getCFirms(), Firm.class, "getLaborDemand", true);
-		csLaborDemandForProduction_kFirms			= new CrossSection.Double(model.getKFirms(), KFirm.class, "getLaborDemandForProduction", true);
-		csLaborDemandForRd 				= new CrossSection.Double(model.getKFirms(), KFirm.class, "getLaborDemandForRd", true);
-		csPastPrice_cFirms 				= new CrossSection.Double(model.getCFirms(), Firm.class, "getPriceOfGoodProducedPrevious", true);
-		csPresentPrice_cFirms 				= new CrossSection.Double(model.getCFirms(), Firm.class, "getPriceOfGoodProducedNow", true);
-		csUnfilledDemand 				= new CrossSection.Double(model.getCFirms(), CFirm.class, "getUnfilledDemand", true);
-		csTotalProduction_cFirms 				= new CrossSection.Double(model.getCFirms(), Firm.class, "getProductionQuantity", true);
-		csTotalProduction_kFirms			 	= new CrossSection.Double(model.getKFirms(), Firm.class, "getProductionQuantity", true);
-		
-		csInvestmentExpansionary 						= new CrossSection.Double(model.getCFirms(), CFirm.class, "getInvestmentExpansionary", true);
-		csInvestmentSubstitutionary 						= new CrossSection.Double(model.getCFirms(), CFirm.class, "getInvestmentSubstitutionary", true);
-		csDemand_cFirms 					= new CrossSection.Double(model.getCFirms(), Firm.class, "getDemandNow", true);
-		csProfit_cFirms 					= new CrossSection.Double(model.getCFirms(), Firm.class, "getProfit", true);
-		csGrossOperatingSurplus_cFirms 					= new CrossSection.Double(model.getCFirms(), CFirm.class, "getGrossOperatingSurplus", true);
-		csProfit_kFirms 				= new CrossSection.Double(model.getKFirms(), Firm.class, "getProfit", true);
-		csLiquidAsset_kFirms 			= new CrossSection.Double(model.getKFirms(), Firm.class, "getLiquidAssetNow", true);
-		csLiquidAssets_cFirms 				= new CrossSection.Double(model.getCFirms(), Firm.class, "getLiquidAssetNow", true);
+		csProductivity_kFirms 						= new DoubleCrossSection<>(model.getKFirms(), KFirm::getFirmProductivityNow);
+		csMachineProductivity 					= new DoubleCrossSection<>(model.getKFirms(), KFirm::getMachineProductivity);
+		csLaborDemand_cFirms				= new DoubleCrossSection<>(model.getCFirms(), Firm::getLaborDemand);
+		csLaborDemandForProduction_kFirms			= new DoubleCrossSection<>(model.getKFirms(), KFirm::getLaborDemandForProduction);
+		csLaborDemandForRd 				= new DoubleCrossSection<>(model.getKFirms(), KFirm::getLaborDemandForRd);
+		csPastPrice_cFirms 				= new DoubleCrossSection<>(model.getCFirms(), Firm::getPriceOfGoodProducedPrevious);
+		csPresentPrice_cFirms 				= new DoubleCrossSection<>(model.getCFirms(), Firm::getPriceOfGoodProducedNow);
+		csUnfilledDemand 				= new DoubleCrossSection<>(model.getCFirms(), CFirm::getUnfilledDemand);
+		csTotalProduction_cFirms 				= new DoubleCrossSection<>(model.getCFirms(), Firm::getProductionQuantity);
+		csTotalProduction_kFirms			 	= new DoubleCrossSection<>(model.getKFirms(), Firm::getProductionQuantity);
+		
+		csInvestmentExpansionary 						= new DoubleCrossSection<>(model.getCFirms(), CFirm::getInvestmentExpansionary);
+		csInvestmentSubstitutionary 						= new DoubleCrossSection<>(model.getCFirms(), CFirm::getInvestmentSubstitutionary);
+		csDemand_cFirms 					= new DoubleCrossSection<>(model.getCFirms(), Firm::getDemandNow);
+		csProfit_cFirms 					= new DoubleCrossSection<>(model.getCFirms(), Firm::getProfit);
+		csGrossOperatingSurplus_cFirms 					= new DoubleCrossSection<>(model.getCFirms(), CFirm::getGrossOperatingSurplus);
+		csProfit_kFirms 				= new DoubleCrossSection<>(model.getKFirms(), Firm::getProfit);
+		csLiquidAsset_kFirms 			= new DoubleCrossSection<>(model.getKFirms(), Firm::getLiquidAssetNow);
+		csLiquidAssets_cFirms 				= new DoubleCrossSection<>(model.getCFirms(), Firm::getLiquidAssetNow);
 				
-		csRdExpenditures_kFirms 				= new CrossSection.Double(model.getKFirms(), KFirm.class, "getRdExpenditure", true);
-		csBadDebt_cFirms						= new CrossSection.Double(model.getCFirms(), CFirm.class, "getBadDebt", true);
-		csLiquidityToSalesRatio_cFirms					= new CrossSection.Double(model.getCFirms(), CFirm.class, "getNetWorthToSalesRatio", true);
+		csRdExpenditures_kFirms 				= new DoubleCrossSection<>(model.getKFirms(), KFirm::getRdExpenditure);
+		csBadDebt_cFirms						= new DoubleCrossSection<>(model.getCFirms(), CFirm::getBadDebt);
+		csLiquidityToSalesRatio_cFirms					= new DoubleCrossSection<>(model.getCFirms(), CFirm::getNetWorthToSalesRatio);
 //		csLiquidityToSalesRatio_cFirms					= new CrossSection.Double(model.getCFirms(), CFirm.DoubleVariables.NetWorthToSales);
 		 
 		// Create all the objects computing functions on the previous cross-sections (max, mean, sum etc.)
@@ -1027,16 +1029,19 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 	public void macroInitialization(){
 		// Introductory note: define the initial conditions of the economy 
 		
+		// The model calls this method right after creating its RunContext, hence this is the first time the calibration is available
+		this.parameters 				= model.getParameters();
+		
 		// --- Labor market ---
 		this.unemploymentRate 					= new double[]{1, 1};
-		this.wage 					= new double[]{Parameters.getInitialWage(),Parameters.getInitialWage()}; 
+		this.wage 					= new double[]{parameters.getInitialWage(),parameters.getInitialWage()}; 
 		// Recall that all consumption-good firms have initially identical productivity 
-		this.averageLaborProductivity 		= new double[]{0, Parameters.getInitialProductivity()}; 
+		this.averageLaborProductivity 		= new double[]{0, parameters.getInitialProductivity()}; 
 		
 		// --- Capital market ---
 		// Id. for capital-good firms' machines  
-		this.topProductivity_kFirms 				= Parameters.getInitialProductivity(); 
-		this.topMachineProductivity 		= Parameters.getInitialProductivity(); 
+		this.topProductivity_kFirms 				= parameters.getInitialProductivity(); 
+		this.topMachineProductivity 		= parameters.getInitialProductivity(); 
 		
 		this.investmentTotal_cFirms 				= new double[]{0, 0};
 		
@@ -1044,9 +1049,9 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 		// The initial aggregate demand corresponds to the steady-state aggregate demand. The reasoning is presented in the code documentation 
 		KFirm aKFirm 				= model.getKFirms().get(0); 
 		CFirm aCFirm 				= model.getCFirms().get(0); 
-		this.initialAggregateDemand 		= ( ( wage[0] / ( aKFirm.getFirmProductivity()[1] * Parameters.getA_kFirms() ) + Parameters.getFractionPastSalesInvestedInRandD_kFirms() * aKFirm.getPriceOfGoodProducedNow() ) * 
-										aCFirm.getInvestment() / Parameters.getMachineSizeInCapital_cFirms() * ((double) model.getNumberOfCFirms()) * (1 - model.getUnemploymentBenefitShare()) +
-										model.getUnemploymentBenefitShare() * wage[0] * MacroModel.getLabourSupply() ) / 
+		this.initialAggregateDemand 		= ( ( wage[0] / ( aKFirm.getFirmProductivity()[1] * parameters.getA_kFirms() ) + parameters.getFractionPastSalesInvestedInRandD_kFirms() * aKFirm.getPriceOfGoodProducedNow() ) * 
+										aCFirm.getInvestment() / parameters.getMachineSizeInCapital_cFirms() * ((double) model.getNumberOfCFirms()) * (1 - model.getUnemploymentBenefitShare()) +
+										model.getUnemploymentBenefitShare() * wage[0] * model.getContext().getLabourSupply() ) / 
 										(aCFirm.getPriceOfGoodProducedNow() - ((1 - model.getUnemploymentBenefitShare()) * wage[0]) / aCFirm.getProductivity() ); 
 		
 		// --- Consumption-good firms ---
@@ -1068,7 +1073,7 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 		
 		// --- Capital-good firms ---
 		// All firms are ex-ante identical. Thus, their cost is price wage / (productivity * a), and they price with the same mark-up
-		double initialKPrice 		= (1 + Parameters.getFixedMarkUp_kFirms()) * wage[1] / ( averageLaborProductivity[1] * Parameters.getA_kFirms() ); 
+		double initialKPrice 		= (1 + parameters.getFixedMarkUp_kFirms()) * wage[1] / ( averageLaborProductivity[1] * parameters.getA_kFirms() ); 
 		this.ppi 					= new double[]{0, initialKPrice}; 
 		this.exit_kFirms 					= 0;
 		
@@ -1086,7 +1091,7 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 
 	void update(){
 		
-		log.info("PERIOD " + SimulationEngine.getInstance().getTime());
+		Trace.record(TracePoint.Period, model.getContext().getTime());
 				
 		/* Update temporal variables, from (t) to (t-1), and set variables that are incrementally calculated to 0. 
 		NOTE: the wage is updated at the end of the period, because it requires information from the current period.  */
@@ -1150,16 +1155,14 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 				
 	}
 	
-	public void competitivenessAggregate(){
+	// Mean price and unfilled demand of the c-firms, from their columns (loaded by MacroModel.marketCompetitiveness())
+	public void competitivenessAggregate(FirmColumns columns){
 		// Compute the mean price and unfilled demand
 		
-		fMeanPastPrice_cFirms.updateSource();
-		fMeanPresentPrice_cFirms.updateSource();
-		fMeanUnfilledDemand.updateSource();
-		
-		meanUnfilledDemand 				= fMeanUnfilledDemand.getDoubleValue(IDoubleSource.Variables.Default);
-		double meanPastPrice			= fMeanPastPrice_cFirms.getDoubleValue(IDoubleSource.Variables.Default);
-		double meanPresentPrice			= fMeanPresentPrice_cFirms.getDoubleValue(IDoubleSource.Variables.Default);
+		int n 							= columns.size();
+		meanUnfilledDemand 				= FirmColumns.sum(columns.unfilledDemand, n) / n;
+		double meanPastPrice			= FirmColumns.sum(columns.pricePrevious, n) / n;
+		double meanPresentPrice			= FirmColumns.sum(columns.priceNow, n) / n;
 		/*FIXME: 
 		(a) Dosi et al. implementation use the two-periods average for the mean price
 		(b) They do not divide it by 2 */
@@ -1168,30 +1171,48 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 	}
 	
 	public void marketShareNormalization(){
-		// Normalize the market share of consumption-good firms such that they always sum up to one.
-		this.totalMarketShare_cFirms[0] 					= 0;
-		this.totalMarketShare_cFirms[1] 					= 0;
-		this.totalMarketShare_cFirms[2] 					= 0;
-		
-		for(CFirm cFirm : model.getCFirms()){
-			this.totalMarketShare_cFirms[0] 				+= cFirm.getMarketShare()[0];
-			this.totalMarketShare_cFirms[1] 				+= cFirm.getMarketShare()[1];
-			this.totalMarketShare_cFirms[2] 				+= cFirm.getMarketShare()[2];
+		/* Normalize the market share of consumption-good firms such that they always sum up to one. The shares are normalized in place, in 
+		 the order of the firms: for two passes, loading the columns costs more than it saves (see FirmColumnsBenchmark) */
+		List<CFirm> cFirms 								= model.getCFirms();
+		this.totalMarketShare_cFirms[0] 				= 0;
+		this.totalMarketShare_cFirms[1] 				= 0;
+		this.totalMarketShare_cFirms[2] 				= 0;
+		for(int i = 0; i < cFirms.size(); i++){
+			double[] marketShare 						= cFirms.get(i).getMarketShare();
+			this.totalMarketShare_cFirms[0] 			+= marketShare[0];
+			this.totalMarketShare_cFirms[1] 			+= marketShare[1];
+			this.totalMarketShare_cFirms[2] 			+= marketShare[2];
 		}
 		
 		if(totalMarketShare_cFirms[0] <= 0 || totalMarketShare_cFirms[1] <= 0 || totalMarketShare_cFirms[2] <= 0)
 			log.error("fTot[i] <= 0)");
 		
-		for(CFirm cFirm : model.getCFirms()){
-			double[] newF 				= new double[]{
-										cFirm.getMarketShare()[0] / totalMarketShare_cFirms[0],
-										cFirm.getMarketShare()[1] / totalMarketShare_cFirms[1],
-										cFirm.getMarketShare()[2] / totalMarketShare_cFirms[2] };
-			cFirm.setMarketShare(newF);
-			cFirm.setMarketShareTemp(cFirm.getMarketShare()[2]); 
+		for(int i = 0; i < cFirms.size(); i++){
+			CFirm cFirm 								= cFirms.get(i);
+			double[] marketShare 						= cFirm.getMarketShare();
+			marketShare[0] 								/= totalMarketShare_cFirms[0];
+			marketShare[1] 								/= totalMarketShare_cFirms[1];
+			marketShare[2] 								/= totalMarketShare_cFirms[2];
+			cFirm.setMarketShareTemp(marketShare[2]);
 		}
 	}
 	
+	// Normalizes the market shares in the columns of the c-firms; the caller stores them back in the firms
+	public void marketShareNormalization(FirmColumns columns){
+		// Normalize the market share of consumption-good firms such that they always sum up to one.
+		int n 											= columns.size();
+		this.totalMarketShare_cFirms[0] 				= FirmColumns.sum(columns.marketSharePrevious, n);
+		this.totalMarketShare_cFirms[1] 				= FirmColumns.sum(columns.marketShareNow, n);
+		this.totalMarketShare_cFirms[2] 				= FirmColumns.sum(columns.marketShareNext, n);
+		
+		if(totalMarketShare_cFirms[0] <= 0 || totalMarketShare_cFirms[1] <= 0 || totalMarketShare_cFirms[2] <= 0)
+			log.error("fTot[i] <= 0)");
+		
+		FirmColumns.divide(columns.marketSharePrevious, n, totalMarketShare_cFirms[0]);
+		FirmColumns.divide(columns.marketShareNow, n, totalMarketShare_cFirms[1]);
+		FirmColumns.divide(columns.marketShareNext, n, totalMarketShare_cFirms[2]);
+	}
+	
 	public void aggregateConsumption(){
 		// Compute aggregate consumption
 		
@@ -1206,52 +1227,45 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 		this.consumption[1] 			= earnings + unfilledDemandAggregate * (1 + model.getInterestRate());
 		aggConsumption					= consumption[1];
 		
-		log.fatal("Consumption variables: " + 
-					"\n Gov. spending " + govSpending + 
-					"\n past unfilled consumption " + unfilledDemandAggregate + 
-					"\n total consumption " + consumption[1]);
+		Trace.record(TracePoint.Consumption, govSpending, unfilledDemandAggregate, consumption[1]);
 		
 	}
 	
 	public void priceIndices(){
 		// Compute the price indices 
 		
+		// The price indices are computed in place, in the order of the firms (see marketShareNormalization())
+		List<CFirm> cFirms 					= model.getCFirms();
+		List<KFirm> kFirms 					= model.getKFirms();
+		
 		// Compute total production in both sectors 
-		fSumTotalProduction_kFirms.updateSource();
-		fSumTotalProduction_cFirms.updateSource();
-		production_cFirms 					= fSumTotalProduction_cFirms.getDoubleValue(IDoubleSource.Variables.Default);
-		production_kFirms 				= fSumTotalProduction_kFirms.getDoubleValue(IDoubleSource.Variables.Default);
+		production_cFirms 					= 0;
+		for(int i = 0; i < cFirms.size(); i++)
+			production_cFirms 				+= cFirms.get(i).getProductionQuantity();
+		production_kFirms 				= 0;
+		for(int i = 0; i < kFirms.size(); i++)
+			production_kFirms 			+= kFirms.get(i).getProductionQuantity();
 		
-		log.debug("Production update: " + 
-					"\n total prod capital " + production_kFirms + 
-					"\n total prod cons " + production_cFirms);	
+		Trace.record(TracePoint.Production, production_kFirms, production_cFirms);
 		
 		// Update the capital-good firms' market shares 
-		for(KFirm kFirm : model.getKFirms()){
-			double[] newF;
-			if(production_kFirms > 0){
-				double marketShare 		= kFirm.getProductionQuantity() / production_kFirms;
-				newF 					= new double[]{
-										kFirm.getMarketShare()[0],
-										kFirm.getMarketShare()[1],
-										marketShare };
-			} else {
-				newF 					= new double[]{
-										kFirm.getMarketShare()[0],
-										kFirm.getMarketShare()[1],
-										kFirm.getMarketShare()[1] };
-			}
-			
-			kFirm.setMarketShare(newF);
+		for(int i = 0; i < kFirms.size(); i++){
+			KFirm kFirm 					= kFirms.get(i);
+			double[] marketShare 			= kFirm.getMarketShare();
+			if(production_kFirms > 0)
+				marketShare[2] 				= kFirm.getProductionQuantity() / production_kFirms;
+			else
+				marketShare[2] 				= marketShare[1];
 		}
 		
 		// Compute the two price indexes 
 		this.cpi[1] 					= 0;
-		for(CFirm cFirm : model.getCFirms())
-			this.cpi[1] 				+= cFirm.getPriceOfGoodProducedNow() * cFirm.getMarketShare()[2];
+		for(int i = 0; i < cFirms.size(); i++)
+			this.cpi[1] 				+= cFirms.get(i).getPriceOfGoodProducedNow() * cFirms.get(i).getMarketShare()[2];
 		
 		this.ppi[1] 					= 0;
-		for(KFirm kFirm : model.getKFirms()){
+		for(int i = 0; i < kFirms.size(); i++){
+			KFirm kFirm 					= kFirms.get(i);
 			if(production_kFirms > 0)
 				this.ppi[1] 			+= kFirm.getPriceOfGoodProducedNow() * kFirm.getMarketShare()[2];
 			else 
@@ -1262,10 +1276,7 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 		if(production_kFirms <= 0)
 			this.ppi[1] 				/= (double) model.getNumberOfKFirms();
 		
-		log.debug("Price index variables: " +
-					"\n cpi: (" + cpi[0] + ", " + cpi[1] + ") " +
-					"\n ppi: (" + ppi[0] + ", " + ppi[1] + "). INFO on ppi computation:  " +
-					"\n production capital: " + production_kFirms);
+		Trace.record(TracePoint.PriceIndices, cpi[0], cpi[1], ppi[0], ppi[1]);
 		
 	}
 	
@@ -1273,57 +1284,38 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 		
 		this.creditRationingRate_cFirms 		/= (model.getNumberOfCFirms() / 100.);		// Divide by 100 to create percentage.
 		
-		// CONSUMPTION-GOOD FIRMS
-		// Investments
-		
-		fSumInvestmentExpansionary.updateSource();
-		fSumInvestmentSubstitutionary.updateSource();
-		fSumDemand_cFirms.updateSource();
-		fSumProfit_cFirms.updateSource();
-		fSumGrossOperatingSurplus_cFirms.updateSource();
-		fSumLiquidAssets_cFirms.updateSource();
+		// Totals of both sectors, computed in one traversal per sector after the firms' accounting (see SectorAggregates)
+		SectorAggregates.CFirmTotals cTotals 	= model.getSectorAggregates().getCFirmTotals();
+		SectorAggregates.KFirmTotals kTotals 	= model.getSectorAggregates().getKFirmTotals();
 		
+		// CONSUMPTION-GOOD FIRMS
 		// Investments is expressed in terms of machines
-		this.investmentExpansionaryTotal_cFirms 				= fSumInvestmentExpansionary.getDoubleValue(IDoubleSource.Variables.Default);
-		this.investmentExpansionaryTotal_cFirms		 		/= Parameters.getMachineSizeInCapital_cFirms();
-		this.investmentSubstitutionaryTotal_cFirms 				= fSumInvestmentSubstitutionary.getDoubleValue(IDoubleSource.Variables.Default);
-		this.investmentSubstitutionaryTotal_cFirms 				/= Parameters.getMachineSizeInCapital_cFirms();
+		this.investmentExpansionaryTotal_cFirms 				= cTotals.investmentExpansionary;
+		this.investmentExpansionaryTotal_cFirms		 		/= parameters.getMachineSizeInCapital_cFirms();
+		this.investmentSubstitutionaryTotal_cFirms 				= cTotals.investmentSubstitutionary;
+		this.investmentSubstitutionaryTotal_cFirms 				/= parameters.getMachineSizeInCapital_cFirms();
 		this.investmentTotal_cFirms[1] 				= investmentSubstitutionaryTotal_cFirms + investmentExpansionaryTotal_cFirms;
 		
 		// Total liquid asset
-		this.totalLiquidAssets_cFirms 		= fSumLiquidAssets_cFirms.getDoubleValue(IDoubleSource.Variables.Default);
+		this.totalLiquidAssets_cFirms 		= cTotals.liquidAssets;
 		
 		// Total demand received by the firms 
-		this.demand_cFirms 				= fSumDemand_cFirms.getDoubleValue(IDoubleSource.Variables.Default);
+		this.demand_cFirms 				= cTotals.demand;
 		
 		// Total profit 
-		this.profit_cFirms 				= fSumProfit_cFirms.getDoubleValue(IDoubleSource.Variables.Default);
-		this.grossOperatingSurplus_cFirms 				= fSumGrossOperatingSurplus_cFirms.getDoubleValue(IDoubleSource.Variables.Default);
+		this.profit_cFirms 				= cTotals.profit;
+		this.grossOperatingSurplus_cFirms 				= cTotals.grossOperatingSurplus;
 		
 		// Productivity
-		this.meanProductivityWeightedByMarketShare_cFirms 		= 0; // mean prod. with weight = market share
-		this.meanLogProductivity_cFirms 				= 0; // mean prod. in log
-		this.productionNominal_cFirms 			= 0; // nominal total production
-		this.diffTotalInventoriesNominal_cFirms 					= 0; // nominal total variation of inventories 
-		this.averageLaborProductivity[1] 		= 0; // measure of productivity taken into account in the wage equation
-		this.herfindahlMeasure_cFirms 						= 0; // Herfindahl measure 
-		this.meanCostWeightedByMarketShare_cFirms 				= 0; // mean cost, with weight = market share
-		this.capitalStock_cFirms 				= 0; // capital stock
-		this.totalBadDebt						= 0.;
-		this.meanLiquidityToSalesRatio_cFirms 	= 0.;
-		
-		for(CFirm cFirm : model.getCFirms()){
-			this.meanProductivityWeightedByMarketShare_cFirms 	+= cFirm.getProductivity() * cFirm.getMarketShare()[2];
-			this.meanLogProductivity_cFirms 			+= Math.log(cFirm.getProductivity());
-			this.productionNominal_cFirms 		+= cFirm.getProductionQuantity() * cFirm.getPriceOfGoodProducedNow();
-			this.diffTotalInventoriesNominal_cFirms 				+= cFirm.getInventories()[1] * cFirm.getPriceOfGoodProducedNow() - cFirm.getInventories()[0] * cFirm.getPriceOfGoodProducedPrevious();
-			this.averageLaborProductivity[1] 	+= cFirm.getLaborDemand() * cFirm.getProductivity() / laborDemandUsedForProduction;
-			this.herfindahlMeasure_cFirms 					+= cFirm.getMarketShare()[2] * cFirm.getMarketShare()[2];
-			this.meanCostWeightedByMarketShare_cFirms 			+= cFirm.getCostToProduceGood() * cFirm.getMarketShare()[2];
-			this.capitalStock_cFirms 			+= cFirm.getCapitalStock();
-			this.totalBadDebt					+= cFirm.getBadDebt();
-			this.meanLiquidityToSalesRatio_cFirms 	+=	cFirm.getNetWorthToSalesRatio();
-		}
+		this.meanProductivityWeightedByMarketShare_cFirms 		= cTotals.productivityWeightedByMarketShare; // mean prod. with weight = market share
+		this.meanLogProductivity_cFirms 				= cTotals.logProductivity; // mean prod. in log
+		this.productionNominal_cFirms 			= cTotals.productionNominal; // nominal total production
+		this.diffTotalInventoriesNominal_cFirms 					= cTotals.diffInventoriesNominal; // nominal total variation of inventories 
+		this.herfindahlMeasure_cFirms 						= cTotals.marketShareSquared; // Herfindahl measure 
+		this.meanCostWeightedByMarketShare_cFirms 				= cTotals.costWeightedByMarketShare; // mean cost, with weight = market share
+		this.capitalStock_cFirms 				= cTotals.capitalStock; // capital stock
+		this.totalBadDebt						= cTotals.badDebt;
+		this.meanLiquidityToSalesRatio_cFirms 	= cTotals.netWorthToSalesRatio;
 		this.meanLogProductivity_cFirms 				/= (double) model.getNumberOfCFirms();
 		this.herfindahlMeasure_cFirms 						= (herfindahlMeasure_cFirms - 1 / ((double) model.getNumberOfCFirms()) ) / 1 / 
 										((double) model.getNumberOfCFirms());
@@ -1338,37 +1330,20 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 		// CAPITAL-GOOD FIRMS
 		
 		// Total profit 
-		fSumProfit_kFirms.updateSource();
-		this.profit_kFirms 				= fSumProfit_kFirms.getDoubleValue(IDoubleSource.Variables.Default);
+		this.profit_kFirms 				= kTotals.profit;
 		// Total asset
-		fSumLiquidAsset_kFirms.updateSource();
-		this.totalLiquidAssets_kFirms 		= fSumLiquidAsset_kFirms.getDoubleValue(IDoubleSource.Variables.Default);
+		this.totalLiquidAssets_kFirms 		= kTotals.liquidAssets;
 
 		// Productivity
-		this.meanProductivityWeightedByMarketShare_kFirms 		= 0; // mean productivity amongst the capital-good firms, with weight = market share 
-		this.meanMachineProductivityWeightedByMarketShare = 0; // mean productivity amongst the machine produced, with weight = market share 
-		this.meanLogProductivity_kFirms 				= 0;
-		this.herfindahlMeasure_kFirms 					= 0; // Herfindahl measure 
-		this.maxClientsPerFirm_kFirms 					= 0; // maximal number of clients
-		productionNominal_kFirms						= 0;
-		
-		for(KFirm kFirm : model.getKFirms()){
-			if(production_kFirms > 0){
-				productionNominal_kFirms 		+= kFirm.getProductionQuantity() * kFirm.getPriceOfGoodProducedNow();
-				this.meanProductivityWeightedByMarketShare_kFirms += kFirm.getFirmProductivity()[1] * kFirm.getMarketShare()[2];
-				this.meanMachineProductivityWeightedByMarketShare += kFirm.getMachineProduced().getMachineProductivity()[1] * kFirm.getMarketShare()[2];
-			} else {
-				this.meanProductivityWeightedByMarketShare_kFirms += kFirm.getFirmProductivity()[1];
-				this.meanMachineProductivityWeightedByMarketShare += kFirm.getMachineProduced().getMachineProductivity()[1];
-			}
-			this.meanLogProductivity_kFirms 			+= Math.log(kFirm.getFirmProductivity()[1]);
-			this.herfindahlMeasure_kFirms 				+= kFirm.getMarketShare()[2] * kFirm.getMarketShare()[2];
-			// The average labor productivity takes also into account the capital good firms' productivity
-			this.averageLaborProductivity[1] 	+= kFirm.getFirmProductivity()[1] * kFirm.getLaborDemandForProduction() / laborDemandUsedForProduction;
-			
-			if(kFirm.getClients().size() > maxClientsPerFirm_kFirms)
-				this.maxClientsPerFirm_kFirms 			= kFirm.getClients().size();
-		}
+		this.meanProductivityWeightedByMarketShare_kFirms 		= kTotals.productivityWeightedByMarketShare; // mean productivity amongst the capital-good firms, with weight = market share 
+		this.meanMachineProductivityWeightedByMarketShare = kTotals.machineProductivityWeightedByMarketShare; // mean productivity amongst the machine produced, with weight = market share 
+		this.meanLogProductivity_kFirms 				= kTotals.logProductivity;
+		this.herfindahlMeasure_kFirms 					= kTotals.marketShareSquared; // Herfindahl measure 
+		this.maxClientsPerFirm_kFirms 					= kTotals.maxClientsPerFirm; // maximal number of clients
+		productionNominal_kFirms						= kTotals.productionNominal;
+		// The average labor productivity takes also into account the capital good firms' productivity
+		this.averageLaborProductivity[1] 		= kTotals.averageLaborProductivity; // measure of productivity taken into account in the wage equation
+		
 		this.herfindahlMeasure_kFirms 					= (herfindahlMeasure_kFirms - 1 / ( (double) model.getNumberOfKFirms()) ) / (1 / ( (double) model.getNumberOfKFirms()) );
 		this.meanLogProductivity_kFirms 				/= (double) model.getNumberOfKFirms();
 		
@@ -1390,7 +1365,7 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 		
 		
 		// GDP growth
-		if(SimulationEngine.getInstance().getTime() > 0)
+		if(model.getContext().getTime() > 0)
 			this.gdpGrowth 				= Math.log(gdp[1]) - Math.log(gdp[0]);
 		else 
 			this.gdpGrowth 				= 0;
@@ -1415,78 +1390,56 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 		// WAGE
 		this.wage[0] 					= wage[1];
 		
-		log.debug("WAGE COMPUTATION. Wage(t-1) = " + wage[0] + " and inputs " + 
-					"\n u : ( " + unemploymentRate[0] + ", " + unemploymentRate[1] + " )" +
-					"\n cpi : ( " + cpi[0] + ", " + cpi[1] + " )" +
-					"\n AB : ( " + averageLaborProductivity[0] + ", " + averageLaborProductivity[1] + " )");
+		Trace.record(TracePoint.WageInputs, wage[0], unemploymentRate[0], unemploymentRate[1], cpi[0], cpi[1], averageLaborProductivity[0], 
+					averageLaborProductivity[1]);
 		
 		// Prevents the unemployment rate to be nil, which would make us divide by zero
-		if(unemploymentRate[0] < Parameters.getNaturalLevelUnemployment())
-			this.unemploymentRate[0] 				= Parameters.getNaturalLevelUnemployment();			//XXX: Should we also update the 'unemployment' field?  Or even the laborDemand field for consistency?  Or this only used for calculating wage inflation and avoiding divide by zero errors?
+		if(unemploymentRate[0] < parameters.getNaturalLevelUnemployment())
+			this.unemploymentRate[0] 				= parameters.getNaturalLevelUnemployment();			//XXX: Should we also update the 'unemployment' field?  Or even the laborDemand field for consistency?  Or this only used for calculating wage inflation and avoiding divide by zero errors?
 		
 		// Inputs for equation (10) in Dosi et al. (2013))
 		this.diffUnemploymentRate 						= (unemploymentRate[1] - unemploymentRate[0]) / unemploymentRate[0];
 		this.diffCPI 					= (cpi[1] - cpi[0]) / cpi[0];
 		this.diffProductivity 					= (averageLaborProductivity[1] - averageLaborProductivity[0]) / averageLaborProductivity[0];
 		
-		log.debug("Before putting upper/lower bound on var. wage, we have: " + 
-				"\n diffU " + diffUnemploymentRate + 
-				"\n diffCpi " + diffCPI + 
-				"\n diffProd " + diffProductivity);
+		Trace.record(TracePoint.WageVariations, diffUnemploymentRate, diffCPI, diffProductivity);
 		
 		// Put an upper bound on the growth rate of the three differences. For this, follow Dosi et al. implementation
-		if(diffCPI > cpi[0] * Parameters.getMaxVariation_Wages())
-			diffCPI 					= cpi[0] * Parameters.getMaxVariation_Wages();
-		if(diffUnemploymentRate > unemploymentRate[0] * Parameters.getMaxVariation_Wages())
-			diffUnemploymentRate 						= unemploymentRate[0] * Parameters.getMaxVariation_Wages();
-		if(diffProductivity > averageLaborProductivity[0] * Parameters.getMaxVariation_Wages())
-			diffProductivity			 		= averageLaborProductivity[0] * Parameters.getMaxVariation_Wages();
+		if(diffCPI > cpi[0] * parameters.getMaxVariation_Wages())
+			diffCPI 					= cpi[0] * parameters.getMaxVariation_Wages();
+		if(diffUnemploymentRate > unemploymentRate[0] * parameters.getMaxVariation_Wages())
+			diffUnemploymentRate 						= unemploymentRate[0] * parameters.getMaxVariation_Wages();
+		if(diffProductivity > averageLaborProductivity[0] * parameters.getMaxVariation_Wages())
+			diffProductivity			 		= averageLaborProductivity[0] * parameters.getMaxVariation_Wages();
 		
 		// Put a lower bound on the growth rate of these three differences 
-		if(diffCPI < - cpi[0] * Parameters.getMaxVariation_Wages())
-			diffCPI 					= - cpi[0] * Parameters.getMaxVariation_Wages();
-		if(diffUnemploymentRate < - unemploymentRate[0] * Parameters.getMaxVariation_Wages())
-			diffUnemploymentRate 						= - unemploymentRate[0] * Parameters.getMaxVariation_Wages();
-		if(diffProductivity < - averageLaborProductivity[0] * Parameters.getMaxVariation_Wages())
-			diffProductivity 					= - averageLaborProductivity[0] * Parameters.getMaxVariation_Wages();
-		
-		this.diffWage 					= Parameters.getCoeffLaborProd_Wages() * diffProductivity + Parameters.getCoeffCPI_Wages() * diffCPI + 
-										Parameters.getCoeffUnemployment_Wages() * diffUnemploymentRate;
+		if(diffCPI < - cpi[0] * parameters.getMaxVariation_Wages())
+			diffCPI 					= - cpi[0] * parameters.getMaxVariation_Wages();
+		if(diffUnemploymentRate < - unemploymentRate[0] * parameters.getMaxVariation_Wages())
+			diffUnemploymentRate 						= - unemploymentRate[0] * parameters.getMaxVariation_Wages();
+		if(diffProductivity < - averageLaborProductivity[0] * parameters.getMaxVariation_Wages())
+			diffProductivity 					= - averageLaborProductivity[0] * parameters.getMaxVariation_Wages();
+		
+		this.diffWage 					= parameters.getCoeffLaborProd_Wages() * diffProductivity + parameters.getCoeffCPI_Wages() * diffCPI + 
+										parameters.getCoeffUnemployment_Wages() * diffUnemploymentRate;
 		this.wage[1] 					= wage[0] * (1 + diffWage);
 		
-		log.debug("Final wage: " + wage[1]);
+		Trace.record(TracePoint.Wage, wage[1]);
 		
 		this.diffLogWage 				= Math.log(wage[1]) - Math.log(wage[0]);
 		this.diffLogCPI 				= Math.log(cpi[1]) - Math.log(cpi[0]);
 		
 		// TODO: to remove eventually
-		this.avgAgeMachines_cFirms 				= 0;
-		this.totalInventories 						= 0; 
-		this.sumDesiredProduction_cFirms 			= 0;
-		this.capitalStockDesired_cFirms 		= 0;
-		this.capitalStockTopLimit_cFirms 			= 0;
-		this.desiredExpansionaryInvestmentTotal_cFirms 				= 0;
-		this.desiredExpansionaryInvestmentTotalStar_cFirms 			= 0;
-		
-		for(CFirm cFirm : model.getCFirms()){
-			double avgAge 				= 0;
-			double numbMachine 			= 0;
-			for(Map.Entry<Machine, Integer> entry: cFirm.getMachineAgeMap().entrySet()){
-				numbMachine 			+= cFirm.getMachineQuantityMap().get(entry.getKey());
-				avgAge 					+= entry.getValue().doubleValue() * cFirm.getMachineQuantityMap().get(entry.getKey()).doubleValue();
-			}
-			avgAge 						/= numbMachine;
-			this.avgAgeMachines_cFirms 			+= avgAge;
-			this.totalInventories 					+= cFirm.getInventories()[1];
-			this.sumDesiredProduction_cFirms 		+= cFirm.getdQ();
-			this.capitalStockDesired_cFirms 	+= cFirm.getDesiredCapitalStock();
-			this.capitalStockTopLimit_cFirms 		+= cFirm.getMaxPossibleCapitalStock();
-			this.desiredExpansionaryInvestmentTotal_cFirms 			+= cFirm.getdInvestmentExpansionary();
-			this.desiredExpansionaryInvestmentTotalStar_cFirms 		+= cFirm.getdInvestmentExpansionaryStar();
-		}
+		this.avgAgeMachines_cFirms 				= cTotals.avgAgeMachines;
+		this.totalInventories 						= cTotals.inventories; 
+		this.sumDesiredProduction_cFirms 			= cTotals.desiredProduction;
+		this.capitalStockDesired_cFirms 		= cTotals.desiredCapitalStock;
+		this.capitalStockTopLimit_cFirms 			= cTotals.maxPossibleCapitalStock;
+		this.desiredExpansionaryInvestmentTotal_cFirms 				= cTotals.desiredExpansionaryInvestment;
+		this.desiredExpansionaryInvestmentTotalStar_cFirms 			= cTotals.desiredExpansionaryInvestmentStar;
 		this.avgAgeMachines_cFirms 				/= model.getNumberOfCFirms();
-		this.desiredExpansionaryInvestmentTotal_cFirms 				/= Parameters.getMachineSizeInCapital_cFirms();
-		this.desiredExpansionaryInvestmentTotalStar_cFirms 			/= Parameters.getMachineSizeInCapital_cFirms();
+		this.desiredExpansionaryInvestmentTotal_cFirms 				/= parameters.getMachineSizeInCapital_cFirms();
+		this.desiredExpansionaryInvestmentTotalStar_cFirms 			/= parameters.getMachineSizeInCapital_cFirms();
 		
 		
 		//Ross:  New variables to establish accounting identities
@@ -1629,6 +1582,10 @@ public class MacroCollector extends AbstractSimulationCollectorManager implement
 		this.timestepsBetweenSnapshots = timestepsBetweenSnapshots;
 	}
 	
+	public MacroStatistics getStatistics(){
+		return statistics;
+	}
+	
 	public double getLaborDemandUsedForProduction(){
 		return laborDemandUsedForProduction;
 	}
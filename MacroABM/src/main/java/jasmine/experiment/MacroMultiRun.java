@@ -1,5 +1,16 @@
 package jasmine.experiment;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import microsim.engine.SimulationEngine;
 import microsim.engine.MultiRun;
 import microsim.gui.shell.MultiRunFrame;
@@ -21,6 +32,17 @@ public class MacroMultiRun extends MultiRun {
 	// Define maximum values for the experiment (used in the last simulation)
 	private static Integer numberOfRepeatedRuns		= 20;		//Set default number of repeated runs
 	private static Double endTime 					= 600.;
+	
+	// Seed of the first run. Run number i (counting from 0) uses the seed baseSeed + i, whether the runs are sequential or concurrent,
+	// such that both modes produce identical trajectories. Same default value as in MacroModel.
+	private static Long baseSeed 					= 1166517026l;
+	
+	// Number of runs executed at the same time. If larger than 1, or without the Gui, the runs do not go through the JAS-mine engine (which 
+	// is a singleton), but are run in this JVM, each of them with its own RunContext. See runConcurrently()
+	private static Integer numberOfThreads 			= 1;
+	
+	// Directory in which the runs without the GUI write their time series
+	private static String outputDirectory 			= "output";
 
 	//Set the absolute maximum number of runs when using the MultiRun GUI.  The series of simulations will stop when this
 	//value is reached when using the MultiRun GUI.  Ensure that this is large enough to cover all necessary simulation runs
@@ -31,16 +53,19 @@ public class MacroMultiRun extends MultiRun {
 
 		batchModeArgumentParsing(args);	//Used to pass arguments to the main class via the command line if the user wants to run in 'batch mode' outside of Eclipse IDE
 
+		// Batch mode: the runs write the same time series whatever the number of threads (1 included). Only the Gui uses the engine
+		if (numberOfThreads > 1 || !executeWithGui) {
+			runConcurrently();
+			return;
+		}
+
 		SimulationEngine engine = SimulationEngine.getInstance();
 
 		MacroMultiRun experimentBuilder = new MacroMultiRun();
 		engine.setExperimentBuilder(experimentBuilder);
 		engine.setup();
 
-		if (executeWithGui)
-			new MultiRunFrame(experimentBuilder, "KS MultiRun", maxNumberOfRuns);
-		else
-			experimentBuilder.start();
+		new MultiRunFrame(experimentBuilder, "KS MultiRun", maxNumberOfRuns);
 	}
 
 	@Override
@@ -59,6 +84,80 @@ public class MacroMultiRun extends MultiRun {
 		// Overwrite the default values of the parameters of the simulation
 		// model.setNumberOfCFirms(numberOfAgents);
 		model.setEndTime(endTime);
+		model.setSeedIfFixed(baseSeed + counter - 1);
+	}
+	
+	// ---------------------------------------------------------------------
+	// Concurrent runs
+	// ---------------------------------------------------------------------
+	
+	/* Run the numberOfRepeatedRuns runs on numberOfThreads threads (one after the other with 1 thread), without the engine. */
+	public static void runConcurrently() {
+		runWithoutEngine(numberOfRepeatedRuns, numberOfThreads, baseSeed, endTime, new File(outputDirectory));
+	}
+	
+	/* Run the runs on numberOfThreads threads. Every run builds its own model and collector, and fires the events of each period 
+	 directly (see MacroModel.buildPeriodEventGroup()). As all the state of a run is held in its RunContext, runs do not interfere with 
+	 each other: run number i uses the seed firstSeed + i, and writes the same time series in the file run_i.csv of the directory 
+	 (see MacroBatch.run()) whatever the number of threads. 
+	 If some runs fail, the other runs are completed, then an IllegalStateException lists the failed runs (so that the JVM exits with a
+	 non-zero status). */
+	static void runWithoutEngine(int numberOfRuns, int numberOfThreads, long firstSeed, double endTime, File directory) {
+		
+		if (numberOfThreads < 1)
+			throw new IllegalArgumentException("The number of threads must be positive");
+		directory.mkdirs();
+		
+		ExecutorService executor 			= Executors.newFixedThreadPool(Math.max(1, Math.min(numberOfThreads, numberOfRuns)));
+		List<Future<?>> runs 				= new ArrayList<>();
+		for (int i = 0; i < numberOfRuns; i++) {
+			final int run 					= i;
+			runs.add(executor.submit(() -> { runWithoutEngine(firstSeed + run, endTime, runFile(directory, run)); return null; }));
+		}
+		
+		// Runs that failed, with their cause. Their partial time series are removed, such that every file left is a complete run
+		List<Integer> failedRuns 			= new ArrayList<>();
+		IllegalStateException failure 		= new IllegalStateException("Failed runs");
+		for (int i = 0; i < runs.size(); i++) {
+			try {
+				runs.get(i).get();
+			} catch (ExecutionException e) {
+				System.err.println("Run " + i + " stopped: " + e.getCause());
+				failedRuns.add(i);
+				failure.addSuppressed(e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				executor.shutdownNow();
+				throw new IllegalStateException("Interrupted while waiting for the runs", e);
+			}
+		}
+		executor.shutdown();
+		
+		if (!failedRuns.isEmpty()) {
+			for (int run : failedRuns)
+				runFile(directory, run).delete();
+			IllegalStateException exception = new IllegalStateException(failedRuns.size() + " of the " + runs.size() + " runs failed: " + failedRuns);
+			for (Throwable cause : failure.getSuppressed())
+				exception.addSuppressed(cause);
+			throw exception;
+		}
+	}
+	
+	private static void runWithoutEngine(long seed, double endTime, File file) throws IOException {
+		
+		// Same run as the headless runner, each run writing its own time series
+		MacroModel model 					= MacroBatch.newModel();
+		model.setEndTime(endTime);
+		model.setSeedIfFixed(seed);
+		
+		try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+			MacroBatch.run(model, out);
+		}
+	}
+	
+	// Time series of run number i
+	static File runFile(File directory, int run) {
+		return new File(directory, "run_" + run + ".csv");
 	}
 
 	@Override
@@ -117,6 +216,32 @@ public class MacroMultiRun extends MultiRun {
 				
 				i++;
 			} */
+			else if (args[i].equals("-t")){			//Set the number of runs executed concurrently, e.g. '-t 8'. With 1 (default), runs are executed one after another, through the engine with the Gui
+
+				try {
+					numberOfThreads = Integer.parseInt(args[i + 1]);
+				} catch (NumberFormatException e) {
+					System.err.println("Argument " + args[i + 1] + " must be an integer reflecting the number of runs executed concurrently.");
+					System.exit(1);
+				}
+				
+				i++;
+			}
+			else if (args[i].equals("-s")){			//Set the seed of the first run, e.g. '-s 1166517026'. Run number i uses the seed + i
+				
+				try {
+					baseSeed = Long.parseLong(args[i + 1]);
+				} catch (NumberFormatException e) {
+					System.err.println("Argument " + args[i + 1] + " must be an integer reflecting the seed of the first run.");
+					System.exit(1);
+				}
+				
+				i++;
+			}
+			else if (args[i].equals("-o")){			//Set the directory in which the runs without the Gui write their time series
+				outputDirectory = args[i + 1];
+				i++;
+			}
 			else if (args[i].equals("-g")){			//Toggle the MultiRun Gui on / off by passing the string '-g true' (on) or '-g false' (off) as a command line argument
 				executeWithGui = Boolean.parseBoolean(args[i + 1]);
 				i++;
@@ -0,0 +1,25 @@
+package jasmine.model;
+
+import jasmine.algorithms.APosterioriAdjustments;
+import jasmine.algorithms.APrioriAdjustments;
+
+/* Scratch objects of the financial adjustments of the consumption-good firms (see APrioriAdjustments and APosterioriAdjustments). They
+ hold the variables of the firm being adjusted, hence cannot be shared by two threads: the sequential processes use the ones of the run
+ (see RunContext), and in the parallel schedule each chunk of firms has its own, as it has its own ledger (see FirmChunkExecutor).
+
+ The scratch objects belong to the run or to its executor, and not to the threads of the pool: they are released with the run.
+ */
+class AdjustmentScratch {
+
+	final APrioriAdjustments aPriori;
+
+	final APosterioriAdjustments aPosteriori;
+
+	AdjustmentScratch(RunContext context){
+
+		this.aPriori 							= new APrioriAdjustments(context);
+		this.aPosteriori 						= new APosterioriAdjustments(context);
+
+	}
+
+}
@@ -1,7 +1,7 @@
 package jasmine.model;
 
+import jasmine.data.Parameters;
 import jasmine.experiment.MacroCollector;
-import microsim.engine.SimulationEngine;
 import microsim.event.EventListener;
 
 public abstract class Agent implements EventListener {
@@ -12,6 +12,11 @@ public abstract class Agent implements EventListener {
 
 	protected MacroCollector collector;
 
+	// context holds the state of the run the agent belongs to (calibration, random number generator, constant rates)
+	protected RunContext context;
+
+	protected Parameters parameters;
+
 	// ---------------------------------------------------------------------
 	// EventListener
 	// ---------------------------------------------------------------------
@@ -26,10 +31,17 @@ public abstract class Agent implements EventListener {
 	// Constructors
 	// ---------------------------------------------------------------------
 	
+	//Default constructor, used when exporting data to database.
 	public Agent(){
 		
-		this.model = (MacroModel) SimulationEngine.getInstance().getManager(MacroModel.class.getCanonicalName());
+	}
+	
+	public Agent(MacroModel model){
+		
+		this.model 			= model;
 		this.collector 		= model.getCollector();
+		this.context 		= model.getContext();
+		this.parameters 	= context.getParameters();
 		
 	}
 
@@ -41,6 +53,8 @@ public abstract class Agent implements EventListener {
 	public void kill(){
 		this.model 			= null;
 		this.collector 		= null;
+		this.context 		= null;
+		this.parameters 	= null;
 	}
 
 	// ---------------------------------------------------------------------
@@ -55,4 +69,12 @@ public abstract class Agent implements EventListener {
 		return this.collector;
 	}
 	
+	public RunContext getContext(){
+		return this.context;
+	}
+	
+	public Parameters getParameters(){
+		return this.parameters;
+	}
+	
 }
\ No newline at end of file
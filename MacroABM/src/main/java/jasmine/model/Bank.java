@@ -1,15 +1,14 @@
 package jasmine.model;
 
-import jasmine.algorithms.MapSorting;
-import jasmine.data.Parameters;
+import jasmine.algorithms.Ranking;
 import jasmine.enums.DebtRepayment;
+import jasmine.trace.Trace;
+import jasmine.trace.TracePoint;
 import microsim.data.db.PanelEntityKey;
-import microsim.event.Order;
-import microsim.event.SystemEventType;
 import microsim.statistics.IDoubleSource;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.persistence.Entity;
 import javax.persistence.Id;
@@ -25,9 +24,6 @@ public class Bank extends Agent implements IDoubleSource {
 	@Id
 	private PanelEntityKey key;
 
-	@Transient
-	static long bankIdCounter = 0l;
-
 	// ---------------------------------------------------------------------
 	// Variables
 	// ---------------------------------------------------------------------
@@ -59,7 +55,10 @@ public class Bank extends Agent implements IDoubleSource {
 	public double debtInterest;
 	
 	@Transient
-	Map<CFirm, Double> creditMap; // map that surveys the firms with positive credit demand, and their net-worth-to-sale ratio
+	List<CFirm> borrowers; // firms that applied for credit in the current period, in the order of their application
+	
+	@Transient
+	Ranking creditRanking; // net-worth-to-sale ratio of the borrowers, by position in the list of borrowers
 	
 	// ---------------------------------------------------------------------
 	// EventListener
@@ -143,20 +142,20 @@ public class Bank extends Agent implements IDoubleSource {
 		super();
 	}
 	
-	/* Note that the boolean argument newBank is a dummy variable used only to distinguish this constructor from 
-	 * the default constructor, which is used by the database export process (in which we do not want to increment 
+	/* Note that the default constructor is used by the database export process (in which we do not want to increment 
 	 * the id counter, otherwise it will increment the counter without actually creating new banks in the model).
-	 * The actual value of the boolean newBank is ignored. 
 	 */
-	public Bank(boolean newBank){
-		super();
+	public Bank(MacroModel model){
+		super(model);
 		
-		this.key = new PanelEntityKey(bankIdCounter++);
+		this.key = new PanelEntityKey(context.nextBankId());
 				
-		this.creditMap 						= new LinkedHashMap<>();
+		// The buffers of the borrowers are allocated once, and re-used from one period to the next
+		this.borrowers 						= new ArrayList<>(model.getNumberOfCFirms());
+		this.creditRanking 					= new Ranking(model.getNumberOfCFirms());
 		
 		// Note: only the liquid assets of consumption-good firms are taken into account.
-		this.monetaryBase 						= Parameters.getNetLiquidAssets_cFirms() * ((double) model.getNumberOfCFirms());
+		this.monetaryBase 						= parameters.getNetLiquidAssets_cFirms() * ((double) model.getNumberOfCFirms());
 		this.reserves 							= monetaryBase;
 		this.equity 							= monetaryBase;
 		this.cash 								= monetaryBase;
@@ -185,7 +184,8 @@ public class Bank extends Agent implements IDoubleSource {
 
 	void update(){
 		
-		this.creditMap.clear();
+		this.borrowers.clear();
+		this.creditRanking.clear();
 		
 		// In Dosi et al. implementation, only deposits of consumption-good firms are taken into account to compute the total level of credit 
 		this.monetaryBase 						= 0;
@@ -204,6 +204,14 @@ public class Bank extends Agent implements IDoubleSource {
 		
 	}
 	
+	// The c-firm applies for credit, with its current net-worth-to-sales ratio
+	void applyForCredit(CFirm cFirm){
+		
+		this.borrowers.add(cFirm);
+		this.creditRanking.add(cFirm.netWorthToSalesRatio);
+		
+	}
+	
 	void creditAllocation(){
 		/* The bank compares the aggregate credit demand to its credit supply. If the aggregate credit demand is bigger, 
 		the bank has to rank firms according to their net-worth-to-sale ratio. It then distributes the credit until it runs out of funds. 
@@ -215,17 +223,17 @@ public class Bank extends Agent implements IDoubleSource {
 		
 		// Compute the aggregate credit demand
 		collector.aggregateCreditDemand 		= 0;
-		for(CFirm cFirm : creditMap.keySet()){
+		for(CFirm cFirm : borrowers){
 			collector.aggregateCreditDemand 	+= cFirm.creditDemand;
 		}
 		
-		log.debug("The aggregate credit demand is " + collector.aggregateCreditDemand);
+		if(log.isDebugEnabled()) log.debug("The aggregate credit demand is " + collector.aggregateCreditDemand);
 		
 		if(collector.aggregateCreditDemand <= creditSupply){
 			log.debug("Agg. demand < agg. supply");
 			
 			// Each firm receives its credit demand
-			for(CFirm cFirm : creditMap.keySet()){
+			for(CFirm cFirm : borrowers){
 //				if(model.myopicDebtRepayment){
 				if(model.debtRepayment.equals(DebtRepayment.Myopic)){					
 					cFirm.loan 					= cFirm.creditDemand;
@@ -237,11 +245,19 @@ public class Bank extends Agent implements IDoubleSource {
 			}
 		} 
 		else {
-			// Sort the consumption-good firms by their net worth to sale ratio 
-			creditMap = (Map<CFirm, Double>) MapSorting.sortByValueDescending(creditMap);
-			log.debug("Agg. demand > agg. supply. Initial credit remaining: " + totalCreditRemaining);
+			/* Rank the consumption-good firms by their net worth to sale ratio. The ranking is incremental: firms are ordered one 
+			 at a time, as the credit is distributed.
+			 	(a) Myopic: the credit remaining after a firm depends on its expenditures (see CFirm.myopicExpendituresUpdate()), such 
+			 	that all the firms are served in the order of the ranking.
+			 	(b) Pseudo-rational: once the bank runs out of funds, the remaining firms all receive a nil loan, and they need not 
+			 	be ordered. */
+			creditRanking.startDescending();
+			if(log.isDebugEnabled()) log.debug("Agg. demand > agg. supply. Initial credit remaining: " + totalCreditRemaining);
 			
-			for(CFirm cFirm : creditMap.keySet()){
+			boolean myopic 						= model.debtRepayment.equals(DebtRepayment.Myopic);
+			while(creditRanking.hasNext() && (myopic || totalCreditRemaining > 0)){
+				
+				CFirm cFirm 					= borrowers.get(creditRanking.nextDescending());
 				
 				if(totalCreditRemaining < 0){
 					totalCreditRemaining 		= 0;
@@ -263,7 +279,7 @@ public class Bank extends Agent implements IDoubleSource {
 						cFirm.debt[1] 			+= cFirm.creditDemand;
 						this.debt 				+= cFirm.creditDemand;
 						
-						log.debug("CFirm " + cFirm.getKey().getId() + " gets a loan of " + cFirm.loan);
+						if(log.isDebugEnabled()) log.debug("CFirm " + cFirm.getKey().getId() + " gets a loan of " + cFirm.loan);
 						
 						// the remaining credit supply is reduced accordingly 
 						totalCreditRemaining 	-= cFirm.creditDemand;
@@ -274,13 +290,27 @@ public class Bank extends Agent implements IDoubleSource {
 						cFirm.debt[1] 			+= totalCreditRemaining; 
 						this.debt 				+= totalCreditRemaining; 
 						
-						log.debug("CFirm " + cFirm.getKey().getId() + " gets a loan of " + cFirm.loan);
+						if(log.isDebugEnabled()) log.debug("CFirm " + cFirm.getKey().getId() + " gets a loan of " + cFirm.loan);
 						
 						// the credit supply reaches 0 --> exit the loop
 						totalCreditRemaining 	= 0;
 					}
 				}
 			}
+			
+			// Pseudo-rational: the bank has run out of funds. The firms that have not been served do not get any loan
+			if(!myopic){
+				if(totalCreditRemaining < 0){
+					totalCreditRemaining 		= 0;
+					log.error("Total credit remaining < 0");
+				}
+				int[] unserved 					= creditRanking.getRemaining();
+				for(int i = 0; i < creditRanking.remaining(); i++){
+					CFirm cFirm 				= borrowers.get(unserved[i]);
+					cFirm.loan 					= 0;
+					if(log.isDebugEnabled()) log.debug("CFirm " + cFirm.getKey().getId() + " gets a loan of " + cFirm.loan);
+				}
+			}
 		}
 	}
 	
@@ -288,15 +318,11 @@ public class Bank extends Agent implements IDoubleSource {
 		
 //		if(!model.myopicDebtRepayment){
 		if(model.debtRepayment.equals(DebtRepayment.Psuedo_Rational)){
-			this.debt 							= 0;
-			this.badDebt 						= 0;
-			for(CFirm cFirm : model.getCFirms()){
-				this.debt 						+= cFirm.debt[1];
-				this.badDebt 					+= cFirm.badDebt;
-			}
-			if(this.badDebt > 0.) {
-				System.out.println("Bank.BadDebt = " + this.badDebt);
-			}
+			// Totals over the c-firms, computed after their accounting (see SectorAggregates)
+			SectorAggregates.CFirmTotals totals = model.getSectorAggregates().getCFirmTotals();
+			this.debt 							= totals.debt;
+			this.badDebt 						= totals.badDebt;
+			Trace.record(TracePoint.BankDebt, debt, badDebt);
 		} 
 		
 		
@@ -319,7 +345,7 @@ public class Bank extends Agent implements IDoubleSource {
 		// we specified an initial value
 		this.equity 							= cash + reserves - badDebt;
 		
-		log.debug("BANK ACCOUNTING: Before the potential intervention of the government, we have " + 
+		if(log.isDebugEnabled()) log.debug("BANK ACCOUNTING: Before the potential intervention of the government, we have " + 
 					"\n returns on debt " + debtInterest +
 					"\n interest on firm's deposits " + depositRevenues +
 					"\n profit " + profit +
@@ -354,7 +380,7 @@ public class Bank extends Agent implements IDoubleSource {
 			// If these actions are not sufficient, the bank cannot be saved. The economy stops. 
 			if(equity < 0){
 				log.fatal("Equity < 0 after gov. intervention. System stops");
-				model.getEngine().getEventQueue().scheduleSystem(model.getEngine().getTime(), Order.AFTER_ALL.getOrdering(), 0., model.getEngine(), SystemEventType.End);
+				model.stopRun();
 			}
 		} else {
 			// Otherwise the bank could fully cover its losses with its cash and reserves 
@@ -1,25 +1,24 @@
 package jasmine.model;
 
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
-import java.util.Map;
-import java.util.Set;
-
 import jasmine.algorithms.*;
-import jasmine.data.Parameters;
+import jasmine.algorithms.AdjustmentInputs.Adjustment;
 import jasmine.enums.DebtManagement;
 import jasmine.enums.DebtRepayment;
 import jasmine.object.*;
 import microsim.data.db.PanelEntityKey;
-import microsim.engine.SimulationEngine;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Transient;
 
+import java.util.Set;
+
 import org.apache.log4j.Logger;
 
+import static jasmine.model.FirmProcess.State.*;
+import static jasmine.model.FirmProcess.reads;
+import static jasmine.model.FirmProcess.writes;
+
 @Entity
 public class CFirm extends Firm {
 
@@ -28,28 +27,27 @@ public class CFirm extends Firm {
 	@Id
 	private PanelEntityKey key;
 
-	static long cFirmIdCounter = 0l;
 	
 	// here are all the variables specific to the c-forms
 	@Transient
 	BalanceSheetCFirm balanceSheet;
 	
 	@Transient
-	Set<KFirm> potentialKfirmsSet; // set of KFirm offers received by the firm.  These are the potential capital machine suppliers that the cFirms can use.  Was brochureLists. 
+	IntList potentialSuppliers; // indices (in the model's registry) of the KFirm offers received by the firm.  These are the potential capital machine suppliers that the cFirms can use.  Was brochureLists, then potentialKfirmsSet. 
 	
 	@Transient
-	Map<Machine, Integer> machineAgeMap; // map which associates an age to each machine of the firm's machine set 
+	VintageTable vintages; /* the firm's machine set, one row per vintage of machines (productivity, cost, birth period, quantity). The scrap flag of the table
+	 surveys the machines that c-firms initially want to scrap, either because they are too old, or because they are not sufficiently productive. 
+	 NOTE: such flag is needed because it is possible that, eventually, c-firms will not scrap some of the machines if it was not able to invest in machines to replace them.  */
 	
 	@Transient
-	Map<Machine, Integer> machineQuantityMap; // map which gives the number of machines associated with the type of machine in the firm's machine set 
-	
-	@Transient
-	Map<Machine, Integer> machinesToBeScrappedMap; /* map surveying the machines that c-firms initially want to scrap, either because they are too old, or
-	 because they are not sufficiently productive. NOTE: such map is needed because it is possible that, eventually, c-firms will not scrap some of the machines
-	 if it was not able to invest in machines to replace them.  */
+	Ranking scrappingRanking; // ranking of the vintages to be scrapped by cost, re-used from one period to the next
 
 	@Transient
 	KFirm supplier;
+	// slot of the firm in the clients of its supplier, -1 if it has no supplier. See ClientList and SupplierNetwork
+	@Transient
+	int clientSlot 							= -1;
 
 	protected double productivity; // prod stands for productivity, was prod. 
 	
@@ -132,17 +130,37 @@ public class CFirm extends Firm {
 	// EventListener
 	// ---------------------------------------------------------------------
 
-	public enum Processes {
-		Update,
-		ChooseSupplier,
-		InitialExpenditures,
-		APrioriAdjustments,
-		ExpendituresUpdate,
-		InvestmentOrder,
-		LaborDemand,
-		MachineScrapping, 
-		Production, 
-		Accounting;
+	// State shared with other firms that each process reads and writes, besides the variables of the firm (see FirmProcess)
+	public enum Processes implements FirmProcess {
+		Update(					reads(Macro), 					writes()),
+		ChooseSupplier(			reads(Technology, Suppliers), 	writes(Suppliers)),
+		InitialExpenditures(	reads(Macro, Technology), 		writes()),
+		APrioriAdjustments(		reads(Macro, Technology), 		writes(Totals)),
+		CreditApplication(		reads(), 						writes(Totals)),
+		ExpendituresUpdate(		reads(Macro, Technology), 		writes()),
+		InvestmentOrder(		reads(), 						writes(OrderBooks)),
+		LaborDemand(			reads(), 						writes()),
+		MachineScrapping(		reads(), 						writes()), 
+		Production(				reads(Macro), 					writes(Totals)), 
+		Accounting(				reads(Macro), 					writes(Totals));
+		
+		private final Set<State> reads;
+		private final Set<State> writes;
+		
+		private Processes(Set<State> reads, Set<State> writes){
+			this.reads 							= reads;
+			this.writes 						= writes;
+		}
+		
+		@Override
+		public Set<State> getReads() {
+			return reads;
+		}
+		
+		@Override
+		public Set<State> getWrites() {
+			return writes;
+		}
 	}
 
 	public void onEvent(Enum<?> type) {
@@ -157,44 +175,19 @@ public class CFirm extends Firm {
 			break;
 			
 		case InitialExpenditures:
-			// Adaptative expectations
-			this.expectedDemand 					= demand[0]; 
-			// Compute the desired level of production and investment, regardless of the firms' capital and financial resources
-			initialProductionExpenditures();
-			initialInvestmentExpenditures();
-			// The production function is of the Leontieff form. Thus the firm cannot produce more than the capital he possesses
-			if(desiredProduction > capitalStock){
-				this.desiredProduction 				= capitalStock;
-			}
-			this.desiredProductionStar 				= desiredProduction; 
+			initialExpenditures();
 			break;
 			
 		case APrioriAdjustments:
-			/* A complete description of the difference between the two types of adjustments is provided in the code documentation.
-			In the myopic adjustments case, firms have access to a credit line. As such, firms do not take in consideration 
-			that they have to repay a share of their debt at the end of the period. 
-			In the pseudo rational adjustments case, firms do not have access to the credit line. There, firms have to take into account
-			their expected liquid asset at the end of the period. 
-			 */
-//			if(model.myopicDebtRepayment){
-			if(model.debtRepayment.equals(DebtRepayment.Myopic)){
-				aPrioriFeasibilityMyopic();
-			} else {
-				aPrioriFeasibilityPseudoRational();
-				expectedPayment();
-			}
-			model.getBank().creditMap.put(this, netWorthToSalesRatio);
+			aPrioriFeasibility();
+			break;
+			
+		case CreditApplication:
+			creditApplication();
 			break;
 			
 		case ExpendituresUpdate:
-			/* In accordance with the difference in APrioriAdjustments, once they know their loan, c-firms adjust differently depending on whether they (potentially) have access to a line of credit
-			 or whether they don't. In the latest case, they once more take into account their expected liquid asset at the end of the period as object function 
-			 
-		  	NOTE: this is because all expenditures funded through internal funds will reduce the firms' liquid assets, 	and therefore its end-of-the-period assets. Said differently, 
-		  	liquidAsset[1] records all the current expenditures funded internally (accounting convention, does not matter per se) */
-//			if(!model.myopicDebtRepayment)
-			if(model.debtRepayment.equals(DebtRepayment.Psuedo_Rational))
-				pseudoRationalExpendituresUpdate();
+			expendituresUpdate();
 			break;
 			
 		case InvestmentOrder:
@@ -202,16 +195,11 @@ public class CFirm extends Firm {
 			break;
 			
 		case LaborDemand:
-			if(productivity > 0)
-				this.laborDemand 		= productionQuantity / productivity;
-			else
-				log.fatal("prod = O for CFirm " + this.getKey().getId() + " with prod " + productivity);
+			laborDemand();
 			break;
 			
 		case MachineScrapping:
 			machineScrapping();
-			// clear the map that contains all the scrapping 	
-			machinesToBeScrappedMap.clear();
 			break;
 		
 		case Production:
@@ -234,13 +222,11 @@ public class CFirm extends Firm {
 	}
 	
 	//Constructor for brand new CFirm (for copying existing firm, see copy constructor below)
-	/* Note that the boolean argument newFirm is a dummy variable used only to distinguish this constructor from the 
-	 * default constructor, which is used by the database export process (in which we do not want to increment the 
-	 * id counter, otherwise it will increment the counter without actually creating new firms in the model).  The
-	 * actual value of the boolean newFirm is ignored. 
+	/* Note that the default constructor is used by the database export process (in which we do not want to increment the 
+	 * id counter, otherwise it will increment the counter without actually creating new firms in the model).
 	 */
-	public CFirm(boolean newFirm){
-		super(true);
+	public CFirm(MacroModel model){
+		super(model);
 		
 		/* Introductory note: what kind of objects are important to initialize? 
 		 			(a) arrays 
@@ -251,28 +237,27 @@ public class CFirm extends Firm {
 		
 		// Extend the Firm constructor (define the firms' debt level)
 		
-		this.key = new PanelEntityKey(cFirmIdCounter++);
+		this.key = new PanelEntityKey(context.nextCFirmId());
 		
 		// --- Machines' variables ---
 		// The initial supplier of the firm is defined in matching(), MacroModel.java. Identically for the initial set of machines.
 		this.supplier 					= null;  
-		this.machineAgeMap 						= new LinkedHashMap<>();
-		this.machineQuantityMap 							= new LinkedHashMap<>();
-		this.machinesToBeScrappedMap 				= new LinkedHashMap<>();
-		// Initial amount of capital -- corresponds to k / Parameters.getDimK() machines
-		this.capitalStock 							= Parameters.getInitialCapitalStock_cFirms();
-		this.potentialKfirmsSet 				= new LinkedHashSet<>();
+		// Initial amount of capital -- corresponds to k / parameters.getDimK() machines
+		this.capitalStock 							= parameters.getInitialCapitalStock_cFirms();
+		this.vintages 							= new VintageTable((int) (capitalStock / parameters.getMachineSizeInCapital_cFirms()));
+		this.scrappingRanking 					= new Ranking();
+		this.potentialSuppliers 				= new IntList();
 		
 		// --- Financial variables ---
-		this.liquidAsset 				= new double[]{Parameters.getNetLiquidAssets_cFirms(), Parameters.getNetLiquidAssets_cFirms()}; 
+		this.liquidAsset 				= new double[]{parameters.getNetLiquidAssets_cFirms(), parameters.getNetLiquidAssets_cFirms()}; 
 		this.badDebt 					= 0;  
 		this.creditDemand 				= 0;
 		
 		// --- Productivity variables ---
 		// Initial mark-up
 		this.markUpRate 						= new double[]{model.markUpRate, model.markUpRate};  
-		this.productivity 						= Parameters.getInitialProductivity(); 
-		this.costToProduceGood 							= Parameters.getInitialWage() / productivity;
+		this.productivity 						= parameters.getInitialProductivity(); 
+		this.costToProduceGood 							= parameters.getInitialWage() / productivity;
 		this.priceOfGoodProduced 							= new double[]{ (1 + markUpRate[1]) * costToProduceGood, (1 + markUpRate[1]) * costToProduceGood}; 
 		// When computing the competitiveness of consumption-good firms, we divide by the economy-mean unfilled demand.
 		this.unfilledDemand 			= 0;  
@@ -290,7 +275,7 @@ public class CFirm extends Firm {
 		
 		// --- Investment variables ---
 		this.investmentExpansionary 					= 0; 
-		this.investmentSubstitutionary = this.investment 			= Parameters.getMachineSizeInCapital_cFirms();  
+		this.investmentSubstitutionary = this.investment 			= parameters.getMachineSizeInCapital_cFirms();  
 		this.size 						= 0;  
 		
 		// --- Balance sheet object. Records the firm's expenditures and revenues. 
@@ -298,9 +283,9 @@ public class CFirm extends Firm {
 		balanceSheet.setDebt(debt[1]);
 		balanceSheet.setDebtInterest(0);
 		balanceSheet.setDebtRepayment(0);
-		balanceSheet.setDepositRevenues(MacroModel.returnOnFirmsDeposits * liquidAsset[1]);
+		balanceSheet.setDepositRevenues(context.getrDepo() * liquidAsset[1]);
 		
-		double priceProducer 			=  (1 + Parameters.getFixedMarkUp_kFirms()) * Parameters.getInitialWage() / (Parameters.getInitialProductivity() * Parameters.getA_kFirms());
+		double priceProducer 			=  (1 + parameters.getFixedMarkUp_kFirms()) * parameters.getInitialWage() / (parameters.getInitialProductivity() * parameters.getA_kFirms());
 		balanceSheet.setInvExpenditure(investment * priceProducer);
 		balanceSheet.setLiquidAsset(liquidAsset[1]);
 		balanceSheet.setSales(sales[1]);
@@ -319,14 +304,14 @@ public class CFirm extends Firm {
 		 Variables that are problematic are denoted with two stars, **
 		 */
 		
-		super(true);
+		super(copy.model);
 		
-		this.key = new PanelEntityKey(cFirmIdCounter++);
+		this.key = new PanelEntityKey(context.nextCFirmId());
 		this.newEntrant 						= true;
 		this.exit 								= false;		
 		
 		// --- Machines ---
-		this.potentialKfirmsSet 						= new LinkedHashSet<KFirm>();
+		this.potentialSuppliers 						= new IntList();
 		/* Do not define a new supplier, as it would not consider the new capital-good firms. Instead, new entrants will pick 
 		one in the supplier() method */ 
 		this.supplier 							= null;
@@ -334,15 +319,14 @@ public class CFirm extends Firm {
 		this.investment = this.investmentExpansionary = this.investmentSubstitutionary 	= 0;
 
 		// Fill the machines set with machines that are similar to the ones of the incumbent 
-		this.machineAgeMap 								= new LinkedHashMap<>();
-		this.machineQuantityMap 									= new LinkedHashMap<>();
-		this.machinesToBeScrappedMap 						= new LinkedHashMap<>();
-
-		for(Map.Entry<Machine, Integer> entry : copy.machineQuantityMap.entrySet()){	// **
-			Machine newMachine 					= entry.getKey().clone();
-			machineQuantityMap.put(newMachine, entry.getValue());
-			// Even though they are copied from already existing machines, the age of the machines are set equal to 0
-			machineAgeMap.put(newMachine, 0);
+		this.vintages 									= new VintageTable(copy.vintages.size());
+		this.scrappingRanking 							= new Ranking();
+		
+		/* Even though they are copied from already existing machines, the age of the machines are set equal to 0. Entry takes place before
+		 the update of the period, in which the machines become one period older: hence a birth period equal to the previous period */
+		int birthPeriod 						= (int) context.getTime() - 1;
+		for(int v = 0; v < copy.vintages.size(); v++){	// **
+			vintages.add(copy.vintages.getProductivity(v), birthPeriod, copy.vintages.getQuantity(v));
 		}
 		
 		// --- Productivity ---
@@ -381,7 +365,7 @@ public class CFirm extends Firm {
 		this.demand 					= new double[]{dem, dem}; 
 		this.productionQuantity			= dem;
 		// Initial inventories defined according to equation (19) in Dosi et al. (2013) 
-		this.inventories 				= new double[]{0, Parameters.getDesiredInventoriesProportionOfExpectedDemand_cFirms() * dem}; 
+		this.inventories 				= new double[]{0, parameters.getDesiredInventoriesProportionOfExpectedDemand_cFirms() * dem}; 
 		this.stockFinalGood 			= productionQuantity + inventories[1]; 
 		
 		double sales0 					= dem * priceOfGoodProduced[1]; 
@@ -398,23 +382,23 @@ public class CFirm extends Firm {
 	void survivalChecking(){
 		// Identify whether the firm can remain in the market
 		
-		if(marketShare[2] > Parameters.getMarketShareThresholdForExit_cFirms() && liquidAsset[1] > 0){
-			collector.cFirmsRemaining			+= 1;
+		if(marketShare[2] > parameters.getMarketShareThresholdForExit_cFirms() && liquidAsset[1] > 0){
+			ledger.add(Ledger.Total.CFirmsRemaining, 1);
 			this.newEntrant 					= false;
 		} else {
 			this.exit							= true;
-			collector.exit_cFirms 					+= 1;
+			ledger.add(Ledger.Total.Exit_cFirms, 1);
 			
 			if(this.debt[1] > 0)
-				collector.bankruptcyRate_cFirms 		+= 1;
+				ledger.add(Ledger.Total.BankruptcyRate_cFirms, 1);
 			
 			// TODO: this if else structure is mainly for checking purpose.
-			if(liquidAsset[1] <= 0 && marketShare[2] > Parameters.getMarketShareThresholdForExit_cFirms())
-				collector.exitLiquidityIssue_cFirms 		+= 1;
-			else if(marketShare[2] <= Parameters.getMarketShareThresholdForExit_cFirms() && liquidAsset[1] > 0)
-				collector.exitMarketShareIssue_cFirms		+= 1;
+			if(liquidAsset[1] <= 0 && marketShare[2] > parameters.getMarketShareThresholdForExit_cFirms())
+				ledger.add(Ledger.Total.ExitLiquidityIssue_cFirms, 1);
+			else if(marketShare[2] <= parameters.getMarketShareThresholdForExit_cFirms() && liquidAsset[1] > 0)
+				ledger.add(Ledger.Total.ExitMarketShareIssue_cFirms, 1);
 			else
-				collector.exitAssetMarket_cFirms		+= 1;
+				ledger.add(Ledger.Total.ExitAssetMarket_cFirms, 1);
 		
 		}
 	}
@@ -433,15 +417,11 @@ public class CFirm extends Firm {
 		
 		// --- Entities ---
 		this.supplier 							= null;
-		for(Map.Entry<Machine, Integer> entry : machineAgeMap.entrySet()){
-			entry.getKey().kill();
-		}
 		
 		// --- Lists & Maps ---
-		this.potentialKfirmsSet 						= null;
-		this.machineAgeMap 								= null;
-		this.machineQuantityMap 									= null;
-		this.machinesToBeScrappedMap 						= null;
+		this.potentialSuppliers 						= null;
+		this.vintages 									= null;
+		this.scrappingRanking 							= null;
 		
 	}
 	
@@ -463,26 +443,19 @@ public class CFirm extends Firm {
 		this.demand[1] 							= 0;
 		this.externalFunding						= 0;
 		
-		// Re-compute total capital 
-		this.capitalStock 									= 0;
-		for(Map.Entry<Machine, Integer> entry : machineQuantityMap.entrySet()){
-			// Update the unit labor cost of production, equation (13.5) in Dosi et al. (2013)
-			double newCost						= collector.wage[1] / entry.getKey().getMachineProductivity()[1];
-			entry.getKey().setCost(newCost); 
-			// Equation (20.5) in Dosi et al. (2013)
-			this.capitalStock 								+= entry.getValue() * Parameters.getMachineSizeInCapital_cFirms(); 
-			// Update the age of each machine. 
-			machineAgeMap.put(entry.getKey(), machineAgeMap.get(entry.getKey()) + 1);
-		}
+		// Update the unit labor cost of production of the machines, equation (13.5) in Dosi et al. (2013)
+		vintages.setWage(collector.wage[1]);
+		
+		/* Re-compute total capital, from the running totals of the machine set (updated when machines are delivered or scrapped). 
+		 Equation (20.5) in Dosi et al. (2013). NOTE: the age of the machines is derived from their birth period (see VintageTable) */
+		this.capitalStock 									= vintages.getTotalQuantity() * parameters.getMachineSizeInCapital_cFirms();
 		
 		// Update productivity
 		this.productivity 								= 0;
-		double numberOfMachine 					= capitalStock / Parameters.getMachineSizeInCapital_cFirms();
+		double numberOfMachine 					= (double) vintages.getTotalQuantity();
 		if(numberOfMachine > 0){
-			for(Map.Entry<Machine, Integer> entry : machineQuantityMap.entrySet()){
-				// Equation (21.5) in Dosi et al. (2013)
-				this.productivity 						+= entry.getKey().getMachineProductivity()[1] * entry.getValue() / numberOfMachine;
-			}
+			// Equation (21.5) in Dosi et al. (2013)
+			this.productivity 							= vintages.getProductivityQuantitySum() / numberOfMachine;
 		} else {
 			// This should not happen, at least under reasonable parametrization.
 			this.productivity							= 0;
@@ -502,7 +475,7 @@ public class CFirm extends Firm {
 		// Update mark-up
 		if(marketShare[0] > 0){
 			// Equation (3) in Dosi et al. (2013)
-			this.markUpRate[1] 							= markUpRate[0] * (1 + Parameters.getCoeffMarkUpRule_cFirms() * (marketShare[1] - marketShare[0]) / marketShare[0]); 
+			this.markUpRate[1] 							= markUpRate[0] * (1 + parameters.getCoeffMarkUpRule_cFirms() * (marketShare[1] - marketShare[0]) / marketShare[0]); 
 		} else{ 
 			this.markUpRate[1] 							= markUpRate[0];
 			log.error("f(t-2) = 0"); 
@@ -515,8 +488,8 @@ public class CFirm extends Firm {
 		// Equation (22) in Dosi et al. (2013)
 		this.priceOfGoodProduced[1] 								= (1 + markUpRate[1]) * costToProduceGood; 
 		// Follow Dosi et al. code: ensure that prices are not negative
-		if(priceOfGoodProduced[1] < Parameters.getMinPrice_kFirms()){
-			this.priceOfGoodProduced[1] 							= Parameters.getMinPrice_kFirms();
+		if(priceOfGoodProduced[1] < parameters.getMinPrice_kFirms()){
+			this.priceOfGoodProduced[1] 							= parameters.getMinPrice_kFirms();
 			log.error("p < pmin");
 		}
 		
@@ -534,39 +507,49 @@ public class CFirm extends Firm {
 	
 	void chooseSupplier(){
 		// A consumption-good firm always need a supplier. If it does not have one, then it picks one at random
-		if(supplier == null){
-			int rnd 							= SimulationEngine.getRnd().nextInt(model.getNumberOfKFirms());
-			KFirm newSupplier 					= model.getKFirms().get(rnd);
-			this.supplier 						= newSupplier;
+		KFirm oldSupplier 						= supplier;
+		if(oldSupplier == null){
+			int rnd 							= context.getRandomStream(RandomStreams.Stream.ChooseSupplier, key.getId(), randomGenerator).nextInt(model.getNumberOfKFirms());
+			oldSupplier 						= model.getKFirms().get(rnd);
 			//NOTE: no need to add it to the supplier's clients list. This is done at the end of the method 
 		}
 		
 		// Consumption-good firms compare the brochures they have received and choose the supplier that is most competitive 
-		KFirm oldSupplier 						= supplier;		
-		// If condition that ensures that we will not iterate over an empty list (e.g. might be the case for some new entrants)
-		if(!potentialKfirmsSet.isEmpty()){			//XXX: This check is unnecessary.
-			for(KFirm potentialSupplier : potentialKfirmsSet){
-				// Equation (17) in Dosi et al. (2013) measures a firm's competitiveness 
-				double realPriceOldSupplier 	= oldSupplier.priceOfGoodProduced[1] + Parameters.getMachinePaybackPeriod_cFirms() * oldSupplier.machineProduced.getCost();
-				double realPricePotentialSupplier = potentialSupplier.priceOfGoodProduced[1] + Parameters.getMachinePaybackPeriod_cFirms() * potentialSupplier.machineProduced.getCost();
-				
-				if(realPricePotentialSupplier < realPriceOldSupplier)
-					oldSupplier 				= potentialSupplier;
-			}
+		// Each capital-good firm sends at most one brochure to the firm, so that the list has no duplicates
+		for(int i = 0; i < potentialSuppliers.size(); i++){
+			KFirm potentialSupplier 			= model.getKFirms().get(potentialSuppliers.get(i));
+			// Equation (17) in Dosi et al. (2013) measures a firm's competitiveness 
+			double realPriceOldSupplier 		= oldSupplier.priceOfGoodProduced[1] + parameters.getMachinePaybackPeriod_cFirms() * oldSupplier.machineProduced.getCost();
+			double realPricePotentialSupplier 	= potentialSupplier.priceOfGoodProduced[1] + parameters.getMachinePaybackPeriod_cFirms() * potentialSupplier.machineProduced.getCost();
+			
+			if(realPricePotentialSupplier < realPriceOldSupplier)
+				oldSupplier 					= potentialSupplier;
 		}
-		this.supplier 							= oldSupplier;
-		// Notify the supplier that the consumption-good firm is a new client
-		supplier.clients.add(this);
-		potentialKfirmsSet.clear();
+		// Notify the supplier that the consumption-good firm is a new client (if it switches supplier), see SupplierNetwork
+		SupplierNetwork.move(this, oldSupplier);
+		potentialSuppliers.clear();
 	}
 	
 	// ---------------------------------------------------------------------
 	// Initial Expenditures methods
 	// ---------------------------------------------------------------------
 	
+	void initialExpenditures(){
+		// Adaptative expectations
+		this.expectedDemand 					= demand[0]; 
+		// Compute the desired level of production and investment, regardless of the firms' capital and financial resources
+		initialProductionExpenditures();
+		initialInvestmentExpenditures();
+		// The production function is of the Leontieff form. Thus the firm cannot produce more than the capital he possesses
+		if(desiredProduction > capitalStock){
+			this.desiredProduction 				= capitalStock;
+		}
+		this.desiredProductionStar 				= desiredProduction; 
+	}
+	
 	void initialProductionExpenditures(){
 		// Equation (19) in Dosi et al (2013)
-		this.desiredInventories 								= Parameters.getDesiredInventoriesProportionOfExpectedDemand_cFirms() * expectedDemand; 
+		this.desiredInventories 								= parameters.getDesiredInventoriesProportionOfExpectedDemand_cFirms() * expectedDemand; 
 		if(this.liquidAsset[0] > 0){
 			this.desiredProduction 							= expectedDemand + desiredInventories - inventories[0]; 
 		} else {
@@ -588,31 +571,26 @@ public class CFirm extends Firm {
 	
 	void machineSelection(){
 		/* Selection of the most productive machines in order to produce in the most efficient way
-		Rank the machine according to their productivity (from the most to the least productive) */
-		Map<Machine, Double> productivitySet 	= new LinkedHashMap<>();
-		for(Map.Entry<Machine, Integer> entry : machineQuantityMap.entrySet()){
-			productivitySet.put(entry.getKey(), entry.getKey().getMachineProductivity()[1]);
-		}
-		Map<Machine, Double> productivityRanked = MapSorting.sortByValueDescending(productivitySet);
+		The machine set keeps its vintages ranked according to their productivity (from the most to the least productive) */
 		
 		/* Find the number of machines needed to meet the production target 
 		i is used to compute (iteratively) the number of machines that still need to be added to the production set, while 
 		numberMachinesNeeded is used in the formula of productivity (Equation 21.5 in Dosi et al., 2013) */ 
-		int numberMachinesNeeded 				= (int) Math.ceil(desiredProduction / Parameters.getMachineSizeInCapital_cFirms());
+		int numberMachinesNeeded 				= (int) Math.ceil(desiredProduction / parameters.getMachineSizeInCapital_cFirms());
 		int i 									= numberMachinesNeeded;
 		this.productivity							 	= 0;
 		
-		for(Map.Entry<Machine, Double> entry : productivityRanked.entrySet()){			
+		for(int rank = 0; rank < vintages.size(); rank++){			
 			if(i > 0){
-				Machine m 						= entry.getKey();
-				if(machineQuantityMap.get(m) > i){
-					// There are (marginally) enough machines of type m to meet the production target. Stop here
-					this.productivity 					+= m.getMachineProductivity()[1] * i / numberMachinesNeeded;
+				int m 							= vintages.getRowByProductivityRank(rank);
+				if(vintages.getQuantity(m) > i){
+					// There are (marginally) enough machines of vintage m to meet the production target. Stop here
+					this.productivity 					+= vintages.getProductivity(m) * i / numberMachinesNeeded;
 					i 							= 0;
 				} else {
-					// Machines ranked lower than the machines of type m are also (marginally) needed
-					this.productivity 					+= m.getMachineProductivity()[1] * machineQuantityMap.get(m) / numberMachinesNeeded;
-					i 							-= machineQuantityMap.get(m);
+					// Machines ranked lower than the machines of vintage m are also (marginally) needed
+					this.productivity 					+= vintages.getProductivity(m) * vintages.getQuantity(m) / numberMachinesNeeded;
+					i 							-= vintages.getQuantity(m);
 				}
 			} else {
 				break;
@@ -628,22 +606,22 @@ public class CFirm extends Firm {
 		(a) The difference between the desired level of capital and the actual level of capital (Equation (19.5) in Dosi et al., 2013) 
 		
 		Compute the desired amount of capital */
-		if(SimulationEngine.getInstance().getTime() == 0.0){
+		if(context.getTime() == 0.0){
 			this.desiredCapitalStock 							= desiredProduction;
 		}else {
-			this.desiredCapitalStock 							= desiredProduction / Parameters.getDesiredCapacityUtilization_cFirms();
+			this.desiredCapitalStock 							= desiredProduction / parameters.getDesiredCapacityUtilization_cFirms();
 		}
 		
 		// There is an upper bound on the per period capital growth
-		this.maxPossibleCapitalStock 								= capitalStock * (1 + Parameters.getMaxCapitalGrowthPerPeriod_cFirms());
-		this.maxPossibleCapitalStock 								= Math.round(maxPossibleCapitalStock / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms();
+		this.maxPossibleCapitalStock 								= capitalStock * (1 + parameters.getMaxCapitalGrowthPerPeriod_cFirms());
+		this.maxPossibleCapitalStock 								= Math.round(maxPossibleCapitalStock / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms();
 		
 		// Compute the desired expansionary investments
 		if(desiredCapitalStock > capitalStock){
 			if(desiredCapitalStock > maxPossibleCapitalStock)
 				this.desiredInvestmentExpansionary 					= maxPossibleCapitalStock - capitalStock;
 			else
-				this.desiredInvestmentExpansionary 					= Math.floor((desiredCapitalStock - capitalStock) / Parameters.getMachineSizeInCapital_cFirms()) * Parameters.getMachineSizeInCapital_cFirms();
+				this.desiredInvestmentExpansionary 					= Math.floor((desiredCapitalStock - capitalStock) / parameters.getMachineSizeInCapital_cFirms()) * parameters.getMachineSizeInCapital_cFirms();
 		} else {
 			this.desiredInvestmentExpansionary 						= 0;
 		}
@@ -653,29 +631,31 @@ public class CFirm extends Firm {
 		// the current vintage being produced
 		
 		this.desiredInvestmentSubstitutionary 							= 0;
-		// Too-old machines 
-		for(Map.Entry<Machine, Integer> entry : machineAgeMap.entrySet()){
-			if(entry.getValue() > Parameters.getMaxAgeMachines_cFirms()){
-				// Scrapping of these machines will actually take place only if the firm has the funds to replace them. So far, only store
-				// them in the toBeScrapped map.
-				this.machinesToBeScrappedMap.put(entry.getKey(), machineQuantityMap.get(entry.getKey()));
-				this.desiredInvestmentSubstitutionary 					+= machineQuantityMap.get(entry.getKey()).doubleValue() * Parameters.getMachineSizeInCapital_cFirms();
+		// Too-old machines. Scan the machine set only if its oldest vintage is too old
+		int now 								= (int) context.getTime();
+		boolean tooOldMachines 					= vintages.getOldestAge(now) > parameters.getMaxAgeMachines_cFirms();
+		for(int v = 0; tooOldMachines && v < vintages.size(); v++){
+			if(vintages.getAge(v, now) > parameters.getMaxAgeMachines_cFirms()){
+				// Scrapping of these machines will actually take place only if the firm has the funds to replace them. So far, only flag
+				// them as to be scrapped.
+				vintages.setToBeScrapped(v, true);
+				this.desiredInvestmentSubstitutionary 					+= (double) vintages.getQuantity(v) * parameters.getMachineSizeInCapital_cFirms();
 			}
 		}
 				
 		// Low productivity machines 
-		for(Map.Entry<Machine, Integer> entry : machineQuantityMap.entrySet()){
+		for(int v = 0; v < vintages.size(); v++){
 			/* NOTE: requires the productivity of the current machine < the productivity of supplier's machine. Otherwise, 
 			 the payback would be negative, and because b (the payback parameter) is positive, the firm would actually want to scrap 
 			 this machine, even though its productivity is higher */
-			if(entry.getKey().getMachineProductivity()[1] < supplier.getMachineProduced().getMachineProductivity()[1] && collector.wage[1] > 0){
+			if(vintages.getProductivity(v) < supplier.getMachineProduced().getMachineProductivity()[1] && collector.wage[1] > 0){
 				// Equation (21) in Dosi et al. (2013)
-				double payback 					= supplier.priceOfGoodProduced[1] / ( collector.wage[1] / entry.getKey().getMachineProductivity()[1] - 
+				double payback 					= supplier.priceOfGoodProduced[1] / ( collector.wage[1] / vintages.getProductivity(v) - 
 													collector.wage[1] / supplier.machineProduced.getMachineProductivity()[1] );
 
-				if(payback <= Parameters.getMachinePaybackPeriod_cFirms() && !machinesToBeScrappedMap.containsKey(entry.getKey()) ){
-					this.machinesToBeScrappedMap.put(entry.getKey(), entry.getValue());
-					this.desiredInvestmentSubstitutionary 				+= entry.getValue().doubleValue() * Parameters.getMachineSizeInCapital_cFirms();
+				if(payback <= parameters.getMachinePaybackPeriod_cFirms() && !vintages.isToBeScrapped(v) ){
+					vintages.setToBeScrapped(v, true);
+					this.desiredInvestmentSubstitutionary 				+= (double) vintages.getQuantity(v) * parameters.getMachineSizeInCapital_cFirms();
 				}
 			}
 		}
@@ -686,6 +666,33 @@ public class CFirm extends Firm {
 	// A Priori Adjustments methods - INVESTMENT DECISIONS
 	// ---------------------------------------------------------------------
 	
+	void aPrioriFeasibility(){
+		/* A complete description of the difference between the two types of adjustments is provided in the code documentation.
+		In the myopic adjustments case, firms have access to a credit line. As such, firms do not take in consideration 
+		that they have to repay a share of their debt at the end of the period. 
+		In the pseudo rational adjustments case, firms do not have access to the credit line. There, firms have to take into account
+		their expected liquid asset at the end of the period. 
+		 */
+//		if(model.myopicDebtRepayment){
+		if(model.debtRepayment.equals(DebtRepayment.Myopic)){
+			aPrioriFeasibilityMyopic();
+		} else {
+			// The variables of the firm the payment depends on are taken once, for the adjustments of the period
+			balanceSheet.snapshotPayment();
+			aPrioriFeasibilityPseudoRational();
+			expectedPayment();
+		}
+		// In the batch adjustments, the firm applies for credit once its adjustment has been solved (see creditApplication())
+		if(!model.batchAdjustments)
+			ledger.applyForCredit(this);
+	}
+	
+	void creditApplication(){
+		// Batch adjustments only: the firm takes its adjusted plan, if it had to adjust, and applies for credit
+		model.getAdjustmentInputs().store(registryIndex, this);
+		ledger.applyForCredit(this);
+	}
+	
 		// ---------------------------------------------------------------------
 		// Myopic / Access to line of credit 
 		// ---------------------------------------------------------------------
@@ -704,8 +711,8 @@ public class CFirm extends Firm {
 		this.liquidAssetRemainingAfterProductionAndInvestment 					= liquidAsset[0];
 		
 		double costProduction 					= desiredProductionStar * costToProduceGood;
-		double costInvExp 						= desiredInvestmentExpansionaryStar * supplier.getPriceOfGoodProducedNow() / Parameters.getMachineSizeInCapital_cFirms();
-		double costInvSub 						= desiredInvestmentSubstitionaryStar * supplier.getPriceOfGoodProducedNow() / Parameters.getMachineSizeInCapital_cFirms();
+		double costInvExp 						= desiredInvestmentExpansionaryStar * supplier.getPriceOfGoodProducedNow() / parameters.getMachineSizeInCapital_cFirms();
+		double costInvSub 						= desiredInvestmentSubstitionaryStar * supplier.getPriceOfGoodProducedNow() / parameters.getMachineSizeInCapital_cFirms();
 		
 		/* Firm have to check whether their current plans are achievable with their current resources. These are made of their internal
 		funds and some potential loans, bounded above by their borrowing capacity.
@@ -727,7 +734,7 @@ public class CFirm extends Firm {
 			this.liquidAssetRemainingAfterProductionAndInvestment 				= 0;
 		} else {
 			if(liquidAssetRemainingAfterProductionAndInvestment > 0){
-				this.desiredInvestmentExpansionaryStar 				= Math.floor((liquidAssetRemainingAfterProductionAndInvestment + loanPrime) / supplier.priceOfGoodProduced[1]) * Parameters.getMachineSizeInCapital_cFirms();
+				this.desiredInvestmentExpansionaryStar 				= Math.floor((liquidAssetRemainingAfterProductionAndInvestment + loanPrime) / supplier.priceOfGoodProduced[1]) * parameters.getMachineSizeInCapital_cFirms();
 			} else {
 				this.desiredInvestmentExpansionaryStar 				= 0;
 			}
@@ -737,7 +744,7 @@ public class CFirm extends Firm {
 		
 		// Substitutionary investments
 		if(costInvSub > liquidAssetRemainingAfterProductionAndInvestment + loanPrime){
-			this.desiredInvestmentSubstitionaryStar 					= Math.floor((liquidAssetRemainingAfterProductionAndInvestment + loanPrime) / supplier.priceOfGoodProduced[1]) * Parameters.getMachineSizeInCapital_cFirms();
+			this.desiredInvestmentSubstitionaryStar 					= Math.floor((liquidAssetRemainingAfterProductionAndInvestment + loanPrime) / supplier.priceOfGoodProduced[1]) * parameters.getMachineSizeInCapital_cFirms();
 		}  
 		
 	/*	Alternative way to code this adjustment process. Yields a much less volatile investment. 
@@ -760,7 +767,7 @@ public class CFirm extends Firm {
 			this.liquidAssetPrime 				= 0;
 		} else {
 			this.dInvExpStar 					= Math.floor((liquidAssetPrime + loanPrime) / supplier.getPPresent()) * 
-													Parameters.getDimK();
+													parameters.getDimK();
 			loanPrime 							= 0;
 			this.liquidAssetPrime 				= 0;
 		}
@@ -772,14 +779,14 @@ public class CFirm extends Firm {
 			this.liquidAssetPrime 				= 0;
 		} else {
 			this.dInvSubStar 					= Math.floor((liquidAssetPrime + loanPrime) / supplier.getPPresent()) * 
-													Parameters.getDimK();
+													parameters.getDimK();
 			loanPrime 							= 0;
 			this.liquidAssetPrime 				= 0;
 		} */
 		
 		// Update the production & investment costs with the new quantity
 		costProduction 							= costToProduceGood * desiredProductionStar;
-		double costInvestment 					= supplier.priceOfGoodProduced[1] * (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar) / Parameters.getMachineSizeInCapital_cFirms();
+		double costInvestment 					= supplier.priceOfGoodProduced[1] * (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar) / parameters.getMachineSizeInCapital_cFirms();
 				
 		/* Line of credit assumption: firms include in their credit demands their entire debt, s.t. the firm is able to roll over its
 		 debt -- unless it is credit constrained */
@@ -813,10 +820,10 @@ public class CFirm extends Firm {
 		this.liquidAssetRemainingAfterProductionAndInvestment = liquidAsset[0];
 		
 		double costProduction = desiredProductionStar * costToProduceGood;
-		double costInvExp = desiredInvestmentExpansionaryStar * supplier.getPriceOfGoodProducedNow() / Parameters.getMachineSizeInCapital_cFirms();
-		double costInvSub = desiredInvestmentSubstitionaryStar * supplier.getPriceOfGoodProducedNow() / Parameters.getMachineSizeInCapital_cFirms();
+		double costInvExp = desiredInvestmentExpansionaryStar * supplier.getPriceOfGoodProducedNow() / parameters.getMachineSizeInCapital_cFirms();
+		double costInvSub = desiredInvestmentSubstitionaryStar * supplier.getPriceOfGoodProducedNow() / parameters.getMachineSizeInCapital_cFirms();
 		
-		log.debug("The resources of the CFirm " + this.getKey().getId() + 
+		if(log.isDebugEnabled()) log.debug("The resources of the CFirm " + this.getKey().getId() + 
 					"\n maxLoan " + maxPossibleLoan + 
 					"\n liquidAsset " + liquidAsset[0] + 
 					"\n cost production " + costProduction + 
@@ -846,7 +853,7 @@ public class CFirm extends Firm {
 			this.liquidAssetRemainingAfterProductionAndInvestment = 0;
 		} else {
 			// NOTE: here, slight difference: need to floor the level of investment as it has to be expressed in terms of machines
-			this.desiredInvestmentExpansionaryStar = Math.floor((liquidAssetRemainingAfterProductionAndInvestment + loanPrime) / supplier.getPriceOfGoodProducedNow()) * Parameters.getMachineSizeInCapital_cFirms();
+			this.desiredInvestmentExpansionaryStar = Math.floor((liquidAssetRemainingAfterProductionAndInvestment + loanPrime) / supplier.getPriceOfGoodProducedNow()) * parameters.getMachineSizeInCapital_cFirms();
 			loanPrime = 0;
 			this.liquidAssetRemainingAfterProductionAndInvestment = 0;
 		}
@@ -858,14 +865,14 @@ public class CFirm extends Firm {
 			this.liquidAssetRemainingAfterProductionAndInvestment = 0;
 		} else {
 			// NOTE: here, slight difference: need to floor the level of investment as it has to be expressed in terms of machines
-			this.desiredInvestmentSubstitionaryStar = Math.floor((liquidAssetRemainingAfterProductionAndInvestment + loanPrime) / supplier.getPriceOfGoodProducedNow()) * Parameters.getMachineSizeInCapital_cFirms();
+			this.desiredInvestmentSubstitionaryStar = Math.floor((liquidAssetRemainingAfterProductionAndInvestment + loanPrime) / supplier.getPriceOfGoodProducedNow()) * parameters.getMachineSizeInCapital_cFirms();
 			loanPrime = 0;
 			this.liquidAssetRemainingAfterProductionAndInvestment = 0;
 		}
 		
 		this.loanForProductionAndInvestment = maxPossibleLoan - loanPrime;
 		
-		log.debug("After the adjustments: " + 
+		if(log.isDebugEnabled()) log.debug("After the adjustments: " + 
 					"\n production: " + desiredProductionStar + 
 					"\n exp. inv.: " + desiredInvestmentExpansionaryStar + 
 					"\n sub. inv: " + desiredInvestmentSubstitionaryStar + 
@@ -880,7 +887,8 @@ public class CFirm extends Firm {
 		// this method checks whether c-firms, given their feasible plans from the previous method, expect to be able to repay their due debt at the end of the period 
 		
 		// collection of parameters to make the closed form solutions look less awful 
-		double param2 = Parameters.getDebtRepaymentSharePerPeriod_cFirms() + (1 - MacroModel.tax_rate) * MacroModel.interestRateOnDebt;
+		double param2 = parameters.getDebtRepaymentSharePerPeriod_cFirms() + (1 - context.getTax()) * context.getrDebt();
+		PaymentFunction payment = balanceSheet.getPaymentFunction();
 		double salesTemp = priceOfGoodProduced[1] * Math.min(demand[0], desiredProductionStar + inventories[0]);
 		/* For clarification on the origin of salesTemp, see the code documentation pdf. Intuition: the firm cannot sell more than what it has produced (current production
 		 + stock of inventories), nor more than what its demand is. 
@@ -890,25 +898,25 @@ public class CFirm extends Firm {
 			 // if c-firms has nil loan prod, it implies that prod. and inv. were funded only using internal funds
 			
 			// (a): does the firm expect to be able to repay its debt, without using the loan for debt repayments purposes?
-			if(balanceSheet.payment(desiredProductionStar, (long) (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar), 0, 0) > 0){
+			if(payment.value(desiredProductionStar, (long) (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar), 0, 0) > 0){
 				// Yes. Hence the credit demand of the firm is nil
 				
 				this.loanForDebtRepayment = this.loanForProductionAndInvestment = this.creditDemand = 0;
-				log.debug("CFirm " + this.getKey().getId() + " had pos. cash and expect to pay its debt without borrowing");
+				if(log.isDebugEnabled()) log.debug("CFirm " + this.getKey().getId() + " had pos. cash and expect to pay its debt without borrowing");
 				
 			} // (b): does the firm expect to be able to repay its debt, using the entire loan for debt repayments purposes?
-			else if(balanceSheet.payment(desiredProductionStar, (long) (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar), maxPossibleLoan, 0) > 0){
+			else if(payment.value(desiredProductionStar, (long) (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar), maxPossibleLoan, 0) > 0){
 				/* Because the firm does not need accumulate loans if these are not to pay production, investment or debt repayments, the firm is looking
 				 for the level of loanDebt such that the payment equation will be equal to 0. Because payment > 0 when loanDebt = maxLoan, and payment 
 				 is monotonically increasing in loanDebt, this level of 'optimal' level of loan debt exists (mean value theorem).
 				 */
 				
 				// closed-form solution for this optimal level
-				this.loanForDebtRepayment = 1 / (1 - param2) * (param2 * debt[0] - (1 - MacroModel.tax_rate) * salesTemp - liquidAssetRemainingAfterProductionAndInvestment * (1 + MacroModel.returnOnFirmsDeposits)); 
+				this.loanForDebtRepayment = 1 / (1 - param2) * (param2 * debt[0] - (1 - context.getTax()) * salesTemp - liquidAssetRemainingAfterProductionAndInvestment * (1 + context.getrDepo())); 
 				this.creditDemand = loanForDebtRepayment; // because loanProd = 0 de facto from the preferences of c-firms for internal funds and liquidAssetPrime > 0
 				
-				log.debug("CFirm " + this.getKey().getId() + " had pos. cash and need to borrow loan debt = " + loanForDebtRepayment + " to meet the condition. "
-						+ "Payment should --> 0: " + balanceSheet.payment(desiredProductionStar, (long) (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar), loanForDebtRepayment, 0));
+				if(log.isDebugEnabled()) log.debug("CFirm " + this.getKey().getId() + " had pos. cash and need to borrow loan debt = " + loanForDebtRepayment + " to meet the condition. "
+						+ "Payment should --> 0: " + payment.value(desiredProductionStar, (long) (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar), loanForDebtRepayment, 0));
 				
 			} /* (c): only remains the case where the firm expect to not be able to pay its debt at the end of the period. Thus it has to adjust its investment, and 
 			 maybe production plans. These adjustments are undertaken in the APrioriAdjustments class */
@@ -916,7 +924,7 @@ public class CFirm extends Firm {
 				
 				// payment is monotically increasing in loanDebt. Hence, setting loanDebt = maxLoan minimizes the required amount of adjustment needed
 				this.loanForDebtRepayment = maxPossibleLoan;
-				APrioriAdjustments.adjustmentsWithPositiveLiquidAsset(this);
+				aPrioriAdjustments(Adjustment.APrioriPositiveLiquidAsset);
 				
 			}
 			
@@ -928,46 +936,46 @@ public class CFirm extends Firm {
 				// recall than loanProd + loanDebt = maxLoan, by definition of the borrowing capacity of c-firms. Hence, loanDebt = 0
 				this.loanForDebtRepayment = 0;
 				
-				if(balanceSheet.payment(desiredProductionStar, (long) (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar), 0, loanForProductionAndInvestment) > 0 ){
+				if(payment.value(desiredProductionStar, (long) (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar), 0, loanForProductionAndInvestment) > 0 ){
 					// yes the firm expect to be able to pay its debt at the end of the period: no adjustments are needed
 					
 					this.creditDemand = loanForProductionAndInvestment;
-					log.debug("CFirm " + this.getKey().getId() + " used all its loan to pay for prod & inv and expect to meet the payment condition");
+					if(log.isDebugEnabled()) log.debug("CFirm " + this.getKey().getId() + " used all its loan to pay for prod & inv and expect to meet the payment condition");
 					
 				} else {
 					// no it does not, and in this case it cannot increase loan debt as loan prod is already equal to the maximal possible loan (recall loanProd + loanDebt = maxLoan)
 					// therefore go straight into the adjustment process
 					
-					APrioriAdjustments.adjustmentsWithNilLiquidAsset(this);
+					aPrioriAdjustments(Adjustment.APrioriNilLiquidAsset);
 					
 				}
 			} /* (b): not all the loan is planned to be used for production & inv. expenditures. Thus, if needed, the firm can increase its credit demand to 
 			 meet the constraint (recall that the payment is monotonically increasing in loan debt) */
 			else {
 				// (i) does the firm expect to be able to repay its debt, not borrowing further? 
-				if(balanceSheet.payment(desiredProductionStar, (long) (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar), 0, loanForProductionAndInvestment) > 0 ){
+				if(payment.value(desiredProductionStar, (long) (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar), 0, loanForProductionAndInvestment) > 0 ){
 					// yes it does
 					
 					this.loanForDebtRepayment = 0;
 					this.creditDemand = loanForProductionAndInvestment; //NOTE: here, creditDemand < maxLoan
 					log.debug("Not all the loan was used for prod. & inv. purposes and the firm does not need to borrow further");
 				} // (ii) does the firm expect to be able to repay its debt, conditional on using all the remaining loan 
-				else if(balanceSheet.payment(desiredProductionStar, (long) (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar), maxPossibleLoan - loanForProductionAndInvestment, loanForProductionAndInvestment) > 0 ){
+				else if(payment.value(desiredProductionStar, (long) (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar), maxPossibleLoan - loanForProductionAndInvestment, loanForProductionAndInvestment) > 0 ){
 					/* yes it does. Once more, because payment is monotically increasing in payment, and because we know that at the maximal possible level for loanDebt (i.e. loanDebt = maxLoan - loanProd), 
 					 the payment condition is positive, then by the mean value theorem there exists a level of loanDebt such that the payment will equal 0 */
 					
 					// closed-form expression
-					this.loanForDebtRepayment = 1 / (1 - param2) * (param2 * (debt[0] + loanForProductionAndInvestment) - (1 - MacroModel.tax_rate) * salesTemp);
+					this.loanForDebtRepayment = 1 / (1 - param2) * (param2 * (debt[0] + loanForProductionAndInvestment) - (1 - context.getTax()) * salesTemp);
 					this.creditDemand = loanForDebtRepayment + loanForProductionAndInvestment;
-					log.debug("Not all the use was loan and there exists a closed-form solution for lDebt. lDebt = " + loanForDebtRepayment + " and payment should --> 0 " + 
-					balanceSheet.payment(desiredProductionStar, (long) (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar), loanForDebtRepayment, loanForProductionAndInvestment));
+					if(log.isDebugEnabled()) log.debug("Not all the use was loan and there exists a closed-form solution for lDebt. lDebt = " + loanForDebtRepayment + " and payment should --> 0 " + 
+					payment.value(desiredProductionStar, (long) (desiredInvestmentExpansionaryStar + desiredInvestmentSubstitionaryStar), loanForDebtRepayment, loanForProductionAndInvestment));
 					
 				} else {
 					/* (iii) final case: the firm does not expect to be able to repay its debt, even using the loan remaining for debt repayments. Hence need to adjust its production
 					and investment plans. Recall: payment is monotically increasing in loanDebt. Hence, setting loanDebt = maxLoan minimizes the required amount of adjustment needed */
 					
 					this.loanForDebtRepayment = maxPossibleLoan - loanForProductionAndInvestment;
-					APrioriAdjustments.adjustmentsWithNilLiquidAsset(this);
+					aPrioriAdjustments(Adjustment.APrioriNilLiquidAsset);
 					
 				}
 			}
@@ -979,6 +987,18 @@ public class CFirm extends Firm {
 		this.debt[1] = debt[0];
 	}
 	
+	/* The a priori adjustments of the firm are either undertaken right away, or, in the batch adjustments, loaded in the row of the firm to be 
+	 solved with the ones of the other firms (see MacroModel.aPrioriAdjustments()) */
+	void aPrioriAdjustments(Adjustment adjustment){
+		
+		if(model.batchAdjustments)
+			model.getAdjustmentInputs().load(registryIndex, this, adjustment);
+		else if(adjustment == Adjustment.APrioriPositiveLiquidAsset)
+			adjustmentScratch.aPriori.adjustmentsWithPositiveLiquidAsset(this);
+		else
+			adjustmentScratch.aPriori.adjustmentsWithNilLiquidAsset(this);
+	}
+	
 	// ---------------------------------------------------------------------
 	// Expenditures Update methods
 	// ---------------------------------------------------------------------
@@ -1019,7 +1039,7 @@ public class CFirm extends Firm {
 			if(model.debtManagement.equals(DebtManagement.Dosi_Et_Al)){
 				this.debt[1] 					= debt[0];
 				// BEFORE: 
-				// this.liquidAsset[1] -= c * q + supplier.getPPresent() * (invExp + invSub) / Parameters.getDimK();
+				// this.liquidAsset[1] -= c * q + supplier.getPPresent() * (invExp + invSub) / parameters.getDimK();
 				// Now: remains identical
 			} else {
 				this.liquidAsset[1] 			-= debt[0];
@@ -1035,7 +1055,7 @@ public class CFirm extends Firm {
 				
 				// No difference between Mason and our version
 				double costProduction		= costToProduceGood * productionQuantity;
-				double costInvestment		= supplier.getPriceOfGoodProducedNow() * (investmentExpansionary + investmentSubstitutionary) / Parameters.getMachineSizeInCapital_cFirms();
+				double costInvestment		= supplier.getPriceOfGoodProducedNow() * (investmentExpansionary + investmentSubstitutionary) / parameters.getMachineSizeInCapital_cFirms();
 				// External fund represents in the same time the component of the loan that is needed to fund 
 				// production and investments, and the debt variation. External fund can be positive (increase in the 
 				// stock of debt) or negative (reduction in the debt stock)
@@ -1056,7 +1076,7 @@ public class CFirm extends Firm {
 				
 				collector.creditRationingRate_cFirms += 1.;
 				
-				if(debt[0] + supplier.priceOfGoodProduced[1] * desiredInvestmentExpansionaryStar / Parameters.getMachineSizeInCapital_cFirms() + costToProduceGood * desiredProductionStar <= liquidAsset[1] + loan){
+				if(debt[0] + supplier.priceOfGoodProduced[1] * desiredInvestmentExpansionaryStar / parameters.getMachineSizeInCapital_cFirms() + costToProduceGood * desiredProductionStar <= liquidAsset[1] + loan){
 					
 					// Can achieve optimal production and expansionary investment
 					this.productionQuantity 							= desiredProductionStar;
@@ -1069,17 +1089,17 @@ public class CFirm extends Firm {
 						// The firm directly sets its substitutionary investments to 0
 						this.investmentSubstitutionary					= 0;	
 						
-						if(debt[0] + supplier.priceOfGoodProduced[1] * investmentExpansionary / Parameters.getMachineSizeInCapital_cFirms() + costToProduceGood * productionQuantity > liquidAsset[1]){
+						if(debt[0] + supplier.priceOfGoodProduced[1] * investmentExpansionary / parameters.getMachineSizeInCapital_cFirms() + costToProduceGood * productionQuantity > liquidAsset[1]){
 							// The firm still needs external resources. Note that this does not prevent the stock 
 							// of debt to decrease -- if externalFund < 0
-							this.externalFunding		= supplier.priceOfGoodProduced[1] * investmentExpansionary / Parameters.getMachineSizeInCapital_cFirms() + costToProduceGood * productionQuantity - liquidAsset[1];
+							this.externalFunding		= supplier.priceOfGoodProduced[1] * investmentExpansionary / parameters.getMachineSizeInCapital_cFirms() + costToProduceGood * productionQuantity - liquidAsset[1];
 							this.debt[1]			= debt[0] + externalFunding;
 							model.getBank().debt 	+= externalFunding;
 							
 							if(externalFunding < 0){
 								// There is partial debt repayment, using personal liquid asset. Part of the liquid asset are thus
 								// used here, and the remaining part is equal to the total expenditures 
-						 		this.liquidAsset[1]	= costToProduceGood * productionQuantity + supplier.priceOfGoodProduced[1] * investmentExpansionary / Parameters.getMachineSizeInCapital_cFirms();  
+						 		this.liquidAsset[1]	= costToProduceGood * productionQuantity + supplier.priceOfGoodProduced[1] * investmentExpansionary / parameters.getMachineSizeInCapital_cFirms();  
 						 		this.externalFunding	= 0;
 							}
 						
@@ -1096,11 +1116,11 @@ public class CFirm extends Firm {
 						// The firm considers intermediary level of substitutionary investments
 						
 						this.investmentSubstitutionary					= Math.floor( (loan + liquidAsset[1] - 
-														debt[0] - supplier.priceOfGoodProduced[1] * investmentExpansionary / Parameters.getMachineSizeInCapital_cFirms() - costToProduceGood * productionQuantity) / 
-														supplier.getPriceOfGoodProducedNow() ) * Parameters.getMachineSizeInCapital_cFirms();
+														debt[0] - supplier.priceOfGoodProduced[1] * investmentExpansionary / parameters.getMachineSizeInCapital_cFirms() - costToProduceGood * productionQuantity) / 
+														supplier.getPriceOfGoodProducedNow() ) * parameters.getMachineSizeInCapital_cFirms();
 
 						double costProduction 		= productionQuantity * costToProduceGood;
-						double costInvestment 		= ( investmentSubstitutionary + investmentExpansionary / Parameters.getMachineSizeInCapital_cFirms() ) * supplier.getPriceOfGoodProducedNow();
+						double costInvestment 		= ( investmentSubstitutionary + investmentExpansionary / parameters.getMachineSizeInCapital_cFirms() ) * supplier.getPriceOfGoodProducedNow();
 						this.externalFunding			= costProduction + costInvestment - liquidAsset[1];
 						this.debt[1]				= debt[0] + externalFunding;
 						model.getBank().totalCreditRemaining -= debt[1];
@@ -1153,10 +1173,10 @@ public class CFirm extends Firm {
 						
 						this.investmentExpansionary					= Math.floor( (loan + liquidAsset[1] - 
 														debt[0] - costToProduceGood * productionQuantity) / 
-														supplier.getPriceOfGoodProducedNow() ) * Parameters.getMachineSizeInCapital_cFirms();
+														supplier.getPriceOfGoodProducedNow() ) * parameters.getMachineSizeInCapital_cFirms();
 
 						double costProduction 		= productionQuantity * costToProduceGood;
-						double costInvestment 		= ( investmentExpansionary / Parameters.getMachineSizeInCapital_cFirms() ) * supplier.getPriceOfGoodProducedNow();
+						double costInvestment 		= ( investmentExpansionary / parameters.getMachineSizeInCapital_cFirms() ) * supplier.getPriceOfGoodProducedNow();
 						this.externalFunding			= costProduction + costInvestment - liquidAsset[1];
 						this.debt[1]				= debt[0] + externalFunding;
 						model.getBank().totalCreditRemaining -= debt[1];
@@ -1248,6 +1268,17 @@ public class CFirm extends Firm {
 		// Pseudo Rational / no line of credit 
 		// ---------------------------------------------------------------------		
 	
+	void expendituresUpdate(){
+		/* In accordance with the difference in APrioriAdjustments, once they know their loan, c-firms adjust differently depending on whether they (potentially) have access to a line of credit
+		 or whether they don't. In the latest case, they once more take into account their expected liquid asset at the end of the period as object function 
+		 
+	  	NOTE: this is because all expenditures funded through internal funds will reduce the firms' liquid assets, 	and therefore its end-of-the-period assets. Said differently, 
+	  	liquidAsset[1] records all the current expenditures funded internally (accounting convention, does not matter per se) */
+//		if(!model.myopicDebtRepayment)
+		if(model.debtRepayment.equals(DebtRepayment.Psuedo_Rational))
+			pseudoRationalExpendituresUpdate();
+	}
+	
 	 void pseudoRationalExpendituresUpdate(){
 		/* C-firms have received their loans, and therefore know exactly how much they have to spend on production and investment. If the credit demand was nil (1),
 		or if the loan is equal to credit demand (2), no further adjustments are needed and the desired quantities turn into actual quantities. When the firm has been
@@ -1260,7 +1291,10 @@ public class CFirm extends Firm {
 		 
 		 */
 		
-		log.debug("\t\tCFirm " + this.getKey().getId() + " received a credit of " + loan);
+		if(log.isDebugEnabled()) log.debug("\t\tCFirm " + this.getKey().getId() + " received a credit of " + loan);
+		
+		// payment of the period, taken before the a priori adjustments (its variables have not changed since)
+		PaymentFunction payment = balanceSheet.getPaymentFunction();
 		
 		// (1)
 		if(creditDemand == 0){
@@ -1291,7 +1325,7 @@ public class CFirm extends Firm {
 					// the only resources available are the firms' internal liquid assets. The firm checks whether its original plan are achievable, given that it has a nil loan
 					feasibilityNilLoan();
 					// and then check if, conditional on this achievable plans, it expects its stock of liquid asset at the end of the period to be sufficient to pay its debt service
-					if(balanceSheet.payment(optimalProduction, (long) (investmentExpansionaryStar + investmentSubstitionaryStar), 0, 0) >= 0){
+					if(payment.value(optimalProduction, (long) (investmentExpansionaryStar + investmentSubstitionaryStar), 0, 0) >= 0){
 						// Yes they do. Those plans become the actual production and investment of the firm
 						this.productionQuantity = optimalProduction;
 						this.investmentExpansionary = investmentExpansionaryStar;
@@ -1299,13 +1333,13 @@ public class CFirm extends Firm {
 						log.debug("Payment is expected to be positive, no need for further adjustment");
 					} else {
 						// As in the a priori case, the firm has to modify its production and investment expenditures until it expects to be able to pay its debt
-						APosterioriAdjustments.adjustmentWithNilLoan(this);
+						adjustmentScratch.aPosteriori.adjustmentWithNilLoan(this);
 					}
 				} else {
 					/* only one firm / period will be concerned by this case, where it has a positvie loan yet smaller than its credit demand. Besides that it has more resources 
 				 	than in the above case, the structure is identical */
 					feasibilityPositiveLoan();
-					if(balanceSheet.payment(optimalProduction, (long) (investmentExpansionaryStar + investmentSubstitionaryStar), loanForDebtRepayment, loanForProductionAndInvestment) >= 0){
+					if(payment.value(optimalProduction, (long) (investmentExpansionaryStar + investmentSubstitionaryStar), loanForDebtRepayment, loanForProductionAndInvestment) >= 0){
 						// TODO: note, if the firm has a right to refuse the loan that is offered to it, then should change a bit structure to see whether the firm 
 						// can make it without any loanDebt, or if there exists an interior solution.
 						this.productionQuantity = optimalProduction;
@@ -1313,7 +1347,7 @@ public class CFirm extends Firm {
 						this.investmentSubstitutionary = investmentSubstitionaryStar;
 						log.debug("Payment is expected to be positive, no need for further adjustment");
 					} else {
-						APosterioriAdjustments.adjustmentWithPositiveLoan(this);
+						adjustmentScratch.aPosteriori.adjustmentWithPositiveLoan(this);
 					}
 				}	
 			}
@@ -1334,8 +1368,8 @@ public class CFirm extends Firm {
 		this.investmentSubstitionaryStar = desiredInvestmentSubstitutionary;
 		
 		double costProduction = costToProduceGood * optimalProduction;
-		double costInvExp = supplier.priceOfGoodProduced[1] * investmentExpansionaryStar / Parameters.getMachineSizeInCapital_cFirms();
-		double costInvSub = supplier.priceOfGoodProduced[1] * investmentSubstitionaryStar / Parameters.getMachineSizeInCapital_cFirms();
+		double costInvExp = supplier.priceOfGoodProduced[1] * investmentExpansionaryStar / parameters.getMachineSizeInCapital_cFirms();
+		double costInvSub = supplier.priceOfGoodProduced[1] * investmentSubstitionaryStar / parameters.getMachineSizeInCapital_cFirms();
 		
 		this.liquidAssetRemainingAfterProductionAndInvestment = liquidAsset[0];
 		
@@ -1354,7 +1388,7 @@ public class CFirm extends Firm {
 		 if(costInvExp <= liquidAssetRemainingAfterProductionAndInvestment)
 			 this.liquidAssetRemainingAfterProductionAndInvestment -= costInvExp;
 		 else {
-			 this.investmentExpansionaryStar = Math.floor(liquidAssetRemainingAfterProductionAndInvestment / supplier.priceOfGoodProduced[1]) * Parameters.getMachineSizeInCapital_cFirms();
+			 this.investmentExpansionaryStar = Math.floor(liquidAssetRemainingAfterProductionAndInvestment / supplier.priceOfGoodProduced[1]) * parameters.getMachineSizeInCapital_cFirms();
 			 this.liquidAssetRemainingAfterProductionAndInvestment = 0;
 		 }
 		 
@@ -1362,11 +1396,11 @@ public class CFirm extends Firm {
 		 if(costInvSub <= liquidAssetRemainingAfterProductionAndInvestment)
 			 this.liquidAssetRemainingAfterProductionAndInvestment -= costInvSub;
 		 else {
-			 this.investmentSubstitionaryStar = Math.floor(liquidAssetRemainingAfterProductionAndInvestment / supplier.priceOfGoodProduced[1]) * Parameters.getMachineSizeInCapital_cFirms();
+			 this.investmentSubstitionaryStar = Math.floor(liquidAssetRemainingAfterProductionAndInvestment / supplier.priceOfGoodProduced[1]) * parameters.getMachineSizeInCapital_cFirms();
 			 this.liquidAssetRemainingAfterProductionAndInvestment = 0;
 		 }
 		 
-		 log.debug("With nil loan, can achieve the following prod. and inv. :" +
+		 if(log.isDebugEnabled()) log.debug("With nil loan, can achieve the following prod. and inv. :" +
 					"\n qStar " + optimalProduction +
 					"\n invExStar " + investmentExpansionaryStar +
 					"\n invSubStar " + investmentSubstitionaryStar +
@@ -1383,8 +1417,8 @@ public class CFirm extends Firm {
 		this.investmentSubstitionaryStar = desiredInvestmentSubstitutionary;
 		
 		double costProduction = costToProduceGood * optimalProduction;
-		double costInvExp = supplier.priceOfGoodProduced[1] * investmentExpansionaryStar / Parameters.getMachineSizeInCapital_cFirms();
-		double costInvSub = supplier.priceOfGoodProduced[1] * investmentSubstitionaryStar / Parameters.getMachineSizeInCapital_cFirms();
+		double costInvExp = supplier.priceOfGoodProduced[1] * investmentExpansionaryStar / parameters.getMachineSizeInCapital_cFirms();
+		double costInvSub = supplier.priceOfGoodProduced[1] * investmentSubstitionaryStar / parameters.getMachineSizeInCapital_cFirms();
 		
 		this.liquidAssetRemainingAfterProductionAndInvestment = liquidAsset[0];
 		double loanPrime = loan;
@@ -1411,7 +1445,7 @@ public class CFirm extends Firm {
 			 loanPrime -= costInvExp - liquidAssetRemainingAfterProductionAndInvestment;
 			 this.liquidAssetRemainingAfterProductionAndInvestment = 0;
 		 } else {
-			 this.investmentExpansionaryStar = Math.floor((liquidAssetRemainingAfterProductionAndInvestment + loanPrime) / supplier.priceOfGoodProduced[1]) * Parameters.getMachineSizeInCapital_cFirms();
+			 this.investmentExpansionaryStar = Math.floor((liquidAssetRemainingAfterProductionAndInvestment + loanPrime) / supplier.priceOfGoodProduced[1]) * parameters.getMachineSizeInCapital_cFirms();
 			 this.liquidAssetRemainingAfterProductionAndInvestment = 0;
 			 loanPrime = 0;
 		 }
@@ -1423,7 +1457,7 @@ public class CFirm extends Firm {
 			 loanPrime -= costInvSub - liquidAssetRemainingAfterProductionAndInvestment;
 			 this.liquidAssetRemainingAfterProductionAndInvestment = 0;
 		 } else {
-			 this.investmentSubstitionaryStar = Math.floor((liquidAssetRemainingAfterProductionAndInvestment + loanPrime) / supplier.priceOfGoodProduced[1]) * Parameters.getMachineSizeInCapital_cFirms();
+			 this.investmentSubstitionaryStar = Math.floor((liquidAssetRemainingAfterProductionAndInvestment + loanPrime) / supplier.priceOfGoodProduced[1]) * parameters.getMachineSizeInCapital_cFirms();
 			 this.liquidAssetRemainingAfterProductionAndInvestment = 0;
 			 loanPrime = 0;
 		 }
@@ -1431,7 +1465,7 @@ public class CFirm extends Firm {
 		 this.loanForProductionAndInvestment = loan - loanPrime;
 		 this.loanForDebtRepayment = loanPrime;
 		 
-		 log.debug("With positive loan, can achieve the following prod. and inv. :" +
+		 if(log.isDebugEnabled()) log.debug("With positive loan, can achieve the following prod. and inv. :" +
 					"\n qStar " + optimalProduction +
 					"\n invExStar " + investmentExpansionaryStar +
 					"\n invSubStar " + investmentSubstitionaryStar +
@@ -1451,11 +1485,18 @@ public class CFirm extends Firm {
 		this.investment = investmentExpansionary + investmentSubstitutionary;
 		
 		if(investment > 0){
-			long numberOfMachines 				= (long) (investment / Parameters.getMachineSizeInCapital_cFirms());
-			supplier.bookOrder.put(this, numberOfMachines);
+			long numberOfMachines 				= (long) (investment / parameters.getMachineSizeInCapital_cFirms());
+			supplier.bookOrder.add(this, numberOfMachines);
 		}
 	}
 	
+	void laborDemand(){
+		if(productivity > 0)
+			this.laborDemand 		= productionQuantity / productivity;
+		else
+			log.fatal("prod = O for CFirm " + this.getKey().getId() + " with prod " + productivity);
+	}
+	
 	public void laborRationing(double ratio){
 		// The firm is labor rationed. It reduces its labor demand, and its production accordingly 
 				
@@ -1475,59 +1516,60 @@ public class CFirm extends Firm {
 		 In both cases, a firm will decide to actually scrap a particular vintage if it has resources to replace it */
 		
 		// Number of machines that can be replaced
-		int numberOfReplacement 				= (int) (investmentSubstitutionary / Parameters.getMachineSizeInCapital_cFirms());
-		
-		// Rank the machines, from the most to the least costly. The first machine will be the one with the highest cost 
-		Map<Machine, Double> machineCost 		= new LinkedHashMap<>();
-		for(Machine machine : machinesToBeScrappedMap.keySet())
-			machineCost.put(machine, machine.getCost());
-		Map<Machine, Double> machineCostRanked 	= MapSorting.sortByValueDescending(machineCost);
+		int numberOfReplacement 				= (int) (investmentSubstitutionary / parameters.getMachineSizeInCapital_cFirms());
+		
+		// Rank the machines, from the most to the least costly. The first machine will be the one with the highest cost. 
+		// Ties are ranked in the order in which the machines were flagged: too-old machines first, then low productivity ones
+		int now 								= (int) context.getTime();
+		boolean tooOldMachines 					= vintages.getOldestAge(now) > parameters.getMaxAgeMachines_cFirms();
+		scrappingRanking.clear();
+		for(int v = 0; tooOldMachines && v < vintages.size(); v++)
+			if(vintages.isToBeScrapped(v) && vintages.getAge(v, now) > parameters.getMaxAgeMachines_cFirms())
+				scrappingRanking.add(vintages.getCost(v), v);
+		for(int v = 0; v < vintages.size(); v++)
+			if(vintages.isToBeScrapped(v) && (!tooOldMachines || vintages.getAge(v, now) <= parameters.getMaxAgeMachines_cFirms()))
+				scrappingRanking.add(vintages.getCost(v), v);
+		int[] machineCostRanked 				= scrappingRanking.sortDescending();
+		int numberOfVintagesRanked 				= scrappingRanking.size();
 		
 		// Remove first machines that are too old
-		for (Iterator<Map.Entry<Machine, Double>> iterator = machineCostRanked.entrySet().iterator(); iterator.hasNext();) {
-			if(numberOfReplacement > 0){
+		for(int rank = 0; tooOldMachines && rank < numberOfVintagesRanked && numberOfReplacement > 0; rank++){
+			
+			int vintage 						= scrappingRanking.getItem(machineCostRanked[rank]);
+		    if(vintages.getAge(vintage, now) > parameters.getMaxAgeMachines_cFirms()){
 				
-				Map.Entry<Machine, Double> entry = iterator.next();
-			    if(machineAgeMap.get(entry.getKey()) > Parameters.getMaxAgeMachines_cFirms()){
-					
-					Machine machine 			= entry.getKey();
-					// If a firm cannot afford the replacement, it keeps the machines in their capital stock
-					if(machineQuantityMap.get(machine) > numberOfReplacement){
-						machineQuantityMap.put(machine, machineQuantityMap.get(machine) - numberOfReplacement);
-						numberOfReplacement 	= 0;
-					} else {
-						numberOfReplacement 	-= machinesToBeScrappedMap.get(machine);
-						machineQuantityMap.remove(machine);
-						machineAgeMap.remove(machine);
-						iterator.remove();
-						machine.kill();
-					}	
-				}  
-			} else 
-				break;
-		}
-		
-		// Remove the machines that are not sufficiently productive
-		for(Iterator<Map.Entry<Machine, Double>> iterator = machineCostRanked.entrySet().iterator(); iterator.hasNext();){
-			if(numberOfReplacement > 0){
-				Map.Entry<Machine, Double> entry = iterator.next();
-				Machine machine 				= entry.getKey();
 				// If a firm cannot afford the replacement, it keeps the machines in their capital stock
-				if(machineQuantityMap.get(machine) > numberOfReplacement){
-					machineQuantityMap.put(machine, machineQuantityMap.get(machine) - numberOfReplacement);					
+				if(vintages.getQuantity(vintage) > numberOfReplacement){
+					vintages.setQuantity(vintage, vintages.getQuantity(vintage) - numberOfReplacement);
 					numberOfReplacement 		= 0;
 				} else {
-					numberOfReplacement 		-= machinesToBeScrappedMap.get(machine);
-					
-					machineQuantityMap.remove(machine);
-					machineAgeMap.remove(machine);
-					iterator.remove();					
-					machine.kill();
-				}
+					numberOfReplacement 		-= vintages.getQuantity(vintage);
+					vintages.setQuantity(vintage, 0);
+				}	
+			}  
+		}
+		
+		// Remove the machines that are not sufficiently productive
+		for(int rank = 0; rank < numberOfVintagesRanked && numberOfReplacement > 0; rank++){
+			
+			int vintage 						= scrappingRanking.getItem(machineCostRanked[rank]);
+			// Skip the vintages that have already been entirely scrapped
+			if(vintages.getQuantity(vintage) == 0)
+				continue;
+			
+			// If a firm cannot afford the replacement, it keeps the machines in their capital stock
+			if(vintages.getQuantity(vintage) > numberOfReplacement){
+				vintages.setQuantity(vintage, vintages.getQuantity(vintage) - numberOfReplacement);					
+				numberOfReplacement 			= 0;
 			} else {
-				break;
+				numberOfReplacement 			-= vintages.getQuantity(vintage);
+				vintages.setQuantity(vintage, 0);
 			}
 		}
+		
+		// The vintages that were entirely scrapped leave the machine set (removed at the end, such that the rows ranked above remain valid)
+		vintages.removeEmptyVintages();		// clear the flags of the machines to be scrapped 	
+		vintages.clearScrapFlags();
 	}
 	
 	void machinePayment(){
@@ -1535,7 +1577,7 @@ public class CFirm extends Firm {
 		
 		if(investment > 0){
 			
-			double costInvestment				= investment * supplier.priceOfGoodProduced[1] / Parameters.getMachineSizeInCapital_cFirms();
+			double costInvestment				= investment * supplier.priceOfGoodProduced[1] / parameters.getMachineSizeInCapital_cFirms();
 			
 //			if(model.myopicDebtRepayment){
 			if(model.debtRepayment.equals(DebtRepayment.Myopic)){
@@ -1592,7 +1634,7 @@ public class CFirm extends Firm {
 			// If remains some external fund, gives it back to the bank
 			if(externalFunding > 0){
 				this.debt[1]					-= externalFunding;
-				model.getBank().debt			-= externalFunding;
+				ledger.add(Ledger.Total.BankDebt, - externalFunding);
 				this.externalFunding				= 0;
 			}
 		} else {
@@ -1655,22 +1697,22 @@ public class CFirm extends Firm {
 		this.size 								= Math.min(productionQuantity + inventories[0], demand[1]);
 		this.grossOperatingSurplus 				= sales[1] - costToProduceGood * productionQuantity;
 		
-		double debtInterest 					= debt[1] * MacroModel.interestRateOnDebt;
-		model.getBank().debtInterest			+= debtInterest;
-		double depositRevenue 					= liquidAsset[0] * MacroModel.returnOnFirmsDeposits;
-		model.getBank().depositRevenues			+= depositRevenue;
+		double debtInterest 					= debt[1] * context.getrDebt();
+		ledger.add(Ledger.Total.BankDebtInterest, debtInterest);
+		double depositRevenue 					= liquidAsset[0] * context.getrDepo();
+		ledger.add(Ledger.Total.BankDepositRevenues, depositRevenue);
 		
 		this.profit 							= grossOperatingSurplus + depositRevenue - debtInterest;
 		this.inventories[1] 					= Math.max(0, stockFinalGood);
 		double diffN 							= inventories[1] - inventories[0];
-		collector.diffTotalInventories_cFirms	+= diffN;
+		ledger.add(Ledger.Total.DiffTotalInventories_cFirms, diffN);
 		
-		double debtRepaid 						= Parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1];
+		double debtRepaid 						= parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1];
 		
 //		if(model.myopicDebtRepayment){
 		if(model.debtRepayment.equals(DebtRepayment.Myopic)){
 			if(profit > 0){
-				collector.govRevenues 			+= profit * model.taxRate;
+				ledger.add(Ledger.Total.GovRevenues, profit * model.taxRate);
 				this.liquidAsset[1]				+= (1 - model.taxRate ) * profit + productionQuantity;
 			} else {
 				this.liquidAsset[1]				+= profit + productionQuantity;
@@ -1678,14 +1720,14 @@ public class CFirm extends Firm {
 			
 			if(debt[1] > 0 && !exit){
 				if(liquidAsset[1] > debtRepaid){
-					model.getBank().debt		-= debtRepaid;
+					ledger.add(Ledger.Total.BankDebt, - debtRepaid);
 					this.liquidAsset[1]			-= debtRepaid;
 					this.debt[1]				-= debtRepaid;
 				} else {
 					this.debt[1]				-= liquidAsset[1];
-					model.getBank().debt		-= liquidAsset[1];
+					ledger.add(Ledger.Total.BankDebt, - liquidAsset[1]);
 					this.badDebt				= debt[1];
-					model.getBank().badDebt		+= badDebt;
+					ledger.add(Ledger.Total.BankBadDebt, badDebt);
 					this.liquidAsset[1]			= 0;
 					this.exit					= true;
 				}
@@ -1702,8 +1744,8 @@ public class CFirm extends Firm {
 	void assetPseudoRational(){
 		
 		// Update the amount of liquid asset. 1st version (on which the closed-form expressions are based) 
-		double debtInterest = debt[1] * MacroModel.interestRateOnDebt;
-		double depositRevenue = liquidAsset[0] * MacroModel.returnOnFirmsDeposits;
+		double debtInterest = debt[1] * context.getrDebt();
+		double depositRevenue = liquidAsset[0] * context.getrDepo();
 		this.liquidAsset[1] += (1 - model.taxRate) * (sales[1] + depositRevenue - debtInterest);
 		/* Note that in this version, the total cost of production is not taken into account in the tax, while it is in the
 		accounting method() --> not consistent. The reason is that we already decreased it from liquidAsset[1], when c-firms 
@@ -1716,35 +1758,35 @@ public class CFirm extends Firm {
 		if(loanForProductionAndInvestment > 0)
 			this.loanForDebtRepayment += loanForProductionAndInvestment;
 		
-		log.debug("Before debt repayment, we have " + 
+		if(log.isDebugEnabled()) log.debug("Before debt repayment, we have " + 
 				"\n liquid asset " + liquidAsset[1] + 
 				"\n loan debt " + loanForDebtRepayment + 
 				"\n debt " + debt[1]);
 		
 		// Then c-firms repay their debt, if any. Note that they can use their remaining loan debt to do so
-		if(liquidAsset[1] >= - Parameters.getErrorThreshold()){
+		if(liquidAsset[1] >= - parameters.getErrorThreshold()){
 			if(loanForDebtRepayment > 0){
-				if(loanForDebtRepayment >= Parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1]){
+				if(loanForDebtRepayment >= parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1]){
 					// using only the remaining laon is sufficient for the firm to pay their due debt
-					this.debt[1] -= Parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1];
-					this.loanForDebtRepayment -= Parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1];
-					model.getBank().debt -= Parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1];
-				} else if(loanForDebtRepayment + liquidAsset[1] >= Parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1]){
+					this.debt[1] -= parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1];
+					this.loanForDebtRepayment -= parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1];
+					ledger.add(Ledger.Total.BankDebt, - parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1]);
+				} else if(loanForDebtRepayment + liquidAsset[1] >= parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1]){
 					// using both the remaining loan and the firm's stock of liquid asset is sufficient for it to pay back its debt
-					this.debt[1] -= Parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1];
-					this.liquidAsset[1] -= Parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1] - loanForDebtRepayment;
+					this.debt[1] -= parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1];
+					this.liquidAsset[1] -= parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1] - loanForDebtRepayment;
 					this.loanForDebtRepayment = 0;
-					model.getBank().debt -= Parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1];
+					ledger.add(Ledger.Total.BankDebt, - parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1]);
 				} else {
 					// the firm cannot pay back its debt --> has to exit the market, and do so with positive debt					
 					this.exit = true;
 				}	
 			} else {
-				if(liquidAsset[1] >= Parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1]){
+				if(liquidAsset[1] >= parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1]){
 					// using the firm's stock of liquid asset is sufficient for it to pay back its debt 
-					this.debt[1] -= Parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1];
-					this.liquidAsset[1] -= Parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1];
-					model.getBank().debt -= Parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1];
+					this.debt[1] -= parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1];
+					this.liquidAsset[1] -= parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1];
+					ledger.add(Ledger.Total.BankDebt, - parameters.getDebtRepaymentSharePerPeriod_cFirms() * debt[1]);
 				} else {
 					// the firm cannot pay back its debt --> has to exit the market, and do so with positive debt
 					this.exit = true;
@@ -1754,7 +1796,7 @@ public class CFirm extends Firm {
 			this.exit = true;
 		}	
 	
-		log.debug("After debt repayment, we have " + 
+		if(log.isDebugEnabled()) log.debug("After debt repayment, we have " + 
 				"\n liquid asset " + liquidAsset[1] + 
 				"\n loan debt " + loanForDebtRepayment + 
 				"\n debt " + debt[1] + 
@@ -1768,13 +1810,13 @@ public class CFirm extends Firm {
 		// Assumption: if c-firms have some loans left at the end of the period, they are authorized to give them back to the bank 
 		if(loanForDebtRepayment > 0 && !exit){
 			this.debt[1] -= loanForDebtRepayment;
-			model.getBank().debt -=loanForDebtRepayment;
+			ledger.add(Ledger.Total.BankDebt, - loanForDebtRepayment);
 			this.loanForDebtRepayment = 0;
 		}	
 	}
 	
 	void debtExit(){
-		log.debug("Debt exit procedure with positive debt. Information: " + 
+		if(log.isDebugEnabled()) log.debug("Debt exit procedure with positive debt. Information: " + 
 					"\n loanDebt " + loanForDebtRepayment + 
 					"\n debt " + debt[1] + 
 					"\n assets " + liquidAsset[1] + 
@@ -1783,7 +1825,7 @@ public class CFirm extends Firm {
 		// C-firms try to reduce their debt through all the possible mean: (a) the remaining loan, (b) stock of liquid asset 
 		if(loanForDebtRepayment > 0){
 			this.debt[1] -= loanForDebtRepayment;
-			model.getBank().debt -= loanForDebtRepayment;
+			ledger.add(Ledger.Total.BankDebt, - loanForDebtRepayment);
 			this.loanForDebtRepayment = 0;
 		}
 		
@@ -1791,19 +1833,19 @@ public class CFirm extends Firm {
 			if(liquidAsset[1] > debt[1]){
 				// This can for instance be the case for c-firms that exit due to too-low market share. They could be potentially able to repay they entire debt
 				this.liquidAsset[1] -= debt[1];
-				model.getBank().debt -= debt[1];
+				ledger.add(Ledger.Total.BankDebt, - debt[1]);
 				this.debt[1] = 0;
 			} else {
 				this.debt[1] -= liquidAsset[1];
-				model.getBank().debt -= liquidAsset[1];
+				ledger.add(Ledger.Total.BankDebt, - liquidAsset[1]);
 				this.liquidAsset[1] = 0;
 			}
 		}
 		
-		log.debug("After using all the resources, its (bad) debt becomes " + debt[1]); 
+		if(log.isDebugEnabled()) log.debug("After using all the resources, its (bad) debt becomes " + debt[1]); 
 		
 		if(debt[1] > 0){
-			model.getBank().badDebt += debt[1];
+			ledger.add(Ledger.Total.BankBadDebt, debt[1]);
 		} 
 	}
 		
@@ -1819,36 +1861,32 @@ public class CFirm extends Firm {
 		this.balanceSheet = balanceSheet;
 	}
 
-	public Set<KFirm> getPotentialKfirmsSet() {
-		return potentialKfirmsSet;
-	}
-
-	public void setPotentialKfirmsSet(Set<KFirm> potentialKfirmsSet) {
-		this.potentialKfirmsSet = potentialKfirmsSet;
-	}
-
-	public Map<Machine, Integer> getMachineAgeMap() {
-		return machineAgeMap;
+	public IntList getPotentialSuppliers() {
+		return potentialSuppliers;
 	}
 
-	public void setMachineAgeMap(Map<Machine, Integer> machineAgeMap) {
-		this.machineAgeMap = machineAgeMap;
+	public void setPotentialSuppliers(IntList potentialSuppliers) {
+		this.potentialSuppliers = potentialSuppliers;
 	}
 
-	public Map<Machine, Integer> getMachineQuantityMap() {
-		return machineQuantityMap;
+	public VintageTable getVintages() {
+		return vintages;
 	}
 
-	public void setMachineQuantityMap(Map<Machine, Integer> machineQuantityMap) {
-		this.machineQuantityMap = machineQuantityMap;
+	public void setVintages(VintageTable vintages) {
+		this.vintages = vintages;
 	}
 
 	public KFirm getSupplier() {
 		return supplier;
 	}
 
+	// The supplier is changed through the SupplierNetwork, which keeps the clients of the k-firms consistent
 	public void setSupplier(KFirm supplier) {
-		this.supplier = supplier;
+		if(supplier == null)
+			SupplierNetwork.unlink(this);
+		else
+			SupplierNetwork.move(this, supplier);
 	}
 
 	public double[] getMarkUpRate() {
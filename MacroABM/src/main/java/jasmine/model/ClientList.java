@@ -0,0 +1,79 @@
+package jasmine.model;
+
+import java.util.Arrays;
+
+/* Clients of a capital-good firm, i.e. the consumption-good firms whose supplier it is. As in the FirmRegistry, the clients are stored
+ in an array, and each client knows its (dense) slot in the array of its supplier (CFirm.clientSlot): adding or removing a client is O(1),
+ the last client taking the slot of the removed one. The order of the clients is thus not the order in which they chose the supplier.
+
+ The list is only modified through the SupplierNetwork, which keeps it consistent with CFirm.supplier.
+ */
+public class ClientList {
+
+	private CFirm[] clients;
+
+	private int size;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	ClientList(){
+
+		this.clients 							= new CFirm[8];
+		this.size 								= 0;
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	void add(CFirm client){
+
+		if(size == clients.length)
+			this.clients 						= Arrays.copyOf(clients, 2 * clients.length);
+		client.clientSlot 						= size;
+		this.clients[size++] 					= client;
+	}
+
+	// Swap-remove of the client: the last client takes its slot
+	void remove(CFirm client){
+
+		int slot 								= client.clientSlot;
+		if(slot < 0 || slot >= size || clients[slot] != client)
+			throw new IllegalArgumentException("The c-firm is not a client of this k-firm");
+
+		int last 								= --size;
+		if(slot != last){
+			this.clients[slot] 					= clients[last];
+			this.clients[slot].clientSlot 		= slot;
+		}
+		this.clients[last] 						= null;
+		client.clientSlot 						= -1;
+	}
+
+	void clear(){
+
+		for(int i = 0; i < size; i++){
+			this.clients[i].clientSlot 			= -1;
+			this.clients[i] 					= null;
+		}
+		this.size 								= 0;
+	}
+
+	public CFirm get(int i) {
+		if(i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+		return clients[i];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+}
@@ -0,0 +1,228 @@
+package jasmine.model;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+import microsim.event.Event;
+
+/* Stage of the schedule whose processes run at the same time, one task per process on the common ForkJoinPool (see
+ ScheduleCompiler.addFirmsEventBeside()). The call returns once all the tasks are done: the stage is a barrier for the rest of the schedule.
+
+ The processes of a stage apply to different lists of firms, and do not depend on each other through the state shared between the firms
+ (see FirmProcess), apart from the totals of the ledger. Each task runs its firms by the chunks of the FirmChunkExecutor, one after the
+ other, each chunk writing into its own ledger, as the firms of the process do in the sequential schedule. Once all the tasks are done, the
+ ledgers are merged into the ledger of the model task after task in the order of the schedule, and chunk after chunk within a task: the
+ sums of the totals are grouped and ordered as in the sequential schedule, so that the results are the ones of the sequential schedule,
+ bit for bit, whatever the scheduling of the threads. At most one task of a stage applies to the c-firms, the only ones that use the
+ scratch objects of the run (see AdjustmentScratch).
+
+ In the validation mode, the tasks run one after the other, as in the sequential schedule (the ledgers of a task are merged right after
+ it), and each one checks that it has not written, without declaring it, the state that the tasks of the stage could share: the variables
+ of the firms of the other tasks, and the ones of the model, the bank and the collector (where the direct ledger writes the totals). The
+ check compares a fingerprint of these variables before and after the task. It covers the fields of primitive types and the arrays of
+ primitives of these objects, not the objects they refer to. The run in validation mode is thus the sequential run, which the concurrent
+ run must reproduce (see ScheduleModesTest).
+ */
+class ConcurrentStage {
+
+	private final MacroModel model;
+
+	private final FirmChunkExecutor executor;
+
+	private final boolean validation;
+
+	private final List<Task<?>> tasks;
+
+	// Fields covered by the fingerprints, per class (validation mode only)
+	private final Map<Class<?>, List<Field>> fingerprintFields;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	ConcurrentStage(MacroModel model, boolean validation){
+
+		this.model 								= model;
+		this.executor 							= model.getFirmChunkExecutor();
+		this.validation 						= validation;
+		this.tasks 								= new ArrayList<>();
+		this.fingerprintFields 					= new HashMap<>();
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	// Task applying the action to every firm of the list, in order. The name identifies the task in the errors of the validation
+	<F extends Firm> void add(String name, List<F> firms, Consumer<? super F> action){
+		tasks.add(new Task<F>(name, executor, firms, action));
+	}
+
+	Event event(){
+
+		return new Event(){
+			@Override
+			public void fireEvent() {
+				run();
+			}
+		};
+	}
+
+	void run(){
+
+		if(validation){
+			for(Task<?> task : tasks){
+				runValidated(task);
+				executor.mergeLedgers(task.ledgers, task.numberOfChunks);
+			}
+			return;
+		}
+
+		FirmChunkExecutor.invokeAll(new ArrayList<Callable<Void>>(tasks));
+		// Deterministic reduction: the ledgers of the tasks are merged in the order of the schedule, the ones of their chunks in order
+		for(Task<?> task : tasks)
+			executor.mergeLedgers(task.ledgers, task.numberOfChunks);
+	}
+
+	private void runValidated(Task<?> task){
+
+		long[] before 							= sharedFingerprints(task);
+		task.call();
+		long[] after 							= sharedFingerprints(task);
+
+		for(int i = 0; i < before.length; i++){
+			if(before[i] != after[i])
+				throw new IllegalStateException("The process " + task.name + " wrote the variables of " + sharedStateName(task, i) +
+						" while running concurrently with the other processes of its stage, without declaring it (see FirmProcess)");
+		}
+	}
+
+	// Fingerprints of the state the task must not write: the firms of each of the other tasks, then the model, the bank and the collector
+	private long[] sharedFingerprints(Task<?> task){
+
+		long[] fingerprints 					= new long[tasks.size() + 2];
+		int i 									= 0;
+		for(Task<?> other : tasks){
+			if(other == task)
+				continue;
+			long fingerprint 					= 17;
+			for(Firm firm : other.firms)
+				fingerprint 					= 31 * fingerprint + fingerprint(firm);
+			fingerprints[i++] 					= fingerprint;
+		}
+		fingerprints[i++] 						= fingerprint(model);
+		fingerprints[i++] 						= fingerprint(model.getBank());
+		fingerprints[i] 						= fingerprint(model.getCollector());
+		return fingerprints;
+	}
+
+	private String sharedStateName(Task<?> task, int index){
+
+		int i 									= 0;
+		for(Task<?> other : tasks){
+			if(other == task)
+				continue;
+			if(i++ == index)
+				return "the firms of " + other.name;
+		}
+		switch(index - i){
+		case 0:
+			return "the model";
+		case 1:
+			return "the bank";
+		default:
+			return "the collector";
+		}
+	}
+
+	private long fingerprint(Object object){
+
+		long fingerprint 						= 17;
+		try {
+			for(Field field : fingerprintFields(object.getClass()))
+				fingerprint 					= 31 * fingerprint + hash(field.get(object));
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Cannot read the variables of " + object.getClass().getSimpleName(), e);
+		}
+		return fingerprint;
+	}
+
+	// Fields of primitive types and arrays of primitives of the class and its super-classes, not static
+	private List<Field> fingerprintFields(Class<?> type){
+
+		List<Field> fields 						= fingerprintFields.get(type);
+		if(fields == null){
+			fields 								= new ArrayList<>();
+			for(Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()){
+				for(Field field : c.getDeclaredFields()){
+					Class<?> fieldType 			= field.getType();
+					boolean primitive 			= fieldType.isPrimitive() || (fieldType.isArray() && fieldType.getComponentType().isPrimitive());
+					if(primitive && !Modifier.isStatic(field.getModifiers())){
+						field.setAccessible(true);
+						fields.add(field);
+					}
+				}
+			}
+			fingerprintFields.put(type, fields);
+		}
+		return fields;
+	}
+
+	private static int hash(Object value){
+
+		if(value instanceof double[])
+			return Arrays.hashCode((double[]) value);
+		if(value instanceof int[])
+			return Arrays.hashCode((int[]) value);
+		if(value instanceof long[])
+			return Arrays.hashCode((long[]) value);
+		if(value instanceof boolean[])
+			return Arrays.hashCode((boolean[]) value);
+		if(value instanceof float[])
+			return Arrays.hashCode((float[]) value);
+		if(value instanceof short[])
+			return Arrays.hashCode((short[]) value);
+		if(value instanceof byte[])
+			return Arrays.hashCode((byte[]) value);
+		if(value instanceof char[])
+			return Arrays.hashCode((char[]) value);
+		return Objects.hashCode(value);
+	}
+
+	// Action applied to the firms of a list by chunks, each chunk writing its totals into its own ledger
+	private static class Task<F extends Firm> implements Callable<Void> {
+
+		final String name;
+		final FirmChunkExecutor executor;
+		final List<F> firms;
+		final Consumer<? super F> action;
+		// Ledgers of the chunks, re-used from one period to the next
+		final List<Ledger> ledgers;
+		// Number of chunks of the last call, whose ledgers are left to be merged
+		int numberOfChunks;
+
+		Task(String name, FirmChunkExecutor executor, List<F> firms, Consumer<? super F> action){
+			this.name 							= name;
+			this.executor 						= executor;
+			this.firms 							= firms;
+			this.action 						= action;
+			this.ledgers 						= new ArrayList<>();
+		}
+
+		@Override
+		public Void call(){
+			this.numberOfChunks 				= executor.applyByChunks(firms, action, ledgers, false);
+			return null;
+		}
+	}
+
+}
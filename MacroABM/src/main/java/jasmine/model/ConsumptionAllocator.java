@@ -0,0 +1,203 @@
+package jasmine.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+import jasmine.algorithms.Ranking;
+
+import org.apache.log4j.Logger;
+
+/* One-pass allocation of the real consumption among the consumption-good firms.
+
+ The reference allocation (MacroModel.consumptionAllocationRounds()) proceeds in rounds. In each round, every firm that still has goods
+ receives its share of the consumption left; firms that cannot meet their demand sell their whole stock and leave the process, and the
+ market shares of the remaining firms are normalized. Rounds stop when no firm is left or the consumption left is lower than 1.
+
+ In round r, a firm with (initial) market share s receives s x L(r), where L(1) is the consumption and L(r) = consumption left / sum of
+ the market shares of the remaining firms for r > 1. A firm thus runs out of goods in the first round in which its stock-to-share ratio
+ is lower than the sum of the L up to that round ("water level"). Ranking the firms by their stock-to-share ratio, each round only
+ needs to look at the firms that run out of goods in that round, and the sum of the market shares of the remaining firms is a suffix sum
+ of the ranking. The allocation thus costs a sort and one pass over the firms, whatever the number of rounds.
+
+ The allocator reproduces the rounds of the reference allocation, including the stop rule, the demand recorded in the first round,
+ the unfilled demand and the market shares left at the end of the allocation. A firm whose stock exactly meets its demand stays in the
+ allocation until the next round, as in the reference. Results are equal to the reference ones in exact arithmetic; floating-point
+ results may differ in the last bits, as the sums are not made in the same order (see ConsumptionAllocationMode.Validation and
+ ConsumptionAllocatorTest). This is also the case of the rounds themselves, when the stock of a firm is within rounding of its demand or
+ the consumption left is within rounding of 1: the reference allocation thus remains the default one.
+ */
+class ConsumptionAllocator {
+
+	private final static Logger log = Logger.getLogger(ConsumptionAllocator.class);
+
+	// Relative tolerance of the validation
+	private final static double TOLERANCE 		= 1e-9;
+
+	// Firms with a positive market share, ranked by stock-to-share ratio
+	private final Ranking ranking;
+
+	// Sum of the market shares of the firms from a rank to the last one
+	private double[] suffixShares;
+
+	// Results of the allocation, by index of the firm in the list
+	private double[] demand;
+
+	private double[] unfilledDemand;
+
+	private double[] stockFinalGood;
+
+	private double[] marketShareTemp;
+
+	// Consumption left at the end of the allocation
+	private double realConsumption;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	ConsumptionAllocator(int numberOfFirms){
+
+		int capacity 							= Math.max(numberOfFirms, 1);
+		this.ranking 							= new Ranking(capacity);
+		this.suffixShares 						= new double[capacity + 1];
+		this.demand 							= new double[capacity];
+		this.unfilledDemand 					= new double[capacity];
+		this.stockFinalGood 					= new double[capacity];
+		this.marketShareTemp 					= new double[capacity];
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	// Computes the allocation of the consumption among the firms, without modifying the firms. Returns the consumption left
+	double allocate(List<CFirm> cFirms, double consumption){
+
+		int numberOfFirms 						= cFirms.size();
+		if(demand.length < numberOfFirms){
+			this.suffixShares 					= new double[numberOfFirms + 1];
+			this.demand 						= Arrays.copyOf(demand, numberOfFirms);
+			this.unfilledDemand 				= Arrays.copyOf(unfilledDemand, numberOfFirms);
+			this.stockFinalGood 				= Arrays.copyOf(stockFinalGood, numberOfFirms);
+			this.marketShareTemp 				= Arrays.copyOf(marketShareTemp, numberOfFirms);
+		}
+
+		// Firms keep their variables unless they take part in the allocation. Only firms with a positive market share do
+		ranking.clear();
+		for(int j = 0; j < numberOfFirms; j++){
+			CFirm cFirm 						= cFirms.get(j);
+			this.demand[j] 						= cFirm.demand[1];
+			this.unfilledDemand[j] 				= cFirm.unfilledDemand;
+			this.stockFinalGood[j] 				= cFirm.stockFinalGood;
+			this.marketShareTemp[j] 			= cFirm.marketShareTemp;
+			if(cFirm.marketShareTemp > 0)
+				ranking.add(cFirm.stockFinalGood / cFirm.marketShareTemp, j);
+		}
+		int numberRanked 						= ranking.size();
+		int[] ranked 							= ranking.sortAscending();
+		this.suffixShares[numberRanked] 		= 0;
+		for(int rank = numberRanked - 1; rank >= 0; rank--)
+			this.suffixShares[rank] 			= suffixShares[rank + 1] + marketShareTemp[ranking.getItem(ranked[rank])];
+
+		// Rounds of the allocation. Firms ranked before outOfStock have run out of goods
+		double level 							= 0;
+		double firstRoundLevel 					= consumption;
+		int outOfStock 							= 0;
+		int outOfStockFirstRound 				= 0;
+		int round 								= 1;
+		while(suffixShares[outOfStock] > 0 && consumption >= 1){
+
+			// Consumption received per unit of (initial) market share in this round
+			double roundLevel 					= round == 1 ? consumption : consumption / suffixShares[outOfStock];
+
+			// Firms that cannot meet their demand sell their remaining stock
+			double soldOut 						= 0;
+			while(outOfStock < numberRanked && ranking.getKey(ranked[outOfStock]) - level < roundLevel){
+				int j 							= ranking.getItem(ranked[outOfStock]);
+				soldOut 						+= stockFinalGood[j] - marketShareTemp[j] * level;
+				outOfStock++;
+			}
+			// The other firms meet their demand
+			consumption 						-= suffixShares[outOfStock] * roundLevel + soldOut;
+
+			level 								+= roundLevel;
+			if(round == 1)
+				outOfStockFirstRound 			= outOfStock;
+			round++;
+		}
+		this.realConsumption 					= consumption;
+
+		// Results of the firms, if the allocation took place
+		if(round > 1){
+			double remainingShares 				= suffixShares[outOfStock];
+			for(int rank = 0; rank < numberRanked; rank++){
+				int j 							= ranking.getItem(ranked[rank]);
+				double share 					= marketShareTemp[j];
+				if(rank < outOfStock){
+					if(rank < outOfStockFirstRound){
+						// The demand of the first round could not be met
+						this.demand[j] 			= firstRoundLevel * share;
+						this.unfilledDemand[j] 	= demand[j] - stockFinalGood[j];
+					} else {
+						// The firm met the demand of the first round, and has sold its whole stock afterwards
+						this.demand[j] 			= stockFinalGood[j];
+						this.unfilledDemand[j] 	= 0;
+					}
+					this.stockFinalGood[j] 		= 0;
+					this.marketShareTemp[j] 	= 0;
+				} else {
+					this.demand[j] 				= share * level;
+					this.unfilledDemand[j] 		= 0;
+					this.stockFinalGood[j] 		-= share * level;
+					if(remainingShares > 0)
+						this.marketShareTemp[j] = share / remainingShares;
+				}
+			}
+		}
+
+		return realConsumption;
+	}
+
+	// Writes the results of the last allocation into the firms
+	void apply(List<CFirm> cFirms){
+
+		for(int j = 0; j < cFirms.size(); j++){
+			CFirm cFirm 						= cFirms.get(j);
+			cFirm.demand[1] 					= demand[j];
+			cFirm.unfilledDemand 				= unfilledDemand[j];
+			cFirm.stockFinalGood 				= stockFinalGood[j];
+			cFirm.marketShareTemp 				= marketShareTemp[j];
+		}
+	}
+
+	/* Compares the results of the last allocation with the variables of the firms, once the reference allocation has been run, and
+	 logs the differences. Returns the number of firms whose results differ */
+	int validate(List<CFirm> cFirms, double referenceRealConsumption){
+
+		int differences 						= 0;
+		for(int j = 0; j < cFirms.size(); j++){
+			CFirm cFirm 						= cFirms.get(j);
+			if(!close(demand[j], cFirm.demand[1]) || !close(unfilledDemand[j], cFirm.unfilledDemand) ||
+					!close(stockFinalGood[j], cFirm.stockFinalGood) || !close(marketShareTemp[j], cFirm.marketShareTemp)){
+				differences++;
+				log.warn("Consumption allocation of c-firm " + cFirm.getKey().getId() + " differs from the reference: " +
+						"\n demand " + demand[j] + " vs. " + cFirm.demand[1] +
+						"\n unfilled demand " + unfilledDemand[j] + " vs. " + cFirm.unfilledDemand +
+						"\n stock " + stockFinalGood[j] + " vs. " + cFirm.stockFinalGood +
+						"\n market share " + marketShareTemp[j] + " vs. " + cFirm.marketShareTemp);
+			}
+		}
+		if(!close(realConsumption, referenceRealConsumption)){
+			differences++;
+			log.warn("Consumption left after the allocation differs from the reference: " + realConsumption + " vs. " + referenceRealConsumption);
+		}
+		return differences;
+	}
+
+	// Values are close if their difference is within the tolerance, relative to the largest of the two values (absolute below 1)
+	private static boolean close(double a, double b){
+		return Math.abs(a - b) <= TOLERANCE * Math.max(1., Math.max(Math.abs(a), Math.abs(b)));
+	}
+
+}
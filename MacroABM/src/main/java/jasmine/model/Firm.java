@@ -3,6 +3,10 @@ package jasmine.model;
 import javax.persistence.MappedSuperclass;
 import javax.persistence.Transient;
 
+import org.apache.commons.math3.random.RandomGenerator;
+
+import jasmine.algorithms.RandomStreams;
+
 @MappedSuperclass
 public abstract class Firm extends Agent {
 
@@ -39,6 +43,22 @@ public abstract class Firm extends Agent {
 
 	protected boolean newEntrant; //newEntrant = true when firm enters the economy for the first time
 
+	// ledger through which the firm writes the totals shared with other agents (bank's balance sheet, government revenues, counters). See Ledger
+	@Transient
+	Ledger ledger;
+
+	// scratch objects of the financial adjustments, swapped with the ledger by the chunks of the parallel processes. See AdjustmentScratch
+	@Transient
+	AdjustmentScratch adjustmentScratch;
+
+	// generator of the random streams of the firm, reseeded for each of its random processes. See RandomStreams
+	@Transient
+	RandomGenerator randomGenerator;
+
+	// index of the firm in the registry of its sector, -1 if not registered. See FirmRegistry
+	@Transient
+	int registryIndex 		= -1;
+
 
 	// ---------------------------------------------------------------------
 	// Constructor
@@ -48,14 +68,17 @@ public abstract class Firm extends Agent {
 		super();
 	}
 	
-	public Firm(boolean newFirm){
-		super();
+	public Firm(MacroModel model){
+		super(model);
 		
 		// --- Define initial variables that are common to consumption and capital-good firms ---
 		// firm starts off with no debt
 		this.debt 				= new double[]{0, 0}; 
 		this.exit 				= false;
 		this.newEntrant 		= false;
+		this.ledger 			= model.getLedger();
+		this.adjustmentScratch 	= model.getContext().getAdjustmentScratch();
+		this.randomGenerator 	= RandomStreams.newGenerator();
 		
 	}
 
@@ -74,6 +97,9 @@ public abstract class Firm extends Agent {
 		this.marketShare 					= null;
 		this.priceOfGoodProduced 					= null;
 		this.debt 				= null;
+		this.ledger 			= null;
+		this.adjustmentScratch 	= null;
+		this.randomGenerator 	= null;
 		// All the other firm's variables are primitives and do not need to removed manually
 		
 	}
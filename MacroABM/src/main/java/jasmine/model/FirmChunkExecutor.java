@@ -0,0 +1,201 @@
+package jasmine.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import microsim.event.Event;
+
+/* Runs the processes of the firms by chunks of firms, in parallel on the common ForkJoinPool in the parallel schedule.
+
+ The list of firms is split into chunks of (at most) model.getParallelChunkSize() consecutive firms: the chunks are fixed by the index of the
+ firms in the list, never by the number of threads. While a firm runs a process, it writes the shared totals into the Ledger of its chunk,
+ and the ledgers are merged into the ledger of the model in the order of the chunks once all the chunks are done (barrier between two phases
+ of the schedule). This reduction is the same in every schedule: in the sequential schedule the chunks run one after the other on the
+ calling thread, in the parallel schedule each chunk is processed by one task, with its own scratch objects for the financial adjustments
+ of the c-firms (see AdjustmentScratch). The totals, hence the trajectory of the run, only depend on the chunk size.
+
+ Only processes that, apart from the ledger, read shared variables and write the firm's own variables can run their chunks in parallel.
+ Processes that draw random numbers, or that modify other agents (e.g. ChooseSupplier, InvestmentOrder, MachineProduction) run their chunks
+ one after the other, in both schedules.
+ */
+class FirmChunkExecutor {
+
+	private final MacroModel model;
+
+	// One ledger per chunk, re-used from one phase to the next
+	private final List<Ledger> ledgers;
+
+	// Scratch objects of the financial adjustments, one per chunk, re-used from one phase to the next
+	private final List<AdjustmentScratch> adjustmentScratches;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	FirmChunkExecutor(MacroModel model){
+
+		this.model 								= model;
+		this.ledgers 							= new ArrayList<>();
+		this.adjustmentScratches 				= new ArrayList<>();
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	/* Event that applies the process type to every firm of the list, by chunks. The chunks run in parallel if parallel is true (the process
+	 allows it) and the schedule is parallel */
+	Event collectionEvent(final List<? extends Firm> firms, final Enum<?> type, final boolean parallel){
+
+		return new Event(){
+			@Override
+			public void fireEvent() {
+				forEach(firms, firm -> firm.onEvent(type), parallel);
+			}
+		};
+	}
+
+	/* Applies the action to every firm of the list, by chunks, and merges the ledgers of the chunks into the ledger of the model. The chunks
+	 run in parallel if parallel is true and the schedule is parallel */
+	<F extends Firm> void forEach(List<F> firms, Consumer<? super F> action, boolean parallel){
+
+		int numberOfChunks 						= applyByChunks(firms, action, ledgers, parallel && model.isParallelScheduling());
+
+		// Deterministic reduction: chunk 0 first, then chunk 1 etc.
+		mergeLedgers(ledgers, numberOfChunks);
+
+	}
+
+	/* Applies the action to every firm of the list, each chunk of firms writing into its ledger in chunkLedgers (added if needed). The chunks
+	 run on the pool if parallel, one after the other on the calling thread otherwise. Returns the number of chunks, whose ledgers are left
+	 to be merged by the caller (see mergeLedgers()) */
+	<F extends Firm> int applyByChunks(List<F> firms, Consumer<? super F> action, List<Ledger> chunkLedgers, boolean parallel){
+
+		int numberOfFirms 						= firms.size();
+		int numberOfChunks 						= numberOfChunks(numberOfFirms);
+		int chunkSize 							= model.getParallelChunkSize();
+		while(chunkLedgers.size() < numberOfChunks)
+			chunkLedgers.add(Ledger.partial(model));
+
+		// One chunk after the other: the firms keep the scratch objects of the run
+		if(!parallel || numberOfChunks == 1){
+			int i 								= 0;
+			for(F firm : firms)
+				applyTo(firm, action, chunkLedgers.get(i++ / chunkSize), firm.adjustmentScratch);
+			return numberOfChunks;
+		}
+
+		// Chunks need a random access to the firms (the registries of the model provide it, see FirmRegistry)
+		List<F> snapshot 						= firms instanceof RandomAccess ? firms : new ArrayList<>(firms);
+		List<Callable<Void>> tasks 				= new ArrayList<>(numberOfChunks);
+		for(int chunk = 0; chunk < numberOfChunks; chunk++){
+			final int from 						= chunk * chunkSize;
+			final int to 						= Math.min(from + chunkSize, numberOfFirms);
+			final Ledger ledger 				= chunkLedgers.get(chunk);
+			final AdjustmentScratch scratch 	= adjustmentScratch(chunk);
+			tasks.add(() -> {
+				for(int i = from; i < to; i++)
+					applyTo(snapshot.get(i), action, ledger, scratch);
+				return null;
+			});
+		}
+		invokeAll(tasks);
+		return numberOfChunks;
+	}
+
+	// Merges the ledgers of the first numberOfChunks chunks into the ledger of the model, in the order of the chunks
+	void mergeLedgers(List<Ledger> chunkLedgers, int numberOfChunks){
+		for(int chunk = 0; chunk < numberOfChunks; chunk++)
+			chunkLedgers.get(chunk).mergeInto(model.getLedger());
+	}
+
+	// The firm runs the action with the ledger and the scratch objects of its chunk
+	private <F extends Firm> void applyTo(F firm, Consumer<? super F> action, Ledger ledger, AdjustmentScratch scratch){
+
+		Ledger previousLedger 					= firm.ledger;
+		AdjustmentScratch previousScratch 		= firm.adjustmentScratch;
+		firm.ledger 							= ledger;
+		firm.adjustmentScratch 					= scratch;
+		try {
+			action.accept(firm);
+		} finally {
+			firm.ledger 						= previousLedger;
+			firm.adjustmentScratch 				= previousScratch;
+		}
+	}
+
+	/* Scratch objects of the financial adjustments of the chunk, created if needed. Not thread safe when it creates them: the ones of the
+	 tasks of forEachChunk() must be created before the tasks run */
+	AdjustmentScratch adjustmentScratch(int chunk){
+
+		while(adjustmentScratches.size() <= chunk)
+			adjustmentScratches.add(new AdjustmentScratch(model.getContext()));
+		return adjustmentScratches.get(chunk);
+	}
+
+	// Number of chunks of the list of firms (1 if the list fits in a single chunk)
+	int numberOfChunks(int numberOfFirms){
+
+		int chunkSize 							= model.getParallelChunkSize();
+		if(chunkSize <= 0)
+			throw new IllegalArgumentException("The chunk size of the parallel schedule must be positive");
+		return Math.max(1, (numberOfFirms + chunkSize - 1) / chunkSize);
+	}
+
+	/* Runs task.run(chunk, from, to) on each chunk [from, to) of the firms, in parallel in the parallel schedule, one after the other
+	 otherwise. Unlike forEach(), the firms do not write in a ledger: the task keeps the partial results of its chunk, that the caller then
+	 merges in the order of the chunks (see SectorAggregates) */
+	void forEachChunk(int numberOfFirms, ChunkTask task){
+
+		int numberOfChunks 						= numberOfChunks(numberOfFirms);
+		int chunkSize 							= model.getParallelChunkSize();
+		if(!model.isParallelScheduling() || numberOfChunks == 1){
+			for(int chunk = 0; chunk < numberOfChunks; chunk++)
+				task.run(chunk, chunk * chunkSize, Math.min((chunk + 1) * chunkSize, numberOfFirms));
+			return;
+		}
+
+		List<Callable<Void>> tasks 				= new ArrayList<>(numberOfChunks);
+		for(int chunk = 0; chunk < numberOfChunks; chunk++){
+			final int index 					= chunk;
+			final int from 						= chunk * chunkSize;
+			final int to 						= Math.min(from + chunkSize, numberOfFirms);
+			tasks.add(() -> {
+				task.run(index, from, to);
+				return null;
+			});
+		}
+		invokeAll(tasks);
+	}
+
+	// Runs the tasks on the common pool, and returns once they are all done (also used by ConcurrentStage)
+	static void invokeAll(List<Callable<Void>> tasks){
+
+		List<Future<Void>> futures 				= ForkJoinPool.commonPool().invokeAll(tasks);
+		for(Future<Void> future : futures){
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while running a parallel phase", e);
+			} catch (ExecutionException e) {
+				if(e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw new IllegalStateException("A parallel phase failed", e.getCause());
+			}
+		}
+	}
+
+	// Work on the chunk [from, to) of a list of firms
+	interface ChunkTask {
+		void run(int chunk, int from, int to);
+	}
+
+}
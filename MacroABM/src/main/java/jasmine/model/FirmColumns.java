@@ -0,0 +1,149 @@
+package jasmine.model;
+
+import java.util.List;
+
+/* Column-oriented copy of the market variables of a sector: one array per variable, row i being the i-th firm of the registry (see
+ FirmRegistry), and the periods of a temporal variable in separate columns (e.g. marketSharePrevious, marketShareNow and marketShareNext
+ for marketShare[0], [1] and [2]).
+
+ The computation of the competitiveness and the market shares of the c-firms (MacroModel.marketCompetitiveness()) loads the columns in one
+ traversal of the firms, makes its ten or so passes on the columns only, and stores the market shares back in one traversal. Its inner
+ loops are thus plain loops over primitive arrays, that the JIT can unroll and, for the element-wise ones, vectorize; the sums keep the
+ order of the firms, so that the results are the ones of the loops over the firms. The copies pay off only over that many passes: the
+ kernels of two or three passes (MacroCollector.marketShareNormalization() and priceIndices()) run faster straight over the firms (see
+ FirmColumnsBenchmark).
+
+ The firms remain the reference: the columns are only valid between a load() and the end of the kernel that loaded them.
+ */
+public class FirmColumns {
+
+	private int size;
+
+	// priceOfGoodProduced[0] and [1]
+	public double[] pricePrevious;
+	public double[] priceNow;
+
+	// marketShare[0], [1] and [2]
+	public double[] marketSharePrevious;
+	public double[] marketShareNow;
+	public double[] marketShareNext;
+
+	public double[] productionQuantity;
+
+	// Consumption-good firms only (0 for the capital-good firms)
+	public double[] unfilledDemand;
+	public double[] competitiveness;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	FirmColumns(int capacity){
+
+		this.size 								= 0;
+		allocate(Math.max(capacity, 1));
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	// Loads the variables of the firms in the columns, the i-th firm in row i
+	public void load(List<? extends Firm> firms){
+
+		int numberOfFirms 						= firms.size();
+		if(numberOfFirms > pricePrevious.length)
+			allocate(Math.max(numberOfFirms, 2 * pricePrevious.length));
+		this.size 								= numberOfFirms;
+
+		for(int i = 0; i < numberOfFirms; i++){
+			Firm firm 							= firms.get(i);
+			this.pricePrevious[i] 				= firm.priceOfGoodProduced[0];
+			this.priceNow[i] 					= firm.priceOfGoodProduced[1];
+			this.marketSharePrevious[i] 		= firm.marketShare[0];
+			this.marketShareNow[i] 				= firm.marketShare[1];
+			this.marketShareNext[i] 			= firm.marketShare[2];
+			this.productionQuantity[i] 			= firm.productionQuantity;
+			if(firm instanceof CFirm){
+				CFirm cFirm 					= (CFirm) firm;
+				this.unfilledDemand[i] 			= cFirm.unfilledDemand;
+				this.competitiveness[i] 		= cFirm.competitiveness;
+			} else {
+				this.unfilledDemand[i] 			= 0;
+				this.competitiveness[i] 		= 0;
+			}
+		}
+	}
+
+	/* Stores the market shares back in the firms (the same firms, in the same order, as in the last load()). The consumption-good firms also
+	 get their competitiveness, and their temporary market share used by the consumption allocation is reset to marketShare[2] */
+	public void storeMarketShares(List<? extends Firm> firms){
+
+		if(firms.size() != size)
+			throw new IllegalStateException("The firms have changed since the columns were loaded");
+
+		for(int i = 0; i < size; i++){
+			Firm firm 							= firms.get(i);
+			firm.marketShare[0] 				= marketSharePrevious[i];
+			firm.marketShare[1] 				= marketShareNow[i];
+			firm.marketShare[2] 				= marketShareNext[i];
+			if(firm instanceof CFirm){
+				CFirm cFirm 					= (CFirm) firm;
+				cFirm.competitiveness 			= competitiveness[i];
+				cFirm.marketShareTemp 			= marketShareNext[i];
+			}
+		}
+	}
+
+	// The columns are filled by load(): no need to copy their content
+	private void allocate(int capacity){
+
+		this.pricePrevious 						= new double[capacity];
+		this.priceNow 							= new double[capacity];
+		this.marketSharePrevious 				= new double[capacity];
+		this.marketShareNow 					= new double[capacity];
+		this.marketShareNext 					= new double[capacity];
+		this.productionQuantity 				= new double[capacity];
+		this.unfilledDemand 					= new double[capacity];
+		this.competitiveness 					= new double[capacity];
+	}
+
+	// ---------------------------------------------------------------------
+	// Kernels
+	// ---------------------------------------------------------------------
+
+	// Sum of the first size values of the column, in the order of the rows
+	public static double sum(double[] column, int size){
+
+		double sum 								= 0;
+		for(int i = 0; i < size; i++)
+			sum 								+= column[i];
+		return sum;
+	}
+
+	// Sum of the products a[i] * b[i] of the first size rows, in the order of the rows
+	public static double dot(double[] a, double[] b, int size){
+
+		double sum 								= 0;
+		for(int i = 0; i < size; i++)
+			sum 								+= a[i] * b[i];
+		return sum;
+	}
+
+	// column[i] /= divisor for the first size rows
+	public static void divide(double[] column, int size, double divisor){
+
+		for(int i = 0; i < size; i++)
+			column[i] 							/= divisor;
+	}
+
+	// ---------------------------------------------------------------------
+	// Access methods
+	// ---------------------------------------------------------------------
+
+	public int size() {
+		return size;
+	}
+
+}
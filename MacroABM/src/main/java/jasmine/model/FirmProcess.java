@@ -0,0 +1,47 @@
+package jasmine.model;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/* Process of the firms (CFirm.Processes, KFirm.Processes), with the state shared between the firms that it reads and writes.
+
+ A process applied to a firm always reads and writes the variables of that firm: only the state that other firms can read or write is
+ declared. The ScheduleCompiler uses these declarations to find the processes that need no barrier between them.
+ */
+interface FirmProcess {
+
+	enum State {
+		// Macroeconomic variables of the collector (e.g. the wage) and parameters of the model
+		Macro,
+		// Totals of the ledger (see Ledger)
+		Totals,
+		// Machines produced by the capital-good firms, and their prices
+		Technology,
+		// Suppliers of the consumption-good firms, brochures and clients of the capital-good firms (see SupplierNetwork)
+		Suppliers,
+		// Order books of the capital-good firms
+		OrderBooks,
+		// Machines delivered to the consumption-good firms, and their payment to their supplier
+		Deliveries;
+	}
+
+	Set<State> getReads();
+
+	Set<State> getWrites();
+
+	static Set<State> reads(State... states){
+		return of(states);
+	}
+
+	static Set<State> writes(State... states){
+		return of(states);
+	}
+
+	static Set<State> of(State... states){
+		EnumSet<State> set 						= EnumSet.noneOf(State.class);
+		Collections.addAll(set, states);
+		return Collections.unmodifiableSet(set);
+	}
+
+}
@@ -0,0 +1,116 @@
+package jasmine.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/* Indexed container of the firms of one sector. Firms are stored in an array, and each firm knows its (dense) index in the array:
+ 	(a) get(i) is O(1), which matters for the random draws of entry(), brochure() and chooseSupplier(), and for matching()
+ 	(b) remove(firm) is O(1): the last firm of the array takes the slot of the removed firm (swap-remove). The indices thus always span
+ 	0, ..., size() - 1. The index of a firm only changes when a firm is removed.
+ NOTE: because of (b), the order of the firms is not the order of their entry.
+
+ The registry is a java.util.List, such that it can be used directly in the collection events and cross sections of JAS-mine.
+ */
+public class FirmRegistry<F extends Firm> extends AbstractList<F> implements RandomAccess {
+
+	private Firm[] firms;
+
+	private int size;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	public FirmRegistry(int initialCapacity){
+
+		this.firms 								= new Firm[Math.max(initialCapacity, 1)];
+		this.size 								= 0;
+
+	}
+
+	// ---------------------------------------------------------------------
+	// List methods
+	// ---------------------------------------------------------------------
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public F get(int index) {
+		if(index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		return (F) firms[index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean add(F firm) {
+
+		if(firm.registryIndex >= 0)
+			throw new IllegalArgumentException("The firm is already in a registry");
+
+		if(size == firms.length)
+			this.firms 							= Arrays.copyOf(firms, 2 * firms.length);
+
+		firm.registryIndex 						= size;
+		this.firms[size++] 						= firm;
+		modCount++;
+		return true;
+	}
+
+	// Swap-remove of the firm at the given index: the last firm takes its slot
+	@Override
+	public F remove(int index) {
+
+		F removed 								= get(index);
+		int last 								= --size;
+		if(index != last){
+			this.firms[index] 					= firms[last];
+			this.firms[index].registryIndex 	= index;
+		}
+		this.firms[last] 						= null;
+		removed.registryIndex 					= -1;
+		modCount++;
+		return removed;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+
+		if(!(o instanceof Firm))
+			return false;
+		int index 								= ((Firm) o).registryIndex;
+		if(index < 0 || index >= size || firms[index] != o)
+			return false;
+		remove(index);
+		return true;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if(!(o instanceof Firm))
+			return false;
+		int index 								= ((Firm) o).registryIndex;
+		return index >= 0 && index < size && firms[index] == o;
+	}
+
+	@Override
+	public int indexOf(Object o) {
+		return contains(o) ? ((Firm) o).registryIndex : -1;
+	}
+
+	@Override
+	public void clear() {
+
+		for(int i = 0; i < size; i++){
+			this.firms[i].registryIndex 		= -1;
+			this.firms[i] 						= null;
+		}
+		this.size 								= 0;
+		modCount++;
+	}
+
+}
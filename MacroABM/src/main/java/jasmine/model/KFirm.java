@@ -1,25 +1,25 @@
 package jasmine.model;
 
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
-import jasmine.algorithms.MapSorting;
-import jasmine.data.Parameters;
+import jasmine.algorithms.Ranking;
+import jasmine.algorithms.RandomStreams;
+import jasmine.algorithms.Samplers;
+import jasmine.algorithms.SubsetSampler;
 import jasmine.object.*;
 import microsim.data.db.PanelEntityKey;
-import microsim.engine.SimulationEngine;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Transient;
 
 import org.apache.log4j.Logger;
-import org.apache.commons.math3.distribution.*;
 import org.apache.commons.math3.random.RandomGenerator;
-import org.apache.commons.math3.util.Pair;
+
+import static jasmine.model.FirmProcess.State.*;
+import static jasmine.model.FirmProcess.reads;
+import static jasmine.model.FirmProcess.writes;
 
 @Entity
 public class KFirm extends Firm {
@@ -29,14 +29,19 @@ public class KFirm extends Firm {
 	@Id
 	private PanelEntityKey key;
 
-	static long kFirmIdCounter = 0l;
 	
 	@Transient
 	BalanceSheetKFirm balanceSheet;
 	@Transient
-	Set<CFirm> clients; // list of clients the KFirm has
+	ClientList clients; // list of clients the KFirm has, maintained by the SupplierNetwork
+	@Transient
+	List<CFirm> entryPotentialClients; // potential clients chosen by the KFirm when it enters the economy, that receive its first brochures
+	@Transient
+	OrderBook bookOrder; // collects the order of the firm's clients
+	@Transient
+	Ranking bookOrderRanking; // ranking of the orders of the books, used when the firm is labor rationed
 	@Transient
-	Map<CFirm, Long> bookOrder; // collects the order of the firm's clients
+	SubsetSampler brochureSampler; // draws the new potential clients of the firm, re-used from one period to the next
 	@Transient
 	Machine machineProduced;
 
@@ -63,13 +68,33 @@ public class KFirm extends Firm {
 	// EventListener
 	// ---------------------------------------------------------------------
 
-	public enum Processes {
-		Update,
-		Research,
-		Brochure,
-		LaborDemand,
-		MachineProduction,
-		Accounting;
+	/* State shared with other firms that each process reads and writes, besides the variables of the firm (see FirmProcess). NOTE: the
+	 research reads the technologies of the period before from the TechnologySnapshot, not the ones being written */
+	public enum Processes implements FirmProcess {
+		Update(					reads(), 						writes(Technology)),
+		Research(				reads(Macro), 					writes(Technology)),
+		Brochure(				reads(Suppliers), 				writes(Suppliers)),
+		LaborDemand(			reads(Macro, OrderBooks), 		writes()),
+		MachineProduction(		reads(OrderBooks), 				writes(OrderBooks, Deliveries)),
+		Accounting(				reads(Macro), 					writes(Totals));
+		
+		private final Set<State> reads;
+		private final Set<State> writes;
+		
+		private Processes(Set<State> reads, Set<State> writes){
+			this.reads 							= reads;
+			this.writes 						= writes;
+		}
+		
+		@Override
+		public Set<State> getReads() {
+			return reads;
+		}
+		
+		@Override
+		public Set<State> getWrites() {
+			return writes;
+		}
 	}
 
 	public void onEvent(Enum<?> type) {
@@ -112,36 +137,37 @@ public class KFirm extends Firm {
 	}
 	
 	//Constructor for brand new KFirm (for copying existing firm, see copy constructor below)
-	/* Note that the boolean argument newFirm is a dummy variable used only to distinguish this constructor from 
-	 * the default constructor, which is used by the database export process (in which we do not want to increment 
+	/* Note that the default constructor is used by the database export process (in which we do not want to increment 
 	 * the id counter, otherwise it will increment the counter without actually creating new firms in the model).
-	 * The actual value of the boolean newFirm is ignored. 
 	 */
-	public KFirm(boolean newFirm){
-		super(true);
+	public KFirm(MacroModel model){
+		super(model);
 		// Extend the Firm constructor (define the firms' debt level)		
 		
-		this.key = new PanelEntityKey(kFirmIdCounter++);
+		this.key = new PanelEntityKey(context.nextKFirmId());
 		
 		// --- Customers --- 
 		// Initial clients are defined in matching(), MacroModel.java
-		this.clients 					= new LinkedHashSet<CFirm>();
-		this.bookOrder 					= new LinkedHashMap<>();
+		this.clients 					= new ClientList();
+		this.entryPotentialClients 		= new ArrayList<>();
+		this.bookOrder 					= new OrderBook();
+		this.bookOrderRanking 			= new Ranking();
+		this.brochureSampler 			= new SubsetSampler();
 		
 		// --- Machine produced ---
 		Machine machine 				= new Machine(this); 
-		machine.setMachineProductivity(new double[]{Parameters.getInitialProductivity(), Parameters.getInitialProductivity()}); 
-		machine.setCost(Parameters.getInitialWage() / Parameters.getInitialProductivity()); 
+		machine.setMachineProductivity(new double[]{parameters.getInitialProductivity(), parameters.getInitialProductivity()}); 
+		machine.setCost(parameters.getInitialWage() / parameters.getInitialProductivity()); 
 		machine.setVintage(0); 
 		this.machineProduced 			= machine; 
 		
 		// --- Productivity ---
-		this.firmProductivity 						= new double[]{Parameters.getInitialProductivity(), Parameters.getInitialProductivity()}; 
-		this.costToProduceGood 							= Parameters.getInitialWage() / (firmProductivity[1] * Parameters.getA_kFirms()); 
-		this.priceOfGoodProduced 							= new double[]{ (1 + Parameters.getFixedMarkUp_kFirms()) * costToProduceGood, (1 + Parameters.getFixedMarkUp_kFirms()) * costToProduceGood}; 
+		this.firmProductivity 						= new double[]{parameters.getInitialProductivity(), parameters.getInitialProductivity()}; 
+		this.costToProduceGood 							= parameters.getInitialWage() / (firmProductivity[1] * parameters.getA_kFirms()); 
+		this.priceOfGoodProduced 							= new double[]{ (1 + parameters.getFixedMarkUp_kFirms()) * costToProduceGood, (1 + parameters.getFixedMarkUp_kFirms()) * costToProduceGood}; 
 		
 		// --- Financial variables --- 
-		this.liquidAsset = new double[]{Parameters.getNetLiquidAssets_kFirms(), Parameters.getNetLiquidAssets_kFirms()}; 
+		this.liquidAsset = new double[]{parameters.getNetLiquidAssets_kFirms(), parameters.getNetLiquidAssets_kFirms()}; 
 		
 		// --- Competitiveness ---
 		this.marketShare 							= new double[]{1 / ((double) model.getNumberOfKFirms()), 
@@ -151,18 +177,18 @@ public class KFirm extends Firm {
 		this.size = 0; 
 		// Initial sales determine the amount of initial investment in R&D
 		CFirm aFirm 					= model.getCFirms().get(0);
-		double sales0 					= ( ( ( aFirm.investment / Parameters.getMachineSizeInCapital_cFirms() ) * ( (double) model.getNumberOfCFirms() ) ) /
+		double sales0 					= ( ( ( aFirm.investment / parameters.getMachineSizeInCapital_cFirms() ) * ( (double) model.getNumberOfCFirms() ) ) /
 												( (double) model.getNumberOfKFirms() ) ) * priceOfGoodProduced[1];
 		this.sales 						= new double[]{sales0, sales0}; 
 		this.demand 					= new double[]{sales0 / priceOfGoodProduced[1], sales0 / priceOfGoodProduced[1]};
 				
 		// --- R&D ---
-		this.rdExpenditure 						= Parameters.getFractionPastSalesInvestedInRandD_kFirms() * sales0; 
-		this.laborDemandForRd 				= rdExpenditure / Parameters.getInitialWage();
+		this.rdExpenditure 						= parameters.getFractionPastSalesInvestedInRandD_kFirms() * sales0; 
+		this.laborDemandForRd 				= rdExpenditure / parameters.getInitialWage();
 		
 		// --- Balance sheet object. Records the firm's expenditures and revenues. 
 		this.balanceSheet = new BalanceSheetKFirm(this, model);
-		balanceSheet.setDepositRevenues(liquidAsset[1] * MacroModel.returnOnFirmsDeposits);
+		balanceSheet.setDepositRevenues(liquidAsset[1] * context.getrDepo());
 		balanceSheet.setLiquidAsset(liquidAsset[1]);
 		balanceSheet.setSales(sales0);
 		balanceSheet.setWageBill(0);
@@ -178,15 +204,18 @@ public class KFirm extends Firm {
 		 		(b) The amount of liquid asset the new entrant possesses is still copied from the incumbent firm
 		 */
 		
-		super(true);
-		this.key = new PanelEntityKey(kFirmIdCounter++);
+		super(copy.model);
+		this.key = new PanelEntityKey(context.nextKFirmId());
 		
 		this.exit 						= false;
 		this.newEntrant 				= true;
 			
 		// --- Customers ---
-		this.clients 					= new LinkedHashSet<CFirm>();
-		this.bookOrder 					= new LinkedHashMap<>();
+		this.clients 					= new ClientList();
+		this.entryPotentialClients 		= new ArrayList<>();
+		this.bookOrder 					= new OrderBook();
+		this.bookOrderRanking 			= new Ranking();
+		this.brochureSampler 			= new SubsetSampler();
 		
 		// --- Machines --- 
 		this.rdExpenditure 						= copy.rdExpenditure;
@@ -221,11 +250,11 @@ public class KFirm extends Firm {
 	void survivalChecking(){
 		// Identify whether the firm can survive 
 		if(liquidAsset[1] > 0 && clients.size() > 0){
-			collector.kFirmsRemaining	+= 1;
+			ledger.add(Ledger.Total.KFirmsRemaining, 1);
 			this.newEntrant 			= false;
 		} else {
 			this.exit 					= true;
-			collector.exit_kFirms 			+= 1;
+			ledger.add(Ledger.Total.Exit_kFirms, 1);
 		}
 	}
 	
@@ -244,7 +273,10 @@ public class KFirm extends Firm {
 		
 		// --- Lists & Maps ---
 		this.clients 					= null;
+		this.entryPotentialClients 		= null;
 		this.bookOrder 					= null;
+		this.bookOrderRanking 			= null;
+		this.brochureSampler 			= null;
 		
 		
 	}
@@ -255,13 +287,6 @@ public class KFirm extends Firm {
 	// Update methods
 	// ---------------------------------------------------------------------
 
-	public Machine factory(){
-		
-		Machine machineSold 			= machineProduced.clone();
-		return machineSold;
-		
-	}
-	
 	public void update(){
 		
 		super.update();
@@ -288,7 +313,7 @@ public class KFirm extends Firm {
 		// Compute the amount of resources spent on R&D activities 
 		if(sales[0] > 0){
 			// Equation (14) in Dosi et al. (2013)
-			this.rdExpenditure 					= Parameters.getFractionPastSalesInvestedInRandD_kFirms() * sales[0]; 
+			this.rdExpenditure 					= parameters.getFractionPastSalesInvestedInRandD_kFirms() * sales[0]; 
 		} // else: remains identical
 		this.liquidAsset[1] 			-= rdExpenditure; 
 		
@@ -298,8 +323,8 @@ public class KFirm extends Firm {
 		this.laborDemand 				+= laborDemandForRd;
 				
 		// This labor demand is divided between innovation and imitation activities. Equation (14.5) in Dosi et al. (2013)
-		double rdInnovation 			= laborDemandForRd * Parameters.getShareInnovationInRandD_kFirms();
-		double rdImitation 				= laborDemandForRd * (1 - Parameters.getShareInnovationInRandD_kFirms());
+		double rdInnovation 			= laborDemandForRd * parameters.getShareInnovationInRandD_kFirms();
+		double rdImitation 				= laborDemandForRd * (1 - parameters.getShareInnovationInRandD_kFirms());
 				
 		// The firm launches then its innovation and imitation process
 		if(rdInnovation > 0)
@@ -309,21 +334,21 @@ public class KFirm extends Firm {
 				
 		// Compare the attractiveness of the innovation and imitation outcome with the current machine. 
 		// Equation (17) in Dosi et al. (2013)
-		double realPriceInn 			= (1 + Parameters.getFixedMarkUp_kFirms()) * collector.wage[1] / (bInn * Parameters.getA_kFirms()) + 
-											Parameters.getMachinePaybackPeriod_cFirms() * collector.wage[1] / aInn;
-		double realPriceIm 				= (1 + Parameters.getFixedMarkUp_kFirms()) * collector.wage[1] / (bIm * Parameters.getA_kFirms()) + 
-											Parameters.getMachinePaybackPeriod_cFirms() * collector.wage[1] / aIm;
-		double realCurrentPrice 		= (1 + Parameters.getFixedMarkUp_kFirms()) * collector.wage[1] / (firmProductivity[0] * Parameters.getA_kFirms()) + 
-											Parameters.getMachinePaybackPeriod_cFirms() * collector.wage[1] / machineProduced.getMachineProductivity()[0];
+		double realPriceInn 			= (1 + parameters.getFixedMarkUp_kFirms()) * collector.wage[1] / (bInn * parameters.getA_kFirms()) + 
+											parameters.getMachinePaybackPeriod_cFirms() * collector.wage[1] / aInn;
+		double realPriceIm 				= (1 + parameters.getFixedMarkUp_kFirms()) * collector.wage[1] / (bIm * parameters.getA_kFirms()) + 
+											parameters.getMachinePaybackPeriod_cFirms() * collector.wage[1] / aIm;
+		double realCurrentPrice 		= (1 + parameters.getFixedMarkUp_kFirms()) * collector.wage[1] / (firmProductivity[0] * parameters.getA_kFirms()) + 
+											parameters.getMachinePaybackPeriod_cFirms() * collector.wage[1] / machineProduced.getMachineProductivity()[0];
 		
 		// Choose the machine with the lowest "real price"
 		if( realPriceIm < realCurrentPrice ){
-			this.machineProduced.setMachineProductivity(new double[]{machineProduced.getMachineProductivity()[0], aIm});
+			this.machineProduced.setMachineProductivityNow(aIm);
 			this.firmProductivity[1] 				= bIm;
 		}
 		
 		if( realPriceInn < realCurrentPrice ){
-			this.machineProduced.setMachineProductivity(new double[]{machineProduced.getMachineProductivity()[0], aInn});
+			this.machineProduced.setMachineProductivityNow(aInn);
 			this.firmProductivity[1] 				= bInn;
 			// if the new machine is the result of an innovation, then it is considered as a new vintage 
 			this.machineProduced.setVintage(machineProduced.getVintage() + 1);			
@@ -339,7 +364,7 @@ public class KFirm extends Firm {
 		// Update the firm's cost of production
 		if(firmProductivity[1] > 0){
 			// Equation (12) in Dosi et al. (2013)
-			this.costToProduceGood 						= collector.wage[1] / (Parameters.getA_kFirms() * firmProductivity[1]); // eq. (12) in Dosi et al. (2013)
+			this.costToProduceGood 						= collector.wage[1] / (parameters.getA_kFirms() * firmProductivity[1]); // eq. (12) in Dosi et al. (2013)
 		} else{
 			// This should not happen theoretically.
 			this.firmProductivity[1] 				= 0.00001; 
@@ -347,37 +372,34 @@ public class KFirm extends Firm {
 		}
 		
 		// Update the firm's price. Equation (13) in Dosi et al. (2013)
-		this.priceOfGoodProduced[1] 						= (1 + Parameters.getFixedMarkUp_kFirms()) * costToProduceGood; 
-		if(priceOfGoodProduced[1] < Parameters.getMinPrice_kFirms())
-			this.priceOfGoodProduced[1] 					= Parameters.getMinPrice_kFirms();
+		this.priceOfGoodProduced[1] 						= (1 + parameters.getFixedMarkUp_kFirms()) * costToProduceGood; 
+		if(priceOfGoodProduced[1] < parameters.getMinPrice_kFirms())
+			this.priceOfGoodProduced[1] 					= parameters.getMinPrice_kFirms();
 				
 	}
 	
 	void innovation(double rdInnovation){
 		
 		// Equation (15) in Dosi et al. (2013)
-		double paramBernoulli 					= 1 - Math.exp( - Parameters.getZeta1_Innovation_kFirms() * rdInnovation);
+		double paramBernoulli 					= 1 - Math.exp( - parameters.getZeta1_Innovation_kFirms() * rdInnovation);
 		if(paramBernoulli == 1)
 			paramBernoulli 						= 0.99999; 
 	
 		// The firm draws whether it can access the innovation phase  
-		BinomialDistribution berDistribution 	= new BinomialDistribution((RandomGenerator) SimulationEngine.getRnd(), 1, paramBernoulli);
-		if(berDistribution.sample() == 1){ 
-			// The potential discovery is a random sample from a beta distribution with parameters alpha1 and beta1
-			BetaDistribution betaDistribution 	= new BetaDistribution((RandomGenerator) SimulationEngine.getRnd(), Parameters.getAlpha1_Innovation_kFirms(), Parameters.getBeta1_Innovation_kFirms(), BetaDistribution.DEFAULT_INVERSE_ABSOLUTE_ACCURACY);
+		RandomGenerator rnd 					= context.getRandomStream(RandomStreams.Stream.Innovation, key.getId(), randomGenerator);
+		if(Samplers.bernoulli(rnd, paramBernoulli)){ 
+			/* The potential discovery is a random sample from a beta distribution with parameters alpha1 and beta1, scaled s.t. it belongs 
+			to the appropriate support [x1lower, x1upper]. The sampler is the same for the whole run (see RunContext) */
+			Samplers.ScaledBeta innovationSampler = context.getInnovationSampler();
 			
-			// Machine productivity. Then scale the random variable s.t. it belongs to the appropriate support 
-			double innovation 					= betaDistribution.sample();
-			innovation 							= Parameters.getX1lower_Innovation_kFirms() + innovation * 
-													( Parameters.getX1upper_Innovation_kFirms() - Parameters.getX1lower_Innovation_kFirms() );
+			// Machine productivity
+			double innovation 					= innovationSampler.sample(rnd);
 			
 			// Equation (15.5) in Dosi et al. (2013)
 			this.aInn 							= machineProduced.getMachineProductivity()[0] * (1 + innovation);
 			
-			// Firm's productivity. Then scale the random variable s.t. it belongs to the appropriate support 
-			innovation 							= betaDistribution.sample();
-			innovation 							= Parameters.getX1lower_Innovation_kFirms() + innovation * 
-													( Parameters.getX1upper_Innovation_kFirms() - Parameters.getX1lower_Innovation_kFirms() );
+			// Firm's productivity
+			innovation 							= innovationSampler.sample(rnd);
 			
 			// Equation (15.5) in Dosi et al. (2013)
 			this.bInn 							= firmProductivity[0] * (1 + innovation);
@@ -387,43 +409,25 @@ public class KFirm extends Firm {
 	void imitation(double rdImitation){
 		
 		// Equation (16) in Dosi et al. (2013)
-		double paramBernoulli 					= 1 - Math.exp( - Parameters.getZeta2_Imitation_kFirms() * rdImitation);
+		double paramBernoulli 					= 1 - Math.exp( - parameters.getZeta2_Imitation_kFirms() * rdImitation);
 		if(paramBernoulli == 1)
 			paramBernoulli 						= 0.99999; 
 		
 		// The firm draws whether it can access the imitation phase  
-		BinomialDistribution berDistribution = new BinomialDistribution((RandomGenerator) SimulationEngine.getRnd(), 1, paramBernoulli);
-		if(berDistribution.sample() == 1){
+		RandomGenerator rnd 					= context.getRandomStream(RandomStreams.Stream.Imitation, key.getId(), randomGenerator);
+		if(Samplers.bernoulli(rnd, paramBernoulli)){
 			/* INTRODUCTORY NOTES: the weights, and the final imitation, are constructed based on (t-1) machines. Otherwise, some firms
 			could imitate the outcome of other firms that had already done their imitation process etc. */
 			
-			// List attributing a weight to each capital-good firm, based on its Euclidian distance with this capital-good firm
-			List<Pair<KFirm, Double>> weightList = new LinkedList<>(); 
-			double sum 							= 0;
-			
-			for(KFirm kFirm : model.getKFirms()){
-				
-				double prodOther 				= kFirm.firmProductivity[0];
-				double prodMachineOther 		= kFirm.machineProduced.getMachineProductivity()[0];
-				// Compute the Euclidian distance 
-				double weight 					= Math.sqrt( (firmProductivity[0] - prodOther) * (firmProductivity[0] - prodOther) + 
-													(machineProduced.getMachineProductivity()[0] - prodMachineOther) * 
-													(machineProduced.getMachineProductivity()[0] - prodMachineOther) );
-				// Inverse the Euclidian distance
-				if(weight > 0)
-					weight 						= 1 / weight;
-				else 
-					weight 						= 0;
-				
-				weightList.add(new Pair<KFirm, Double>(kFirm, weight));
-				sum 							+= weight; 
-			}
+			/* Pick randomly a capital-good firm, with a weight equal to the inverse of its Euclidian distance with this capital-good firm.
+			The technologies of all the firms are packed in the snapshot of the period, which indexes them to draw the firm without 
+			computing all the weights (see TechnologySnapshot) */
+			TechnologySnapshot snapshot 		= model.getTechnologySnapshot();
+			int firmSelected 					= snapshot.sampleImitation(registryIndex, rnd);
 			
-			if(sum > 0){
-				EnumeratedDistribution<KFirm> kFirmDistribution = new EnumeratedDistribution<>((RandomGenerator) SimulationEngine.getRnd(), weightList);
-				KFirm firmSelected 				= kFirmDistribution.sample(); // pick randomly a firm from the list 
-				this.aIm 						= firmSelected.machineProduced.getMachineProductivity()[0];
-				this.bIm 						= firmSelected.firmProductivity[0];
+			if(firmSelected >= 0){
+				this.aIm 						= snapshot.getMachineProductivity(firmSelected);
+				this.bIm 						= snapshot.getFirmProductivity(firmSelected);
 			} // else, there is absolutely no differences between firms. Firms cannot imitate.
 		}
 	}
@@ -433,13 +437,17 @@ public class KFirm extends Firm {
 	// ---------------------------------------------------------------------
 	
 	void brochure(){
-		// Capital-good firms send brochure to their current clients. New entrants have potential clients in their clients list.
-		for(CFirm cFirm : clients){
-			cFirm.potentialKfirmsSet.add(this);
+		// Capital-good firms send brochure to their current clients. New entrants send them to the potential clients chosen at entry.
+		for(int i = 0; i < clients.size(); i++){
+			clients.get(i).potentialSuppliers.add(registryIndex);
+		}
+		for(CFirm cFirm : entryPotentialClients){
+			cFirm.potentialSuppliers.add(registryIndex);
 		}
+		int numberOfClients 					= clients.size() + entryPotentialClients.size();
 		
 		// Capital-good firms can also reach out to new clients, randomly chosen 
-		int numberOfNewBrochures 				= (int) Math.round(clients.size() * Parameters.getShareNewClientsPerPeriod_kFirms());
+		int numberOfNewBrochures 				= (int) Math.round(numberOfClients * parameters.getShareNewClientsPerPeriod_kFirms());
 		
 		if(numberOfNewBrochures == 0){
 			// Following Dosi et al. implementation, capital-good firms can always reach at least one new clients
@@ -447,8 +455,8 @@ public class KFirm extends Firm {
 		}
 		
 		// The firm's number of potential clients is bounded above by the total number of consumption-good firms
-		if(numberOfNewBrochures + clients.size() > model.getNumberOfCFirms()){
-			numberOfNewBrochures 				= model.getNumberOfCFirms() - clients.size();
+		if(numberOfNewBrochures + numberOfClients > model.getNumberOfCFirms()){
+			numberOfNewBrochures 				= model.getNumberOfCFirms() - numberOfClients;
 		}
 		
 		if(numberOfNewBrochures < 0){
@@ -456,23 +464,27 @@ public class KFirm extends Firm {
 			numberOfNewBrochures 				= 0;
 		}
 		
-		// Create a list storing all potential clients so that a firm will not send twice a brochure to the same potential clients
-		List<CFirm> listPotentialClients 		= new LinkedList<>();
+		/* Draw the new potential clients, without replacement, among the consumption-good firms that have not received a brochure yet, so 
+		that a firm will not send twice a brochure to the same potential client (see SubsetSampler) */
+		List<CFirm> cFirms 						= model.getCFirms();
+		brochureSampler.reset(cFirms.size());
+		for(int i = 0; i < clients.size(); i++){
+			brochureSampler.exclude(clients.get(i).registryIndex);
+		}
+		for(CFirm cFirm : entryPotentialClients){
+			brochureSampler.exclude(cFirm.registryIndex);
+		}
 		
 		// Send the brochures 
-		while(numberOfNewBrochures > 0){
-			int rnd 							= SimulationEngine.getRnd().nextInt(model.getNumberOfCFirms());
-			CFirm potentialClient 				= model.getCFirms().get(rnd);
-			// The potential client cannot be an actual client, nor a potential client already in the list 
-			if(!clients.contains(potentialClient) && (listPotentialClients.isEmpty() || !listPotentialClients.contains(potentialClient))){
-				potentialClient.potentialKfirmsSet.add(this);
-				listPotentialClients.add(potentialClient);
-				numberOfNewBrochures			-= 1;
-			}
+		RandomGenerator rnd 					= context.getRandomStream(RandomStreams.Stream.Brochure, key.getId(), randomGenerator);
+		int[] potentialClients 					= brochureSampler.sample(numberOfNewBrochures, rnd);
+		for(int i = 0; i < numberOfNewBrochures; i++){
+			cFirms.get(potentialClients[i]).potentialSuppliers.add(registryIndex);
 		}
 		
-		// The list of actual clients is cleared and will be filled incrementally from the CFirm class
-		clients.clear();
+		/* The potential clients of the entry have received their brochure. The list of actual clients is kept: it is updated when the 
+		consumption-good firms choose their supplier (see SupplierNetwork) */
+		entryPotentialClients.clear();
 	}
 	
 	// ---------------------------------------------------------------------
@@ -484,15 +496,15 @@ public class KFirm extends Firm {
 		// k-firms compute their demand by iterating over their books of commands 
 		this.demand[1] 							= 0;
 		
-		for(Map.Entry<CFirm, Long> entry : bookOrder.entrySet()){
-			this.demand[1] 						+= entry.getValue();
+		for(int i = 0; i < bookOrder.size(); i++){
+			this.demand[1] 						+= bookOrder.getQuantity(i);
 		}
 		// Capital-good firms produce on demand; thus production = demand
 		this.productionQuantity 									= this.demand[1];
 		
 		// Labor demand for the production of machines is added to the R&D labor demand
 		if(firmProductivity[1] > 0)
-			this.laborDemandForProduction 				= productionQuantity / (firmProductivity[1] * Parameters.getA_kFirms());
+			this.laborDemandForProduction 				= productionQuantity / (firmProductivity[1] * parameters.getA_kFirms());
 		else {
 			log.fatal("ERROR: prod of KFirm < 0 when computing labor demand");
 		}
@@ -515,14 +527,14 @@ public class KFirm extends Firm {
 			
 			// Update production and labor demand with the labor ratio
 			this.productionQuantity 								= Math.floor(productionQuantity * ratio); 
-			this.laborDemandForProduction 				= productionQuantity / (firmProductivity[1] * Parameters.getA_kFirms());
+			this.laborDemandForProduction 				= productionQuantity / (firmProductivity[1] * parameters.getA_kFirms());
 			this.laborDemand 					= laborDemandForProduction + laborDemandForRd;
 			
 			// Compute the quantity sold when rounding down the rationed investments of each clients
 			double totalRationedDemand 			= 0;
-			for(Map.Entry<CFirm, Long> entry : bookOrder.entrySet()){
-				CFirm client 					= entry.getKey();
-				totalRationedDemand 			+= Math.floor( ( client.investment / Parameters.getMachineSizeInCapital_cFirms() ) * productionQuantity / pastQ );
+			for(int i = 0; i < bookOrder.size(); i++){
+				CFirm client 					= bookOrder.getClient(i);
+				totalRationedDemand 			+= Math.floor( ( client.investment / parameters.getMachineSizeInCapital_cFirms() ) * productionQuantity / pastQ );
 			}
 			
 			// Compute the difference between the production and the rounded down demand
@@ -533,12 +545,12 @@ public class KFirm extends Firm {
 			if(remainingQuantity == 0){
 				// Each clients receives the same proportional reduction in its investments
 				
-				for(Map.Entry<CFirm, Long> entry : bookOrder.entrySet()){
+				for(int i = 0; i < bookOrder.size(); i++){
 					
-					CFirm client 				= entry.getKey();
+					CFirm client 				= bookOrder.getClient(i);
 					// Compute the new level of investment 
-					client.investment 					= Math.floor( (client.investment / Parameters.getMachineSizeInCapital_cFirms()) * productionQuantity / pastQ) * 
-												Parameters.getMachineSizeInCapital_cFirms();
+					client.investment 					= Math.floor( (client.investment / parameters.getMachineSizeInCapital_cFirms()) * productionQuantity / pastQ) * 
+												parameters.getMachineSizeInCapital_cFirms();
 					
 					/* Consumption-good firms prefer expansionary over substitutionary investments. If the new level 
 					of investment is lower than the level of expansionary investment, then the entire investments 
@@ -548,8 +560,8 @@ public class KFirm extends Firm {
 					client.investmentSubstitutionary 				= client.investment - client.investmentExpansionary;
 					
 					// Update the investments in the firm's book
-					long numberOfMachine 		= (long) client.investment / (long) Parameters.getMachineSizeInCapital_cFirms();
-					entry.setValue(numberOfMachine);
+					long numberOfMachine 		= (long) client.investment / (long) parameters.getMachineSizeInCapital_cFirms();
+					bookOrder.setQuantity(i, numberOfMachine);
 				}
 			} else {
 				/* If the firm has leftover to distribute, it
@@ -557,14 +569,19 @@ public class KFirm extends Firm {
 					(b) distributes the leftovers, starting from its biggest clients */
 				
 				// Rank the clients 
-				bookOrder 						= (LinkedHashMap<CFirm, Long>) MapSorting.sortByValueDescending(bookOrder); 
+				bookOrderRanking.clear();
+				for(int i = 0; i < bookOrder.size(); i++){
+					bookOrderRanking.add((double) bookOrder.getQuantity(i));
+				}
+				int[] bookOrderRanked 			= bookOrderRanking.sortDescending();
 				
 				// Apply the same proportional reduction to all clients + distribute the leftovers 
-				for(Map.Entry<CFirm, Long> entry : bookOrder.entrySet()){
+				for(int rank = 0; rank < bookOrderRanking.size(); rank++){
 					
-					CFirm client 				= entry.getKey();
+					int position 				= bookOrderRanked[rank];
+					CFirm client 				= bookOrder.getClient(position);
 					// Compute the new level of investment 
-					double invRounded 			= Math.floor( (client.investment / Parameters.getMachineSizeInCapital_cFirms()) * productionQuantity / pastQ) * Parameters.getMachineSizeInCapital_cFirms();
+					double invRounded 			= Math.floor( (client.investment / parameters.getMachineSizeInCapital_cFirms()) * productionQuantity / pastQ) * parameters.getMachineSizeInCapital_cFirms();
 					// Compute the difference with its initial level of investment. De facto diffInv is also a 
 					// multiple of DimK
 					double diffInv 				= client.investment - invRounded;
@@ -573,11 +590,11 @@ public class KFirm extends Firm {
 					client.investment 					= invRounded;
 					// Distribute the leftovers, if any
 					if(remainingQuantity > 0){
-						if(diffInv > remainingQuantity * Parameters.getMachineSizeInCapital_cFirms()){
-							client.investment 			+= remainingQuantity * Parameters.getMachineSizeInCapital_cFirms();
+						if(diffInv > remainingQuantity * parameters.getMachineSizeInCapital_cFirms()){
+							client.investment 			+= remainingQuantity * parameters.getMachineSizeInCapital_cFirms();
 							remainingQuantity 	= 0;
 						} else {
-							remainingQuantity 	-= diffInv / Parameters.getMachineSizeInCapital_cFirms();
+							remainingQuantity 	-= diffInv / parameters.getMachineSizeInCapital_cFirms();
 							client.investment 			+= diffInv;
 						}
 					}
@@ -590,9 +607,12 @@ public class KFirm extends Firm {
 					client.investmentSubstitutionary 				= client.investment - client.investmentExpansionary;
 					
 					// Update the value in the k-firms' books
-					long numberOfMachine 		= (long) (client.investment / Parameters.getMachineSizeInCapital_cFirms());
-					entry.setValue(numberOfMachine);
+					long numberOfMachine 		= (long) (client.investment / parameters.getMachineSizeInCapital_cFirms());
+					bookOrder.setQuantity(position, numberOfMachine);
 				}
+				
+				// Machines are delivered in the order of the books (see machineProduction()): re-order the books by rank 
+				bookOrder.reorder(bookOrderRanked);
 			}			
 		}
 	}
@@ -603,27 +623,25 @@ public class KFirm extends Firm {
 	
 	void machineProduction(){
 		// The firm produces the machines and delivers them to its clients, that pay it in exchange 
-		if(!bookOrder.isEmpty()){		//XXX: Isn't this an unnecessary check?
-			for(Map.Entry<CFirm, Long> entry : bookOrder.entrySet()){
-				
-				machineDelivery(entry.getKey());
-				entry.getKey().machinePayment();
-				
-			}
-		} 
+		for(int i = 0; i < bookOrder.size(); i++){
+			
+			CFirm client 						= bookOrder.getClient(i);
+			machineDelivery(client);
+			client.machinePayment();
+			
+		}
 		// The delivery is finished. The firm clears its books
 		bookOrder.clear();
 	}
 	
 	void machineDelivery(CFirm client){
 		
-//		int numberOfMachine 					= (int) client.inv / (int) Parameters.getDimK();
-		int numberOfMachine 					= (int) (client.investment / Parameters.getMachineSizeInCapital_cFirms());
-		Machine machineDelivered 				= factory();
+//		int numberOfMachine 					= (int) client.inv / (int) parameters.getDimK();
+		int numberOfMachine 					= (int) (client.investment / parameters.getMachineSizeInCapital_cFirms());
 		
-		// Delivers the machine
-		client.machineAgeMap.put(machineDelivered, 0);
-		client.machineQuantityMap.put(machineDelivered, numberOfMachine);
+		// Delivers the machines. They form a new vintage of the client's machine set, born in the current period
+		if(numberOfMachine > 0)
+			client.vintages.add(machineProduced.getMachineProductivity()[1], (int) context.getTime(), numberOfMachine);
 		
 	}
 	
@@ -639,7 +657,7 @@ public class KFirm extends Firm {
 		this.liquidAsset[1] 					= liquidAsset[0];	
 		
 		if(profit > 0){
-			collector.govRevenues 				+= profit * model.taxRate; 
+			ledger.add(Ledger.Total.GovRevenues, profit * model.taxRate);
 			this.liquidAsset[1] 				-= profit * model.taxRate;
 		}
 
@@ -668,14 +686,10 @@ public class KFirm extends Firm {
 		this.balanceSheet = balanceSheet;
 	}
 
-	public Set<CFirm> getClients() {
+	public ClientList getClients() {
 		return clients;
 	}
 
-	public void setClients(Set<CFirm> clients) {
-		this.clients = clients;
-	}
-
 	public Machine getMachineProduced() {
 		return machineProduced;
 	}
@@ -0,0 +1,167 @@
+package jasmine.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/* The ledger records the writes that firms make, during their own processes, to totals that are shared by the whole economy: the bank's
+ balance sheet, the government's revenues and the counters of the collector.
+
+ 	(a) Outside of their processes (entry, initialisation), firms use the direct ledger of the model, which writes straight into the bank
+ 	and the collector.
+ 	(b) During their processes, in both schedules (see FirmChunkExecutor), each chunk of firms writes into its own ledger, which only holds
+ 	partial sums. Once all the chunks are done, their ledgers are merged into the direct ledger in the order of the chunks. Because the
+ 	chunks are fixed by the chunk size (and not by the schedule or the number of threads), the sums are grouped the same way whether the
+ 	chunks run one after the other or in parallel: the results only depend on the chunk size.
+ */
+public class Ledger {
+
+	public enum Total {
+		// Bank
+		BankDebt,
+		BankBadDebt,
+		BankDebtInterest,
+		BankDepositRevenues,
+		// Government
+		GovRevenues,
+		// Consumption-good sector
+		DiffTotalInventories_cFirms,
+		CFirmsRemaining,
+		Exit_cFirms,
+		BankruptcyRate_cFirms,
+		ExitLiquidityIssue_cFirms,
+		ExitMarketShareIssue_cFirms,
+		ExitAssetMarket_cFirms,
+		// Capital-good sector
+		KFirmsRemaining,
+		Exit_kFirms;
+	}
+
+	private static final Total[] TOTALS 		= Total.values();
+
+	private final MacroModel model;
+
+	// true if the ledger writes straight into the bank and the collector, false if it holds partial sums
+	private final boolean direct;
+
+	// Partial sums, indexed by Total.ordinal()
+	private final double[] partialSums;
+
+	// C-firms that applied for a loan, in the order of their application (see Bank.borrowers)
+	private final List<CFirm> creditApplicants;
+
+	// ---------------------------------------------------------------------
+	// Constructors
+	// ---------------------------------------------------------------------
+
+	private Ledger(MacroModel model, boolean direct){
+
+		this.model 								= model;
+		this.direct 							= direct;
+		this.partialSums 						= direct ? null : new double[TOTALS.length];
+		this.creditApplicants 					= direct ? null : new ArrayList<CFirm>();
+
+	}
+
+	// Ledger that writes straight into the bank and the collector of the model
+	static Ledger direct(MacroModel model){
+		return new Ledger(model, true);
+	}
+
+	// Ledger of a chunk of firms, that only holds partial sums
+	static Ledger partial(MacroModel model){
+		return new Ledger(model, false);
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	public void add(Total total, double value){
+
+		if(!direct){
+			this.partialSums[total.ordinal()] 	+= value;
+			return;
+		}
+
+		Bank bank 								= model.getBank();
+		switch(total){
+
+		case BankDebt:
+			bank.debt 							+= value;
+			break;
+		case BankBadDebt:
+			bank.badDebt 						+= value;
+			break;
+		case BankDebtInterest:
+			bank.debtInterest 					+= value;
+			break;
+		case BankDepositRevenues:
+			bank.depositRevenues 				+= value;
+			break;
+		case GovRevenues:
+			model.collector.govRevenues 		+= value;
+			break;
+		case DiffTotalInventories_cFirms:
+			model.collector.diffTotalInventories_cFirms += value;
+			break;
+		case CFirmsRemaining:
+			model.collector.cFirmsRemaining 	+= (int) value;
+			break;
+		case Exit_cFirms:
+			model.collector.exit_cFirms 		+= (int) value;
+			break;
+		case BankruptcyRate_cFirms:
+			model.collector.bankruptcyRate_cFirms += value;
+			break;
+		case ExitLiquidityIssue_cFirms:
+			model.collector.exitLiquidityIssue_cFirms += (int) value;
+			break;
+		case ExitMarketShareIssue_cFirms:
+			model.collector.exitMarketShareIssue_cFirms += (int) value;
+			break;
+		case ExitAssetMarket_cFirms:
+			model.collector.exitAssetMarket_cFirms += (int) value;
+			break;
+		case KFirmsRemaining:
+			model.collector.kFirmsRemaining 	+= (int) value;
+			break;
+		case Exit_kFirms:
+			model.collector.exit_kFirms 		+= (int) value;
+			break;
+
+		default:
+			throw new IllegalArgumentException("Unsupported total");
+		}
+	}
+
+	// The c-firm enters the bank's list of borrowers with its current net-worth-to-sales ratio
+	public void applyForCredit(CFirm cFirm){
+
+		if(direct)
+			model.getBank().applyForCredit(cFirm);
+		else
+			this.creditApplicants.add(cFirm);
+
+	}
+
+	/* Adds the partial sums of this ledger into the target ledger, and empties this ledger. Chunk ledgers must be merged in the
+	 order of the chunks for the results to be deterministic. */
+	void mergeInto(Ledger target){
+
+		if(direct)
+			throw new IllegalStateException("A direct ledger holds no partial sums to merge");
+
+		for(Total total : TOTALS){
+			double value 						= partialSums[total.ordinal()];
+			if(value != 0.)
+				target.add(total, value);
+			this.partialSums[total.ordinal()] 	= 0.;
+		}
+
+		for(CFirm cFirm : creditApplicants)
+			target.applyForCredit(cFirm);
+		this.creditApplicants.clear();
+
+	}
+
+}
@@ -17,18 +17,27 @@ import microsim.event.Order;
 import microsim.event.SystemEvent;
 import microsim.event.SystemEventType;
 
+import jasmine.algorithms.AdjustmentInputs;
+import jasmine.algorithms.RandomStreams;
 import jasmine.data.Parameters;
+import jasmine.enums.ConsumptionAllocationMode;
 import jasmine.enums.DebtManagement;
 import jasmine.enums.DebtRepayment;
 import jasmine.experiment.MacroCollector;
 import jasmine.object.*;
+import jasmine.trace.Trace;
+import jasmine.trace.TracePoint;
 
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Iterator;
+import java.util.Set;
 
 import javax.persistence.Transient;
 
+import org.apache.commons.math3.random.RandomGenerator;
+
+import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
 
@@ -36,6 +45,14 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 
 	private final static Logger log = Logger.getLogger(MacroModel.class);
 	
+	/* Firms' processes that can run in parallel: apart from the shared totals of the Ledger, they only read shared variables and modify 
+	 the firm itself. Processes that draw random numbers or modify other agents (e.g. the supplier) are not in this set. */
+	private final static Set<Enum<?>> PARALLEL_PROCESSES = new HashSet<Enum<?>>(Arrays.asList(
+			CFirm.Processes.Update, CFirm.Processes.InitialExpenditures, CFirm.Processes.APrioriAdjustments, CFirm.Processes.CreditApplication, 
+			CFirm.Processes.LaborDemand, 
+			CFirm.Processes.Production, CFirm.Processes.Accounting, 
+			KFirm.Processes.Update, KFirm.Processes.LaborDemand, KFirm.Processes.Accounting));
+	
 	@Transient
 	MacroCollector collector; 
 
@@ -70,28 +87,62 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 	boolean fixRandomSeed 				= true;
 	@GUIparameter(description = "Seed of the (pseudo) random number generator if fixed")
 	Long seedIfFixed 					= 1166517026l;
+	@GUIparameter(description = "Run the per-firm processes that only modify the firm itself on several threads")
+	boolean parallelScheduling 			= false;
+	@GUIparameter(description = "Number of firms per chunk: the firms sum the totals by chunk, in parallel in the parallel schedule (the results depend on it, not on the schedule)")
+	Integer parallelChunkSize 			= 4096;
+	@GUIparameter(description = "Algorithm allocating the consumption among consumption-good firms (Rounds is the reference one)")
+	ConsumptionAllocationMode consumptionAllocationMode = ConsumptionAllocationMode.Rounds;
+	@GUIparameter(description = "Solve the a priori adjustments of all consumption-good firms in one batch (same results as firm by firm)")
+	boolean batchAdjustments 			= false;
+	@GUIparameter(description = "Run consecutive processes of the firms that do not depend on each other in a single pass over the firms")
+	boolean fuseFirmProcesses 			= false;
+	@GUIparameter(description = "Run the processes of the two sectors that do not depend on each other at the same time (update, labor demand, accounting)")
+	boolean concurrentStages 			= false;
+	@GUIparameter(description = "Check at run time that the processes running at the same time do not write the state of the others (slow)")
+	boolean validateConcurrentStages 	= false;
 	
 
-	// --- Define static variables for variables that are global to the economy & constant ---
-	// return on firms' deposits 
-	static double returnOnFirmsDeposits; 
-	// interest rate on the debt 
-	static double interestRateOnDebt; 
-	// return on the bank's deposit at the central bank
-	static double returnOnBankDepositsAtCentralBank; 
-	// Tax rate. Need a static variable for static classes APrioriAdjustments and APosterioriAdjustments
-	static double tax_rate; 
-	// Labor supply (fixed and inelastic)
-	static double laborSupply;
+	// --- State of the run: calibration, random number generator and variables that are global to the economy & constant (see RunContext) ---
+	@Transient
+	private RunContext context;
+	@Transient
+	private Parameters parameters;
+	// Shared totals written by the firms (see Ledger), and the executor of the parallel processes (see FirmChunkExecutor)
+	@Transient
+	private Ledger ledger;
+	@Transient
+	private FirmChunkExecutor firmChunkExecutor;
+	// true if the periods are fired by the JAS-mine engine (see buildSchedule()), false if they are fired directly (see MacroBatch)
+	@Transient
+	private boolean scheduledOnEngine;
+	// One-pass allocation of the consumption (see ConsumptionAllocator)
+	@Transient
+	private ConsumptionAllocator consumptionAllocator;
+	// Technologies of the k-firms at the beginning of the R&D phase, used for imitation (see TechnologySnapshot)
+	@Transient
+	private TechnologySnapshot technologySnapshot;
+	// Totals of the sectors at the end of the period, computed in one traversal per sector (see SectorAggregates)
+	@Transient
+	private SectorAggregates sectorAggregates;
+	// Market variables of the c-firms in columns, used by the computation of their competitiveness and market shares (see FirmColumns)
+	@Transient
+	private FirmColumns cFirmColumns;
+	// Packed inputs of the a priori adjustments of the c-firms, row i being the i-th c-firm, in the batch adjustments (see AdjustmentInputs)
+	@Transient
+	private AdjustmentInputs adjustmentInputs;
+	// Generator of the random stream of the entry, reseeded in each period (see RandomStreams)
+	@Transient
+	private final RandomGenerator entryGenerator 	= RandomStreams.newGenerator();
 	
 	// Variable used in the consumption allocation process. Use to determine the remaining amount of consumption to allocate (see consumptionAllocation())
 	public double consumptionTemp; 
 	
 	// --- Define the entities of the model ---
-	// Consumption-good firms
-	private List<CFirm> cFirms;
+	// Consumption-good firms. Indexed registry: O(1) random access and removal (see FirmRegistry)
+	private FirmRegistry<CFirm> cFirms;
 	// Capital-good firms
-	private List<KFirm> kFirms;
+	private FirmRegistry<KFirm> kFirms;
 	// (Single) bank
 	private Bank bank;
 	
@@ -102,12 +153,16 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 	@Override
 	public void buildObjects() {
 
-		// Calibrate the model. 
-		// If the simulations are thrown from the Estimation class, then only the parameters that are picked manually are loaded.
-		if(!Parameters.ESTIMATION_OF_PARAMETERS)
-			Parameters.initializationWithoutEstimation();
-		else
-			Parameters.initializationWithEstimation();
+		// Calibrate the model, set the seed of the random number generator and compute the constant variables of the economy
+		context 			= new RunContext(this);
+		parameters 			= context.getParameters();
+		ledger 				= Ledger.direct(this);
+		firmChunkExecutor 	= new FirmChunkExecutor(this);
+		consumptionAllocator = new ConsumptionAllocator(numberOfCFirms);
+		technologySnapshot 	= new TechnologySnapshot(numberOfKFirms);
+		sectorAggregates 	= new SectorAggregates(this);
+		cFirmColumns 		= new FirmColumns(numberOfCFirms);
+		adjustmentInputs 	= new AdjustmentInputs(numberOfCFirms);
 				
 		/* Stop the simulation if the number of consumption-good firms is not a multiple of the number of capital-good firms.  This is to ensure that, 
 		 * at the start of the simulation, all firms are set in an equivalent state, with the same (integer) number of consumption good firms being
@@ -119,29 +174,18 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 //			getEngine().getEventQueue().scheduleOnce(new SingleTargetEvent(this, Processes.End), getEngine().getTime(), Order.BEFORE_ALL.getOrdering());
 		}
 		
-		// Set the seed of the Random Number Generating Function.
-		if(fixRandomSeed)										//if fixed, the model will follow the same trajectory as other executions withe same random number seed.
-			SimulationEngine.getRnd().setSeed(seedIfFixed);
-		
-		// Compute the static (constant) variables of the economyÒ
-		returnOnFirmsDeposits 				= interestRate * (1 - Parameters.getCoeffMarkDownOnDepositRate_Bank());
-		interestRateOnDebt 				= interestRate * (1 + Parameters.getCoeffMarkUpOnInterestRate_Bank());
-		returnOnBankDepositsAtCentralBank 				= interestRate * (1 - Parameters.getCoeffMarkDownOnDepositRateAtCentralBank_Bank());
-		tax_rate 				= taxRate;
-		laborSupply			= Parameters.getLaborSupply();
-		
 		// --- Create the three main entities --- 
 		// Consumption-good firms 
-		cFirms = new LinkedList<CFirm>();
+		cFirms = new FirmRegistry<CFirm>(numberOfCFirms);
 		for(int i = 0; i < numberOfCFirms; i++){
-			CFirm newCFirm = new CFirm(true);
+			CFirm newCFirm = new CFirm(this);
 			cFirms.add(newCFirm);
 		}
 		
 		// Capital-good firms
-		kFirms = new LinkedList<KFirm>();
+		kFirms = new FirmRegistry<KFirm>(numberOfKFirms);
 		for(int i = 0; i < numberOfKFirms; i++){
-			KFirm newKFirm = new KFirm(true);
+			KFirm newKFirm = new KFirm(this);
 			kFirms.add(newKFirm);
 		}
 		
@@ -149,7 +193,7 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 		matching();
 		
 		// The bank
-		bank 				= new Bank(true);
+		bank 				= new Bank(this);
 		
 		// Initialize the macro variables
 		collector.macroInitialization();
@@ -165,10 +209,10 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 			kFirm.research();
 			kFirm.machineProduced.setTao(1);
 			// Because have to understand this as the accumulation of pre-starting economy research. No cost / spending in R&D
-			kFirm.liquidAsset[1] = Parameters.getLiquidAssetCapital(); 
+			kFirm.liquidAsset[1] = parameters.getLiquidAssetCapital(); 
 			//Because now there is heterogeneity in k-firms' price --> redefine the sales
 			CFirm aCFirm = cFirms.get(0);
-			double sales0  = ( ( (aCFirm.inv / Parameters.getDimK()) * numberOfCFirms ) / numberOfKFirms ) * kFirm.p[1];
+			double sales0  = ( ( (aCFirm.inv / parameters.getDimK()) * numberOfCFirms ) / numberOfKFirms ) * kFirm.p[1];
 			kFirm.sales[0] = kFirm.sales[1] = sales0; 
 			
 		}
@@ -180,7 +224,25 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 
 	@Override
 	public void buildSchedule() {
-		EventGroup modelEventGroup = new EventGroup();
+		EventGroup modelEventGroup = buildPeriodEventGroup();
+		
+		getEngine().getEventQueue().scheduleRepeat(modelEventGroup, 0., Parameters.MODEL_ORDERING, 1.);
+		scheduledOnEngine = true;
+		
+		//For termination of simulation
+//		getEngine().getEventQueue().scheduleOnce(new SingleTargetEvent(this, Processes.End), endTime, Order.AFTER_ALL.getOrdering());
+		SystemEvent end = new SystemEvent(SimulationEngine.getInstance(), SystemEventType.End);
+		getEngine().getEventQueue().scheduleOnce(end, endTime, Order.AFTER_ALL.getOrdering());
+
+		
+		log.fatal("Schedule created");
+	}
+	
+	/* The events of a single period. Kept apart from buildSchedule() such that the same period can be fired either by the JAS-mine 
+	 engine, or directly by the replications that MacroMultiRun runs concurrently (which do not go through the engine). */
+	public EventGroup buildPeriodEventGroup() {
+		// The events are compiled from the sequence below (see ScheduleCompiler)
+		ScheduleCompiler schedule = new ScheduleCompiler(this, firmChunkExecutor);
 		
 		/* Overall schedule:
 		 			(1) Exit and entry of consumption & capital-good firms
@@ -204,76 +266,96 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 		copy of current incumbents. K-firms with no clients exit as well, and are replaced in the same fashion.
 		Note: entry & exit take place at the beginning of the schedule so that exiting firms are recorded in the database before they die. 
 		 */
-		modelEventGroup.addEvent(this, Processes.Exit);
-		modelEventGroup.addEvent(this, Processes.Entry);
+		schedule.addEvent(this, Processes.Exit);
+		schedule.addEvent(this, Processes.Entry);
 		
-		// Entities update their variables (e.g. set some of them equal to 0, or update their optimal prices, the credit supply)
-		modelEventGroup.addEvent(collector, MacroCollector.Processes.Update);
-		modelEventGroup.addCollectionEvent(kFirms, KFirm.Processes.Update); 
-		modelEventGroup.addCollectionEvent(cFirms, CFirm.Processes.Update); 
-		modelEventGroup.addEvent(bank, Bank.Processes.Update); 
+		/* Entities update their variables (e.g. set some of them equal to 0, or update their optimal prices, the credit supply). The two 
+		 sectors update their own firms only (see ScheduleCompiler.addFirmsEventBeside()) */
+		schedule.addEvent(collector, MacroCollector.Processes.Update);
+		schedule.addFirmsEvent(kFirms, KFirm.Processes.Update); 
+		schedule.addFirmsEventBeside(cFirms, CFirm.Processes.Update); 
+		schedule.addEvent(bank, Bank.Processes.Update); 
 		
-		// Capital-good firms undertake their R&D activity. The collector updates the aggregate variables  
-		modelEventGroup.addCollectionEvent(kFirms, KFirm.Processes.Research);
-		modelEventGroup.addEvent(collector, MacroCollector.Processes.TechFrontier); 
+		// Capital-good firms undertake their R&D activity, imitating the (t-1) technologies of the snapshot. The collector updates the aggregate variables  
+		schedule.addEvent(this, Processes.TechnologySnapshot);
+		schedule.addFirmsEvent(kFirms, KFirm.Processes.Research);
+		schedule.addEvent(collector, MacroCollector.Processes.TechFrontier); 
 		
 		// Capital-good firms send brochures to consumption-good firms to promote their machines. Consumption-good firms choose their supplier
-		modelEventGroup.addCollectionEvent(kFirms, KFirm.Processes.Brochure);
-		modelEventGroup.addCollectionEvent(cFirms, CFirm.Processes.ChooseSupplier);
+		schedule.addFirmsEvent(kFirms, KFirm.Processes.Brochure);
+		schedule.addFirmsEvent(cFirms, CFirm.Processes.ChooseSupplier);
 		
 		/* Consumption-good firms form their initial plans given their demand expectation. Initially, financial constraints are not taken 
 		 into account. Then, they consider their borrowing capacity, which may lead to downward adjustments (a priori adjustments) */
-		modelEventGroup.addCollectionEvent(cFirms, CFirm.Processes.InitialExpenditures);
-		modelEventGroup.addCollectionEvent(cFirms, CFirm.Processes.APrioriAdjustments);
+		schedule.addFirmsEvent(cFirms, CFirm.Processes.InitialExpenditures);
+		schedule.addFirmsEvent(cFirms, CFirm.Processes.APrioriAdjustments);
+		if(batchAdjustments){
+			/* The firms that have to adjust their plans are loaded in a batch, solved in one pass. They apply for credit once all the 
+			 adjustments are solved, in the order of the firms as in the firm-by-firm adjustments */
+			schedule.addEvent(this, Processes.APrioriAdjustments);
+			schedule.addFirmsEvent(cFirms, CFirm.Processes.CreditApplication);
+		}
 		
 		/* The bank observes the aggregate credit demand. If it exceeds its credit supply, the economy is credit rationed. The bank then 
 		 sorts firms depending on their net worth to sale ratio. 
 		 Once firms have received their loan and know their actual resources, they update their production and investment plans.
 		 With their level of investment known, consumption-good firms send their orders to their suppliers. */
-		modelEventGroup.addEvent(bank, Bank.Processes.CreditAllocation);
-		modelEventGroup.addCollectionEvent(cFirms, CFirm.Processes.ExpendituresUpdate);
-		modelEventGroup.addCollectionEvent(cFirms, CFirm.Processes.InvestmentOrder);
+		schedule.addEvent(bank, Bank.Processes.CreditAllocation);
+		schedule.addFirmsEvent(cFirms, CFirm.Processes.ExpendituresUpdate);
+		schedule.addFirmsEvent(cFirms, CFirm.Processes.InvestmentOrder);
 		
 		/* Hidden assumption in Dosi et al. (2013): the production function is of the Leontieff form. Thus, if the (aggregate) 
 		 labor demand exceeds the labor supply, firms scale down their production plans. */
-		modelEventGroup.addCollectionEvent(cFirms, CFirm.Processes.LaborDemand);
-		modelEventGroup.addCollectionEvent(kFirms, KFirm.Processes.LaborDemand);
-		modelEventGroup.addEvent(this, Processes.LaborMarket);
+		schedule.addFirmsEvent(cFirms, CFirm.Processes.LaborDemand);
+		schedule.addFirmsEventBeside(kFirms, KFirm.Processes.LaborDemand);
+		schedule.addEvent(this, Processes.LaborMarket);
 		
 		/* Capital market. 
 		 		1. Once the actual level of investment is determined (i.e. the level of investment that can be funded and produced), 
 		 		consumption-good firms pay their supplier and capital-good firms deliver the machines. 
 		 		2. Consumption-good firms scrap the machines they are able to replace. */
-		modelEventGroup.addCollectionEvent(cFirms, CFirm.Processes.MachineScrapping);		//Note that Hugo claims scrapping machines before production has no effect on the production in this time-step (see notes above). 
-		modelEventGroup.addCollectionEvent(kFirms, KFirm.Processes.MachineProduction);		//ROSS: Capital Machines should only be available at the end of the time-step in which they were ordered, according to the Dosi papers!
+		schedule.addFirmsEvent(cFirms, CFirm.Processes.MachineScrapping);		//Note that Hugo claims scrapping machines before production has no effect on the production in this time-step (see notes above). 
+		schedule.addFirmsEvent(kFirms, KFirm.Processes.MachineProduction);		//ROSS: Capital Machines should only be available at the end of the time-step in which they were ordered, according to the Dosi papers!
 		
 		/* Good market. 
 				1. Consumption-good firms undertake their production process
 				2. The competitiveness of each firm is determined
 				3. The consumption allocation starts, determining the demand & the sales of consumption-good firms */
-		modelEventGroup.addCollectionEvent(cFirms, CFirm.Processes.Production);		
+		schedule.addFirmsEvent(cFirms, CFirm.Processes.Production);		
 //		eventGroup.addCollectionEvent(kFirms, KFirm.Processes.MachineProduction);		//ROSS: Capital Machines should only be available at the end of the time-step in which they were ordered, so perhaps this should be placed here in the schedule, after the cFirms do their production.  Note that we put the production here before exit of firms to ensure kFirms provide all machines that were ordered by cFirms before their exit. 
-		modelEventGroup.addEvent(this, Processes.GoodMarketCompetitiveness); 
-		modelEventGroup.addEvent(this, Processes.ConsumptionAllocation); 
+		schedule.addEvent(this, Processes.GoodMarketCompetitiveness); 
+		schedule.addEvent(this, Processes.ConsumptionAllocation); 
 		
-		// Firms in both sectors compute their profit, their new stock of liquid assets, and pay their debt, if any. 
-		modelEventGroup.addCollectionEvent(kFirms, KFirm.Processes.Accounting); 
-		modelEventGroup.addCollectionEvent(cFirms, CFirm.Processes.Accounting);
-		modelEventGroup.addEvent(bank, Bank.Processes.Accounting);
+		/* Firms in both sectors compute their profit, their new stock of liquid assets, and pay their debt, if any. The sectors share 
+		 the totals of the ledger only */
+		schedule.addFirmsEvent(kFirms, KFirm.Processes.Accounting); 
+		schedule.addFirmsEventBeside(cFirms, CFirm.Processes.Accounting);
+		// Totals of both sectors, used by the bank and the collector
+		schedule.addEvent(this, Processes.SectorAggregates);
+		schedule.addEvent(bank, Bank.Processes.Accounting);
 		
 		// Compute the macroeconomic variables. Store them in the MacroStatistics class to then export them in the .csv file
-		modelEventGroup.addEvent(collector, MacroCollector.Processes.AggregateComputation);
-		modelEventGroup.addEvent(collector, MacroCollector.Processes.DumpInStatistics);
+		schedule.addEvent(collector, MacroCollector.Processes.AggregateComputation);
+		schedule.addEvent(collector, MacroCollector.Processes.DumpInStatistics);
 		
-		getEngine().getEventQueue().scheduleRepeat(modelEventGroup, 0., Parameters.MODEL_ORDERING, 1.);
-		
-		//For termination of simulation
-//		getEngine().getEventQueue().scheduleOnce(new SingleTargetEvent(this, Processes.End), endTime, Order.AFTER_ALL.getOrdering());
-		SystemEvent end = new SystemEvent(SimulationEngine.getInstance(), SystemEventType.End);
-		getEngine().getEventQueue().scheduleOnce(end, endTime, Order.AFTER_ALL.getOrdering());
-
+		// Move the clock of the run to the next period
+		schedule.addEvent(this, Processes.AdvanceTime);
 		
-		log.fatal("Schedule created");
+		return schedule.compile();
+	}
+	
+	/* Stops the run at the end of the current period. The flag of the run is checked by the loops that fire the periods directly (see 
+	 MacroBatch.run()); the JAS-mine engine, which is shared by the whole JVM, is only told to end if it is the one running the periods */
+	void stopRun(){
+		context.stop();
+		if(scheduledOnEngine)
+			getEngine().getEventQueue().scheduleSystem(getEngine().getTime(), Order.AFTER_ALL.getOrdering(), 0., getEngine(), SystemEventType.End);
+	}
+	
+	/* Whether the chunks of firms of the process can run in parallel. They do in the parallel schedule only: the firms write the totals
+	 by chunks in both schedules (see FirmChunkExecutor) */
+	boolean isParallelProcess(Enum<?> type){
+		return PARALLEL_PROCESSES.contains(type);
 	}
 
 
@@ -284,9 +366,13 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 	public enum Processes {
 		Exit,
 		Entry,
+		TechnologySnapshot,
 		LaborMarket,
 		GoodMarketCompetitiveness,
 		ConsumptionAllocation,
+		APrioriAdjustments,
+		SectorAggregates,
+		AdvanceTime,
 		End;
 	}
 
@@ -298,6 +384,13 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 			break;
 		case Entry:
 			entry();
+			// Rows of the batch adjustments for the c-firms of the period
+			if(batchAdjustments)
+				adjustmentInputs.reset(cFirms.size());
+			break;
+			
+		case TechnologySnapshot:
+			technologySnapshot.build(kFirms);
 			break;
 			
 		case LaborMarket:
@@ -311,6 +404,18 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 		case ConsumptionAllocation:
 			consumptionAllocation();
 			break;
+			
+		case APrioriAdjustments:
+			aPrioriAdjustments();
+			break;
+			
+		case SectorAggregates:
+			sectorAggregates.compute(cFirms, kFirms, collector.getLaborDemandUsedForProduction(), collector.production_kFirms > 0);
+			break;
+
+		case AdvanceTime:
+			context.advanceTime();
+			break;
 
 		case End:
 			getEngine().end();
@@ -336,8 +441,7 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 			for(int i = 0; i < step; i++){
 //				CFirm cFirm 	= cFirms.get((count - i - 1));		//Ross: This seems like a overly complicated, confusing way of picking a cFirm.  I replace with the line below and move incrementation of count to afterwards.
 				CFirm cFirm 	= cFirms.get((count + i));
-				cFirm.supplier 	= kFirm;
-				kFirm.clients.add(cFirm);
+				SupplierNetwork.link(cFirm, kFirm);
 			}
 			count 				+= step;
 			
@@ -350,17 +454,16 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 			// The firms' initial stock is populated of machines that are identical in terms of 
 			// productivity, but that differs with respect to their age (s.t. substitutionary investments are initially positive).
 			
-			int numberMachine 	= ( (int) cFirm.capitalStock ) / ( (int) Parameters.getMachineSizeInCapital_cFirms() );
-			int age 			= (int) Parameters.getMaxAgeMachines_cFirms() + 1;
+			int numberMachine 	= ( (int) cFirm.capitalStock ) / ( (int) parameters.getMachineSizeInCapital_cFirms() );
+			int age 			= (int) parameters.getMaxAgeMachines_cFirms() + 1;
 			
 			while(numberMachine > 0){
-				Machine m 		= producer.factory();
-				cFirm.machineQuantityMap.put(m, 1);
-				cFirm.machineAgeMap.put(m, age);
+				// The first update of the firm, in period 0, makes the machines one period older: birth period = - (age + 1)
+				cFirm.vintages.add(producer.machineProduced.getMachineProductivity()[1], - (age + 1), 1);
 				
 				age--;
 				if(age < 1)
-					age 		= (int) Parameters.getMaxAgeMachines_cFirms() + 1;
+					age 		= (int) parameters.getMaxAgeMachines_cFirms() + 1;
 				
 				numberMachine--;	
 			}
@@ -393,22 +496,21 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 		collector.exitAssetMarket_cFirms					= 0;
 		collector.bankruptcyRate_cFirms					= 0;
 	
-		for(CFirm cFirm : cFirms)
-			cFirm.survivalChecking();
+		firmChunkExecutor.forEach(cFirms, CFirm::survivalChecking, true);
 		
 		// If all consumption-good firms exit in a given period, then the simulation terminates.
 		if(collector.cFirmsRemaining > 0){
-			// Remove from list c-firms that exit
-			for(Iterator<CFirm> it = cFirms.iterator(); it.hasNext();){
+			// Remove from list c-firms that exit. Iterate backward: the registry moves its last firm into the slot of a removed firm
+			for(int i = cFirms.size() - 1; i >= 0; i--){
 				
-				CFirm cFirm 						= it.next();
+				CFirm cFirm 						= cFirms.get(i);
 				
 				if(cFirm.exit){					
 					// Remove the c-firm from the list of clients of its supplier, and remove the object's references 
-					cFirm.supplier.clients.remove(cFirm);
+					SupplierNetwork.unlink(cFirm);
 					cFirm.kill();
 //					cFirm = null;
-					it.remove();
+					cFirms.remove(i);
 				}
 			}
 		} else {
@@ -420,21 +522,21 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 		// Identify which capital-good firm exit
 		collector.exit_kFirms 							= 0;
 
-		for(KFirm kFirm : kFirms)
-			kFirm.survivalChecking();
+		firmChunkExecutor.forEach(kFirms, KFirm::survivalChecking, true);
 		
 		// If all capital-good firms exit in a given period, then ends the simulation
 		if(collector.kFirmsRemaining > 0){
-			// Remove k-firm that exit
-			for(Iterator<KFirm> it = kFirms.iterator(); it.hasNext();){
+			// Remove k-firm that exit (backward, as for c-firms)
+			for(int i = kFirms.size() - 1; i >= 0; i--){
 			
-				KFirm kFirm = it.next();
+				KFirm kFirm = kFirms.get(i);
 				
 				if(kFirm.exit){
-					// Remove the k-firm from the list of k-firms, and remove the object's references 
+					// Remove the k-firm from the list of k-firms (its clients, if any, lose their supplier), and remove the object's references 
+					SupplierNetwork.unlinkClients(kFirm);
 					kFirm.kill();
 //					kFirm = null;
-					it.remove();
+					kFirms.remove(i);
 				}
 			}
 		} else {
@@ -443,12 +545,8 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 //			getEngine().getEventQueue().scheduleSystem(getEngine().getTime(), Order.BEFORE_ALL.getOrdering(), 0., getEngine(), SystemEventType.End);
 		}
 		
-		log.fatal("Exit statistics: " +
-					"\n number of exit 1 " + collector.exit_kFirms +
-					"\n number of exit 2 " + collector.exit_cFirms +
-					"\n\n asset " + collector.exitLiquidityIssue_cFirms + 
-					"\n\n market " + collector.exitMarketShareIssue_cFirms + 
-					"\n\n both " + collector.exitAssetMarket_cFirms); 
+		Trace.record(TracePoint.ExitStatistics, collector.exit_kFirms, collector.exit_cFirms, collector.exitLiquidityIssue_cFirms, 
+					collector.exitMarketShareIssue_cFirms, collector.exitAssetMarket_cFirms); 
 		
 	}
 	
@@ -460,13 +558,15 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 		will be defined anyway in a random manner in the supplier() method, (2) k-firms, so that they can target all c-firms of the economy, including the 
 		new entrants */
 		
+		// The entry process is sequential: a single stream per period 
+		RandomGenerator rnd 				= context.getRandomStream(RandomStreams.Stream.Entry, 0, entryGenerator);
+		
 		// Consumption-good firms
 		while(cFirms.size() < numberOfCFirms){
 			// Randomly select an incumbent, that is not a new entrant 
 			CFirm copy 						= null;
 			while(copy == null){
-				int rnd 					= SimulationEngine.getRnd().nextInt(cFirms.size());
-				copy 						= cFirms.get(rnd);
+				copy 						= cFirms.get(rnd.nextInt(cFirms.size()));
 				
 				if(copy.newEntrant)
 					copy 					= null;
@@ -478,7 +578,6 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 			// Add the new entrant to the list of incumbents 
 			cFirms.add(newEntrant);
 		}
-		log.debug("The final number of C-firms in the economy is " + cFirms.size()); 
 		
 		// Because the market shares are also copy from the incumbents, it is likely that the sum of market shares exceed 1. Thus normalize.
 		collector.marketShareNormalization();
@@ -488,8 +587,7 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 			// Randomly select an incumbent, that is not a new entrant 
 			KFirm copy 						= null;
 			while(copy == null){
-				int rnd 					= SimulationEngine.getRnd().nextInt(kFirms.size());
-				copy 						= kFirms.get(rnd);
+				copy 						= kFirms.get(rnd.nextInt(kFirms.size()));
 				if(copy.newEntrant)
 					copy 					= null;
 			}
@@ -497,22 +595,38 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 			// Create a new capital-good firms as a copy of the incumbent
 			KFirm newEntrant 				= new KFirm(copy);
 			
-			// The firm chooses then some potential clients, to which it will send its brochures at the beginning of the period 
-			int numberClientsNewEntrant 	= (int)((double)numberOfCFirms / (double)numberOfKFirms);
+			// The firm chooses then some distinct potential clients, to which it will send its brochures at the beginning of the period 
+			int numberClientsNewEntrant 	= Math.min((int)((double)numberOfCFirms / (double)numberOfKFirms), cFirms.size());
 			
-			while(numberClientsNewEntrant > 0){
-				int rnd 					= SimulationEngine.getRnd().nextInt(cFirms.size());
-				CFirm potentialClient 		= cFirms.get(rnd);
-				if(newEntrant.clients.isEmpty() || !newEntrant.clients.contains(potentialClient)){
-					newEntrant.clients.add(potentialClient);
-					numberClientsNewEntrant -= 1;
-				}
-			}			
+			newEntrant.brochureSampler.reset(cFirms.size());
+			int[] potentialClients 			= newEntrant.brochureSampler.sample(numberClientsNewEntrant, rnd);
+			for(int i = 0; i < numberClientsNewEntrant; i++){
+				newEntrant.entryPotentialClients.add(cFirms.get(potentialClients[i]));
+			}
 			// Add the new entrant to the list of incumbents 
 			kFirms.add(newEntrant);
 		}
-		log.fatal("The final number of K-firms in the economy is " + kFirms.size());
+		Trace.record(TracePoint.NumberOfFirms, cFirms.size(), kFirms.size());
+		
+	}
+	
+	// ---------------------------------------------------------------------
+	// Credit market
+	// ---------------------------------------------------------------------
+	
+	/* Batch adjustments: solves, in one pass over the packed inputs, the a priori adjustments of the c-firms that loaded theirs in the 
+	 APrioriAdjustments event (see CFirm.expectedPayment()). The rows are independent: in the parallel schedule, each chunk of rows is 
+	 solved on its own thread, with the scratch objects of the chunk */
+	void aPrioriAdjustments(){
 		
+		int numberOfFirms 					= cFirms.size();
+		if(parallelScheduling){
+			// The scratch objects of the chunks are created before the tasks, which then only read them
+			firmChunkExecutor.adjustmentScratch(firmChunkExecutor.numberOfChunks(numberOfFirms) - 1);
+			firmChunkExecutor.forEachChunk(numberOfFirms, 
+					(chunk, from, to) -> firmChunkExecutor.adjustmentScratch(chunk).aPriori.solve(adjustmentInputs, from, to));
+		} else
+			context.getAdjustmentScratch().aPriori.solve(adjustmentInputs, 0, numberOfFirms);
 	}
 	
 	// ---------------------------------------------------------------------
@@ -526,13 +640,14 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 		double laborDemandProd 				= collector.getLaborDemandUsedForProduction();
 		
 		// Subtract from the total labor supply the R&D labor demand, already used  
+		double laborSupply 					= context.getLabourSupply();
 		double laborSupplyRemaining 		= 0.;
 		if(laborSupply >= collector.laborDemandForRandD)
 			laborSupplyRemaining 			= laborSupply - collector.laborDemandForRandD;
 		else 
 			System.err.println("ERROR: labor demand RD > labor supply");
 		
-		log.debug("The aggregate labor demand is " + laborDemandProd + " while the labor supply is " + laborSupplyRemaining);
+		Trace.record(TracePoint.LaborSupply, laborDemandProd, laborSupplyRemaining);
 		
 		// Firms have to change their production plans if there is labor rationing 
 		if(laborDemandProd > laborSupplyRemaining){
@@ -541,7 +656,7 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 			// firm production 
 			
 			collector.rationingRatio_Labor	 	= laborSupplyRemaining / laborDemandProd;
-			log.fatal("Labor rationing, with ratio " + collector.rationingRatio_Labor);
+			Trace.record(TracePoint.LaborRationing, collector.rationingRatio_Labor);
 			
 			for(CFirm cFirm : cFirms)
 				cFirm.laborRationing(collector.rationingRatio_Labor);
@@ -555,58 +670,64 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 		collector.unemployment 				= laborSupply - collector.laborDemand;
 		collector.unemploymentRate[1] 					= collector.unemployment / laborSupply;
 		
-		log.fatal("LABOR MARKET: " +
-				"\n labor demand " + collector.laborDemand + 
-				"\n unemployment " + collector.unemployment + 
-				"\n u. rate " + collector.unemploymentRate[1]);
+		Trace.record(TracePoint.LaborMarket, collector.laborDemand, collector.unemployment, collector.unemploymentRate[1]);
 	}
 	
 	void marketCompetitiveness(){
 		
+		// The kernels work on the columns of the c-firms, loaded once here and stored back at the end (see FirmColumns)
+		cFirmColumns.load(cFirms);
+		int n 											= cFirmColumns.size();
+		double[] price 									= cFirmColumns.priceNow;
+		double[] unfilledDemand 						= cFirmColumns.unfilledDemand;
+		double[] competitiveness 						= cFirmColumns.competitiveness;
+		double[] marketShare 							= cFirmColumns.marketShareNow;
+		double[] newMarketShare 						= cFirmColumns.marketShareNext;
+		
 		/* Compute the mean price and the mean competitiveness to use in equation (24), Dosi et al. (2013) 
 		NOTE: normalize the price and the competitiveness. */
-		collector.competitivenessAggregate();
-		log.fatal("Competitiveness aggregate variable: " + 
-					"\n Mean price " + collector.meanPrice_cFirms + 
-					"\n Mean unfilled demand " + collector.meanUnfilledDemand);
+		collector.competitivenessAggregate(cFirmColumns);
+		Trace.record(TracePoint.CompetitivenessAggregate, collector.meanPrice_cFirms, collector.meanUnfilledDemand);
 		
 		// Normalize the market share, as some firms have already exited the economy (cf. myopicExpendituresUpdate)
-		collector.marketShareNormalization();
+		collector.marketShareNormalization(cFirmColumns);
 		
 		// Compute the firms' competitiveness & the mean competitiveness
-		collector.meanCompetitiveness_cFirms[1] 				= 0;
+		double coeffPrice 								= parameters.getCoeffPriceCompetitiveness_cFirms();
+		double coeffUnfilledDemand 						= parameters.getCoeffUnfilledDemandCompetitiveness_cFirms();
+		double meanPrice 								= collector.meanPrice_cFirms;
+		double meanUnfilledDemand 						= collector.meanUnfilledDemand;
 		
-		if(Double.compare(collector.meanUnfilledDemand, 0.) != 0)		//if mean unfilled demand is not 0.
+		if(Double.compare(meanUnfilledDemand, 0.) != 0)		//if mean unfilled demand is not 0.
 		{
-			for(CFirm cFirm : cFirms){
-				// Equation (24) in Dosi et al. (2013)
-				cFirm.competitiveness 						= - Parameters.getCoeffPriceCompetitiveness_cFirms() * cFirm.priceOfGoodProduced[1] / collector.meanPrice_cFirms - 
-												Parameters.getCoeffUnfilledDemandCompetitiveness_cFirms() * cFirm.unfilledDemand / collector.meanUnfilledDemand;
-				// Equation (24.5) in Dosi et al. (2013)
-				collector.meanCompetitiveness_cFirms[1] 			+= cFirm.competitiveness * cFirm.marketShare[1];				
-			}
+			// Equation (24) in Dosi et al. (2013)
+			for(int i = 0; i < n; i++)
+				competitiveness[i] 						= - coeffPrice * price[i] / meanPrice - coeffUnfilledDemand * unfilledDemand[i] / meanUnfilledDemand;
 		}
 		else {			//mean unfilled demand is 0., so to prevent 0/0 errors, we ignore unfilled demand component of competitiveness:
-			for(CFirm cFirm : cFirms){
-				// Equation (24) in Dosi et al. (2013)
-				cFirm.competitiveness 						= - Parameters.getCoeffPriceCompetitiveness_cFirms() * cFirm.priceOfGoodProduced[1] / collector.meanPrice_cFirms; 
-				// Equation (24.5) in Dosi et al. (2013)
-				collector.meanCompetitiveness_cFirms[1] 			+= cFirm.competitiveness * cFirm.marketShare[1];				
-			}			
+			// Equation (24) in Dosi et al. (2013)
+			for(int i = 0; i < n; i++)
+				competitiveness[i] 						= - coeffPrice * price[i] / meanPrice; 
 		}
+		// Equation (24.5) in Dosi et al. (2013)
+		collector.meanCompetitiveness_cFirms[1] 		= FirmColumns.dot(competitiveness, marketShare, n);
 		
 		// Compute the new firms' market share. Firms with too-low market share exit
 		// NOTE: careful, chi = -1 (even though in their calibration table in Dosi et al. (2013), chi = 1).
-		for(CFirm cFirm : cFirms){
-			cFirm.marketShare[2] 						= cFirm.marketShare[1] * (1 + Parameters.getChi_cFirms() * 
-											( cFirm.competitiveness - collector.meanCompetitiveness_cFirms[1] ) / collector.meanCompetitiveness_cFirms[1] );
-			
-			if(cFirm.marketShare[2] < Parameters.getMarketShareThresholdForExit_cFirms()){
+		double chi 										= parameters.getChi_cFirms();
+		double meanCompetitiveness 						= collector.meanCompetitiveness_cFirms[1];
+		for(int i = 0; i < n; i++)
+			newMarketShare[i] 							= marketShare[i] * (1 + chi * ( competitiveness[i] - meanCompetitiveness ) / meanCompetitiveness );
+		
+		double threshold 								= parameters.getMarketShareThresholdForExit_cFirms();
+		for(int i = 0; i < n; i++){
+			if(newMarketShare[i] < threshold){
 				
+				CFirm cFirm 							= cFirms.get(i);
 				cFirm.exit 					= true;
-				cFirm.marketShare[0] 					= 0;
-				cFirm.marketShare[1] 					= 0;
-				cFirm.marketShare[2] 					= 0;
+				cFirmColumns.marketSharePrevious[i] 	= 0;
+				marketShare[i] 							= 0;
+				newMarketShare[i] 						= 0;
 				
 				// Update its financial variables
 				if(cFirm.debt[1] > cFirm.liquidAsset[1]){
@@ -627,7 +748,8 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 		}
 		
 		// Some new firms may have exited the market. Re-normalize the firms' market shares
-		collector.marketShareNormalization();
+		collector.marketShareNormalization(cFirmColumns);
+		cFirmColumns.storeMarketShares(cFirms);
 	}
 	
 	void consumptionAllocation(){
@@ -637,7 +759,43 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 		collector.priceIndices();
 		collector.realConsumption 			= collector.consumption[1] / collector.cpi[1];
 		
-		/* 2. Allocate total consumption across the different consumption-good firms
+		// 2. Allocate total consumption across the different consumption-good firms
+		switch(consumptionAllocationMode){
+		
+		case Water_Filling:
+			this.consumptionTemp 			= consumptionAllocator.allocate(cFirms, collector.realConsumption);
+			consumptionAllocator.apply(cFirms);
+			collector.realConsumption 		= consumptionTemp;
+			break;
+			
+		case Rounds:
+			consumptionAllocationRounds();
+			break;
+			
+		case Validation:
+			consumptionAllocator.allocate(cFirms, collector.realConsumption);
+			consumptionAllocationRounds();
+			int differences 				= consumptionAllocator.validate(cFirms, collector.realConsumption);
+			if(differences > 0 && log.isEnabledFor(Level.WARN))
+				log.warn("Consumption allocation: " + differences + " difference(s) with the reference allocation in period " + context.getTime());
+			break;
+			
+		default:
+			throw new IllegalArgumentException("Unsupported consumption allocation mode");
+		}
+		
+		// The 'unfilled' demand (consumption) is the real consumption that had not been met in the allocation process
+		collector.unfilledDemandAggregate 			= collector.realConsumption;		
+		
+		if(collector.unfilledDemandAggregate < 0){
+			collector.unfilledDemandAggregate 		= 0;
+			log.error("Past consumption < 0: " + collector.unfilledDemandAggregate);
+		}
+		
+	}
+	
+	void consumptionAllocationRounds(){
+		/* Reference allocation of the consumption.
 		It might be that once all firms received their corresponding demand (real consumption * market share), 
 		the stock of consumption is still positive, while some firms still have some goods in their stocks. This is why
 		we iterate over firms until either real consumption or the total stock of goods reach zero.
@@ -678,14 +836,6 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 			collector.realConsumption 		= consumptionTemp;
 			i++;
 		}		
-		// The 'unfilled' demand (consumption) is the real consumption that had not been met in the allocation process
-		collector.unfilledDemandAggregate 			= collector.realConsumption;		
-		
-		if(collector.unfilledDemandAggregate < 0){
-			collector.unfilledDemandAggregate 		= 0;
-			log.error("Past consumption < 0: " + collector.unfilledDemandAggregate);
-		}
-		
 	}
 	
 	// ---------------------------------------------------------------------
@@ -712,7 +862,7 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 		return cFirms;
 	}
 
-	public void setCFirms(List<CFirm> cFirms) {
+	public void setCFirms(FirmRegistry<CFirm> cFirms) {
 		this.cFirms = cFirms;
 	}
 	
@@ -720,7 +870,7 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 		return kFirms;
 	}
 
-	public void setKFirms(List<KFirm> kFirms) {
+	public void setKFirms(FirmRegistry<KFirm> kFirms) {
 		this.kFirms = kFirms;
 	}
 	
@@ -800,20 +950,32 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 //		this.myopicDebtRepayment = myopicDebtRepayment;
 //	}
 
-	public static double getrDepo() {
-		return returnOnFirmsDeposits;
+	public RunContext getContext() {
+		return context;
+	}
+
+	public Parameters getParameters() {
+		return parameters;
+	}
+
+	public Ledger getLedger() {
+		return ledger;
 	}
 
-	public static double getrDebt() {
-		return interestRateOnDebt;
+	TechnologySnapshot getTechnologySnapshot() {
+		return technologySnapshot;
 	}
 
-	public static double getrCb() {
-		return returnOnBankDepositsAtCentralBank;
+	public SectorAggregates getSectorAggregates() {
+		return sectorAggregates;
 	}
 
-	public static double getLabourSupply() {
-		return laborSupply;
+	public AdjustmentInputs getAdjustmentInputs() {
+		return adjustmentInputs;
+	}
+
+	FirmChunkExecutor getFirmChunkExecutor() {
+		return firmChunkExecutor;
 	}
 
 	public List<KFirm> getkFirms() {
@@ -828,10 +990,6 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 		this.collector = collector;
 	}
 
-	public static double getTax() {
-		return tax_rate;
-	}
-
 //	public boolean isMason() {
 //		return mason;
 //	}
@@ -864,4 +1022,59 @@ public class MacroModel extends AbstractSimulationManager implements EventListen
 		this.debtRepayment = debtRepayment;
 	}
 
+	public boolean isParallelScheduling() {
+		return parallelScheduling;
+	}
+
+	public void setParallelScheduling(boolean parallelScheduling) {
+		this.parallelScheduling = parallelScheduling;
+	}
+
+	public Integer getParallelChunkSize() {
+		return parallelChunkSize;
+	}
+
+	public void setParallelChunkSize(Integer parallelChunkSize) {
+		this.parallelChunkSize = parallelChunkSize;
+	}
+
+	public ConsumptionAllocationMode getConsumptionAllocationMode() {
+		return consumptionAllocationMode;
+	}
+
+	public void setConsumptionAllocationMode(ConsumptionAllocationMode consumptionAllocationMode) {
+		this.consumptionAllocationMode = consumptionAllocationMode;
+	}
+
+	public boolean isBatchAdjustments() {
+		return batchAdjustments;
+	}
+
+	public void setBatchAdjustments(boolean batchAdjustments) {
+		this.batchAdjustments = batchAdjustments;
+	}
+
+	public boolean isFuseFirmProcesses() {
+		return fuseFirmProcesses;
+	}
+
+	public void setFuseFirmProcesses(boolean fuseFirmProcesses) {
+		this.fuseFirmProcesses = fuseFirmProcesses;
+	}
+
+	public boolean isConcurrentStages() {
+		return concurrentStages;
+	}
+
+	public void setConcurrentStages(boolean concurrentStages) {
+		this.concurrentStages = concurrentStages;
+	}
+
+	public boolean isValidateConcurrentStages() {
+		return validateConcurrentStages;
+	}
+
+	public void setValidateConcurrentStages(boolean validateConcurrentStages) {
+		this.validateConcurrentStages = validateConcurrentStages;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package jasmine.model;
+
+import java.util.Arrays;
+
+/* Books of orders of a capital-good firm: for each client that ordered machines in the period, the number of machines ordered. Orders
+ are stored in two parallel arrays (clients, and number of machines as primitive longs), in the order in which they were received,
+ which is the order in which the machines are delivered (KFirm.machineProduction()). A client orders at most once per period.
+
+ The buffers grow when needed and are re-used from one period to the next: clear() does not free them.
+ */
+class OrderBook {
+
+	private CFirm[] clients;
+
+	private long[] quantities;
+
+	private int size;
+
+	// Buffers of reorder()
+	private CFirm[] clientsBuffer;
+
+	private long[] quantitiesBuffer;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	OrderBook(){
+
+		this.clients 							= new CFirm[8];
+		this.quantities 						= new long[8];
+		this.clientsBuffer 						= new CFirm[8];
+		this.quantitiesBuffer 					= new long[8];
+		this.size 								= 0;
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	void add(CFirm client, long quantity){
+
+		if(size == clients.length){
+			int capacity 						= 2 * clients.length;
+			this.clients 						= Arrays.copyOf(clients, capacity);
+			this.quantities 					= Arrays.copyOf(quantities, capacity);
+			this.clientsBuffer 					= new CFirm[capacity];
+			this.quantitiesBuffer 				= new long[capacity];
+		}
+		this.clients[size] 						= client;
+		this.quantities[size++] 				= quantity;
+	}
+
+	/* Re-orders the books: the order at position order[r] moves to position r, for r = 0, ..., size() - 1. order must be a permutation of
+	 the positions (e.g. a ranking of the orders, see KFirm.laborRationing()) */
+	void reorder(int[] order){
+
+		for(int r = 0; r < size; r++){
+			this.clientsBuffer[r] 				= clients[order[r]];
+			this.quantitiesBuffer[r] 			= quantities[order[r]];
+		}
+		CFirm[] swapClients 					= clients;
+		this.clients 							= clientsBuffer;
+		this.clientsBuffer 						= swapClients;
+		long[] swapQuantities 					= quantities;
+		this.quantities 						= quantitiesBuffer;
+		this.quantitiesBuffer 					= swapQuantities;
+		Arrays.fill(clientsBuffer, 0, size, null);
+	}
+
+	void clear(){
+
+		Arrays.fill(clients, 0, size, null);
+		this.size 								= 0;
+	}
+
+	CFirm getClient(int i) {
+		return clients[i];
+	}
+
+	long getQuantity(int i) {
+		return quantities[i];
+	}
+
+	void setQuantity(int i, long quantity) {
+		this.quantities[i] 						= quantity;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+}
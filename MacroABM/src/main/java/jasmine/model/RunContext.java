@@ -0,0 +1,173 @@
+package jasmine.model;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomGenerator;
+
+import jasmine.algorithms.RandomStreams;
+import jasmine.algorithms.Samplers;
+import jasmine.data.Parameters;
+
+/* The run context gathers all the state that is global to one simulation run, but that must not be shared between two runs:
+ the calibration (Parameters), the random streams, the interest & tax rates that are constant over the run, the id
+ counters of the agents and the scratch objects used by the financial adjustments. Previously, all of this was held in static
+ fields, which prevented running several replications of the model in the same JVM at the same time (see MacroMultiRun).
+
+ One context is created by the MacroModel in buildObjects(). Every agent, the collector and the algorithms retrieve it from the model.
+ */
+public class RunContext {
+
+	// Calibration of the run
+	private final Parameters parameters;
+
+	// Random streams of the run: one stream per agent, process and period (see RandomStreams)
+	private final RandomStreams randomStreams;
+
+	// --- Variables that are global to the economy & constant over the run ---
+	// return on firms' deposits
+	private final double returnOnFirmsDeposits;
+	// interest rate on the debt
+	private final double interestRateOnDebt;
+	// return on the bank's deposit at the central bank
+	private final double returnOnBankDepositsAtCentralBank;
+	// tax rate on firms' profit
+	private final double taxRate;
+	// labor supply (fixed and inelastic)
+	private final double laborSupply;
+	// distribution of the innovations of the capital-good firms (its parameters are constant over the run)
+	private final Samplers.ScaledBeta innovationSampler;
+
+	// --- Id counters of the agents ---
+	private long cFirmIdCounter;
+	private long kFirmIdCounter;
+	private long bankIdCounter;
+
+	/* --- Financial adjustments of consumption-good firms, in the sequential processes. The chunks of the parallel processes have their
+	 own (see AdjustmentScratch) --- */
+	private final AdjustmentScratch adjustmentScratch;
+
+	// Current period of the run. Advanced at the end of every period by the model, see MacroModel.buildPeriodEventGroup()
+	private double time;
+
+	// true once the run has to stop before its end time (e.g. the bank cannot be saved), see MacroModel.stopRun()
+	private boolean stopped;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	public RunContext(MacroModel model){
+
+		// Calibrate the model.
+		// If the simulations are thrown from the Estimation class, then only the parameters that are picked manually are loaded.
+		this.parameters 						= new Parameters();
+		if(!Parameters.ESTIMATION_OF_PARAMETERS)
+			parameters.initializationWithoutEstimation();
+		else
+			parameters.initializationWithEstimation();
+
+		// Set the seed from which all the random streams are derived.
+		// If fixed, the model will follow the same trajectory as other executions with the same random number seed.
+		if(model.isFixRandomSeed())
+			this.randomStreams 					= new RandomStreams(model.getSeedIfFixed());
+		else
+			this.randomStreams 					= new RandomStreams(new MersenneTwister().nextLong());
+
+		// Compute the constant variables of the economy
+		this.returnOnFirmsDeposits 				= model.getInterestRate() * (1 - parameters.getCoeffMarkDownOnDepositRate_Bank());
+		this.interestRateOnDebt 				= model.getInterestRate() * (1 + parameters.getCoeffMarkUpOnInterestRate_Bank());
+		this.returnOnBankDepositsAtCentralBank 	= model.getInterestRate() * (1 - parameters.getCoeffMarkDownOnDepositRateAtCentralBank_Bank());
+		this.taxRate 							= model.getTaxRate();
+		this.laborSupply 						= parameters.getLaborSupply();
+		this.innovationSampler 					= new Samplers.ScaledBeta(parameters.getAlpha1_Innovation_kFirms(), 
+													parameters.getBeta1_Innovation_kFirms(), parameters.getX1lower_Innovation_kFirms(), 
+													parameters.getX1upper_Innovation_kFirms());
+
+		this.cFirmIdCounter 					= 0l;
+		this.kFirmIdCounter 					= 0l;
+		this.bankIdCounter 						= 0l;
+
+		this.adjustmentScratch 					= new AdjustmentScratch(this);
+
+		this.time 								= 0.;
+		this.stopped 							= false;
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	long nextCFirmId(){
+		return cFirmIdCounter++;
+	}
+
+	long nextKFirmId(){
+		return kFirmIdCounter++;
+	}
+
+	long nextBankId(){
+		return bankIdCounter++;
+	}
+
+	void advanceTime(){
+		this.time 								+= 1.;
+	}
+
+	void stop(){
+		this.stopped 							= true;
+	}
+
+	// ---------------------------------------------------------------------
+	// Access methods
+	// ---------------------------------------------------------------------
+
+	public Parameters getParameters() {
+		return parameters;
+	}
+
+	// Random stream of the agent with identifier id, for the given process, in the current period. The generator of the agent is reseeded
+	public RandomGenerator getRandomStream(RandomStreams.Stream stream, long id, RandomGenerator generator) {
+		return randomStreams.stream(stream, id, (long) time, generator);
+	}
+
+	public RandomStreams getRandomStreams() {
+		return randomStreams;
+	}
+
+	public double getrDepo() {
+		return returnOnFirmsDeposits;
+	}
+
+	public double getrDebt() {
+		return interestRateOnDebt;
+	}
+
+	public double getrCb() {
+		return returnOnBankDepositsAtCentralBank;
+	}
+
+	public double getTax() {
+		return taxRate;
+	}
+
+	public double getLabourSupply() {
+		return laborSupply;
+	}
+
+	public Samplers.ScaledBeta getInnovationSampler() {
+		return innovationSampler;
+	}
+
+	AdjustmentScratch getAdjustmentScratch() {
+		return adjustmentScratch;
+	}
+
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	public double getTime() {
+		return time;
+	}
+
+}
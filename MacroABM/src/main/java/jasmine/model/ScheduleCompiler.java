@@ -0,0 +1,304 @@
+package jasmine.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import microsim.event.Event;
+import microsim.event.EventGroup;
+
+import org.apache.log4j.Logger;
+
+import jasmine.model.FirmProcess.State;
+
+/* Builds the events of a period from the sequence of processes of the schedule (see MacroModel.buildPeriodEventGroup()).
+
+ Two consecutive processes of the same list of firms need no barrier between them if they do not depend on each other through the state
+ shared between the firms (declared by each process, see FirmProcess): the first does not write what the second reads, the second does not
+ write what the first reads, and they do not write the same state (the order of the writes would change, e.g. the order of the sums of a
+ total). When fusion is enabled, the compiler merges such runs of processes into a single pass over the firms, that applies all the
+ processes of the run to a firm before moving to the next one. In the current schedule:
+ 		CFirm (ChooseSupplier +) InitialExpenditures + APrioriAdjustments
+ 		CFirm ExpendituresUpdate + InvestmentOrder (+ LaborDemand)
+ where the processes in brackets are not merged, as they cannot run in parallel and the others can: processes whose chunks run in parallel
+ are not merged with processes whose chunks do not, in both schedules, so that the steps of the period do not depend on the schedule. The
+ results of the period are unchanged, but the firms are traversed once per run instead of once per process.
+
+ The processes are bound to the methods of the firms (see bind()), called directly rather than through onEvent(). Every run of processes of
+ the firms is executed by chunks of firms (FirmChunkExecutor), which run in parallel in the parallel schedule if all the processes of the run
+ allow it. The events of the other agents (model, bank, collector) are kept as they are, and act as barriers.
+
+ Processes of different lists of firms that the schedule documents as independent are added beside each other (addFirmsEventBeside()):
+ they have no edge between them, and depend on the same steps before them. When the concurrent stages are enabled, they run at the same time
+ (see ConcurrentStage), unless one of them runs its chunks of firms in parallel in the parallel schedule. Their independence is checked
+ against their declarations when the schedule is built, and optionally at run time (validation mode).
+
+ When fusion and concurrent stages are disabled, the compiler emits one event per process, as the schedule did before.
+ */
+class ScheduleCompiler {
+
+	private final static Logger log = Logger.getLogger(ScheduleCompiler.class);
+
+	// Methods of the firms bound to their processes
+	private static final Map<Enum<?>, Consumer<? extends Firm>> handlers = new HashMap<>();
+
+	static {
+		bind(CFirm.Processes.Update, 				CFirm::update);
+		bind(CFirm.Processes.ChooseSupplier, 		CFirm::chooseSupplier);
+		bind(CFirm.Processes.InitialExpenditures, 	CFirm::initialExpenditures);
+		bind(CFirm.Processes.APrioriAdjustments, 	CFirm::aPrioriFeasibility);
+		bind(CFirm.Processes.CreditApplication, 	CFirm::creditApplication);
+		bind(CFirm.Processes.ExpendituresUpdate, 	CFirm::expendituresUpdate);
+		bind(CFirm.Processes.InvestmentOrder, 		CFirm::investmentOrder);
+		bind(CFirm.Processes.LaborDemand, 			CFirm::laborDemand);
+		bind(CFirm.Processes.MachineScrapping, 		CFirm::machineScrapping);
+		bind(CFirm.Processes.Production, 			CFirm::production);
+		bind(CFirm.Processes.Accounting, 			CFirm::accounting);
+
+		bind(KFirm.Processes.Update, 				KFirm::update);
+		bind(KFirm.Processes.Research, 				KFirm::research);
+		bind(KFirm.Processes.Brochure, 				KFirm::brochure);
+		bind(KFirm.Processes.LaborDemand, 			KFirm::laborDemand);
+		bind(KFirm.Processes.MachineProduction, 	KFirm::machineProduction);
+		bind(KFirm.Processes.Accounting, 			KFirm::accounting);
+
+		// Every process must have its method (a new process added to onEvent() only would otherwise be silently skipped)
+		for(Enum<?> type : CFirm.Processes.values())
+			if(!handlers.containsKey(type))
+				throw new IllegalStateException("No method bound to the process " + type + " of the c-firms");
+		for(Enum<?> type : KFirm.Processes.values())
+			if(!handlers.containsKey(type))
+				throw new IllegalStateException("No method bound to the process " + type + " of the k-firms");
+	}
+
+	private final MacroModel model;
+
+	private final FirmChunkExecutor executor;
+
+	private final boolean fusion;
+
+	private final boolean concurrency;
+
+	private final boolean validation;
+
+	// Steps of the period, in the order of the schedule
+	private final List<Step> steps;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	ScheduleCompiler(MacroModel model, FirmChunkExecutor executor){
+
+		this.model 								= model;
+		this.executor 							= executor;
+		this.fusion 							= model.isFuseFirmProcesses();
+		this.concurrency 						= model.isConcurrentStages();
+		this.validation 						= model.isValidateConcurrentStages();
+		this.steps 								= new ArrayList<>();
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	// Event of an agent that is not a firm of the lists (model, bank, collector)
+	void addEvent(Object target, Enum<?> type){
+		steps.add(new Step(target, type));
+	}
+
+	// Process applied to every firm of the list. Merged with the run of processes before it if possible
+	void addFirmsEvent(List<? extends Firm> firms, Enum<?> type){
+
+		if(!(type instanceof FirmProcess))
+			throw new IllegalArgumentException("The process " + type + " does not declare the state it shares between firms");
+
+		boolean parallel 						= model.isParallelProcess(type);
+		Step last 								= steps.isEmpty() ? null : steps.get(steps.size() - 1);
+		if(fusion && last != null && last.firms == firms && last.parallel == parallel && !last.beside && last.isIndependentOf((FirmProcess) type, false))
+			last.processes.add(type);
+		else
+			steps.add(new Step(firms, type, parallel));
+	}
+
+	/* Process applied to every firm of the list, with no edge from the process of the firms added just before (on another list): both depend
+	 on the steps before them, and the steps after them depend on both. They must not depend on each other through the state shared between
+	 the firms, apart from the totals of the ledger */
+	void addFirmsEventBeside(List<? extends Firm> firms, Enum<?> type){
+
+		if(!(type instanceof FirmProcess))
+			throw new IllegalArgumentException("The process " + type + " does not declare the state it shares between firms");
+		Step last 								= steps.isEmpty() ? null : steps.get(steps.size() - 1);
+		if(last == null || last.firms == null)
+			throw new IllegalStateException("The process " + type + " can only be added beside a process of the firms");
+
+		// Only the last process of a fused run goes beside the new process, if the processes fused before it depend on the new one
+		if(last.processes.size() > 1 && !last.isIndependentOf((FirmProcess) type, true)){
+			Enum<?> lastProcess 				= last.processes.remove(last.processes.size() - 1);
+			last 								= new Step(last.firms, lastProcess, last.parallel);
+			steps.add(last);
+		}
+
+		// The new process must be independent from all the processes of the stage
+		for(int i = steps.size() - 1; i >= 0; i--){
+			Step step 							= steps.get(i);
+			if(step.firms == firms)
+				throw new IllegalArgumentException("The process " + type + " cannot run beside a process of the same firms");
+			if(!step.isIndependentOf((FirmProcess) type, true))
+				throw new IllegalStateException("The process " + type + " depends on " + step.processes + " through the state they share");
+			if(!step.beside)
+				break;
+		}
+
+		Step step 								= new Step(firms, type, model.isParallelProcess(type));
+		step.beside 							= true;
+		steps.add(step);
+	}
+
+	// Events of the period
+	EventGroup compile(){
+
+		EventGroup eventGroup 					= new EventGroup();
+		for(int i = 0; i < steps.size(); ){
+			// Stage: the step and the steps beside it
+			int end 							= i + 1;
+			while(end < steps.size() && steps.get(end).beside)
+				end++;
+			List<Step> stage 					= steps.subList(i, end);
+			i 									= end;
+
+			if(concurrency && stage.size() > 1 && !(model.isParallelScheduling() && anyParallel(stage))){
+				ConcurrentStage concurrentStage = new ConcurrentStage(model, validation);
+				for(Step step : stage)
+					addTask(concurrentStage, step);
+				log.info("Processes " + stage + " run concurrently" + (validation ? " (validation mode)" : ""));
+				eventGroup.addEvent(concurrentStage.event());
+			} else {
+				for(Step step : stage)
+					addStep(eventGroup, step);
+			}
+		}
+		return eventGroup;
+	}
+
+	private void addStep(EventGroup eventGroup, Step step){
+
+		if(step.firms == null)
+			eventGroup.addEvent(step.target, step.processes.get(0));
+		else if(!fusion)
+			eventGroup.addEvent(executor.collectionEvent(step.firms, step.processes.get(0), step.parallel));
+		else {
+			if(step.processes.size() > 1)
+				log.info("Processes " + step.processes + " run in a single pass over the firms" + 
+						(step.parallel && model.isParallelScheduling() ? " (parallel)" : ""));
+			eventGroup.addEvent(passEvent(step.firms, step.processes, step.parallel));
+		}
+	}
+
+	private static boolean anyParallel(List<Step> stage){
+		for(Step step : stage)
+			if(step.parallel)
+				return true;
+		return false;
+	}
+
+	private static <F extends Firm> void addTask(ConcurrentStage stage, Step step){
+		stage.add(step.toString(), step.<F>firms(), pass(step.processes));
+	}
+
+	// The processes applied, in order, to a firm
+	private static <F extends Firm> Consumer<F> pass(List<Enum<?>> processes){
+
+		Consumer<F> pass 						= handler(processes.get(0));
+		for(int i = 1; i < processes.size(); i++)
+			pass 								= pass.andThen(handler(processes.get(i)));
+		return pass;
+	}
+
+	// Event applying the processes, in order, to each firm of the list
+	private <F extends Firm> Event passEvent(final List<F> firms, List<Enum<?>> processes, final boolean parallel){
+
+		final Consumer<F> action 				= pass(processes);
+
+		return new Event(){
+			@Override
+			public void fireEvent() {
+				executor.forEach(firms, action, parallel);
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <F extends Firm> Consumer<F> handler(Enum<?> type){
+		return (Consumer<F>) handlers.get(type);
+	}
+
+	private static <F extends Firm> void bind(Enum<?> type, Consumer<F> handler){
+		handlers.put(type, handler);
+	}
+
+	// Either an event of an agent (target != null), or a run of processes applied to a list of firms (firms != null)
+	private static class Step {
+
+		final Object target;
+		final List<? extends Firm> firms;
+		final List<Enum<?>> processes;
+		final boolean parallel;
+		// true if the step has no edge from the step before it (see addFirmsEventBeside())
+		boolean beside;
+
+		Step(Object target, Enum<?> type){
+			this.target 						= target;
+			this.firms 							= null;
+			this.processes 						= Collections.<Enum<?>>singletonList(type);
+			this.parallel 						= false;
+		}
+
+		Step(List<? extends Firm> firms, Enum<?> type, boolean parallel){
+			this.target 						= null;
+			this.firms 							= firms;
+			this.processes 						= new ArrayList<>();
+			this.processes.add(type);
+			this.parallel 						= parallel;
+		}
+
+		/* Whether the process does not depend on any process of the step through the state shared between firms. Processes running
+		 concurrently can both write the totals of the ledger, as they write them in different ledgers */
+		boolean isIndependentOf(FirmProcess next, boolean concurrent){
+
+			for(Enum<?> type : processes){
+				FirmProcess process 			= (FirmProcess) type;
+				Set<State> sharedWrites 		= EnumSet.noneOf(State.class);
+				sharedWrites.addAll(process.getWrites());
+				sharedWrites.retainAll(next.getWrites());
+				if(concurrent)
+					sharedWrites.remove(State.Totals);
+				if(!Collections.disjoint(process.getWrites(), next.getReads())
+						|| !Collections.disjoint(next.getWrites(), process.getReads())
+						|| !sharedWrites.isEmpty())
+					return false;
+			}
+			return true;
+		}
+
+		@SuppressWarnings("unchecked")
+		<F extends Firm> List<F> firms(){
+			return (List<F>) firms;
+		}
+
+		@Override
+		public String toString(){
+			if(firms == null)
+				return processes.get(0).getDeclaringClass().getSimpleName() + "." + processes.get(0);
+			String sector 						= processes.get(0).getDeclaringClass().getEnclosingClass().getSimpleName();
+			return sector + processes;
+		}
+	}
+
+}
@@ -0,0 +1,299 @@
+package jasmine.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jasmine.object.VintageTable;
+
+/* Totals of the firms of each sector needed at the end of the period, by the bank (debt, bad debt) and the collector (aggregate
+ investment, demand, profit, productivity, Herfindahl measures etc., see MacroCollector.aggregateComputation()).
+
+ They are all computed in a single traversal of each sector, right after the accounting of the firms, instead of one traversal per
+ cross-section and one per loop of the bank and of the collector. The firms are not modified until the end of the period, so that the
+ totals are the ones the collector used to compute.
+
+ In every schedule, the firms are split into the chunks of the FirmChunkExecutor, fixed by the chunk size. Each chunk accumulates its own
+ partial totals, and the partial totals are merged in the order of the chunks: the result depends on the chunk size, never on the schedule
+ nor on the number of threads (the chunks run in parallel in the parallel schedule, one after the other otherwise). If the firms fit in a
+ single chunk, the totals are the sums of the original loops, bit for bit; with several chunks, they can differ from them in the last bits
+ (sums are not associative in floating point).
+ */
+public class SectorAggregates {
+
+	private final MacroModel model;
+
+	private final CFirmTotals cFirmTotals;
+
+	private final KFirmTotals kFirmTotals;
+
+	// Partial totals of the chunks, re-used from one period to the next
+	private final List<CFirmTotals> cFirmChunks;
+
+	private final List<KFirmTotals> kFirmChunks;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	SectorAggregates(MacroModel model){
+
+		this.model 								= model;
+		this.cFirmTotals 						= new CFirmTotals();
+		this.kFirmTotals 						= new KFirmTotals();
+		this.cFirmChunks 						= new ArrayList<>();
+		this.kFirmChunks 						= new ArrayList<>();
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	/* Computes the totals of both sectors. laborDemandUsedForProduction normalizes the contributions to the average labor productivity,
+	 and the k-firms' productivity is weighted by their market share only if productionPositive_kFirms (see MacroCollector.priceIndices()) */
+	void compute(List<CFirm> cFirms, List<KFirm> kFirms, double laborDemandUsedForProduction, boolean productionPositive_kFirms){
+
+		final int now 							= (int) model.getContext().getTime();
+
+		// Consumption-good firms
+		FirmChunkExecutor executor 				= model.getFirmChunkExecutor();
+		int numberOfChunks 						= executor.numberOfChunks(cFirms.size());
+		while(cFirmChunks.size() < numberOfChunks)
+			cFirmChunks.add(new CFirmTotals());
+		executor.forEachChunk(cFirms.size(), (chunk, from, to) -> {
+			CFirmTotals totals 					= cFirmChunks.get(chunk);
+			totals.reset();
+			for(int i = from; i < to; i++)
+				totals.accumulate(cFirms.get(i), laborDemandUsedForProduction, now);
+		});
+		cFirmTotals.reset();
+		for(int chunk = 0; chunk < numberOfChunks; chunk++)
+			cFirmTotals.merge(cFirmChunks.get(chunk));
+
+		// Capital-good firms. The average labor productivity goes on summing over the k-firms, starting from the total of the c-firms
+		numberOfChunks 							= executor.numberOfChunks(kFirms.size());
+		while(kFirmChunks.size() < numberOfChunks)
+			kFirmChunks.add(new KFirmTotals());
+		executor.forEachChunk(kFirms.size(), (chunk, from, to) -> {
+			KFirmTotals totals 					= kFirmChunks.get(chunk);
+			totals.reset();
+			if(chunk == 0)
+				totals.averageLaborProductivity = cFirmTotals.averageLaborProductivity;
+			for(int i = from; i < to; i++)
+				totals.accumulate(kFirms.get(i), laborDemandUsedForProduction, productionPositive_kFirms);
+		});
+		kFirmTotals.reset();
+		for(int chunk = 0; chunk < numberOfChunks; chunk++)
+			kFirmTotals.merge(kFirmChunks.get(chunk));
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Totals of the sectors
+	// ---------------------------------------------------------------------
+
+	// Sums over the consumption-good firms
+	public static final class CFirmTotals {
+
+		public double investmentExpansionary;
+		public double investmentSubstitutionary;
+		public double liquidAssets;
+		public double demand;
+		public double profit;
+		public double grossOperatingSurplus;
+		// Productivity and cost, weighted by the market share
+		public double productivityWeightedByMarketShare;
+		public double costWeightedByMarketShare;
+		public double logProductivity;
+		public double productionNominal;
+		public double diffInventoriesNominal;
+		// Sum of laborDemand * productivity / laborDemandUsedForProduction (the k-firms' part is in KFirmTotals)
+		public double averageLaborProductivity;
+		// Sum of the squared market shares
+		public double marketShareSquared;
+		public double capitalStock;
+		public double debt;
+		public double badDebt;
+		public double netWorthToSalesRatio;
+		// Sum over the firms of the average age of their machines
+		public double avgAgeMachines;
+		public double inventories;
+		public double desiredProduction;
+		public double desiredCapitalStock;
+		public double maxPossibleCapitalStock;
+		public double desiredExpansionaryInvestment;
+		public double desiredExpansionaryInvestmentStar;
+
+		private CFirmTotals(){
+		}
+
+		private void reset(){
+			this.investmentExpansionary 				= 0;
+			this.investmentSubstitutionary 				= 0;
+			this.liquidAssets 							= 0;
+			this.demand 								= 0;
+			this.profit 								= 0;
+			this.grossOperatingSurplus 					= 0;
+			this.productivityWeightedByMarketShare 		= 0;
+			this.costWeightedByMarketShare 				= 0;
+			this.logProductivity 						= 0;
+			this.productionNominal 						= 0;
+			this.diffInventoriesNominal 				= 0;
+			this.averageLaborProductivity 				= 0;
+			this.marketShareSquared 					= 0;
+			this.capitalStock 							= 0;
+			this.debt 									= 0;
+			this.badDebt 								= 0;
+			this.netWorthToSalesRatio 					= 0;
+			this.avgAgeMachines 						= 0;
+			this.inventories 							= 0;
+			this.desiredProduction 						= 0;
+			this.desiredCapitalStock 					= 0;
+			this.maxPossibleCapitalStock 				= 0;
+			this.desiredExpansionaryInvestment 			= 0;
+			this.desiredExpansionaryInvestmentStar 		= 0;
+		}
+
+		private void accumulate(CFirm cFirm, double laborDemandUsedForProduction, int now){
+			double productivity 						= cFirm.getProductivity();
+			double marketShare 							= cFirm.getMarketShare()[2];
+			double[] inventoriesOfFirm 					= cFirm.getInventories();
+			// Running totals of the firm's machine set (see VintageTable)
+			VintageTable vintages 						= cFirm.getVintages();
+
+			this.investmentExpansionary 				+= cFirm.getInvestmentExpansionary();
+			this.investmentSubstitutionary 				+= cFirm.getInvestmentSubstitutionary();
+			this.liquidAssets 							+= cFirm.getLiquidAssetNow();
+			this.demand 								+= cFirm.getDemandNow();
+			this.profit 								+= cFirm.getProfit();
+			this.grossOperatingSurplus 					+= cFirm.getGrossOperatingSurplus();
+			this.productivityWeightedByMarketShare 		+= productivity * marketShare;
+			this.costWeightedByMarketShare 				+= cFirm.getCostToProduceGood() * marketShare;
+			this.logProductivity 						+= Math.log(productivity);
+			this.productionNominal 						+= cFirm.getProductionQuantity() * cFirm.getPriceOfGoodProducedNow();
+			this.diffInventoriesNominal 				+= inventoriesOfFirm[1] * cFirm.getPriceOfGoodProducedNow() - inventoriesOfFirm[0] * cFirm.getPriceOfGoodProducedPrevious();
+			this.averageLaborProductivity 				+= cFirm.getLaborDemand() * productivity / laborDemandUsedForProduction;
+			this.marketShareSquared 					+= marketShare * marketShare;
+			this.capitalStock 							+= cFirm.getCapitalStock();
+			this.debt 									+= cFirm.debt[1];
+			this.badDebt 								+= cFirm.getBadDebt();
+			this.netWorthToSalesRatio 					+= cFirm.getNetWorthToSalesRatio();
+			this.avgAgeMachines 						+= (double) vintages.getAgeQuantitySum(now) / (double) vintages.getTotalQuantity();
+			this.inventories 							+= inventoriesOfFirm[1];
+			this.desiredProduction 						+= cFirm.getdQ();
+			this.desiredCapitalStock 					+= cFirm.getDesiredCapitalStock();
+			this.maxPossibleCapitalStock 				+= cFirm.getMaxPossibleCapitalStock();
+			this.desiredExpansionaryInvestment 			+= cFirm.getdInvestmentExpansionary();
+			this.desiredExpansionaryInvestmentStar 		+= cFirm.getdInvestmentExpansionaryStar();
+		}
+
+		private void merge(CFirmTotals chunk){
+			this.investmentExpansionary 				+= chunk.investmentExpansionary;
+			this.investmentSubstitutionary 				+= chunk.investmentSubstitutionary;
+			this.liquidAssets 							+= chunk.liquidAssets;
+			this.demand 								+= chunk.demand;
+			this.profit 								+= chunk.profit;
+			this.grossOperatingSurplus 					+= chunk.grossOperatingSurplus;
+			this.productivityWeightedByMarketShare 		+= chunk.productivityWeightedByMarketShare;
+			this.costWeightedByMarketShare 				+= chunk.costWeightedByMarketShare;
+			this.logProductivity 						+= chunk.logProductivity;
+			this.productionNominal 						+= chunk.productionNominal;
+			this.diffInventoriesNominal 				+= chunk.diffInventoriesNominal;
+			this.averageLaborProductivity 				+= chunk.averageLaborProductivity;
+			this.marketShareSquared 					+= chunk.marketShareSquared;
+			this.capitalStock 							+= chunk.capitalStock;
+			this.debt 									+= chunk.debt;
+			this.badDebt 								+= chunk.badDebt;
+			this.netWorthToSalesRatio 					+= chunk.netWorthToSalesRatio;
+			this.avgAgeMachines 						+= chunk.avgAgeMachines;
+			this.inventories 							+= chunk.inventories;
+			this.desiredProduction 						+= chunk.desiredProduction;
+			this.desiredCapitalStock 					+= chunk.desiredCapitalStock;
+			this.maxPossibleCapitalStock 				+= chunk.maxPossibleCapitalStock;
+			this.desiredExpansionaryInvestment 			+= chunk.desiredExpansionaryInvestment;
+			this.desiredExpansionaryInvestmentStar 		+= chunk.desiredExpansionaryInvestmentStar;
+		}
+
+	}
+
+	// Sums (and maximum) over the capital-good firms
+	public static final class KFirmTotals {
+
+		public double profit;
+		public double liquidAssets;
+		// Nominal production; only summed if the production of the sector is positive
+		public double productionNominal;
+		/* Productivity of the firms and of the machines they produce, weighted by the market share if the production of the sector is
+		 positive, summed otherwise */
+		public double productivityWeightedByMarketShare;
+		public double machineProductivityWeightedByMarketShare;
+		public double logProductivity;
+		public double marketShareSquared;
+		// Average labor productivity of the economy: the sum of the c-firms (CFirmTotals), continued over the k-firms
+		public double averageLaborProductivity;
+		public int maxClientsPerFirm;
+
+		private KFirmTotals(){
+		}
+
+		private void reset(){
+			this.profit 								= 0;
+			this.liquidAssets 							= 0;
+			this.productionNominal 						= 0;
+			this.productivityWeightedByMarketShare 		= 0;
+			this.machineProductivityWeightedByMarketShare = 0;
+			this.logProductivity 						= 0;
+			this.marketShareSquared 					= 0;
+			this.averageLaborProductivity 				= 0;
+			this.maxClientsPerFirm 						= 0;
+		}
+
+		private void accumulate(KFirm kFirm, double laborDemandUsedForProduction, boolean productionPositive){
+			double productivity 						= kFirm.getFirmProductivity()[1];
+			double machineProductivity 					= kFirm.getMachineProduced().getMachineProductivity()[1];
+			double marketShare 							= kFirm.getMarketShare()[2];
+
+			this.profit 								+= kFirm.getProfit();
+			this.liquidAssets 							+= kFirm.getLiquidAssetNow();
+			if(productionPositive){
+				this.productionNominal 					+= kFirm.getProductionQuantity() * kFirm.getPriceOfGoodProducedNow();
+				this.productivityWeightedByMarketShare 	+= productivity * marketShare;
+				this.machineProductivityWeightedByMarketShare += machineProductivity * marketShare;
+			} else {
+				this.productivityWeightedByMarketShare 	+= productivity;
+				this.machineProductivityWeightedByMarketShare += machineProductivity;
+			}
+			this.logProductivity 						+= Math.log(productivity);
+			this.marketShareSquared 					+= marketShare * marketShare;
+			this.averageLaborProductivity 				+= productivity * kFirm.getLaborDemandForProduction() / laborDemandUsedForProduction;
+			if(kFirm.getClients().size() > maxClientsPerFirm)
+				this.maxClientsPerFirm 					= kFirm.getClients().size();
+		}
+
+		private void merge(KFirmTotals chunk){
+			this.profit 								+= chunk.profit;
+			this.liquidAssets 							+= chunk.liquidAssets;
+			this.productionNominal 						+= chunk.productionNominal;
+			this.productivityWeightedByMarketShare 		+= chunk.productivityWeightedByMarketShare;
+			this.machineProductivityWeightedByMarketShare += chunk.machineProductivityWeightedByMarketShare;
+			this.logProductivity 						+= chunk.logProductivity;
+			this.marketShareSquared 					+= chunk.marketShareSquared;
+			this.averageLaborProductivity 				+= chunk.averageLaborProductivity;
+			this.maxClientsPerFirm 						= Math.max(maxClientsPerFirm, chunk.maxClientsPerFirm);
+		}
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Access methods
+	// ---------------------------------------------------------------------
+
+	public CFirmTotals getCFirmTotals() {
+		return cFirmTotals;
+	}
+
+	public KFirmTotals getKFirmTotals() {
+		return kFirmTotals;
+	}
+
+}
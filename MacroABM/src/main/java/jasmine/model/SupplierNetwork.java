@@ -0,0 +1,53 @@
+package jasmine.model;
+
+/* Network between the consumption-good firms and their supplier. Each c-firm has (at most) one supplier (CFirm.supplier), and each
+ k-firm the list of its clients (KFirm.clients). The network is the only place where both are modified, such that a c-firm is in the
+ clients of a k-firm if and only if the k-firm is its supplier.
+
+ The network persists from one period to the next: instead of clearing all the client lists in the brochure process and rebuilding them
+ when the c-firms choose their supplier, a c-firm is moved from the clients of its old supplier to the ones of its new supplier, in O(1),
+ only when it switches supplier. When a firm exits, its links are removed in O(1) for a c-firm, O(number of clients) for a k-firm.
+ */
+final class SupplierNetwork {
+
+	private SupplierNetwork(){
+	}
+
+	// The c-firm becomes a client of the supplier (it must not have a supplier yet)
+	static void link(CFirm client, KFirm supplier){
+
+		if(client.supplier != null)
+			throw new IllegalStateException("The c-firm already has a supplier");
+
+		client.supplier 						= supplier;
+		supplier.clients.add(client);
+	}
+
+	// The c-firm leaves the clients of its supplier, if any, and has no supplier anymore
+	static void unlink(CFirm client){
+
+		if(client.supplier != null){
+			client.supplier.clients.remove(client);
+			client.supplier 					= null;
+		}
+	}
+
+	// The c-firm switches to the given supplier (no change if it is already its supplier)
+	static void move(CFirm client, KFirm supplier){
+
+		if(client.supplier == supplier)
+			return;
+		unlink(client);
+		link(client, supplier);
+	}
+
+	// All the clients of the k-firm lose their supplier, e.g. when the k-firm exits. They will choose a new one (CFirm.chooseSupplier())
+	static void unlinkClients(KFirm supplier){
+
+		ClientList clients 						= supplier.clients;
+		for(int i = 0; i < clients.size(); i++)
+			clients.get(i).supplier 			= null;
+		clients.clear();
+	}
+
+}
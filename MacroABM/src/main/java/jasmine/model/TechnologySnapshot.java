@@ -0,0 +1,292 @@
+package jasmine.model;
+
+import java.util.List;
+
+import jasmine.algorithms.AliasSampler;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/* Snapshot of the technology of the capital-good firms at the beginning of the R&D phase: for each k-firm (by index in the model's
+ registry), the productivity of its production technique and of the machine it produces in (t-1), packed in arrays. Imitation is
+ based on these (t-1) technologies, such that no firm imitates the outcome of the imitation of another firm.
+
+ Imitation (Equation (16) in Dosi et al. (2013)): a firm draws the firm it imitates with a probability proportional to the inverse of
+ the Euclidean distance between their technologies. Rather than computing the weights of all the firms, the snapshot indexes the
+ technologies in a k-d tree, and draws the imitated firm by rejection sampling:
+ 	(a) the tree splits the firms in two halves at the median of the widest dimension of their bounding box, down to leaves of at most
+ 	LEAF_SIZE firms. As the splits follow the firms, the leaves hold a few firms whether the technologies are spread or clustered;
+ 	(b) a node whose bounding box is at a distance d of the imitating firm and whose diagonal is at most d ("far" node) is weighted by
+ 	(number of firms in the node) / d, an upper bound of the weights of its firms. The other nodes are opened, and the firms of the
+ 	leaves reached ("near" firms) are weighted exactly. A node whose firms all have the same technology is weighted exactly, or left out
+ 	if it is the technology of the imitating firm;
+ 	(c) a near firm or a far node is drawn with the alias method. A near firm is selected right away. In a far node, a firm is drawn
+ 	uniformly, and selected with probability (its weight) / (the upper bound of its node); otherwise a new draw takes place.
+ The firm selected is thus drawn with a probability exactly proportional to its weight. A firm of a far node is at a distance between d
+ and 2 x d, so that it is accepted with probability 1 / 2 or more. Only the nodes close to the imitating firm relative to their size are
+ opened: a draw typically visits O(log(number of k-firms)) nodes instead of computing O(number of k-firms) weights. This is not a bound:
+ in the worst case (e.g. firms spread along a curve around the imitating firm) most nodes are opened, and a draw costs
+ O(number of k-firms), as the exact weights.
+
+ The snapshot is rebuilt in each period (MacroModel.Processes.TechnologySnapshot). Its sampling buffers are re-used from one draw to the
+ next: the snapshot must not be used by several threads at the same time.
+ */
+class TechnologySnapshot {
+
+	// Maximum number of firms in a leaf of the tree (unless they all have the same technology)
+	private final static int LEAF_SIZE 		= 8;
+
+	private int size;
+
+	// Technologies in (t-1), by index of the firm in the registry
+	private double[] firmProductivity;
+
+	private double[] machineProductivity;
+
+	// Firms ordered such that the firms of each node are contiguous: order[nodeStart[n]], ..., order[nodeEnd[n] - 1]
+	private int[] order;
+
+	// Nodes of the tree (the root is node 0): firms, bounding box, and children (-1 for a leaf)
+	private int numberOfNodes;
+
+	private int[] nodeStart;
+
+	private int[] nodeEnd;
+
+	private double[] nodeMinFirmProductivity;
+
+	private double[] nodeMaxFirmProductivity;
+
+	private double[] nodeMinMachineProductivity;
+
+	private double[] nodeMaxMachineProductivity;
+
+	// Length of the diagonal of the bounding box
+	private double[] nodeDiagonal;
+
+	private int[] nodeLeft;
+
+	private int[] nodeRight;
+
+	// Nodes to visit during a draw
+	private int[] stack;
+
+	// Outcomes of the sampling: near firms (index of the firm) and far nodes (- 1 - index of the node), with their weights
+	private int[] outcomes;
+
+	private double[] outcomeWeights;
+
+	private double[] outcomeDistances;
+
+	private final AliasSampler sampler;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	TechnologySnapshot(int numberOfFirms){
+
+		this.size 								= 0;
+		this.firmProductivity 					= new double[0];
+		this.machineProductivity 				= new double[0];
+		this.sampler 							= new AliasSampler(Math.max(numberOfFirms, 1));
+		allocate(Math.max(numberOfFirms, 1));
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	void build(List<KFirm> kFirms){
+
+		this.size 								= kFirms.size();
+		if(firmProductivity.length < size)
+			allocate(size);
+
+		for(int i = 0; i < size; i++){
+			KFirm kFirm 						= kFirms.get(i);
+			this.firmProductivity[i] 			= kFirm.firmProductivity[0];
+			this.machineProductivity[i] 		= kFirm.machineProduced.getMachineProductivity()[0];
+			this.order[i] 						= i;
+		}
+
+		this.numberOfNodes 						= 0;
+		if(size > 0)
+			buildNode(0, size);
+	}
+
+	// Builds the node of the firms order[start], ..., order[end - 1] and its sub-tree. Returns the index of the node
+	private int buildNode(int start, int end){
+
+		int node 								= numberOfNodes++;
+		this.nodeStart[node] 					= start;
+		this.nodeEnd[node] 						= end;
+
+		double minX 							= Double.POSITIVE_INFINITY;
+		double maxX 							= Double.NEGATIVE_INFINITY;
+		double minY 							= Double.POSITIVE_INFINITY;
+		double maxY 							= Double.NEGATIVE_INFINITY;
+		for(int k = start; k < end; k++){
+			int i 								= order[k];
+			minX 								= Math.min(minX, firmProductivity[i]);
+			maxX 								= Math.max(maxX, firmProductivity[i]);
+			minY 								= Math.min(minY, machineProductivity[i]);
+			maxY 								= Math.max(maxY, machineProductivity[i]);
+		}
+		this.nodeMinFirmProductivity[node] 		= minX;
+		this.nodeMaxFirmProductivity[node] 		= maxX;
+		this.nodeMinMachineProductivity[node] 	= minY;
+		this.nodeMaxMachineProductivity[node] 	= maxY;
+		this.nodeDiagonal[node] 				= Math.sqrt((maxX - minX) * (maxX - minX) + (maxY - minY) * (maxY - minY));
+
+		if(end - start <= LEAF_SIZE || (minX == maxX && minY == maxY)){
+			this.nodeLeft[node] 				= -1;
+			this.nodeRight[node] 				= -1;
+		} else {
+			// Median split along the widest dimension
+			int middle 							= (start + end) >>> 1;
+			select(start, end - 1, middle, maxX - minX >= maxY - minY ? firmProductivity : machineProductivity);
+			int left 							= buildNode(start, middle);
+			int right 							= buildNode(middle, end);
+			this.nodeLeft[node] 				= left;
+			this.nodeRight[node] 				= right;
+		}
+		return node;
+	}
+
+	/* Draws the firm that the firm of index self imitates, with a probability proportional to the inverse of the Euclidean distance
+	 between their technologies. Returns the index of the firm, or -1 if all the firms have the same technology as firm self. */
+	int sampleImitation(int self, RandomGenerator rnd){
+
+		double x 								= firmProductivity[self];
+		double y 								= machineProductivity[self];
+
+		int numberOfOutcomes 					= 0;
+		int top 								= 0;
+		this.stack[top++] 						= 0;
+		while(top > 0){
+			int node 							= stack[--top];
+			double dx 							= gap(x, nodeMinFirmProductivity[node], nodeMaxFirmProductivity[node]);
+			double dy 							= gap(y, nodeMinMachineProductivity[node], nodeMaxMachineProductivity[node]);
+			double distance 					= Math.sqrt(dx * dx + dy * dy);
+			double diagonal 					= nodeDiagonal[node];
+
+			if(diagonal == 0 && distance == 0){
+				// Firms with the same technology as firm self: nothing to imitate
+				continue;
+			} else if(diagonal <= distance){
+				// Far node (exact weights if its firms have the same technology): upper bound of the weights of its firms
+				this.outcomes[numberOfOutcomes] 			= - 1 - node;
+				this.outcomeDistances[numberOfOutcomes] 	= distance;
+				this.outcomeWeights[numberOfOutcomes++] 	= (nodeEnd[node] - nodeStart[node]) / distance;
+			} else if(nodeLeft[node] < 0){
+				// Near leaf: exact weights of its firms
+				for(int k = nodeStart[node]; k < nodeEnd[node]; k++){
+					int i 						= order[k];
+					double weight 				= inverseDistance(x, y, i);
+					if(weight > 0){
+						this.outcomes[numberOfOutcomes] 		= i;
+						this.outcomeWeights[numberOfOutcomes++] = weight;
+					}
+				}
+			} else {
+				this.stack[top++] 				= nodeRight[node];
+				this.stack[top++] 				= nodeLeft[node];
+			}
+		}
+		// No difference between the firms: nothing to imitate
+		if(numberOfOutcomes == 0)
+			return -1;
+
+		sampler.build(outcomeWeights, numberOfOutcomes);
+		while(true){
+			int o 								= sampler.sample(rnd);
+			if(outcomes[o] >= 0)
+				return outcomes[o];
+
+			// Far node: draw one of its firms, and accept it with probability weight / upper bound
+			int node 							= - 1 - outcomes[o];
+			int i 								= order[nodeStart[node] + rnd.nextInt(nodeEnd[node] - nodeStart[node])];
+			if(rnd.nextDouble() < inverseDistance(x, y, i) * outcomeDistances[o])
+				return i;
+		}
+	}
+
+	// Inverse of the Euclidean distance between the technology (x, y) and the one of firm i, 0 if they are identical
+	private double inverseDistance(double x, double y, int i){
+		double distance 						= Math.sqrt( (x - firmProductivity[i]) * (x - firmProductivity[i]) +
+													(y - machineProductivity[i]) * (y - machineProductivity[i]) );
+		return distance > 0 ? 1 / distance : 0;
+	}
+
+	// Distance between the point v and the interval [min, max]
+	private static double gap(double v, double min, double max){
+		if(v < min)
+			return min - v;
+		if(v > max)
+			return v - max;
+		return 0;
+	}
+
+	/* Reorders order[from], ..., order[to] such that the firm at position k has the k-th smallest coordinate, the firms before it smaller
+	 or equal coordinates and the firms after it larger or equal coordinates (Wirth's selection). Deterministic, for the draws to be
+	 reproducible */
+	private void select(int from, int to, int k, double[] coordinate){
+
+		while(from < to){
+			double pivot 						= coordinate[order[k]];
+			int i 								= from;
+			int j 								= to;
+			do {
+				while(coordinate[order[i]] < pivot)
+					i++;
+				while(pivot < coordinate[order[j]])
+					j--;
+				if(i <= j){
+					int swap 					= order[i];
+					this.order[i++] 			= order[j];
+					this.order[j--] 			= swap;
+				}
+			} while(i <= j);
+			if(j < k)
+				from 							= i;
+			if(k < i)
+				to 								= j;
+		}
+	}
+
+	// Buffers for a number of firms. A tree of n firms has less than 2 x n nodes, and a draw less than n + 2 x n outcomes
+	private void allocate(int capacity){
+
+		this.firmProductivity 					= new double[capacity];
+		this.machineProductivity 				= new double[capacity];
+		this.order 								= new int[capacity];
+		int maxNodes 							= 2 * capacity;
+		this.nodeStart 							= new int[maxNodes];
+		this.nodeEnd 							= new int[maxNodes];
+		this.nodeMinFirmProductivity 			= new double[maxNodes];
+		this.nodeMaxFirmProductivity 			= new double[maxNodes];
+		this.nodeMinMachineProductivity 		= new double[maxNodes];
+		this.nodeMaxMachineProductivity 		= new double[maxNodes];
+		this.nodeDiagonal 						= new double[maxNodes];
+		this.nodeLeft 							= new int[maxNodes];
+		this.nodeRight 							= new int[maxNodes];
+		this.stack 								= new int[maxNodes];
+		this.outcomes 							= new int[capacity + maxNodes];
+		this.outcomeWeights 					= new double[capacity + maxNodes];
+		this.outcomeDistances 					= new double[capacity + maxNodes];
+	}
+
+	int size() {
+		return size;
+	}
+
+	double getFirmProductivity(int i) {
+		return firmProductivity[i];
+	}
+
+	double getMachineProductivity(int i) {
+		return machineProductivity[i];
+	}
+
+}
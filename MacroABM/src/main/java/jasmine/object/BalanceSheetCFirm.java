@@ -1,15 +1,11 @@
 package jasmine.object;
 
-import org.apache.log4j.Logger;
-
-import jasmine.data.Parameters;
 import jasmine.model.CFirm;
 import jasmine.model.MacroModel;
+import jasmine.model.RunContext;
 
 public class BalanceSheetCFirm {
 	
-	private final static Logger log = Logger.getLogger(BalanceSheetCFirm.class);
-	
 	// the balance sheet can be considered as an accountant, or simply as an object, that collects all the financial information of a firm, and perform
 	// the computation related to it 
 	
@@ -30,8 +26,13 @@ public class BalanceSheetCFirm {
 	private double debtInterest;
 	private double debtRepayment;
 	
+	// Payment of the firm as a function of its plan, with the variables of the firm of the current period (see snapshotPayment())
+	private PaymentFunction paymentFunction;
+	
 	MacroModel model;
 	
+	RunContext context;
+	
 	// ---------------------------------------------------------------------
 	// Constructors
 	// ---------------------------------------------------------------------
@@ -44,6 +45,7 @@ public class BalanceSheetCFirm {
 		
 		this.cFirm = cFirm;
 		this.model = model;
+		this.context = model.getContext();
 		
 	}
 	
@@ -51,20 +53,12 @@ public class BalanceSheetCFirm {
 	// Methods
 	// ---------------------------------------------------------------------
 	
-	public double payment(double q, long inv, double lD, double lP){
-		
-		double sales = cFirm.getPriceOfGoodProducedNow() * Math.min(q + cFirm.getInventories()[0], cFirm.getDemand()[0]);
-		double costProd = cFirm.getCostToProduceGood() * q;
-		double costInv = inv * cFirm.getSupplier().getPriceOfGoodProducedNow() / Parameters.getMachineSizeInCapital_cFirms();
+	/* Takes the variables of the firm the payment depends on, for the current period. To be called once the firm knows its desired plan, 
+	 before the a priori adjustments: these variables do not change until the update of its expenditures */
+	public void snapshotPayment(){
 		
-		double liqAssetRemain = Math.max(0, cFirm.getLiquidAsset()[0] - costProd - costInv);
+		this.paymentFunction = new PaymentFunction(cFirm, debt);
 		
-		double payment = (1 - model.getTaxRate()) * (sales  + MacroModel.getrDepo() * liqAssetRemain - MacroModel.getrDebt() * (debt + lD + lP)) + 
-				liqAssetRemain + lD - Parameters.getDebtRepaymentSharePerPeriod_cFirms() * (debt + lP + lD);
-		
-		log.info("Payment information: payment: " + payment);
-		
-		return payment;
 	}
 	
 	public void profit(){
@@ -74,6 +68,7 @@ public class BalanceSheetCFirm {
 	public void kill(){
 		
 		this.cFirm = null;
+		this.paymentFunction = null;
 		
 	}
 	
@@ -89,6 +84,10 @@ public class BalanceSheetCFirm {
 		this.cFirm = cFirm;
 	}
 
+	public PaymentFunction getPaymentFunction() {
+		return paymentFunction;
+	}
+
 	public double getDebt() {
 		return debt;
 	}
@@ -64,6 +64,11 @@ public class Machine implements Cloneable {
 		this.machineProductivity 				= a;
 	}
 
+	// In-place update of the productivity at t (the array is the machine's own, see KFirm.research())
+	public void setMachineProductivityNow(double a) {
+		this.machineProductivity[1] 			= a;
+	}
+
 	public double getCost() {
 		return cost;
 	}
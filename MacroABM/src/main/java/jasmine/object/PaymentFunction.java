@@ -0,0 +1,118 @@
+package jasmine.object;
+
+import jasmine.model.CFirm;
+
+/* Payment of a consumption-good firm at the end of the period (the objective of the financial adjustments, see APrioriAdjustments), as a
+ function of its production & investment plan (q, inv) and of the split of its loan between debt repayments (lD) and production &
+ investment (lP):
+
+ 	payment = (1 - tax) * (sales + rDepo * liqAssetRemain - rDebt * (debt + lD + lP)) + liqAssetRemain + lD - share * (debt + lP + lD)
+ 	with 	sales = p * min(q + inventories, demand)
+ 			liqAssetRemain = max(0, liquidAsset - c * q - inv * pMachine / machineSize)
+
+ The variables of the firm it depends on do not change between the a priori adjustments and the update of the expenditures: they are
+ taken once per period (see BalanceSheetCFirm.snapshotPayment()), in a new function, which is immutable. A function held by the rows of
+ the adjustments (see AdjustmentInputs) therefore always is the one of the period it was taken in. Its evaluation reads its own fields
+ only: no allocation, no logging and no shared state, so that it can be evaluated on any thread. The results are the ones of the
+ evaluation from the variables of the firm (same operations, in the same order).
+ */
+public final class PaymentFunction {
+
+	// priceOfGoodProduced[1], inventories[0], demand[0] and cost to produce of the firm
+	private final double price;
+	private final double inventories;
+	private final double demand;
+	private final double cost;
+	// price of the machines of the supplier, and number of units of capital per machine
+	private final double machinePrice;
+	private final double machineSize;
+	// liquidAsset[0], and the debt recorded in the balance sheet
+	private final double liquidAsset;
+	private final double debt;
+	// rates
+	private final double taxRate;
+	private final double rDepo;
+	private final double rDebt;
+	private final double debtRepaymentShare;
+
+	// ---------------------------------------------------------------------
+	// Constructors
+	// ---------------------------------------------------------------------
+
+	// Takes the variables of the firm for the current period
+	PaymentFunction(CFirm cFirm, double debt){
+
+		this(cFirm.getPriceOfGoodProducedNow(), cFirm.getInventories()[0], cFirm.getDemand()[0], cFirm.getCostToProduceGood(),
+				cFirm.getSupplier().getPriceOfGoodProducedNow(), cFirm.getContext().getParameters().getMachineSizeInCapital_cFirms(),
+				cFirm.getLiquidAsset()[0], debt, cFirm.getModel().getTaxRate(), cFirm.getContext().getrDepo(), cFirm.getContext().getrDebt(),
+				cFirm.getContext().getParameters().getDebtRepaymentSharePerPeriod_cFirms());
+
+	}
+
+	PaymentFunction(double price, double inventories, double demand, double cost, double machinePrice, double machineSize,
+			double liquidAsset, double debt, double taxRate, double rDepo, double rDebt, double debtRepaymentShare){
+
+		this.price 								= price;
+		this.inventories 						= inventories;
+		this.demand 							= demand;
+		this.cost 								= cost;
+		this.machinePrice 						= machinePrice;
+		this.machineSize 						= machineSize;
+		this.liquidAsset 						= liquidAsset;
+		this.debt 								= debt;
+		this.taxRate 							= taxRate;
+		this.rDepo 								= rDepo;
+		this.rDebt 								= rDebt;
+		this.debtRepaymentShare 				= debtRepaymentShare;
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	public double value(double q, long inv, double lD, double lP){
+
+		double sales = price * Math.min(q + inventories, demand);
+		double costProd = cost * q;
+		double costInv = inv * machinePrice / machineSize;
+
+		double liqAssetRemain = Math.max(0, liquidAsset - costProd - costInv);
+
+		return (1 - taxRate) * (sales  + rDepo * liqAssetRemain - rDebt * (debt + lD + lP)) +
+				liqAssetRemain + lD - debtRepaymentShare * (debt + lP + lD);
+	}
+
+	/* The payment is piecewise linear in q and inv: the derivatives below are the ones of the piece to the right of (q, inv), i.e. at a
+	 kink (q + inventories = demand, or liquid assets exhausted) the slope beyond it */
+
+	// Derivative with respect to production: the sales grow with q until the stock of goods reaches the demand; the production is paid by the liquid assets while there are some
+	public double derivativeProduction(double q, long inv){
+
+		double dSales 							= q + inventories < demand ? price : 0.;
+		double dLiqAssetRemain 					= hasLiquidAssetRemaining(q, inv) ? - cost : 0.;
+		return (1 - taxRate) * (dSales + rDepo * dLiqAssetRemain) + dLiqAssetRemain;
+	}
+
+	// Derivative with respect to investment, per unit of capital: the investment only reduces the liquid assets remaining
+	public double derivativeInvestment(double q, long inv){
+
+		double dLiqAssetRemain 					= hasLiquidAssetRemaining(q, inv) ? - machinePrice / machineSize : 0.;
+		return (1 - taxRate) * rDepo * dLiqAssetRemain + dLiqAssetRemain;
+	}
+
+	// Derivative with respect to the loan used for debt repayments (constant: positive as long as the net debt service is below 1)
+	public double derivativeLoanForDebtRepayment(){
+		return 1 - debtRepaymentShare - (1 - taxRate) * rDebt;
+	}
+
+	// Derivative with respect to the loan used for production & investment (constant, negative: the loan only adds to the debt service)
+	public double derivativeLoanForProductionAndInvestment(){
+		return - debtRepaymentShare - (1 - taxRate) * rDebt;
+	}
+
+	private boolean hasLiquidAssetRemaining(double q, long inv){
+		return liquidAsset - cost * q - inv * machinePrice / machineSize > 0;
+	}
+
+}
@@ -0,0 +1,238 @@
+package jasmine.object;
+
+import java.util.Arrays;
+
+/* The vintage table stores the capital stock of a consumption-good firm. Each row is a vintage of machines, i.e. a set of identical
+ machines that the firm received at the same time (delivery by its supplier, initial endowment or copy at entry). The columns are kept
+ in parallel primitive arrays:
+ 	(a) productivity of the machines (Equation (21.5) in Dosi et al. (2013) uses it to compute the firm's productivity)
+ 	(b) unit labor cost of production entailed by the machines (Equation (13.5) in Dosi et al. (2013)). It is not stored: all the
+ 	machines share the same wage, so the cost of a vintage is wage / productivity, and updating the wage rescales all the costs at once
+ 	(c) birth period of the vintage. The age of the vintage in period t is t - birth period
+ 	(d) number of machines of the vintage
+ 	(e) scrap flag: the firm plans to scrap the vintage if it has the resources to replace it (see CFirm.initialInvestmentExpenditures())
+
+ Rows keep the order in which the vintages entered the firm, also when vintages are removed. This order is used to break ties when
+ vintages are ranked (by productivity or cost).
+
+ The productivity of a vintage never changes, so the table also keeps an index of its rows ranked by productivity, from the most to the
+ least productive (ties in the order of the rows). The index is updated by a binary insertion when a vintage is added, and filtered when
+ empty vintages are removed. Selecting the most productive machines (CFirm.machineSelection()) is thus a walk along the index.
+
+ The table also keeps running totals over its vintages: the number of machines, the sum of birth period x number of machines and the
+ oldest birth period. The sum of age x number of machines in period t is then t x (number of machines) - sum of birth period x number of
+ machines, and the age of the oldest vintage tells whether any machine is too old. Neither requires a scan of the table. Likewise, the
+ sum of productivity x number of machines gives the productivity of the whole machine set (Equation (21.5) in Dosi et al. (2013)). This
+ floating-point sum is recomputed from scratch whenever the table is compacted, such that rounding errors do not build up.
+ */
+public class VintageTable {
+
+	private double[] productivity;
+
+	private int[] birthPeriod;
+
+	private int[] quantity;
+
+	private boolean[] toBeScrapped;
+
+	// Rows ranked by productivity, in descending order
+	private int[] productivityRanking;
+
+	// New row of each row during compaction (-1 if the row is removed)
+	private int[] newRows;
+
+	private int size;
+
+	// Running totals over the vintages of the table
+	private long totalQuantity;
+
+	private long birthPeriodQuantitySum;
+
+	private int oldestBirthPeriod;
+
+	private double productivityQuantitySum;
+
+	// Wage used to compute the unit labor cost of the machines
+	private double wage;
+
+	// ---------------------------------------------------------------------
+	// Constructors
+	// ---------------------------------------------------------------------
+
+	public VintageTable(int initialCapacity){
+
+		int capacity 							= Math.max(initialCapacity, 1);
+		this.productivity 						= new double[capacity];
+		this.birthPeriod 						= new int[capacity];
+		this.quantity 							= new int[capacity];
+		this.toBeScrapped 						= new boolean[capacity];
+		this.productivityRanking 				= new int[capacity];
+		this.newRows 							= new int[capacity];
+		this.size 								= 0;
+		this.totalQuantity 						= 0;
+		this.birthPeriodQuantitySum 			= 0;
+		this.oldestBirthPeriod 					= Integer.MAX_VALUE;
+		this.productivityQuantitySum 			= 0;
+		this.wage 								= 0;
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Methods
+	// ---------------------------------------------------------------------
+
+	// Adds a new vintage at the end of the table and returns its row
+	public int add(double productivity, int birthPeriod, int quantity){
+
+		if(size == this.productivity.length)
+			grow();
+
+		this.productivity[size] 				= productivity;
+		this.birthPeriod[size] 					= birthPeriod;
+		this.quantity[size] 					= quantity;
+		this.toBeScrapped[size] 				= false;
+		this.totalQuantity 						+= quantity;
+		this.birthPeriodQuantitySum 			+= (long) birthPeriod * quantity;
+		this.oldestBirthPeriod 					= Math.min(oldestBirthPeriod, birthPeriod);
+		this.productivityQuantitySum 			+= productivity * quantity;
+		
+		// The new vintage is ranked after the vintages at least as productive as itself
+		int low 								= 0;
+		int high 								= size;
+		while(low < high){
+			int middle 							= (low + high) >>> 1;
+			if(Double.compare(this.productivity[productivityRanking[middle]], productivity) >= 0)
+				low 							= middle + 1;
+			else
+				high 							= middle;
+		}
+		System.arraycopy(productivityRanking, low, productivityRanking, low + 1, size - low);
+		this.productivityRanking[low] 			= size;
+		return size++;
+	}
+
+	// Removes the vintages that have no machine left, keeping the order of the remaining ones
+	public void removeEmptyVintages(){
+
+		int j 									= 0;
+		this.oldestBirthPeriod 					= Integer.MAX_VALUE;
+		this.productivityQuantitySum 			= 0;
+		for(int i = 0; i < size; i++){
+			if(quantity[i] > 0){
+				this.oldestBirthPeriod 			= Math.min(oldestBirthPeriod, birthPeriod[i]);
+				this.productivityQuantitySum 	+= productivity[i] * quantity[i];
+				if(i != j){
+					this.productivity[j] 		= productivity[i];
+					this.birthPeriod[j] 		= birthPeriod[i];
+					this.quantity[j] 			= quantity[i];
+					this.toBeScrapped[j] 		= toBeScrapped[i];
+				}
+				this.newRows[i] 				= j;
+				j++;
+			} else
+				this.newRows[i] 				= -1;
+		}
+		
+		// Remove the empty vintages from the ranking, the remaining ones keep their rank order
+		int k 									= 0;
+		for(int rank = 0; rank < size; rank++){
+			int newRow 							= newRows[productivityRanking[rank]];
+			if(newRow >= 0)
+				this.productivityRanking[k++] 	= newRow;
+		}
+		this.size 								= j;
+	}
+
+	public void clearScrapFlags(){
+		Arrays.fill(toBeScrapped, 0, size, false);
+	}
+
+	private void grow(){
+
+		int capacity 							= 2 * productivity.length;
+		this.productivity 						= Arrays.copyOf(productivity, capacity);
+		this.birthPeriod 						= Arrays.copyOf(birthPeriod, capacity);
+		this.quantity 							= Arrays.copyOf(quantity, capacity);
+		this.toBeScrapped 						= Arrays.copyOf(toBeScrapped, capacity);
+		this.productivityRanking 				= Arrays.copyOf(productivityRanking, capacity);
+		this.newRows 							= new int[capacity];
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Access methods
+	// ---------------------------------------------------------------------
+
+	public int size() {
+		return size;
+	}
+
+	public double getProductivity(int i) {
+		return productivity[i];
+	}
+
+	// Unit labor cost of production entailed by the machines of the vintage, equation (13.5) in Dosi et al. (2013)
+	public double getCost(int i) {
+		return wage / productivity[i];
+	}
+
+	// Updates the unit labor cost of all the vintages
+	public void setWage(double wage) {
+		this.wage 								= wage;
+	}
+
+	// Row of the vintage with the given rank in productivity (rank 0 is the most productive vintage)
+	public int getRowByProductivityRank(int rank) {
+		return productivityRanking[rank];
+	}
+
+	public int getBirthPeriod(int i) {
+		return birthPeriod[i];
+	}
+
+	// Age of the vintage in the given period
+	public int getAge(int i, int period) {
+		return period - birthPeriod[i];
+	}
+
+	public int getQuantity(int i) {
+		return quantity[i];
+	}
+
+	public void setQuantity(int i, int quantity) {
+		this.totalQuantity 						+= quantity - this.quantity[i];
+		this.birthPeriodQuantitySum 			+= (long) birthPeriod[i] * (quantity - this.quantity[i]);
+		this.productivityQuantitySum 			+= productivity[i] * (quantity - this.quantity[i]);
+		this.quantity[i] 						= quantity;
+	}
+
+	// Total number of machines of the table
+	public long getTotalQuantity() {
+		return totalQuantity;
+	}
+
+	// Sum, over the vintages, of age x number of machines in the given period
+	public long getAgeQuantitySum(int period) {
+		return (long) period * totalQuantity - birthPeriodQuantitySum;
+	}
+
+	// Sum, over the vintages, of productivity x number of machines
+	public double getProductivityQuantitySum() {
+		return productivityQuantitySum;
+	}
+
+	/* Age of the oldest vintage in the given period (Integer.MIN_VALUE if the table is empty). NOTE: vintages emptied by setQuantity() 
+	 still count until the next call to removeEmptyVintages() */
+	public int getOldestAge(int period) {
+		return size == 0 ? Integer.MIN_VALUE : period - oldestBirthPeriod;
+	}
+
+	public boolean isToBeScrapped(int i) {
+		return toBeScrapped[i];
+	}
+
+	public void setToBeScrapped(int i, boolean toBeScrapped) {
+		this.toBeScrapped[i] 					= toBeScrapped;
+	}
+
+}
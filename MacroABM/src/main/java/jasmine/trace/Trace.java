@@ -0,0 +1,96 @@
+package jasmine.trace;
+
+import java.io.File;
+import java.io.IOException;
+
+/* Structured tracing of the model: typed trace points (see TracePoint) with primitive values, instead of log messages built by string
+ concatenation.
+
+ Tracing is enabled by the system property jasmine.trace, giving the path of the trace file (e.g. -Djasmine.trace=run.trace), and the
+ size of the buffer by jasmine.trace.capacity (number of records, 65536 by default). ENABLED is a constant: when tracing is disabled, the
+ JIT removes the body of record() and the guards "if(Trace.ENABLED)" around trace points whose values are costly to compute, so that
+ the trace points cost nothing.
+
+ When enabled, the records go to a lock-free ring buffer (TraceBuffer), drained by a daemon thread to the trace file (TraceWriter), which
+ is closed at the shutdown of the JVM or by close(). Decode it with TraceDecoder.
+ */
+public final class Trace {
+
+	public static final boolean ENABLED 		= System.getProperty("jasmine.trace") != null;
+
+	private static final TraceBuffer buffer;
+
+	private static final TraceWriter writer;
+
+	static {
+		if(ENABLED){
+			buffer 								= new TraceBuffer(Integer.getInteger("jasmine.trace.capacity", 1 << 16));
+			try {
+				writer 							= new TraceWriter(buffer, new File(System.getProperty("jasmine.trace")));
+			} catch (IOException e) {
+				throw new IllegalStateException("Cannot open the trace file " + System.getProperty("jasmine.trace"), e);
+			}
+			writer.start();
+			Runtime.getRuntime().addShutdownHook(new Thread(writer::close, "trace-close"));
+		} else {
+			buffer 								= null;
+			writer 								= null;
+		}
+	}
+
+	private Trace(){
+	}
+
+	// ---------------------------------------------------------------------
+	// Trace points
+	// ---------------------------------------------------------------------
+
+	public static void record(TracePoint point, double v0){
+		if(ENABLED)
+			offer(point, 1, v0, 0, 0, 0, 0, 0, 0, 0);
+	}
+
+	public static void record(TracePoint point, double v0, double v1){
+		if(ENABLED)
+			offer(point, 2, v0, v1, 0, 0, 0, 0, 0, 0);
+	}
+
+	public static void record(TracePoint point, double v0, double v1, double v2){
+		if(ENABLED)
+			offer(point, 3, v0, v1, v2, 0, 0, 0, 0, 0);
+	}
+
+	public static void record(TracePoint point, double v0, double v1, double v2, double v3){
+		if(ENABLED)
+			offer(point, 4, v0, v1, v2, v3, 0, 0, 0, 0);
+	}
+
+	public static void record(TracePoint point, double v0, double v1, double v2, double v3, double v4){
+		if(ENABLED)
+			offer(point, 5, v0, v1, v2, v3, v4, 0, 0, 0);
+	}
+
+	public static void record(TracePoint point, double v0, double v1, double v2, double v3, double v4, double v5){
+		if(ENABLED)
+			offer(point, 6, v0, v1, v2, v3, v4, v5, 0, 0);
+	}
+
+	public static void record(TracePoint point, double v0, double v1, double v2, double v3, double v4, double v5, double v6){
+		if(ENABLED)
+			offer(point, 7, v0, v1, v2, v3, v4, v5, v6, 0);
+	}
+
+	private static void offer(TracePoint point, int arity, double v0, double v1, double v2, double v3, double v4, double v5, double v6,
+			double v7){
+		if(point.getArity() != arity)
+			throw new IllegalArgumentException("Trace point " + point + " records " + point.getArity() + " values, not " + arity);
+		buffer.offer(point, arity, v0, v1, v2, v3, v4, v5, v6, v7);
+	}
+
+	// Writes the records already published and closes the trace file (no effect if tracing is disabled). Later records are lost
+	public static void close(){
+		if(ENABLED)
+			writer.close();
+	}
+
+}
@@ -0,0 +1,134 @@
+package jasmine.trace;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* Bounded, lock-free ring buffer of trace records, with several producers (the threads of the simulation, see FirmChunkExecutor) and a
+ single consumer (the TraceWriter).
+
+ Each slot holds a record: the ordinal of its trace point and up to MAX_VALUES doubles, stored in a flat array of longs. A slot has a
+ sequence number telling whether it is free for the record at position p (sequence == p) or holds it (sequence == p + 1), as in the
+ bounded queue of D. Vyukov: a producer claims a position with a compare-and-set on the tail, writes its record and publishes it by
+ setting the sequence of the slot; the consumer reads the record and frees the slot for position p + capacity.
+
+ When the buffer is full, the record is dropped (and counted) rather than blocking the simulation.
+ */
+class TraceBuffer {
+
+	static final int MAX_VALUES 				= 8;
+
+	// Longs per slot: the trace point, then the values
+	private static final int STRIDE 			= 1 + MAX_VALUES;
+
+	private static final TracePoint[] POINTS 	= TracePoint.values();
+
+	private final int capacity;
+
+	private final int mask;
+
+	private final long[] records;
+
+	private final AtomicLongArray sequences;
+
+	// Next position to claim by the producers
+	private final AtomicLong tail;
+
+	// Next position to read by the consumer (single thread)
+	private long head;
+
+	private final AtomicLong dropped;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	// The capacity (number of records) is rounded up to a power of 2
+	TraceBuffer(int capacity){
+
+		if(capacity <= 0)
+			throw new IllegalArgumentException("The capacity of the trace buffer must be positive");
+
+		int rounded 							= 1;
+		while(rounded < capacity)
+			rounded 							<<= 1;
+		this.capacity 							= rounded;
+		this.mask 								= this.capacity - 1;
+		this.records 							= new long[this.capacity * STRIDE];
+		this.sequences 							= new AtomicLongArray(this.capacity);
+		for(int slot = 0; slot < this.capacity; slot++)
+			this.sequences.set(slot, slot);
+		this.tail 								= new AtomicLong();
+		this.head 								= 0;
+		this.dropped 							= new AtomicLong();
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	// Producers: appends a record of arity values (the other values are ignored). Returns false if the buffer is full
+	boolean offer(TracePoint point, int arity, double v0, double v1, double v2, double v3, double v4, double v5, double v6, double v7){
+
+		long position;
+		int slot;
+		while(true){
+			position 							= tail.get();
+			slot 								= (int) (position & mask);
+			long difference 					= sequences.get(slot) - position;
+			if(difference == 0){
+				if(tail.compareAndSet(position, position + 1))
+					break;
+			} else if(difference < 0){
+				// The consumer has not freed the slot yet: the buffer is full
+				dropped.incrementAndGet();
+				return false;
+			}
+			// Otherwise another producer has claimed the position in the meantime: try the next one
+		}
+
+		int offset 								= slot * STRIDE;
+		records[offset] 						= point.ordinal();
+		switch(arity){
+		case 8: records[offset + 8] 			= Double.doubleToRawLongBits(v7);
+		case 7: records[offset + 7] 			= Double.doubleToRawLongBits(v6);
+		case 6: records[offset + 6] 			= Double.doubleToRawLongBits(v5);
+		case 5: records[offset + 5] 			= Double.doubleToRawLongBits(v4);
+		case 4: records[offset + 4] 			= Double.doubleToRawLongBits(v3);
+		case 3: records[offset + 3] 			= Double.doubleToRawLongBits(v2);
+		case 2: records[offset + 2] 			= Double.doubleToRawLongBits(v1);
+		case 1: records[offset + 1] 			= Double.doubleToRawLongBits(v0);
+		default:
+		}
+		// Publishes the record (the write of the sequence orders the writes of the record before it)
+		sequences.lazySet(slot, position + 1);
+		return true;
+	}
+
+	/* Consumer: copies the values of the next record in values (at least MAX_VALUES long), and frees its slot. Returns the ordinal of the
+	 trace point of the record, -1 if there is no record to read */
+	int poll(double[] values){
+
+		int slot 								= (int) (head & mask);
+		if(sequences.get(slot) != head + 1)
+			return -1;
+
+		int offset 								= slot * STRIDE;
+		int ordinal 							= (int) records[offset];
+		int arity 								= POINTS[ordinal].getArity();
+		for(int i = 0; i < arity; i++)
+			values[i] 							= Double.longBitsToDouble(records[offset + 1 + i]);
+		sequences.lazySet(slot, head + capacity);
+		head++;
+		return ordinal;
+	}
+
+	long getDropped() {
+		return dropped.get();
+	}
+
+	int getCapacity() {
+		return capacity;
+	}
+
+}
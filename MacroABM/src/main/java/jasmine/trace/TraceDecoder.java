@@ -0,0 +1,78 @@
+package jasmine.trace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/* Decodes a trace file written by the TraceWriter, one record per line:
+
+ 	<name of the trace point> <field>=<value> ...
+
+ The names of the trace points and of their fields are read from the header of the file, so that a trace can be decoded even if the
+ TracePoint enum has changed since it was written.
+
+ Usage: java jasmine.trace.TraceDecoder <trace file>
+ */
+public class TraceDecoder {
+
+	public static void main(String[] args) throws IOException {
+
+		if(args.length != 1){
+			System.err.println("Usage: java " + TraceDecoder.class.getName() + " <trace file>");
+			System.exit(1);
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(args[0]), 1 << 16))) {
+			decode(in, System.out);
+		}
+	}
+
+	public static void decode(DataInputStream in, PrintStream out) throws IOException {
+
+		if(in.readInt() != TraceWriter.MAGIC)
+			throw new IOException("Not a trace file");
+		int version 							= in.readInt();
+		if(version != TraceWriter.VERSION)
+			throw new IOException("Unsupported version of trace file: " + version);
+
+		// Header: the trace points and their fields
+		int numberOfPoints 						= in.readInt();
+		String[] names 							= new String[numberOfPoints];
+		String[][] fields 						= new String[numberOfPoints][];
+		for(int p = 0; p < numberOfPoints; p++){
+			names[p] 							= in.readUTF();
+			fields[p] 							= new String[in.readByte()];
+			for(int i = 0; i < fields[p].length; i++)
+				fields[p][i] 					= in.readUTF();
+		}
+
+		// Records, until the trailer
+		StringBuilder line 						= new StringBuilder();
+		while(true){
+			int ordinal;
+			try {
+				ordinal 						= in.readShort();
+			} catch (EOFException e) {
+				// The writer did not close the file (e.g. the JVM was killed): the last record may be incomplete
+				out.println("# trace truncated");
+				return;
+			}
+			if(ordinal < 0)
+				break;
+			if(ordinal >= numberOfPoints)
+				throw new IOException("Unknown trace point " + ordinal);
+
+			line.setLength(0);
+			line.append(names[ordinal]);
+			for(int i = 0; i < fields[ordinal].length; i++)
+				line.append(' ').append(fields[ordinal][i]).append('=').append(in.readDouble());
+			out.println(line);
+		}
+		long dropped 							= in.readLong();
+		if(dropped > 0)
+			out.println("# " + dropped + " record(s) dropped because the trace buffer was full");
+	}
+
+}
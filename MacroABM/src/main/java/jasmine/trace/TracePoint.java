@@ -0,0 +1,52 @@
+package jasmine.trace;
+
+/* Trace points of the model. Each point records a fixed number of primitive values, whose names are given here (at most
+ TraceBuffer.MAX_VALUES). The names are written in the header of the trace file, so that the TraceDecoder does not depend on this enum.
+ */
+public enum TracePoint {
+
+	// Start of a period (MacroCollector.update())
+	Period("time"),
+
+	// Exits of the period (MacroModel.exit())
+	ExitStatistics("exit_kFirms", "exit_cFirms", "exitLiquidityIssue_cFirms", "exitMarketShareIssue_cFirms", "exitAssetMarket_cFirms"),
+	// Number of firms after the entries (MacroModel.entry())
+	NumberOfFirms("cFirms", "kFirms"),
+
+	// Labor market (MacroModel.laborMarket())
+	LaborSupply("laborDemandForProduction", "laborSupplyRemaining"),
+	LaborRationing("rationingRatio"),
+	LaborMarket("laborDemand", "unemployment", "unemploymentRate"),
+
+	// Good market (MacroModel.marketCompetitiveness() and MacroCollector)
+	CompetitivenessAggregate("meanPrice", "meanUnfilledDemand"),
+	Consumption("govSpending", "unfilledDemandAggregate", "consumption"),
+	Production("production_kFirms", "production_cFirms"),
+	PriceIndices("cpiPrevious", "cpi", "ppiPrevious", "ppi"),
+
+	// Wage, equation (10) in Dosi et al. (2013) (MacroCollector.aggregateComputation())
+	WageInputs("wagePrevious", "unemploymentRatePrevious", "unemploymentRate", "cpiPrevious", "cpi", "averageLaborProductivityPrevious",
+			"averageLaborProductivity"),
+	WageVariations("diffUnemploymentRate", "diffCPI", "diffProductivity"),
+	Wage("wage"),
+
+	// Debt of the c-firms held by the bank, in the pseudo-rational debt repayment (Bank.accounting())
+	BankDebt("debt", "badDebt");
+
+	private final String[] fields;
+
+	private TracePoint(String... fields){
+		if(fields.length > TraceBuffer.MAX_VALUES)
+			throw new IllegalArgumentException("A trace point records at most " + TraceBuffer.MAX_VALUES + " values");
+		this.fields 							= fields;
+	}
+
+	public int getArity() {
+		return fields.length;
+	}
+
+	public String getField(int i) {
+		return fields[i];
+	}
+
+}
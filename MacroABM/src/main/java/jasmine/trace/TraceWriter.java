@@ -0,0 +1,111 @@
+package jasmine.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/* Daemon thread draining the TraceBuffer into a binary trace file, off the threads of the simulation.
+
+ Format (DataOutputStream, big-endian):
+ 	header: 	MAGIC (int), VERSION (int), number of trace points (int), then for each point its name (UTF), arity (byte) and field names (UTF)
+ 	records: 	ordinal of the trace point (short), then its values (double)
+ 	trailer: 	-1 (short), number of records dropped because the buffer was full (long)
+ See TraceDecoder.
+ */
+class TraceWriter extends Thread {
+
+	static final int MAGIC 						= 0x4A545243;		// "JTRC"
+
+	static final int VERSION 					= 1;
+
+	// Pause of the writer when the buffer is empty
+	private static final long IDLE_NANOS 		= TimeUnit.MILLISECONDS.toNanos(1);
+
+	private static final TracePoint[] POINTS 	= TracePoint.values();
+
+	private final TraceBuffer buffer;
+
+	private final DataOutputStream out;
+
+	private volatile boolean running;
+
+	// ---------------------------------------------------------------------
+	// Constructor
+	// ---------------------------------------------------------------------
+
+	TraceWriter(TraceBuffer buffer, File file) throws IOException {
+
+		super("trace-writer");
+		setDaemon(true);
+
+		this.buffer 							= buffer;
+		this.out 								= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		this.running 							= true;
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(POINTS.length);
+		for(TracePoint point : POINTS){
+			out.writeUTF(point.name());
+			out.writeByte(point.getArity());
+			for(int i = 0; i < point.getArity(); i++)
+				out.writeUTF(point.getField(i));
+		}
+
+	}
+
+	// ---------------------------------------------------------------------
+	// Own methods
+	// ---------------------------------------------------------------------
+
+	@Override
+	public void run() {
+
+		double[] values 						= new double[TraceBuffer.MAX_VALUES];
+		try {
+			while(running){
+				if(!drain(values))
+					LockSupport.parkNanos(IDLE_NANOS);
+			}
+			// Records published before close()
+			drain(values);
+			out.writeShort(-1);
+			out.writeLong(buffer.getDropped());
+			out.close();
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot write the trace file", e);
+		}
+	}
+
+	// Writes all the records available. Returns false if there was none
+	private boolean drain(double[] values) throws IOException {
+
+		boolean written 						= false;
+		int ordinal;
+		while((ordinal = buffer.poll(values)) >= 0){
+			out.writeShort(ordinal);
+			int arity 							= POINTS[ordinal].getArity();
+			for(int i = 0; i < arity; i++)
+				out.writeDouble(values[i]);
+			written 							= true;
+		}
+		return written;
+	}
+
+	// Stops the writer once it has written the records already published, and waits for the file to be closed
+	void close(){
+
+		this.running 							= false;
+		LockSupport.unpark(this);
+		try {
+			join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
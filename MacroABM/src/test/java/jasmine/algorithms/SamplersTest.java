@@ -0,0 +1,97 @@
+package jasmine.algorithms;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.commons.math3.distribution.BetaDistribution;
+import org.apache.commons.math3.distribution.BinomialDistribution;
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.junit.Test;
+
+/* Checks that the samplers draw the numbers the commons-math distributions they replace would have drawn (see KFirm.innovation() and
+ KFirm.imitation()): the sampler and the distribution draw from two generators with the same seed, and must return the same numbers and
+ consume the same random numbers. The beta distributions cover the algorithm BB (both parameters greater than 1) and the algorithm BC
+ (a parameter lower than or equal to 1), with alpha either the smallest or the largest parameter. */
+public class SamplersTest {
+
+	private final static int DRAWS 			= 100000;
+
+	private final static long SEED 			= 20130101;
+
+	@Test
+	public void betaAlgorithmBB(){
+
+		assertSameBeta(3, 3, -0.15, 0.15);
+		assertSameBeta(2, 5, -0.15, 0.15);
+		assertSameBeta(5, 2, 0, 1);
+		assertSameBeta(1.01, 40, -1, 2);
+	}
+
+	@Test
+	public void betaAlgorithmBC(){
+
+		assertSameBeta(0.5, 0.5, 0, 1);
+		assertSameBeta(0.3, 2, -0.15, 0.15);
+		assertSameBeta(2, 0.3, -0.15, 0.15);
+		// The algorithm BB is only used if both parameters are greater than 1
+		assertSameBeta(1, 3, 0, 1);
+		assertSameBeta(3, 1, -1, 2);
+	}
+
+	@Test
+	public void bernoulli(){
+
+		for(double p : new double[]{0, 1e-3, 0.1, 0.5, 0.9, 1})
+			assertSameBernoulli(p);
+	}
+
+	@Test
+	public void bernoulliWithAProbabilityPerDraw(){
+
+		// As in the imitation and innovation processes, where the probability depends on the R&D of the firm
+		RandomGenerator sampler 				= new MersenneTwister(SEED);
+		RandomGenerator distribution 			= new MersenneTwister(SEED);
+		RandomGenerator probabilities 			= new MersenneTwister(SEED + 1);
+		for(int d = 0; d < DRAWS; d++){
+			double p 							= probabilities.nextDouble();
+			assertEquals("p = " + p + ", draw " + d, new BinomialDistribution(distribution, 1, p).sample() == 1,
+					Samplers.bernoulli(sampler, p));
+		}
+		assertSameState(sampler, distribution);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void bernoulliWithAnInvalidProbability(){
+		Samplers.bernoulli(new MersenneTwister(SEED), 1.5);
+	}
+
+	private static void assertSameBeta(double alpha, double beta, double lower, double upper){
+
+		Samplers.ScaledBeta scaledBeta 			= new Samplers.ScaledBeta(alpha, beta, lower, upper);
+		RandomGenerator sampler 				= new MersenneTwister(SEED);
+		RandomGenerator distribution 			= new MersenneTwister(SEED);
+		for(int d = 0; d < DRAWS; d++){
+			// The distribution is created for every draw, as the firms did
+			double expected 					= new BetaDistribution(distribution, alpha, beta,
+													BetaDistribution.DEFAULT_INVERSE_ABSOLUTE_ACCURACY).sample();
+			assertEquals("Beta(" + alpha + ", " + beta + "), draw " + d, lower + expected * (upper - lower), scaledBeta.sample(sampler), 0);
+		}
+		assertSameState(sampler, distribution);
+	}
+
+	private static void assertSameBernoulli(double p){
+
+		RandomGenerator sampler 				= new MersenneTwister(SEED);
+		RandomGenerator distribution 			= new MersenneTwister(SEED);
+		BinomialDistribution binomial 			= new BinomialDistribution(distribution, 1, p);
+		for(int d = 0; d < DRAWS; d++)
+			assertEquals("p = " + p + ", draw " + d, binomial.sample() == 1, Samplers.bernoulli(sampler, p));
+		assertSameState(sampler, distribution);
+	}
+
+	// Both sides have consumed the same random numbers: the next ones are the same
+	private static void assertSameState(RandomGenerator sampler, RandomGenerator distribution){
+		assertEquals("Next random number", distribution.nextLong(), sampler.nextLong());
+	}
+
+}
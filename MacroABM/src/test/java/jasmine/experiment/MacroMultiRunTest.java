@@ -0,0 +1,53 @@
+package jasmine.experiment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+/* Checks that the runs of the batch mode write the same time series whatever the number of threads (see
+ MacroMultiRun.runWithoutEngine()): the runs of the same seeds, one after the other and on several threads, must write the same files,
+ byte for byte. */
+public class MacroMultiRunTest {
+
+	private final static int RUNS 				= 3;
+
+	private final static long FIRST_SEED 		= 7;
+
+	private final static double END_TIME 		= 60;
+
+	@Test
+	public void sameTimeSeriesWhateverTheNumberOfThreads() throws IOException {
+
+		File oneThread 							= Files.createTempDirectory("oneThread").toFile();
+		File threeThreads 						= Files.createTempDirectory("threeThreads").toFile();
+		try {
+			MacroMultiRun.runWithoutEngine(RUNS, 1, FIRST_SEED, END_TIME, oneThread);
+			MacroMultiRun.runWithoutEngine(RUNS, 3, FIRST_SEED, END_TIME, threeThreads);
+
+			for(int run = 0; run < RUNS; run++){
+				File expected 					= MacroMultiRun.runFile(oneThread, run);
+				File actual 					= MacroMultiRun.runFile(threeThreads, run);
+				assertTrue("Time series of run " + run + " written", expected.length() > 0 && actual.length() > 0);
+				assertArrayEquals("Time series of run " + run, Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath()));
+			}
+		} finally {
+			delete(oneThread);
+			delete(threeThreads);
+		}
+	}
+
+	private static void delete(File directory){
+
+		File[] files 							= directory.listFiles();
+		if(files != null)
+			for(File file : files)
+				file.delete();
+		directory.delete();
+	}
+
+}
@@ -0,0 +1,125 @@
+package jasmine.experiment;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import microsim.event.EventGroup;
+
+import org.junit.Test;
+
+import jasmine.enums.DebtRepayment;
+import jasmine.model.MacroModel;
+
+/* Allocation budget of a period of the sequential schedule, once the run is warmed up. The firms work in buffers they keep from one
+ period to the next: apart from the exit and the entry of firms, a period only allocates a few small objects per firm, mainly the machines
+ delivered by the capital-good firms and scrapped by the consumption-good firms, and the buffers of the entrants grow in their first
+ periods. The random streams reuse the generator of each agent (see RandomStreams). With the pseudo-rational debt repayment, each c-firm
+ also takes a new, immutable, payment function per period (see BalanceSheetCFirm.snapshotPayment()), which has its own allowance. The
+ kernels that must not allocate at all are checked by KernelAllocationTest.
+
+ The bytes allocated by the thread running the period are counted by the JVM (com.sun.management.ThreadMXBean), without those of the
+ exit and entry processes. They must stay below the budget of the debt repayment per firm and per period, plus the allowance of the
+ payment functions. The budgets are just above the steady state (79 bytes per firm and per period with the myopic debt repayment, 53
+ with the pseudo-rational one, with a 64-bit HotSpot JVM): another array or object per c-firm and per period, e.g. a double[3], exceeds
+ them. The test is skipped if
+ the JVM does not count the bytes allocated by a thread. */
+public class PeriodAllocationTest {
+
+	private final static int WARM_UP_PERIODS 		= 150;
+
+	private final static int MEASURED_PERIODS 		= 100;
+
+	private final static long BYTES_PER_FIRM_MYOPIC 	= 88;
+
+	private final static long BYTES_PER_FIRM_PSEUDO_RATIONAL = 64;
+
+	// A PaymentFunction: object header and 12 doubles, per c-firm and per period of the pseudo-rational debt repayment
+	private final static long PAYMENT_FUNCTION_BYTES = 112;
+
+	@Test
+	public void myopicDebtRepayment(){
+		assertWithinBudget(DebtRepayment.Myopic, BYTES_PER_FIRM_MYOPIC);
+	}
+
+	@Test
+	public void pseudoRationalDebtRepayment(){
+		assertWithinBudget(DebtRepayment.Psuedo_Rational, BYTES_PER_FIRM_PSEUDO_RATIONAL);
+	}
+
+	private static void assertWithinBudget(DebtRepayment debtRepayment, long bytesPerFirm){
+
+		ThreadMXBean threads 					= ManagementFactory.getThreadMXBean();
+		assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+		assumeTrue(allocations.isThreadAllocatedMemorySupported());
+		allocations.setThreadAllocatedMemoryEnabled(true);
+
+		MeasuredModel model 					= new MeasuredModel(allocations);
+		MacroCollector collector 				= new MacroCollector(model);
+		model.setCollector(collector);
+		collector.setExportToCSV(false);
+		collector.setExportToDatabase(false);
+		collector.setExportFirmsData(false);
+		collector.setExportBankData(false);
+		model.setDebtRepayment(debtRepayment);
+		model.setEndTime((double) (WARM_UP_PERIODS + MEASURED_PERIODS));
+
+		model.buildObjects();
+		collector.buildObjects();
+		EventGroup period 						= model.buildPeriodEventGroup();
+		for(int t = 0; t < WARM_UP_PERIODS; t++)
+			period.fireEvent();
+
+		long bytes 								= 0;
+		long firmPeriods 						= 0;
+		long cFirmPeriods 						= 0;
+		int periods 							= 0;
+		model.exitAndEntryBytes 				= 0;
+		for(; periods < MEASURED_PERIODS && !model.getContext().isStopped(); periods++){
+			long start 							= model.allocatedBytes();
+			period.fireEvent();
+			bytes 								+= model.allocatedBytes() - start;
+			firmPeriods 						+= model.getCFirms().size() + model.getKFirms().size();
+			cFirmPeriods 						+= model.getCFirms().size();
+		}
+		bytes 									-= model.exitAndEntryBytes;
+		if(debtRepayment == DebtRepayment.Psuedo_Rational)
+			bytes 								-= PAYMENT_FUNCTION_BYTES * cFirmPeriods;
+
+		assertTrue(debtRepayment + ": " + bytes + " bytes allocated in " + periods + " periods (exit and entry, and payment functions " +
+				"excluded), i.e. " + bytes / firmPeriods + " bytes per firm and per period, over the budget of " + bytesPerFirm,
+				bytes <= bytesPerFirm * firmPeriods);
+	}
+
+	// Model counting the bytes allocated by its exit and entry processes
+	private static class MeasuredModel extends MacroModel {
+
+		private final com.sun.management.ThreadMXBean allocations;
+
+		long exitAndEntryBytes;
+
+		MeasuredModel(com.sun.management.ThreadMXBean allocations){
+			this.allocations 					= allocations;
+		}
+
+		@Override
+		public void onEvent(Enum<?> type) {
+
+			if(type == Processes.Exit || type == Processes.Entry){
+				long start 						= allocatedBytes();
+				super.onEvent(type);
+				this.exitAndEntryBytes 			+= allocatedBytes() - start;
+			} else {
+				super.onEvent(type);
+			}
+		}
+
+		long allocatedBytes(){
+			return allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+	}
+
+}
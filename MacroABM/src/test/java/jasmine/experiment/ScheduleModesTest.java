@@ -0,0 +1,66 @@
+package jasmine.experiment;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import jasmine.enums.DebtRepayment;
+import jasmine.model.MacroModel;
+
+/* Checks that the schedules of a run yield the same trajectory, bit for bit: the parallel schedule, the batch adjustments, the fusion of
+ the processes and the concurrent stages (with and without validation) must write the same time series as the sequential schedule, for
+ the same seed and the same chunk size (see FirmChunkExecutor and RandomStreams). The chunks are small, so that the firms are split into
+ several chunks. */
+public class ScheduleModesTest {
+
+	private final static String SEED 			= "7";
+
+	private final static String END_TIME 		= "120";
+
+	private final static String CHUNK_SIZE 		= "16";
+
+	@Test
+	public void myopicDebtRepayment(){
+		assertSameTimeSeries(DebtRepayment.Myopic);
+	}
+
+	@Test
+	public void pseudoRationalDebtRepayment(){
+		assertSameTimeSeries(DebtRepayment.Psuedo_Rational);
+	}
+
+	private static void assertSameTimeSeries(DebtRepayment debtRepayment){
+
+		String sequential 						= run(debtRepayment);
+		assertEquals("parallel schedule", sequential, run(debtRepayment, "parallelScheduling", "true"));
+		assertEquals("parallel schedule, batch adjustments", sequential,
+				run(debtRepayment, "parallelScheduling", "true", "batchAdjustments", "true"));
+		assertEquals("parallel schedule, fusion", sequential, run(debtRepayment, "parallelScheduling", "true", "fuseFirmProcesses", "true"));
+		assertEquals("fusion", sequential, run(debtRepayment, "fuseFirmProcesses", "true"));
+		assertEquals("concurrent stages", sequential, run(debtRepayment, "concurrentStages", "true"));
+		assertEquals("concurrent stages, validation", sequential,
+				run(debtRepayment, "concurrentStages", "true", "validateConcurrentStages", "true"));
+	}
+
+	// Time series of a run without the engine (see MacroBatch), with the parameters given as pairs of name and value
+	private static String run(DebtRepayment debtRepayment, String... parameters){
+
+		MacroModel model 						= MacroBatch.newModel();
+		MacroBatch.setParameter(model, "seedIfFixed", SEED);
+		MacroBatch.setParameter(model, "endTime", END_TIME);
+		MacroBatch.setParameter(model, "parallelChunkSize", CHUNK_SIZE);
+		MacroBatch.setParameter(model, "debtRepayment", debtRepayment.name());
+		for(int i = 0; i < parameters.length; i += 2)
+			MacroBatch.setParameter(model, parameters[i], parameters[i + 1]);
+
+		StringWriter timeSeries 				= new StringWriter();
+		try(PrintWriter out = new PrintWriter(timeSeries)){
+			MacroBatch.run(model, out);
+		}
+		return timeSeries.toString();
+	}
+
+}
@@ -0,0 +1,173 @@
+package jasmine.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Field;
+import java.util.Random;
+
+import microsim.data.db.PanelEntityKey;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import jasmine.experiment.MacroCollector;
+
+/* Compares the one-pass allocation of the consumption (ConsumptionAllocator) with the reference allocation in rounds
+ (MacroModel.consumptionAllocationRounds()), on random markets and on markets where the stock of a firm exactly meets its demand. */
+public class ConsumptionAllocatorTest {
+
+	private final static double TOLERANCE 		= 1e-9;
+
+	private MacroModel model;
+
+	private MacroCollector collector;
+
+	@Before
+	public void setUp(){
+
+		this.model 								= new MacroModel();
+		this.collector 							= new MacroCollector(model);
+		model.setCollector(collector);
+
+	}
+
+	@Test
+	public void randomMarkets(){
+
+		Random random 							= new Random(20130101);
+		for(int market = 0; market < 2000; market++){
+			int numberOfFirms 					= 1 + random.nextInt(60);
+			double[] shares 					= new double[numberOfFirms];
+			double[] stocks 					= new double[numberOfFirms];
+			double totalStock 					= 0;
+			for(int j = 0; j < numberOfFirms; j++){
+				// Some firms have left the allocation (no market share), some have no goods
+				shares[j] 						= random.nextInt(5) == 0 ? 0 : random.nextDouble();
+				stocks[j] 						= random.nextInt(8) == 0 ? 0 : 100 * random.nextDouble();
+				totalStock 						+= stocks[j];
+			}
+			// Market shares are normalized in the model, but the allocation does not rely on it
+			if(random.nextBoolean())
+				normalize(shares);
+			double consumption 					= 2 * totalStock * random.nextDouble();
+
+			assertSameAllocation("market " + market, shares, stocks, consumption);
+		}
+	}
+
+	@Test
+	public void stockMeetsDemandInFirstRound(){
+
+		/* The first firm exactly meets its demand of the first round (250): it sells its whole stock, but stays in the allocation until
+		 the second round, where its share of the consumption left (2) is not sold. The consumption left is then lower than 1, and the
+		 allocation stops. The second firm runs out of goods in the first round */
+		FirmRegistry<CFirm> cFirms 				= assertSameAllocation("tie", new double[]{0.25, 0.25, 0.25, 0.25},
+				new double[]{250, 248, 1000, 1000}, 1000);
+
+		assertFirm(cFirms.get(0), 250, 0, 0, 0);
+		assertFirm(cFirms.get(1), 250, 2, 0, 0);
+		assertFirm(cFirms.get(2), 250 + 2. / 3, 0, 750 - 2. / 3, 0.5);
+		assertFirm(cFirms.get(3), 250 + 2. / 3, 0, 750 - 2. / 3, 0.5);
+		assertEquals(2. / 3, collector.realConsumption, TOLERANCE);
+	}
+
+	@Test
+	public void firmsWithTheSameStockToShareRatio(){
+
+		// The first two firms run out of goods in the same round, whatever their order in the ranking
+		FirmRegistry<CFirm> cFirms 				= assertSameAllocation("same ratio", new double[]{0.2, 0.4, 0.4},
+				new double[]{10, 20, 500}, 100);
+
+		assertFirm(cFirms.get(0), 20, 10, 0, 0);
+		assertFirm(cFirms.get(1), 40, 20, 0, 0);
+		assertFirm(cFirms.get(2), 70, 0, 430, 1);
+	}
+
+	@Test
+	public void consumptionLeftEqualToOne(){
+
+		// The consumption left after the first round is exactly 1: the allocation goes on for another round
+		FirmRegistry<CFirm> cFirms 				= assertSameAllocation("stop rule", new double[]{0.5, 0.5},
+				new double[]{4, 100}, 10);
+
+		assertFirm(cFirms.get(0), 5, 1, 0, 0);
+		assertFirm(cFirms.get(1), 6, 0, 94, 1);
+		assertEquals(0, collector.realConsumption, TOLERANCE);
+	}
+
+	@Test
+	public void consumptionLowerThanOne(){
+
+		// No allocation takes place: the firms keep their variables
+		FirmRegistry<CFirm> cFirms 				= assertSameAllocation("no allocation", new double[]{0.5, 0.5},
+				new double[]{4, 100}, 0.5);
+
+		assertFirm(cFirms.get(0), 0, 0, 4, 0.5);
+		assertFirm(cFirms.get(1), 0, 0, 100, 0.5);
+	}
+
+	/* Runs the allocator, then the reference allocation on the same firms, and checks that their results are the same. Returns the
+	 firms, with the results of the reference allocation */
+	private FirmRegistry<CFirm> assertSameAllocation(String name, double[] shares, double[] stocks, double consumption){
+
+		FirmRegistry<CFirm> cFirms 				= new FirmRegistry<CFirm>(shares.length);
+		for(int j = 0; j < shares.length; j++)
+			cFirms.add(cFirm(j, shares[j], stocks[j]));
+		model.setCFirms(cFirms);
+
+		ConsumptionAllocator allocator 			= new ConsumptionAllocator(cFirms.size());
+		double realConsumption 					= allocator.allocate(cFirms, consumption);
+
+		collector.realConsumption 				= consumption;
+		model.consumptionAllocationRounds();
+
+		assertEquals(name + ": differences with the reference allocation", 0, allocator.validate(cFirms, collector.realConsumption));
+		assertEquals(name + ": consumption left", collector.realConsumption, realConsumption, TOLERANCE * Math.max(1, consumption));
+		return cFirms;
+	}
+
+	private CFirm cFirm(long id, double share, double stock){
+
+		CFirm cFirm 							= new CFirm();
+		cFirm.model 							= model;
+		cFirm.collector 						= collector;
+		setKey(cFirm, id);
+		cFirm.demand 							= new double[]{0, 0};
+		cFirm.marketShare 						= new double[]{share, share, share};
+		cFirm.marketShareTemp 					= share;
+		cFirm.stockFinalGood 					= stock;
+		cFirm.unfilledDemand 					= 0;
+		return cFirm;
+	}
+
+	// The key of a firm is only set by the constructors that create it in a run. It identifies the firm in the logs of validate()
+	private static void setKey(CFirm cFirm, long id){
+
+		try {
+			Field key 							= CFirm.class.getDeclaredField("key");
+			key.setAccessible(true);
+			key.set(cFirm, new PanelEntityKey(id));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void assertFirm(CFirm cFirm, double demand, double unfilledDemand, double stock, double marketShare){
+
+		assertEquals("demand", demand, cFirm.demand[1], TOLERANCE * Math.max(1, demand));
+		assertEquals("unfilled demand", unfilledDemand, cFirm.unfilledDemand, TOLERANCE * Math.max(1, unfilledDemand));
+		assertEquals("stock", stock, cFirm.stockFinalGood, TOLERANCE * Math.max(1, stock));
+		assertEquals("market share", marketShare, cFirm.marketShareTemp, TOLERANCE);
+	}
+
+	private static void normalize(double[] shares){
+
+		double total 							= 0;
+		for(double share : shares)
+			total 								+= share;
+		if(total > 0)
+			for(int j = 0; j < shares.length; j++)
+				shares[j] 						/= total;
+	}
+
+}
@@ -0,0 +1,148 @@
+package jasmine.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import microsim.engine.SimulationManager;
+import microsim.event.EventGroup;
+
+import org.junit.Test;
+
+import jasmine.enums.DebtRepayment;
+import jasmine.experiment.MacroCollector;
+
+/* Checks that the kernels of the period that used to allocate per firm allocate nothing once the run is warmed up: the normalization of
+ the market shares on the columns of the c-firms (see FirmColumns), the price indices, computed in place on the firms, and the research of
+ the capital-good firms, including their random streams (see RandomStreams). The rest of the period has a budget per firm (see
+ PeriodAllocationTest).
+
+ The bytes allocated by the thread are counted by the JVM (com.sun.management.ThreadMXBean), net of the bytes the count itself allocates.
+ The test is skipped if the JVM does not count the bytes allocated by a thread. */
+public class KernelAllocationTest {
+
+	private final static int WARM_UP_PERIODS 		= 150;
+
+	private final static int MEASURED_PERIODS 		= 50;
+
+	@Test
+	public void myopicDebtRepayment(){
+		assertNoAllocation(DebtRepayment.Myopic);
+	}
+
+	@Test
+	public void pseudoRationalDebtRepayment(){
+		assertNoAllocation(DebtRepayment.Psuedo_Rational);
+	}
+
+	private static void assertNoAllocation(DebtRepayment debtRepayment){
+
+		ThreadMXBean threads 					= ManagementFactory.getThreadMXBean();
+		assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+		assumeTrue(allocations.isThreadAllocatedMemorySupported());
+		allocations.setThreadAllocatedMemoryEnabled(true);
+		Counter counter 						= new Counter(allocations);
+
+		MacroModel model 						= new MacroModel();
+		MeasuredCollector collector 			= new MeasuredCollector(model, counter);
+		model.setCollector(collector);
+		collector.setExportToCSV(false);
+		collector.setExportToDatabase(false);
+		collector.setExportFirmsData(false);
+		collector.setExportBankData(false);
+		model.setDebtRepayment(debtRepayment);
+		model.setEndTime((double) (WARM_UP_PERIODS + MEASURED_PERIODS + 1));
+
+		model.buildObjects();
+		collector.buildObjects();
+		EventGroup period 						= model.buildPeriodEventGroup();
+		for(int t = 0; t < WARM_UP_PERIODS; t++)
+			period.fireEvent();
+
+		collector.measured 						= true;
+		for(int t = 0; t < MEASURED_PERIODS && !model.getContext().isStopped(); t++)
+			period.fireEvent();
+		collector.measured 						= false;
+
+		// The research of the k-firms, once more at the end of the last period
+		long researchBytes 						= 0;
+		for(KFirm kFirm : model.getKFirms()){
+			long start 							= counter.start();
+			kFirm.research();
+			researchBytes 						+= counter.bytesSince(start);
+		}
+
+		assertEquals(debtRepayment + ", bytes allocated by marketShareNormalization()", 0, collector.marketShareNormalizationBytes);
+		assertEquals(debtRepayment + ", bytes allocated by priceIndices()", 0, collector.priceIndicesBytes);
+		assertEquals(debtRepayment + ", bytes allocated by research()", 0, researchBytes);
+	}
+
+	// Bytes allocated by the thread, net of the bytes allocated by the count
+	private static class Counter {
+
+		private final com.sun.management.ThreadMXBean allocations;
+
+		private final long overhead;
+
+		Counter(com.sun.management.ThreadMXBean allocations){
+			this.allocations 					= allocations;
+			long overhead 						= Long.MAX_VALUE;
+			for(int i = 0; i < 100; i++){
+				long start 						= allocatedBytes();
+				overhead 						= Math.min(overhead, allocatedBytes() - start);
+			}
+			this.overhead 						= overhead;
+		}
+
+		long start(){
+			return allocatedBytes();
+		}
+
+		long bytesSince(long start){
+			return allocatedBytes() - start - overhead;
+		}
+
+		private long allocatedBytes(){
+			return allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+	}
+
+	// Collector counting the bytes allocated by the kernels, while measured
+	private static class MeasuredCollector extends MacroCollector {
+
+		private final Counter counter;
+
+		boolean measured;
+
+		long marketShareNormalizationBytes;
+
+		long priceIndicesBytes;
+
+		MeasuredCollector(SimulationManager manager, Counter counter){
+			super(manager);
+			this.counter 						= counter;
+		}
+
+		@Override
+		public void marketShareNormalization(FirmColumns columns){
+
+			long start 							= counter.start();
+			super.marketShareNormalization(columns);
+			if(measured)
+				this.marketShareNormalizationBytes += counter.bytesSince(start);
+		}
+
+		@Override
+		public void priceIndices(){
+
+			long start 							= counter.start();
+			super.priceIndices();
+			if(measured)
+				this.priceIndicesBytes 			+= counter.bytesSince(start);
+		}
+	}
+
+}
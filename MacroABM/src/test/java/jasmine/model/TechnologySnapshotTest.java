@@ -0,0 +1,115 @@
+package jasmine.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.junit.Test;
+
+import jasmine.object.Machine;
+
+/* Checks that the imitated firms are drawn by the snapshot with the frequencies of the exact weights of Equation (16) in Dosi et al.
+ (2013), the inverse of the Euclidean distance between the technologies, when the technologies are spread and when they are clustered. */
+public class TechnologySnapshotTest {
+
+	private final static int DRAWS 			= 200000;
+
+	// Largest deviation allowed between the frequency of a firm and its probability, in standard deviations of the frequency
+	private final static double MAX_DEVIATION 	= 5.5;
+
+	@Test
+	public void spreadTechnologies(){
+
+		Random random 							= new Random(1);
+		double[] firmProductivity 				= new double[200];
+		double[] machineProductivity 			= new double[200];
+		for(int i = 0; i < 200; i++){
+			firmProductivity[i] 				= Math.exp(random.nextGaussian());
+			machineProductivity[i] 				= Math.exp(0.3 * random.nextGaussian());
+		}
+		assertFrequencies(firmProductivity, machineProductivity, 0, 17, 199);
+	}
+
+	@Test
+	public void clusteredTechnologies(){
+
+		/* Most firms share (almost) the same technology, as when the firms have imitated the same leader, a few lag behind. Some firms
+		 have exactly the technology of another firm: they are never drawn by that firm */
+		Random random 							= new Random(2);
+		double[] firmProductivity 				= new double[300];
+		double[] machineProductivity 			= new double[300];
+		for(int i = 0; i < 300; i++){
+			if(i < 250){
+				firmProductivity[i] 			= 1.5 + 1e-9 * random.nextDouble();
+				machineProductivity[i] 			= 1.2 + 1e-9 * random.nextDouble();
+			} else if(i < 280){
+				firmProductivity[i] 			= 1.5;
+				machineProductivity[i] 			= 1.2;
+			} else {
+				firmProductivity[i] 			= random.nextDouble();
+				machineProductivity[i] 			= random.nextDouble();
+			}
+		}
+		assertFrequencies(firmProductivity, machineProductivity, 3, 260, 290);
+	}
+
+	@Test
+	public void sameTechnologies(){
+
+		TechnologySnapshot snapshot 			= snapshot(new double[]{1, 1, 1}, new double[]{2, 2, 2});
+		assertEquals(-1, snapshot.sampleImitation(1, new MersenneTwister(3)));
+	}
+
+	private static void assertFrequencies(double[] firmProductivity, double[] machineProductivity, int... imitatingFirms){
+
+		TechnologySnapshot snapshot 			= snapshot(firmProductivity, machineProductivity);
+		RandomGenerator rnd 					= new MersenneTwister(20130101);
+		int n 									= firmProductivity.length;
+		for(int self : imitatingFirms){
+			double[] weights 					= new double[n];
+			double totalWeight 					= 0;
+			for(int i = 0; i < n; i++){
+				double distance 				= Math.hypot(firmProductivity[self] - firmProductivity[i], machineProductivity[self] - machineProductivity[i]);
+				weights[i] 						= distance > 0 ? 1 / distance : 0;
+				totalWeight 					+= weights[i];
+			}
+
+			int[] draws 						= new int[n];
+			for(int d = 0; d < DRAWS; d++)
+				draws[snapshot.sampleImitation(self, rnd)]++;
+
+			for(int i = 0; i < n; i++){
+				double probability 				= weights[i] / totalWeight;
+				if(probability == 0){
+					assertEquals("Firm " + i + " has the technology of firm " + self, 0, draws[i]);
+				} else {
+					double deviation 			= Math.abs(draws[i] - DRAWS * probability) / Math.sqrt(DRAWS * probability * (1 - probability));
+					assertTrue("Firm " + i + " drawn " + draws[i] + " times by firm " + self + ", expected " + DRAWS * probability,
+							deviation < MAX_DEVIATION);
+				}
+			}
+		}
+	}
+
+	private static TechnologySnapshot snapshot(double[] firmProductivity, double[] machineProductivity){
+
+		List<KFirm> kFirms 						= new ArrayList<KFirm>();
+		for(int i = 0; i < firmProductivity.length; i++){
+			KFirm kFirm 						= new KFirm();
+			kFirm.firmProductivity 				= new double[]{firmProductivity[i], firmProductivity[i]};
+			Machine machine 					= new Machine();
+			machine.setMachineProductivity(new double[]{machineProductivity[i], machineProductivity[i]});
+			kFirm.machineProduced 				= machine;
+			kFirms.add(kFirm);
+		}
+		TechnologySnapshot snapshot 			= new TechnologySnapshot(kFirms.size());
+		snapshot.build(kFirms);
+		return snapshot;
+	}
+
+}
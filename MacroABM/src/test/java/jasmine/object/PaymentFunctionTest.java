@@ -0,0 +1,154 @@
+package jasmine.object;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Random;
+
+import org.junit.Test;
+
+/* Checks the payment function of the c-firms: its value is the payment of the firm, its derivatives are the slopes of its pieces (to the
+ right of the point, measured by finite differences that do not cross a kink), and the function cannot change once taken. */
+public class PaymentFunctionTest {
+
+	private final static int FUNCTIONS 			= 10000;
+
+	private final static long SEED 				= 20130101;
+
+	// Step of the finite differences, in units of production, of capital and of loan
+	private final static double STEP 			= 1e-3;
+
+	private final static double TOLERANCE 		= 1e-6;
+
+	@Test
+	public void value(){
+
+		Random random 							= new Random(SEED);
+		for(int f = 0; f < FUNCTIONS; f++){
+			Firm firm 							= new Firm(random);
+			double q 							= 100 * random.nextDouble();
+			long inv 							= random.nextInt(50);
+			double lD 							= 50 * random.nextDouble();
+			double lP 							= 50 * random.nextDouble();
+			assertEquals("function " + f, firm.payment(q, inv, lD, lP), firm.function().value(q, inv, lD, lP), 0);
+		}
+	}
+
+	@Test
+	public void derivatives(){
+
+		Random random 							= new Random(SEED);
+		int checked 							= 0;
+		for(int f = 0; f < FUNCTIONS; f++){
+			Firm firm 							= new Firm(random);
+			PaymentFunction payment 			= firm.function();
+			double q 							= 100 * random.nextDouble();
+			long inv 							= random.nextInt(50);
+			double lD 							= 50 * random.nextDouble();
+			double lP 							= 50 * random.nextDouble();
+			double value 						= payment.value(q, inv, lD, lP);
+
+			// The loans have a constant slope
+			assertEquals("function " + f + ", loan for debt repayments", payment.derivativeLoanForDebtRepayment(),
+					(payment.value(q, inv, lD + STEP, lP) - value) / STEP, TOLERANCE);
+			assertEquals("function " + f + ", loan for production & investment", payment.derivativeLoanForProductionAndInvestment(),
+					(payment.value(q, inv, lD, lP + STEP) - value) / STEP, TOLERANCE);
+
+			// Production and investment, unless a kink lies within the step
+			if(!firm.hasKinkBetween(q, q + STEP, inv, inv)){
+				assertEquals("function " + f + ", production", payment.derivativeProduction(q, inv),
+						(payment.value(q + STEP, inv, lD, lP) - value) / STEP, TOLERANCE);
+				checked++;
+			}
+			// The investment is in units of capital, the payment is linear between two units unless a kink lies between them
+			if(!firm.hasKinkBetween(q, q, inv, inv + 1))
+				assertEquals("function " + f + ", investment", payment.derivativeInvestment(q, inv),
+						payment.value(q, inv + 1, lD, lP) - value, TOLERANCE);
+		}
+		assertTrue("Points away from the kinks: " + checked, checked > FUNCTIONS / 2);
+	}
+
+	@Test
+	public void derivativesAtTheKinks(){
+
+		// price 2, inventories 10, demand 50, cost 1, machines of 40 units of capital at 20, liquid assets 100, debt 30
+		PaymentFunction payment 				= new PaymentFunction(2, 10, 50, 1, 20, 40, 100, 30, 0.1, 0.01, 0.02, 0.05);
+
+		// Below the demand, the production sells and is paid by the liquid assets
+		assertEquals(0.9 * (2 - 0.01) - 1, payment.derivativeProduction(39, 0), TOLERANCE);
+		// The stock of goods reaches the demand (q = 40): producing more does not sell more
+		assertEquals(0.9 * (- 0.01) - 1, payment.derivativeProduction(40, 0), TOLERANCE);
+		assertEquals(payment.derivativeProduction(40, 0), (payment.value(40 + STEP, 0, 0, 0) - payment.value(40, 0, 0, 0)) / STEP, TOLERANCE);
+		assertEquals(0.9 * 0.01 * - 0.5 - 0.5, payment.derivativeInvestment(40, 0), TOLERANCE);
+
+		// The liquid assets are exhausted (q = 100): producing or investing more does not reduce them any more
+		assertEquals(0, payment.derivativeProduction(100, 0), 0);
+		assertEquals(0, payment.derivativeInvestment(100, 0), 0);
+		assertEquals(0, payment.value(100 + STEP, 1, 0, 0) - payment.value(100, 0, 0, 0), TOLERANCE);
+	}
+
+	@Test
+	public void immutable(){
+
+		for(Field field : PaymentFunction.class.getDeclaredFields())
+			assertTrue(field.getName() + " is final", Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()));
+	}
+
+	// Variables of a firm, drawn at random, and its payment as in the Dosi et al. (2013) model
+	private static class Firm {
+
+		final double price;
+		final double inventories;
+		final double demand;
+		final double cost;
+		final double machinePrice;
+		final double machineSize;
+		final double liquidAsset;
+		final double debt;
+		final double taxRate;
+		final double rDepo;
+		final double rDebt;
+		final double debtRepaymentShare;
+
+		Firm(Random random){
+			this.price 							= 1 + random.nextDouble();
+			this.inventories 					= 20 * random.nextDouble();
+			this.demand 						= 100 * random.nextDouble();
+			this.cost 							= 0.5 + random.nextDouble();
+			this.machinePrice 					= 10 + 10 * random.nextDouble();
+			this.machineSize 					= 40;
+			this.liquidAsset 					= 100 * random.nextDouble();
+			this.debt 							= 100 * random.nextDouble();
+			this.taxRate 						= 0.1;
+			this.rDepo 							= 0.01 * random.nextDouble();
+			this.rDebt 							= 0.05 * random.nextDouble();
+			this.debtRepaymentShare 			= 0.1 * random.nextDouble();
+		}
+
+		PaymentFunction function(){
+			return new PaymentFunction(price, inventories, demand, cost, machinePrice, machineSize, liquidAsset, debt, taxRate, rDepo,
+					rDebt, debtRepaymentShare);
+		}
+
+		double payment(double q, long inv, double lD, double lP){
+
+			double sales 						= price * Math.min(q + inventories, demand);
+			double liqAssetRemain 				= Math.max(0, liquidAsset - cost * q - inv * machinePrice / machineSize);
+			return (1 - taxRate) * (sales + rDepo * liqAssetRemain - rDebt * (debt + lD + lP)) + liqAssetRemain + lD -
+					debtRepaymentShare * (debt + lP + lD);
+		}
+
+		// Whether the demand is reached or the liquid assets are exhausted between the two plans
+		boolean hasKinkBetween(double q0, double q1, double inv0, double inv1){
+
+			boolean demandReached 				= q0 + inventories < demand != q1 + inventories < demand;
+			boolean liquidAssetExhausted 		= liquidAsset - cost * q0 - inv0 * machinePrice / machineSize > 0 !=
+													liquidAsset - cost * q1 - inv1 * machinePrice / machineSize > 0;
+			return demandReached || liquidAssetExhausted;
+		}
+
+	}
+
+}